@@ -20,11 +20,15 @@ package org.apache.plc4x.camel;
 
 import org.apache.camel.Endpoint;
 import org.apache.camel.impl.DefaultComponent;
+import org.apache.plc4x.java.PooledPlcDriverManager;
 
 import java.util.Map;
 
 public class Plc4XComponent extends DefaultComponent {
 
+    // Shared by all endpoints, so consumers and producers of the same PLC share their connections.
+    private final PooledPlcDriverManager plcDriverManager = new PooledPlcDriverManager();
+
     @Override
     protected Endpoint createEndpoint(String uri, String remaining, Map<String, Object> parameters) throws Exception {
         Endpoint endpoint = new Plc4XEndpoint(uri, this);
@@ -37,4 +41,15 @@ public class Plc4XComponent extends DefaultComponent {
         Plc4XEndpoint plc4XEndpoint = (Plc4XEndpoint) endpoint;
         plc4XEndpoint.setDriver(remaining.split(":")[0]);
     }
+
+    public PooledPlcDriverManager getPlcDriverManager() {
+        return plcDriverManager;
+    }
+
+    @Override
+    protected void doShutdown() throws Exception {
+        plcDriverManager.close();
+        super.doShutdown();
+    }
+
 }
\ No newline at end of file
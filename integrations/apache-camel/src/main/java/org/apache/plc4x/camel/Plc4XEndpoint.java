@@ -25,6 +25,7 @@ import org.apache.camel.spi.UriEndpoint;
 import org.apache.camel.spi.UriParam;
 import org.apache.camel.spi.UriPath;
 import org.apache.plc4x.java.PlcDriverManager;
+import org.apache.plc4x.java.PooledPlcDriverManager;
 
 import java.util.Objects;
 
@@ -57,9 +58,18 @@ public class Plc4XEndpoint extends DefaultEndpoint {
 
     private final PlcDriverManager plcDriverManager;
 
+    // Only set, if the endpoint created the manager itself and so has to close it.
+    private final PooledPlcDriverManager ownPlcDriverManager;
+
     public Plc4XEndpoint(String endpointUri, Component component) {
         super(endpointUri, component);
-        plcDriverManager = new PlcDriverManager();
+        if (component instanceof Plc4XComponent) {
+            plcDriverManager = ((Plc4XComponent) component).getPlcDriverManager();
+            ownPlcDriverManager = null;
+        } else {
+            ownPlcDriverManager = new PooledPlcDriverManager();
+            plcDriverManager = ownPlcDriverManager;
+        }
     }
 
     @Override
@@ -86,6 +96,14 @@ public class Plc4XEndpoint extends DefaultEndpoint {
         return plcDriverManager;
     }
 
+    @Override
+    protected void doShutdown() throws Exception {
+        if (ownPlcDriverManager != null) {
+            ownPlcDriverManager.close();
+        }
+        super.doShutdown();
+    }
+
     public String getDriver() {
         return driver;
     }
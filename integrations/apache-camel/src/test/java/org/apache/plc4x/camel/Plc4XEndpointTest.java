@@ -20,12 +20,15 @@ package org.apache.plc4x.camel;
 
 import org.apache.camel.Component;
 import org.apache.camel.Processor;
+import org.apache.plc4x.java.api.exceptions.PlcConnectionException;
 import org.junit.Before;
 import org.junit.Test;
 
 import static org.hamcrest.core.Is.is;
 import static org.hamcrest.core.IsNull.notNullValue;
+import static org.hamcrest.core.IsSame.sameInstance;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
 import static org.mockito.Mockito.mock;
 
 public class Plc4XEndpointTest {
@@ -52,4 +55,25 @@ public class Plc4XEndpointTest {
         assertThat(SUT.isSingleton(), is(true));
     }
 
+    @Test
+    public void shutdownClosesOwnDriverManager() throws Exception {
+        SUT.shutdown();
+        try {
+            SUT.getPlcDriverManager().getConnection("mock:10.10.10.1");
+            fail("Driver manager should have been closed");
+        } catch (PlcConnectionException e) {
+            assertThat(e.getMessage(), is("Connection pool already closed"));
+        }
+    }
+
+    @Test
+    public void shutdownKeepsDriverManagerOfComponent() throws Exception {
+        Plc4XComponent component = new Plc4XComponent();
+        SUT = new Plc4XEndpoint("plc4x:mock:10.10.10.1/1/1", component);
+        SUT.shutdown();
+        assertThat(SUT.getPlcDriverManager(), sameInstance(component.getPlcDriverManager()));
+        assertThat(component.getPlcDriverManager().getConnection("mock:10.10.10.1"), notNullValue());
+        component.shutdown();
+    }
+
 }
\ No newline at end of file
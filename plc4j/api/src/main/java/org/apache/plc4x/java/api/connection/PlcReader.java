@@ -20,6 +20,7 @@ package org.apache.plc4x.java.api.connection;
 
 import org.apache.plc4x.java.api.messages.PlcReadRequest;
 import org.apache.plc4x.java.api.messages.PlcReadResponse;
+import org.apache.plc4x.java.api.messages.PreparedPlcReadRequest;
 import org.apache.plc4x.java.api.messages.specific.TypeSafePlcReadRequest;
 import org.apache.plc4x.java.api.messages.specific.TypeSafePlcReadResponse;
 
@@ -53,4 +54,27 @@ public interface PlcReader {
             .thenApply(readResponse -> TypeSafePlcReadResponse.of(readResponse, readRequest.getDataType()));
     }
 
+    /**
+     * Prepares a read request for being executed repeatedly. By default the prepared request simply
+     * passes the read request to {@link #read(PlcReadRequest)} on every execution, drivers can override
+     * this to do the work that is the same for every execution only once.
+     *
+     * @param readRequest object describing the type and location of the values.
+     * @return the prepared request.
+     */
+    default PreparedPlcReadRequest prepare(PlcReadRequest readRequest) {
+        Objects.requireNonNull(readRequest, "Read request must not be null");
+        return new PreparedPlcReadRequest() {
+            @Override
+            public PlcReadRequest getReadRequest() {
+                return readRequest;
+            }
+
+            @Override
+            public CompletableFuture<? extends PlcReadResponse> execute() {
+                return read(readRequest);
+            }
+        };
+    }
+
 }
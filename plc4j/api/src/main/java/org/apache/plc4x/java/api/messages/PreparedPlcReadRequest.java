@@ -0,0 +1,46 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+package org.apache.plc4x.java.api.messages;
+
+import org.apache.plc4x.java.api.connection.PlcReader;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * {@link PlcReadRequest} prepared by {@link PlcReader#prepare(PlcReadRequest)} for being executed repeatedly,
+ * e.g. in polling loops. Drivers can do all the work that is the same for every execution of the request
+ * (e.g. translating the addresses and splitting the request up into multiple protocol messages) only once.
+ *
+ * The read request must not be changed after preparing it.
+ */
+public interface PreparedPlcReadRequest {
+
+    /**
+     * @return the prepared read request.
+     */
+    PlcReadRequest getReadRequest();
+
+    /**
+     * Reads the values of the prepared request from the PLC.
+     *
+     * @return a {@link CompletableFuture} giving async access to the returned values.
+     */
+    CompletableFuture<? extends PlcReadResponse> execute();
+
+}
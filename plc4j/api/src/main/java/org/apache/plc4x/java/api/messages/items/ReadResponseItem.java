@@ -18,6 +18,7 @@
 */
 package org.apache.plc4x.java.api.messages.items;
 
+import org.apache.plc4x.java.api.types.PrimitiveValueList;
 import org.apache.plc4x.java.api.types.ResponseCode;
 
 import java.util.Arrays;
@@ -28,6 +29,9 @@ import java.util.Objects;
  * Response to a {@link ReadRequestItem}.
  * Can contain a list of values if the size in {@link ReadRequestItem} is larger zero.
  *
+ * Values of the primitive wrapper types can also be fetched as primitive arrays (e.g. {@link #getFloatValues()}).
+ * If the driver provided the values as {@link PrimitiveValueList} this doesn't require boxing the single values.
+ *
  * @param <T>
  */
 public class ReadResponseItem<T> extends ResponseItem<ReadRequestItem<T>> {
@@ -37,9 +41,16 @@ public class ReadResponseItem<T> extends ResponseItem<ReadRequestItem<T>> {
     public ReadResponseItem(ReadRequestItem<T> requestItem, ResponseCode responseCode, List<T> values) {
         super(requestItem, responseCode);
         Objects.requireNonNull(values, "Values must not be null");
-        for (T value : values) {
-            if (!requestItem.getDatatype().isAssignableFrom(value.getClass())) {
-                throw new IllegalArgumentException("Datatype of " + value + " doesn't macht required datatype of " + requestItem.getDatatype());
+        if (values instanceof PrimitiveValueList) {
+            Class<?> datatype = ((PrimitiveValueList<?>) values).getDatatype();
+            if (!requestItem.getDatatype().isAssignableFrom(datatype)) {
+                throw new IllegalArgumentException("Datatype " + datatype + " doesn't macht required datatype of " + requestItem.getDatatype());
+            }
+        } else {
+            for (T value : values) {
+                if (!requestItem.getDatatype().isAssignableFrom(value.getClass())) {
+                    throw new IllegalArgumentException("Datatype of " + value + " doesn't macht required datatype of " + requestItem.getDatatype());
+                }
             }
         }
         this.values = values;
@@ -54,6 +65,116 @@ public class ReadResponseItem<T> extends ResponseItem<ReadRequestItem<T>> {
         return values;
     }
 
+    /**
+     * @return the values as primitive array.
+     * @throws IllegalStateException if the values aren't of type {@link Boolean}.
+     */
+    public boolean[] getBooleanValues() {
+        if (values instanceof PrimitiveValueList) {
+            return ((PrimitiveValueList<T>) values).toBooleanArray();
+        }
+        checkDatatype(Boolean.class);
+        boolean[] result = new boolean[values.size()];
+        int i = 0;
+        for (T value : values) {
+            result[i++] = (Boolean) value;
+        }
+        return result;
+    }
+
+    /**
+     * @return the values as primitive array.
+     * @throws IllegalStateException if the values aren't of type {@link Byte}.
+     */
+    public byte[] getByteValues() {
+        if (values instanceof PrimitiveValueList) {
+            return ((PrimitiveValueList<T>) values).toByteArray();
+        }
+        checkDatatype(Byte.class);
+        byte[] result = new byte[values.size()];
+        int i = 0;
+        for (T value : values) {
+            result[i++] = (Byte) value;
+        }
+        return result;
+    }
+
+    /**
+     * @return the values as primitive array.
+     * @throws IllegalStateException if the values aren't of type {@link Short}.
+     */
+    public short[] getShortValues() {
+        if (values instanceof PrimitiveValueList) {
+            return ((PrimitiveValueList<T>) values).toShortArray();
+        }
+        checkDatatype(Short.class);
+        short[] result = new short[values.size()];
+        int i = 0;
+        for (T value : values) {
+            result[i++] = (Short) value;
+        }
+        return result;
+    }
+
+    /**
+     * @return the values as primitive array.
+     * @throws IllegalStateException if the values aren't of type {@link Integer}.
+     */
+    public int[] getIntValues() {
+        if (values instanceof PrimitiveValueList) {
+            return ((PrimitiveValueList<T>) values).toIntArray();
+        }
+        checkDatatype(Integer.class);
+        int[] result = new int[values.size()];
+        int i = 0;
+        for (T value : values) {
+            result[i++] = (Integer) value;
+        }
+        return result;
+    }
+
+    /**
+     * @return the values as primitive array.
+     * @throws IllegalStateException if the values aren't of type {@link Float}.
+     */
+    public float[] getFloatValues() {
+        if (values instanceof PrimitiveValueList) {
+            return ((PrimitiveValueList<T>) values).toFloatArray();
+        }
+        checkDatatype(Float.class);
+        float[] result = new float[values.size()];
+        int i = 0;
+        for (T value : values) {
+            result[i++] = (Float) value;
+        }
+        return result;
+    }
+
+    /**
+     * @return the values as primitive array.
+     * @throws IllegalStateException if the values aren't of type {@link Double}.
+     */
+    public double[] getDoubleValues() {
+        if (values instanceof PrimitiveValueList) {
+            return ((PrimitiveValueList<T>) values).toDoubleArray();
+        }
+        checkDatatype(Double.class);
+        double[] result = new double[values.size()];
+        int i = 0;
+        for (T value : values) {
+            result[i++] = (Double) value;
+        }
+        return result;
+    }
+
+    private void checkDatatype(Class<?> datatype) {
+        for (T value : values) {
+            if (value.getClass() != datatype) {
+                throw new IllegalStateException("Value " + value + " is not of type " + datatype.getSimpleName());
+            }
+        }
+    }
+
     @Override
     public String toString() {
         return "ReadResponseItem{" +
@@ -20,6 +20,7 @@ package org.apache.plc4x.java.api.messages.specific;
 
 import org.apache.plc4x.java.api.messages.PlcReadResponse;
 import org.apache.plc4x.java.api.messages.items.ReadResponseItem;
+import org.apache.plc4x.java.api.types.PrimitiveValueList;
 
 import java.util.List;
 import java.util.Objects;
@@ -93,6 +94,13 @@ public class TypeSafePlcReadResponse<T> extends PlcReadResponse {
     private static void checkList(List<?> list, Class<?> type) {
         Objects.requireNonNull(list, "List must not be null");
         Objects.requireNonNull(type, "Type must not be null");
+        if (list instanceof PrimitiveValueList) {
+            Class<?> datatype = ((PrimitiveValueList<?>) list).getDatatype();
+            if (!type.isAssignableFrom(datatype)) {
+                throw new IllegalArgumentException("Unexpected data type " + datatype + " on readRequestItem. Expected " + type);
+            }
+            return;
+        }
         for (Object o : list) {
             if (!type.isAssignableFrom(o.getClass())) {
                 throw new IllegalArgumentException("Unexpected data type " + o.getClass() + " on readRequestItem. Expected " + type);
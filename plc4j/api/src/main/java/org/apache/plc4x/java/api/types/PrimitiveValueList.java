@@ -0,0 +1,56 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+package org.apache.plc4x.java.api.types;
+
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Read-only {@link List} of values of one of the primitive wrapper types, which can be converted
+ * into the corresponding primitive array without boxing every single value.
+ *
+ * Drivers can return such a list as values of a
+ * {@link org.apache.plc4x.java.api.messages.items.ReadResponseItem}, e.g. as a view on the
+ * received bytes, so large array reads don't have to create an object per element.
+ *
+ * The conversion methods only support the datatype of the list and throw an
+ * {@link IllegalStateException} for all others.
+ *
+ * @param <T> type of the values (e.g. {@link Float}).
+ */
+public interface PrimitiveValueList<T> extends List<T>, RandomAccess {
+
+    /**
+     * @return the type of the values in this list.
+     */
+    Class<T> getDatatype();
+
+    boolean[] toBooleanArray();
+
+    byte[] toByteArray();
+
+    short[] toShortArray();
+
+    int[] toIntArray();
+
+    float[] toFloatArray();
+
+    double[] toDoubleArray();
+
+}
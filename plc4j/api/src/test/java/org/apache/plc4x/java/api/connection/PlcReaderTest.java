@@ -18,20 +18,25 @@
  */
 package org.apache.plc4x.java.api.connection;
 
+import org.apache.plc4x.java.api.messages.PlcReadRequest;
 import org.apache.plc4x.java.api.messages.PlcReadResponse;
+import org.apache.plc4x.java.api.messages.PreparedPlcReadRequest;
 import org.apache.plc4x.java.api.messages.items.ReadResponseItem;
 import org.apache.plc4x.java.api.messages.specific.TypeSafePlcReadRequest;
 import org.apache.plc4x.java.api.model.Address;
 import org.apache.plc4x.java.api.types.ResponseCode;
 import org.junit.Test;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.sameInstance;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.fail;
 import static org.mockito.Mockito.mock;
@@ -44,6 +49,21 @@ public class PlcReaderTest {
             .read(new TypeSafePlcReadRequest<>(String.class, mock(Address.class))).get();
     }
 
+    @Test
+    public void prepare() throws Exception {
+        List<PlcReadRequest> readRequests = new ArrayList<>();
+        PlcReader reader = readRequest -> {
+            readRequests.add(readRequest);
+            return CompletableFuture.completedFuture(new PlcReadResponse(readRequest, Collections.emptyList()));
+        };
+        PlcReadRequest readRequest = new PlcReadRequest(String.class, mock(Address.class));
+        PreparedPlcReadRequest preparedReadRequest = reader.prepare(readRequest);
+        assertThat(preparedReadRequest.getReadRequest(), sameInstance(readRequest));
+        preparedReadRequest.execute().get();
+        preparedReadRequest.execute().get();
+        assertThat(readRequests, contains(readRequest, readRequest));
+    }
+
     @Test
     public void readWrongType() throws Exception {
         try {
@@ -75,6 +75,24 @@ public class APIMessageTests {
         assertThat("Unexpected read request item", readResponseItem.getRequestItem(), equalTo(readRequestItem));
     }
 
+    @Test
+    @Category(FastTests.class)
+    public void readResponseItemPrimitiveValues() {
+        MockAddress address = new MockAddress("mock:/DATA");
+        ReadRequestItem<Float> readRequestItem = new ReadRequestItem<>(Float.class, address, 2);
+        ReadResponseItem<Float> readResponseItem = new ReadResponseItem<>(readRequestItem, ResponseCode.OK, 1.5f, -2.0f);
+        assertThat(readResponseItem.getFloatValues(), equalTo(new float[]{1.5f, -2.0f}));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    @Category(FastTests.class)
+    public void readResponseItemPrimitiveValuesOfWrongType() {
+        MockAddress address = new MockAddress("mock:/DATA");
+        ReadRequestItem<Float> readRequestItem = new ReadRequestItem<>(Float.class, address, 1);
+        ReadResponseItem<Float> readResponseItem = new ReadResponseItem<>(readRequestItem, ResponseCode.OK, 1.5f);
+        readResponseItem.getIntValues();
+    }
+
     @Test
     @Category(FastTests.class)
     public void writeRequestItem() {
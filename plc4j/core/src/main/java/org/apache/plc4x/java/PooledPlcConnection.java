@@ -0,0 +1,127 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+package org.apache.plc4x.java;
+
+import org.apache.plc4x.java.api.connection.*;
+import org.apache.plc4x.java.api.exceptions.PlcConnectionException;
+import org.apache.plc4x.java.api.exceptions.PlcException;
+import org.apache.plc4x.java.api.model.Address;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Lease of a connection managed by a {@link PooledPlcDriverManager}.
+ *
+ * All operations are delegated to the pooled connection, which may be shared with other leases.
+ * Closing this handle doesn't close the pooled connection, but returns the lease to the pool.
+ * After that the handle can no longer be used.
+ */
+public class PooledPlcConnection implements PlcConnection {
+
+    private final PlcConnection delegate;
+    private final Runnable releaseCallback;
+    private final AtomicBoolean released;
+
+    PooledPlcConnection(PlcConnection delegate, Runnable releaseCallback) {
+        this.delegate = delegate;
+        this.releaseCallback = releaseCallback;
+        this.released = new AtomicBoolean(false);
+    }
+
+    /**
+     * Pooled connections are already connected when being leased, so this only checks
+     * the connection is still usable.
+     *
+     * @throws PlcConnectionException if the lease was already returned or the connection broke.
+     */
+    @Override
+    public void connect() throws PlcConnectionException {
+        if (released.get()) {
+            throw new PlcConnectionException("Pooled connection was already closed");
+        }
+        if (!delegate.isConnected()) {
+            throw new PlcConnectionException("Pooled connection is no longer connected");
+        }
+    }
+
+    @Override
+    public boolean isConnected() {
+        return !released.get() && delegate.isConnected();
+    }
+
+    /**
+     * Returns the lease to the pool. The pooled connection itself stays open.
+     */
+    @Override
+    public void close() {
+        if (released.compareAndSet(false, true)) {
+            releaseCallback.run();
+        }
+    }
+
+    @Override
+    public Address parseAddress(String addressString) throws PlcException {
+        checkNotReleased();
+        return delegate.parseAddress(addressString);
+    }
+
+    @Override
+    public Optional<PlcLister> getLister() {
+        checkNotReleased();
+        return delegate.getLister();
+    }
+
+    @Override
+    public Optional<PlcReader> getReader() {
+        checkNotReleased();
+        return delegate.getReader();
+    }
+
+    @Override
+    public Optional<PlcWriter> getWriter() {
+        checkNotReleased();
+        return delegate.getWriter();
+    }
+
+    @Override
+    public Optional<PlcSubscriber> getSubscriber() {
+        checkNotReleased();
+        return delegate.getSubscriber();
+    }
+
+    PlcConnection getDelegate() {
+        return delegate;
+    }
+
+    private void checkNotReleased() {
+        if (released.get()) {
+            throw new IllegalStateException("Pooled connection was already closed");
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "PooledPlcConnection{" +
+            "delegate=" + delegate +
+            ", released=" + released.get() +
+            '}';
+    }
+
+}
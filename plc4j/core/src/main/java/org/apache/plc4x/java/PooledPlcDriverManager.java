@@ -0,0 +1,420 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+package org.apache.plc4x.java;
+
+import org.apache.commons.configuration2.Configuration;
+import org.apache.commons.configuration2.SystemConfiguration;
+import org.apache.plc4x.java.api.authentication.PlcAuthentication;
+import org.apache.plc4x.java.api.connection.PlcConnection;
+import org.apache.plc4x.java.api.exceptions.PlcConnectionException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * {@link PlcDriverManager} that shares connections instead of creating a new connection for every
+ * call to {@link #getConnection(String)}.
+ *
+ * Connections are pooled by their normalized connection string (and authentication). Every call to
+ * {@link #getConnection(String)} returns a new {@link PooledPlcConnection} leasing one of the pooled
+ * connections. Closing this handle only returns the lease, the underlying connection stays open.
+ * As PLC connections are able to process requests from multiple threads, multiple leases share the
+ * same connection. Up to "plc4x.pooledplcdrivermanager.max_connections_per_plc" connections are
+ * opened per PLC (default 1), as most PLCs only support a very limited number of connections.
+ *
+ * Connections that are no longer connected are replaced when the next lease is requested, connections
+ * that have not been leased for "plc4x.pooledplcdrivermanager.idle_timeout" milliseconds are closed.
+ * Pools without any connection left are removed. Connecting is done outside of the pool locks, so a
+ * slow PLC never blocks leases of other PLCs or the eviction of idle connections.
+ */
+public class PooledPlcDriverManager extends PlcDriverManager implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(PooledPlcDriverManager.class);
+
+    // Fetch values from configuration
+    private static final Configuration CONF = new SystemConfiguration();
+    private static final int MAX_CONNECTIONS_PER_PLC =
+        CONF.getInt("plc4x.pooledplcdrivermanager.max_connections_per_plc", 1);
+    private static final long IDLE_TIMEOUT = CONF.getLong("plc4x.pooledplcdrivermanager.idle_timeout", 60_000);
+
+    private final int maxConnectionsPerPlc;
+    private final long idleTimeout;
+
+    private final Map<PoolKey, ConnectionPool> pools;
+    private final ScheduledExecutorService evictionExecutor;
+    private volatile boolean closed;
+
+    public PooledPlcDriverManager() {
+        this(Thread.currentThread().getContextClassLoader());
+    }
+
+    public PooledPlcDriverManager(ClassLoader classLoader) {
+        this(classLoader, MAX_CONNECTIONS_PER_PLC, IDLE_TIMEOUT);
+    }
+
+    /**
+     * @param classLoader          class loader used to find the drivers.
+     * @param maxConnectionsPerPlc maximum number of connections opened to one PLC.
+     * @param idleTimeout          time in milliseconds after which connections without any lease are closed.
+     */
+    public PooledPlcDriverManager(ClassLoader classLoader, int maxConnectionsPerPlc, long idleTimeout) {
+        super(classLoader);
+        if (maxConnectionsPerPlc < 1) {
+            throw new IllegalArgumentException("maxConnectionsPerPlc must be at least 1");
+        }
+        if (idleTimeout < 1) {
+            throw new IllegalArgumentException("idleTimeout must be at least 1");
+        }
+        this.maxConnectionsPerPlc = maxConnectionsPerPlc;
+        this.idleTimeout = idleTimeout;
+        this.pools = new ConcurrentHashMap<>();
+        this.evictionExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "plc4x-connection-pool-eviction");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long evictionInterval = Math.max(idleTimeout / 2, 1);
+        evictionExecutor.scheduleWithFixedDelay(
+            this::evictIdleConnections, evictionInterval, evictionInterval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Leases a connection to a PLC using the given plc connection string.
+     *
+     * @param url plc connection string.
+     * @return PlcConnection handle, closing it returns the lease.
+     * @throws PlcConnectionException an exception if the connection attempt failed.
+     */
+    @Override
+    public PlcConnection getConnection(String url) throws PlcConnectionException {
+        return lease(url, null);
+    }
+
+    /**
+     * Leases a connection to a PLC using the given plc connection string using given authentication credentials.
+     *
+     * @param url            plc connection string.
+     * @param authentication authentication credentials.
+     * @return PlcConnection handle, closing it returns the lease.
+     * @throws PlcConnectionException an exception if the connection attempt failed.
+     */
+    @Override
+    public PlcConnection getConnection(String url, PlcAuthentication authentication) throws PlcConnectionException {
+        return lease(url, authentication);
+    }
+
+    /**
+     * @return the number of currently open connections in all pools.
+     */
+    public int getNumConnections() {
+        int numConnections = 0;
+        for (ConnectionPool pool : pools.values()) {
+            numConnections += pool.getNumConnections();
+        }
+        return numConnections;
+    }
+
+    /**
+     * @return the number of pools, pools without any connection left are removed.
+     */
+    int getNumPools() {
+        return pools.size();
+    }
+
+    /**
+     * Closes all pooled connections, no matter if they are still leased or not.
+     * After this no further connections can be leased.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        evictionExecutor.shutdownNow();
+        for (ConnectionPool pool : pools.values()) {
+            pool.closeAll();
+        }
+        pools.clear();
+    }
+
+    private PlcConnection lease(String url, PlcAuthentication authentication) throws PlcConnectionException {
+        while (true) {
+            PooledPlcConnection connection = getPool(url, authentication).lease();
+            if (connection != null) {
+                return connection;
+            }
+            // The pool became empty and was removed in the meantime, so try again with a new one.
+        }
+    }
+
+    private ConnectionPool getPool(String url, PlcAuthentication authentication) throws PlcConnectionException {
+        if (closed) {
+            throw new PlcConnectionException("Connection pool already closed");
+        }
+        PoolKey key = new PoolKey(normalize(url), authentication);
+        return pools.computeIfAbsent(key, poolKey -> new ConnectionPool(poolKey, () -> {
+            if (authentication == null) {
+                return super.getConnection(url);
+            }
+            return super.getConnection(url, authentication);
+        }));
+    }
+
+    private void evictIdleConnections() {
+        long now = System.nanoTime();
+        for (ConnectionPool pool : pools.values()) {
+            try {
+                pool.evictIdle(now);
+                pool.removeIfEmpty();
+            } catch (RuntimeException e) {
+                logger.warn("Error evicting idle connections of {}", pool, e);
+            }
+        }
+    }
+
+    /**
+     * Normalizes a connection string so different spellings of the same PLC address share the same pool.
+     * The scheme and host are case insensitive and dot-segments in the path are removed.
+     */
+    static String normalize(String url) throws PlcConnectionException {
+        try {
+            URI uri = new URI(url.trim()).normalize();
+            if (uri.getScheme() == null) {
+                return uri.toString();
+            }
+            if (uri.getHost() == null) {
+                return uri.getScheme().toLowerCase(Locale.ENGLISH) + ":" + uri.getRawSchemeSpecificPart();
+            }
+            return new URI(uri.getScheme().toLowerCase(Locale.ENGLISH), uri.getUserInfo(),
+                uri.getHost().toLowerCase(Locale.ENGLISH), uri.getPort(), uri.getPath(), uri.getQuery(),
+                uri.getFragment()).toString();
+        } catch (URISyntaxException e) {
+            throw new PlcConnectionException("Invalid plc4j connection string '" + url + "'", e);
+        }
+    }
+
+    @FunctionalInterface
+    private interface Connector {
+        PlcConnection connect() throws PlcConnectionException;
+    }
+
+    private static final class PoolKey {
+
+        private final String url;
+        private final PlcAuthentication authentication;
+
+        private PoolKey(String url, PlcAuthentication authentication) {
+            this.url = url;
+            this.authentication = authentication;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof PoolKey)) {
+                return false;
+            }
+            PoolKey that = (PoolKey) o;
+            return Objects.equals(url, that.url) &&
+                Objects.equals(authentication, that.authentication);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(url, authentication);
+        }
+
+        @Override
+        public String toString() {
+            return url;
+        }
+
+    }
+
+    /**
+     * All connections to one PLC. Leases are always given to the connection with the fewest leases,
+     * a new connection is only opened if all existing connections are leased and the limit isn't reached yet.
+     * Connections that are being opened count against that limit, but the pool isn't locked while opening them.
+     */
+    private final class ConnectionPool {
+
+        private final PoolKey key;
+        private final Connector connector;
+        private final List<PooledEntry> entries;
+        private int pendingConnects;
+        private boolean removed;
+
+        private ConnectionPool(PoolKey key, Connector connector) {
+            this.key = key;
+            this.connector = connector;
+            this.entries = new ArrayList<>(maxConnectionsPerPlc);
+        }
+
+        /**
+         * @return a lease or null, if this pool has already been removed and a new one has to be used.
+         */
+        PooledPlcConnection lease() throws PlcConnectionException {
+            synchronized (this) {
+                while (true) {
+                    if (closed) {
+                        throw new PlcConnectionException("Connection pool already closed");
+                    }
+                    if (removed) {
+                        return null;
+                    }
+                    PooledEntry leastLeased = findLeastLeased();
+                    boolean canOpen = (entries.size() + pendingConnects) < maxConnectionsPerPlc;
+                    if ((leastLeased != null) && ((leastLeased.leases == 0) || !canOpen)) {
+                        return leaseEntry(leastLeased);
+                    }
+                    if (canOpen) {
+                        pendingConnects++;
+                        break;
+                    }
+                    // All available slots are being connected by other threads, wait for one of them to finish.
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new PlcConnectionException("Interrupted while waiting for a connection to " + key, e);
+                    }
+                }
+            }
+            logger.debug("Opening new pooled connection to {}", key);
+            PlcConnection connection;
+            try {
+                connection = connector.connect();
+            } catch (PlcConnectionException | RuntimeException e) {
+                synchronized (this) {
+                    pendingConnects--;
+                    notifyAll();
+                    removeIfEmpty();
+                }
+                throw e;
+            }
+            synchronized (this) {
+                pendingConnects--;
+                notifyAll();
+                if (closed) {
+                    closeQuietly(connection);
+                    throw new PlcConnectionException("Connection pool already closed");
+                }
+                PooledEntry entry = new PooledEntry(connection);
+                entries.add(entry);
+                return leaseEntry(entry);
+            }
+        }
+
+        private PooledEntry findLeastLeased() {
+            PooledEntry leastLeased = null;
+            for (Iterator<PooledEntry> iterator = entries.iterator(); iterator.hasNext(); ) {
+                PooledEntry entry = iterator.next();
+                if (!entry.connection.isConnected()) {
+                    logger.debug("Removing disconnected connection to {} from pool", key);
+                    iterator.remove();
+                    closeQuietly(entry.connection);
+                } else if ((leastLeased == null) || (entry.leases < leastLeased.leases)) {
+                    leastLeased = entry;
+                }
+            }
+            return leastLeased;
+        }
+
+        private PooledPlcConnection leaseEntry(PooledEntry entry) {
+            entry.leases++;
+            return new PooledPlcConnection(entry.connection, () -> release(entry));
+        }
+
+        private synchronized void release(PooledEntry entry) {
+            entry.leases--;
+            if (entry.leases == 0) {
+                entry.idleSince = System.nanoTime();
+            }
+        }
+
+        synchronized void evictIdle(long now) {
+            for (Iterator<PooledEntry> iterator = entries.iterator(); iterator.hasNext(); ) {
+                PooledEntry entry = iterator.next();
+                boolean idle = (entry.leases == 0) &&
+                    (TimeUnit.NANOSECONDS.toMillis(now - entry.idleSince) >= idleTimeout);
+                if (idle || !entry.connection.isConnected()) {
+                    logger.debug("Closing {} connection to {}", idle ? "idle" : "disconnected", key);
+                    iterator.remove();
+                    closeQuietly(entry.connection);
+                }
+            }
+        }
+
+        /**
+         * Removes this pool from the pools map, if it has no connections and no connect is in progress.
+         * Leases racing with the removal notice it and retry with a new pool.
+         */
+        synchronized void removeIfEmpty() {
+            if (!removed && entries.isEmpty() && (pendingConnects == 0)) {
+                removed = true;
+                pools.remove(key, this);
+            }
+        }
+
+        synchronized void closeAll() {
+            for (PooledEntry entry : entries) {
+                closeQuietly(entry.connection);
+            }
+            entries.clear();
+            notifyAll();
+        }
+
+        synchronized int getNumConnections() {
+            return entries.size();
+        }
+
+        private void closeQuietly(PlcConnection connection) {
+            try {
+                connection.close();
+            } catch (Exception e) {
+                logger.warn("Error closing pooled connection to {}", key, e);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "ConnectionPool{" + key + "}";
+        }
+
+    }
+
+    private static final class PooledEntry {
+
+        private final PlcConnection connection;
+        private int leases;
+        private long idleSince;
+
+        private PooledEntry(PlcConnection connection) {
+            this.connection = connection;
+            this.leases = 0;
+            this.idleSince = System.nanoTime();
+        }
+
+    }
+
+}
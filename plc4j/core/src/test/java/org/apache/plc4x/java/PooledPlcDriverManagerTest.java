@@ -0,0 +1,220 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+package org.apache.plc4x.java;
+
+import org.apache.plc4x.java.api.authentication.PlcUsernamePasswordAuthentication;
+import org.apache.plc4x.java.api.connection.PlcConnection;
+import org.apache.plc4x.java.api.exceptions.PlcConnectionException;
+import org.apache.plc4x.java.api.exceptions.PlcException;
+import org.apache.plc4x.java.mock.MockConnection;
+import org.apache.plc4x.java.mock.MockDriver;
+import org.apache.plc4x.test.FastTests;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.concurrent.*;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNot.not;
+import static org.hamcrest.core.IsSame.sameInstance;
+import static org.junit.Assert.assertThat;
+
+public class PooledPlcDriverManagerTest {
+
+    private PooledPlcDriverManager SUT;
+
+    @Before
+    public void setUp() {
+        SUT = new PooledPlcDriverManager(Thread.currentThread().getContextClassLoader(), 2, 100);
+    }
+
+    @After
+    public void tearDown() {
+        MockDriver.slowDownConnects(new CountDownLatch(0), new CountDownLatch(0));
+        SUT.close();
+    }
+
+    @Test
+    @Category(FastTests.class)
+    public void sameUrlSharesConnection() throws PlcException {
+        PooledPlcConnection first = (PooledPlcConnection) SUT.getConnection("mock://some-cool-url/");
+        first.close();
+        PooledPlcConnection second = (PooledPlcConnection) SUT.getConnection(" mock://Some-Cool-Url/./");
+        PooledPlcConnection third = (PooledPlcConnection) SUT.getConnection("mock://some-cool-url/");
+
+        assertThat(second.getDelegate(), sameInstance(first.getDelegate()));
+        assertThat(second.isConnected(), is(true));
+        // Only one lease was active when the third one was requested, so a second connection was opened.
+        assertThat(third.getDelegate(), not(sameInstance(second.getDelegate())));
+        assertThat(SUT.getNumConnections(), is(2));
+    }
+
+    @Test
+    @Category(FastTests.class)
+    public void connectionsPerPlcAreCapped() throws PlcException {
+        PooledPlcConnection first = (PooledPlcConnection) SUT.getConnection("mock://some-cool-url");
+        PooledPlcConnection second = (PooledPlcConnection) SUT.getConnection("mock://some-cool-url");
+        PooledPlcConnection third = (PooledPlcConnection) SUT.getConnection("mock://some-cool-url");
+        SUT.getConnection("mock://some-other-url");
+
+        assertThat(second.getDelegate(), not(sameInstance(first.getDelegate())));
+        assertThat(third.getDelegate(), sameInstance(first.getDelegate()));
+        assertThat(SUT.getNumConnections(), is(3));
+    }
+
+    @Test
+    @Category(FastTests.class)
+    public void authenticationIsPartOfTheKey() throws PlcException {
+        PooledPlcConnection first = (PooledPlcConnection) SUT.getConnection("mock://some-cool-url",
+            new PlcUsernamePasswordAuthentication("user", "pass"));
+        first.close();
+        PooledPlcConnection second = (PooledPlcConnection) SUT.getConnection("mock://some-cool-url",
+            new PlcUsernamePasswordAuthentication("user", "pass"));
+        second.close();
+        PooledPlcConnection third = (PooledPlcConnection) SUT.getConnection("mock://some-cool-url");
+
+        assertThat(second.getDelegate(), sameInstance(first.getDelegate()));
+        assertThat(third.getDelegate(), not(sameInstance(first.getDelegate())));
+        assertThat(((MockConnection) first.getDelegate()).getAuthentication(),
+            is(new PlcUsernamePasswordAuthentication("user", "pass")));
+    }
+
+    @Test
+    @Category(FastTests.class)
+    public void closingHandleReturnsLease() throws Exception {
+        PlcConnection connection = SUT.getConnection("mock://some-cool-url");
+        PlcConnection delegate = ((PooledPlcConnection) connection).getDelegate();
+        connection.close();
+        connection.close();
+
+        assertThat(connection.isConnected(), is(false));
+        assertThat(delegate.isConnected(), is(true));
+        assertThat(SUT.getNumConnections(), is(1));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    @Category(FastTests.class)
+    public void closedHandleCantBeUsed() throws Exception {
+        PlcConnection connection = SUT.getConnection("mock://some-cool-url");
+        connection.close();
+        connection.getReader();
+    }
+
+    @Test
+    @Category(FastTests.class)
+    public void disconnectedConnectionIsReplaced() throws Exception {
+        PooledPlcConnection first = (PooledPlcConnection) SUT.getConnection("mock://some-cool-url");
+        first.getDelegate().close();
+        assertThat(first.isConnected(), is(false));
+
+        PooledPlcConnection second = (PooledPlcConnection) SUT.getConnection("mock://some-cool-url");
+        assertThat(second.getDelegate(), not(sameInstance(first.getDelegate())));
+        assertThat(second.isConnected(), is(true));
+        assertThat(SUT.getNumConnections(), is(1));
+    }
+
+    @Test
+    @Category(FastTests.class)
+    public void idleConnectionsAreEvicted() throws Exception {
+        PooledPlcConnection leased = (PooledPlcConnection) SUT.getConnection("mock://some-cool-url");
+        PooledPlcConnection idle = (PooledPlcConnection) SUT.getConnection("mock://some-other-url");
+        idle.close();
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while ((SUT.getNumConnections() > 1) && (System.nanoTime() < deadline)) {
+            Thread.sleep(10);
+        }
+        assertThat(SUT.getNumConnections(), is(1));
+        assertThat(idle.getDelegate().isConnected(), is(false));
+        assertThat(leased.isConnected(), is(true));
+        // The pool of the evicted connection is empty now and has been removed.
+        assertThat(SUT.getNumPools(), is(1));
+
+        PooledPlcConnection again = (PooledPlcConnection) SUT.getConnection("mock://some-other-url");
+        assertThat(again.isConnected(), is(true));
+        assertThat(SUT.getNumPools(), is(2));
+    }
+
+    @Test(timeout = 5000)
+    @Category(FastTests.class)
+    public void slowConnectDoesNotBlockThePool() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch gate = new CountDownLatch(1);
+        MockDriver.slowDownConnects(started, gate);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<PlcConnection> slow = executor.submit(() -> SUT.getConnection("mock://slow-plc"));
+            started.await();
+
+            // Neither other PLCs nor the pool of the slow PLC itself are locked while connecting.
+            PooledPlcConnection other = (PooledPlcConnection) SUT.getConnection("mock://some-cool-url");
+            assertThat(other.isConnected(), is(true));
+            assertThat(SUT.getNumConnections(), is(1));
+
+            gate.countDown();
+            assertThat(slow.get().isConnected(), is(true));
+            assertThat(SUT.getNumConnections(), is(2));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @Category(FastTests.class)
+    public void failedConnectRemovesPool() {
+        try {
+            SUT.getConnection("non-existing-protocol://some-cool-url");
+        } catch (PlcConnectionException e) {
+            // Expected
+        }
+        assertThat(SUT.getNumPools(), is(0));
+    }
+
+    @Test
+    @Category(FastTests.class)
+    public void closingManagerClosesConnections() throws PlcException {
+        PlcConnection connection = SUT.getConnection("mock://some-cool-url");
+        SUT.close();
+
+        assertThat(connection.isConnected(), is(false));
+        assertThat(SUT.getNumConnections(), is(0));
+    }
+
+    @Test(expected = PlcConnectionException.class)
+    @Category(FastTests.class)
+    public void getConnectionAfterClose() throws PlcConnectionException {
+        SUT.close();
+        SUT.getConnection("mock://some-cool-url");
+    }
+
+    @Test(expected = PlcConnectionException.class)
+    @Category(FastTests.class)
+    public void getNotExistingDriverTest() throws PlcConnectionException {
+        SUT.getConnection("non-existing-protocol://some-cool-url");
+    }
+
+    @Test(expected = PlcConnectionException.class)
+    @Category(FastTests.class)
+    public void getInvalidUriTest() throws PlcConnectionException {
+        SUT.getConnection("The quick brown fox jumps over the lazy dog");
+    }
+
+}
@@ -23,8 +23,21 @@ import org.apache.plc4x.java.api.authentication.PlcAuthentication;
 import org.apache.plc4x.java.api.connection.PlcConnection;
 import org.apache.plc4x.java.api.exceptions.PlcConnectionException;
 
+import java.util.concurrent.CountDownLatch;
+
 public class MockDriver implements PlcDriver {
 
+    private static volatile CountDownLatch slowConnectStarted = new CountDownLatch(0);
+    private static volatile CountDownLatch slowConnectGate = new CountDownLatch(0);
+
+    /**
+     * Makes connects to urls containing "slow-plc" count down {@code started} and then wait for {@code gate}.
+     */
+    public static void slowDownConnects(CountDownLatch started, CountDownLatch gate) {
+        slowConnectStarted = started;
+        slowConnectGate = gate;
+    }
+
     @Override
     public String getProtocolCode() {
         return "mock";
@@ -37,6 +50,15 @@ public class MockDriver implements PlcDriver {
 
     @Override
     public PlcConnection connect(String url) throws PlcConnectionException {
+        if (url.contains("slow-plc")) {
+            slowConnectStarted.countDown();
+            try {
+                slowConnectGate.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new PlcConnectionException(e);
+            }
+        }
         return new MockConnection(null);
     }
 
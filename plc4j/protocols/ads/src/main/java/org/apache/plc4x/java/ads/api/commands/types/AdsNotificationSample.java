@@ -68,6 +68,16 @@ public class AdsNotificationSample implements ByteReadable {
         return buildByteBuff(notificationHandle, getSampleSize(), data);
     }
 
+    @Override
+    public void writeTo(ByteBuf byteBuf) {
+        writeAll(byteBuf, notificationHandle, getSampleSize(), data);
+    }
+
+    @Override
+    public long getCalculatedLength() {
+        return NotificationHandle.NUM_BYTES + SampleSize.NUM_BYTES + data.getCalculatedLength();
+    }
+
     public NotificationHandle getNotificationHandle() {
         return notificationHandle;
     }
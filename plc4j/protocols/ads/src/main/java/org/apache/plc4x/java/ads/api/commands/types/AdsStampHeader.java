@@ -65,6 +65,24 @@ public class AdsStampHeader implements ByteReadable {
         return buildByteBuff(timeStamp, samples, () -> buildByteBuff(adsNotificationSamples.toArray(new ByteReadable[adsNotificationSamples.size()])));
     }
 
+    @Override
+    public void writeTo(ByteBuf byteBuf) {
+        timeStamp.writeTo(byteBuf);
+        samples.writeTo(byteBuf);
+        for (AdsNotificationSample adsNotificationSample : adsNotificationSamples) {
+            adsNotificationSample.writeTo(byteBuf);
+        }
+    }
+
+    @Override
+    public long getCalculatedLength() {
+        long length = TimeStamp.NUM_BYTES + Samples.NUM_BYTES;
+        for (AdsNotificationSample adsNotificationSample : adsNotificationSamples) {
+            length += adsNotificationSample.getCalculatedLength();
+        }
+        return length;
+    }
+
     public TimeStamp getTimeStamp() {
         return timeStamp;
     }
@@ -19,12 +19,14 @@
 package org.apache.plc4x.java.ads.api.commands.types;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
 import org.apache.plc4x.java.ads.api.util.ByteValue;
 
 import java.math.BigInteger;
-import java.nio.ByteBuffer;
 import java.util.Date;
 
+import static java.util.Objects.requireNonNull;
+
 public class TimeStamp extends ByteValue {
 
     /**
@@ -32,56 +34,42 @@ public class TimeStamp extends ByteValue {
      */
     public static final BigInteger EPOCH_DIFF_IN_MILLIS = BigInteger.valueOf((369L * 365L + 89L) * 86400L * 1000L);
 
+    /**
+     * Difference between 1601-01-01 and 1970-01-01 in the 100ns units of windows time.
+     */
+    public static final long EPOCH_DIFF_IN_WIN_TIME = (369L * 365L + 89L) * 86400L * 10_000_000L;
+
     public static final int NUM_BYTES = 8;
 
-    private final BigInteger bigIntegerValue;
+    private static final BigInteger UNSIGNED_LONG_OFFSET = BigInteger.ONE.shiftLeft(64);
+
+    /**
+     * 100ns units since 1601-01-01, interpreted as unsigned long.
+     */
+    private final long winTime;
 
     private TimeStamp(byte... values) {
-        super(values);
-        assertLength(NUM_BYTES);
-        bigIntegerValue = new BigInteger(new byte[]{
-            // LE
-            values[7],
-            values[6],
-            values[5],
-            values[4],
-
-            values[3],
-            values[2],
-            values[1],
-            values[0],
-        });
+        requireNonNull(values);
+        if (values.length != NUM_BYTES) {
+            throw new IllegalArgumentException("Expected length " + NUM_BYTES + " got " + values.length);
+        }
+        long result = 0;
+        // LE
+        for (int i = NUM_BYTES - 1; i >= 0; i--) {
+            result = result << 8 | (values[i] & 0xffL);
+        }
+        winTime = result;
     }
 
     private TimeStamp(BigInteger value) {
-        super(ofBigInteger(value));
         checkUnsignedBounds(value, NUM_BYTES);
-        assertLength(NUM_BYTES);
-        bigIntegerValue = value;
+        winTime = value.longValue();
     }
 
-    private static byte checkByte(byte[] valueBytes, int length, int i) {
-        return length > i ? valueBytes[i] : 0;
+    private TimeStamp(long winTime) {
+        this.winTime = winTime;
     }
 
-    private static byte[] ofBigInteger(BigInteger value) {
-        byte[] valueBytes = value.toByteArray();
-        int length = valueBytes.length;
-        return ByteBuffer.allocate(NUM_BYTES)
-            // LE
-            .put(checkByte(valueBytes, length, 7))
-            .put(checkByte(valueBytes, length, 6))
-            .put(checkByte(valueBytes, length, 5))
-            .put(checkByte(valueBytes, length, 4))
-
-            .put(checkByte(valueBytes, length, 3))
-            .put(checkByte(valueBytes, length, 2))
-            .put(checkByte(valueBytes, length, 1))
-            .put(checkByte(valueBytes, length, 0))
-            .array();
-    }
-
-
     public static TimeStamp of(BigInteger value) {
         return new TimeStamp(javaToWinTime(value));
     }
@@ -116,17 +104,23 @@ public class TimeStamp extends ByteValue {
     }
 
     public static TimeStamp of(ByteBuf byteBuf) {
-        byte[] values = new byte[NUM_BYTES];
-        byteBuf.readBytes(values);
-        return of(values);
+        return new TimeStamp(byteBuf.readLongLE());
     }
 
     public BigInteger getBigIntegerValue() {
-        return bigIntegerValue;
+        BigInteger bigIntegerValue = BigInteger.valueOf(winTime);
+        return winTime < 0 ? bigIntegerValue.add(UNSIGNED_LONG_OFFSET) : bigIntegerValue;
+    }
+
+    /**
+     * @return 100ns units since 1601-01-01 without allocating a {@link BigInteger}.
+     */
+    public long getAsWinTime() {
+        return winTime;
     }
 
     public Date getAsDate() {
-        return new Date(winTimeToJava(bigIntegerValue).longValue());
+        return new Date(Long.divideUnsigned(winTime, 10_000) - EPOCH_DIFF_IN_MILLIS.longValue());
     }
 
     public static BigInteger javaToWinTime(BigInteger timeMillisSince19700101) {
@@ -139,6 +133,36 @@ public class TimeStamp extends ByteValue {
         return timeMillisSince16010101.subtract(EPOCH_DIFF_IN_MILLIS);
     }
 
+    /**
+     * Converts without any allocation, valid for all windows times up to the year 2262.
+     *
+     * @param winTime 100ns units since 1601-01-01.
+     * @return nanoseconds since 1970-01-01.
+     */
+    public static long winTimeToEpochNanos(long winTime) {
+        return (winTime - EPOCH_DIFF_IN_WIN_TIME) * 100;
+    }
+
+    @Override
+    public byte[] getBytes() {
+        byte[] bytes = new byte[NUM_BYTES];
+        // LE
+        for (int i = 0; i < NUM_BYTES; i++) {
+            bytes[i] = (byte) (winTime >> (8 * i));
+        }
+        return bytes;
+    }
+
+    @Override
+    public ByteBuf getByteBuf() {
+        return Unpooled.buffer(NUM_BYTES, NUM_BYTES).writeLongLE(winTime);
+    }
+
+    @Override
+    public void writeTo(ByteBuf byteBuf) {
+        byteBuf.writeLongLE(winTime);
+    }
+
     @Override
     public long getCalculatedLength() {
         return NUM_BYTES;
@@ -150,19 +174,15 @@ public class TimeStamp extends ByteValue {
             return true;
         if (!(o instanceof TimeStamp))
             return false;
-        if (!super.equals(o))
-            return false;
 
         TimeStamp timeStamp = (TimeStamp) o;
 
-        return bigIntegerValue.equals(timeStamp.bigIntegerValue);
+        return winTime == timeStamp.winTime;
     }
 
     @Override
     public int hashCode() {
-        int result = super.hashCode();
-        result = 31 * result + bigIntegerValue.hashCode();
-        return result;
+        return Long.hashCode(winTime);
     }
 
     @Override
@@ -119,6 +119,33 @@ public class AmsHeader implements ByteReadable {
             invokeId);
     }
 
+    @Override
+    public void writeTo(ByteBuf byteBuf) {
+        writeAll(byteBuf,
+            targetAmsNetId,
+            targetAmsPort,
+            sourceAmsNetId,
+            sourceAmsPort,
+            commandId,
+            stateFlags,
+            getDataLength(),
+            code,
+            invokeId);
+    }
+
+    @Override
+    public long getCalculatedLength() {
+        return targetAmsNetId.getCalculatedLength()
+            + targetAmsPort.getCalculatedLength()
+            + sourceAmsNetId.getCalculatedLength()
+            + sourceAmsPort.getCalculatedLength()
+            + Command.NUM_BYTES
+            + State.NUM_BYTES
+            + DataLength.NUM_BYTES
+            + AmsError.NUM_BYTES
+            + Invoke.NUM_BYTES;
+    }
+
     public AmsNetId getTargetAmsNetId() {
         return targetAmsNetId;
     }
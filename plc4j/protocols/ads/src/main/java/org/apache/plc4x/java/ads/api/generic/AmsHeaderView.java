@@ -0,0 +1,114 @@
+/*
+ Licensed to the Apache Software Foundation (ASF) under one
+ or more contributor license agreements.  See the NOTICE file
+ distributed with this work for additional information
+ regarding copyright ownership.  The ASF licenses this file
+ to you under the Apache License, Version 2.0 (the
+ "License"); you may not use this file except in compliance
+ with the License.  You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing,
+ software distributed under the License is distributed on an
+ "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ KIND, either express or implied.  See the License for the
+ specific language governing permissions and limitations
+ under the License.
+ */
+package org.apache.plc4x.java.ads.api.generic;
+
+import io.netty.buffer.ByteBuf;
+import org.apache.plc4x.java.ads.api.generic.types.*;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Flyweight view over a serialized {@link AmsHeader}. Instead of decoding every field into its own object, the
+ * primitive values are read directly from the wrapped buffer on access. A view can be re-used for any number of
+ * buffers by calling {@link #wrap(ByteBuf)} again, but it must not be shared between threads.
+ *
+ * The view doesn't retain the buffer and doesn't move its reader index.
+ */
+public class AmsHeaderView {
+
+    public static final int COMMAND_OFFSET = 2 * AmsNetId.NUM_BYTES + 2 * AmsPort.NUM_BYTES;
+    public static final int STATE_OFFSET = COMMAND_OFFSET + Command.NUM_BYTES;
+    public static final int DATA_LENGTH_OFFSET = STATE_OFFSET + State.NUM_BYTES;
+    public static final int CODE_OFFSET = DATA_LENGTH_OFFSET + DataLength.NUM_BYTES;
+    public static final int INVOKE_ID_OFFSET = CODE_OFFSET + AmsError.NUM_BYTES;
+    public static final int LENGTH = INVOKE_ID_OFFSET + Invoke.NUM_BYTES;
+
+    private ByteBuf byteBuf;
+
+    private int offset;
+
+    /**
+     * Wraps the header starting at the current reader index of the given buffer.
+     *
+     * @param byteBuf buffer containing a serialized {@link AmsHeader}.
+     * @return this view.
+     */
+    public AmsHeaderView wrap(ByteBuf byteBuf) {
+        return wrap(byteBuf, byteBuf.readerIndex());
+    }
+
+    /**
+     * Wraps the header starting at the given absolute index of the given buffer.
+     *
+     * @param byteBuf buffer containing a serialized {@link AmsHeader}.
+     * @param offset  absolute index of the first header byte.
+     * @return this view.
+     */
+    public AmsHeaderView wrap(ByteBuf byteBuf, int offset) {
+        this.byteBuf = requireNonNull(byteBuf);
+        this.offset = offset;
+        return this;
+    }
+
+    /**
+     * @return true if the wrapped buffer contains enough bytes for a complete header.
+     */
+    public boolean isComplete() {
+        return byteBuf.writerIndex() - offset >= LENGTH;
+    }
+
+    public int getCommandId() {
+        return byteBuf.getUnsignedShortLE(offset + COMMAND_OFFSET);
+    }
+
+    public int getStateFlags() {
+        return byteBuf.getUnsignedShortLE(offset + STATE_OFFSET);
+    }
+
+    public boolean isResponse() {
+        return State.StateMask.RESPONSE.applies(getStateFlags());
+    }
+
+    public long getDataLength() {
+        return byteBuf.getUnsignedIntLE(offset + DATA_LENGTH_OFFSET);
+    }
+
+    public long getCode() {
+        return byteBuf.getUnsignedIntLE(offset + CODE_OFFSET);
+    }
+
+    public long getInvokeId() {
+        return byteBuf.getUnsignedIntLE(offset + INVOKE_ID_OFFSET);
+    }
+
+    @Override
+    public String toString() {
+        if (byteBuf == null) {
+            return "AmsHeaderView{unwrapped}";
+        }
+        return "AmsHeaderView{" +
+            "offset=" + offset +
+            ", commandId=" + getCommandId() +
+            ", stateFlags=" + getStateFlags() +
+            ", dataLength=" + getDataLength() +
+            ", code=" + getCode() +
+            ", invokeId=" + getInvokeId() +
+            '}';
+    }
+}
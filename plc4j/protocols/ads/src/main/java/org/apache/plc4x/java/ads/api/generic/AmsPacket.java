@@ -19,6 +19,7 @@
 package org.apache.plc4x.java.ads.api.generic;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
 import org.apache.plc4x.java.ads.api.commands.AdsCommandType;
 import org.apache.plc4x.java.ads.api.generic.types.*;
 import org.apache.plc4x.java.ads.api.util.ByteReadable;
@@ -56,12 +57,44 @@ public abstract class AmsPacket implements ByteReadable {
     public abstract AdsData getAdsData();
 
     protected AdsData buildADSData(ByteReadable... byteReadables) {
-        return () -> buildByteBuff(byteReadables);
+        return new AdsData() {
+            @Override
+            public ByteBuf getByteBuf() {
+                return buildByteBuff(byteReadables);
+            }
+
+            @Override
+            public void writeTo(ByteBuf byteBuf) {
+                writeAll(byteBuf, byteReadables);
+            }
+
+            @Override
+            public long getCalculatedLength() {
+                return calculateLength(byteReadables);
+            }
+        };
     }
 
+    /**
+     * Serializes the complete packet into one buffer instead of composing a buffer per field.
+     */
     @Override
     public ByteBuf getByteBuf() {
-        return buildByteBuff(amsHeader, getAdsData());
+        ByteBuf byteBuf = Unpooled.buffer((int) getCalculatedLength());
+        writeTo(byteBuf);
+        return byteBuf;
+    }
+
+    @Override
+    public void writeTo(ByteBuf byteBuf) {
+        AdsData adsData = getAdsData();
+        amsHeader.writeTo(byteBuf);
+        adsData.writeTo(byteBuf);
+    }
+
+    @Override
+    public long getCalculatedLength() {
+        return amsHeader.getCalculatedLength() + getAdsData().getCalculatedLength();
     }
 
     @Override
@@ -82,11 +82,23 @@ public enum Command implements ByteReadable {
         return Unpooled.wrappedBuffer(value);
     }
 
+    @Override
+    public void writeTo(ByteBuf byteBuf) {
+        if (this == UNKNOWN) {
+            throw new IllegalStateException("Unknown enum can't be serialized");
+        }
+        byteBuf.writeShortLE(intValue);
+    }
+
     @Override
     public long getCalculatedLength() {
         return NUM_BYTES;
     }
 
+    public int getIntValue() {
+        return intValue;
+    }
+
     public static Command of(byte... bytes) {
         // TODO: improve by using a map
         for (Command command : values()) {
@@ -41,10 +41,35 @@ public interface ByteReadable extends ByteBufSupplier, LengthSupplier, Serializa
         return getByteBuf().readableBytes();
     }
 
+    /**
+     * Writes this to the given buffer. Should be overridden by implementations which can write their content
+     * directly, without creating an intermediate buffer.
+     *
+     * @param byteBuf buffer with at least {@link #getCalculatedLength()} writable bytes.
+     */
+    default void writeTo(ByteBuf byteBuf) {
+        ByteBuf source = getByteBuf();
+        byteBuf.writeBytes(source, source.readerIndex(), source.readableBytes());
+    }
+
     default ByteBuf buildByteBuff(ByteReadable... byteReadables) {
         return Unpooled.wrappedBuffer(Arrays.stream(byteReadables).map(ByteReadable::getByteBuf).toArray(ByteBuf[]::new));
     }
 
+    default void writeAll(ByteBuf byteBuf, ByteReadable... byteReadables) {
+        for (ByteReadable byteReadable : byteReadables) {
+            byteReadable.writeTo(byteBuf);
+        }
+    }
+
+    default long calculateLength(ByteReadable... byteReadables) {
+        long length = 0;
+        for (ByteReadable byteReadable : byteReadables) {
+            length += byteReadable.getCalculatedLength();
+        }
+        return length;
+    }
+
     default String dump() throws IOException {
         try (ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream()) {
             HexDump.dump(getBytes(), 0, byteArrayOutputStream, 0);
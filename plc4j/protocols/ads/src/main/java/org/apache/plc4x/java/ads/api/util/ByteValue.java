@@ -30,6 +30,14 @@ public class ByteValue implements ByteReadable {
 
     protected final byte[] value;
 
+    /**
+     * For subclasses storing their value as primitive instead of a byte array. They have to override all methods
+     * accessing {@link #value}.
+     */
+    protected ByteValue() {
+        this.value = null;
+    }
+
     protected ByteValue(byte... value) {
         this.value = requireNonNull(value);
     }
@@ -47,8 +55,8 @@ public class ByteValue implements ByteReadable {
     }
 
     public static void checkUnsignedBounds(long value, int numberOfBytes) {
-        double upperBound = Math.pow((double) 2, (double) (8 * numberOfBytes));
-        if (value < 0 || value >= upperBound) {
+        if (value < 0 || (numberOfBytes < Long.BYTES && value >= 1L << (8 * numberOfBytes))) {
+            String upperBound = numberOfBytes < Long.BYTES ? String.valueOf(1L << (8 * numberOfBytes)) : "2^" + 8 * numberOfBytes;
             throw new IllegalArgumentException("Value must between 0 and " + upperBound + ". Was " + value);
         }
     }
@@ -75,6 +83,11 @@ public class ByteValue implements ByteReadable {
         return value.length;
     }
 
+    @Override
+    public void writeTo(ByteBuf byteBuf) {
+        byteBuf.writeBytes(value);
+    }
+
     public static ByteValue of(byte... values) {
         return new ByteValue(values);
     }
@@ -88,17 +101,17 @@ public class ByteValue implements ByteReadable {
 
         ByteValue byteValue = (ByteValue) o;
 
-        return Arrays.equals(value, byteValue.value);
+        return Arrays.equals(getBytes(), byteValue.getBytes());
     }
 
     @Override
     public int hashCode() {
-        return Arrays.hashCode(value);
+        return Arrays.hashCode(getBytes());
     }
 
     @Override
     public String toString() {
         // TODO: maybe we could find a way to implement this to string
-        return getClass().getSimpleName() + "@" + Integer.toHexString(hashCode()) + "{bytes=" + value.length + "}";
+        return getClass().getSimpleName() + "@" + Integer.toHexString(hashCode()) + "{bytes=" + getCalculatedLength() + "}";
     }
 }
@@ -19,13 +19,15 @@
 package org.apache.plc4x.java.ads.api.util;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
 
-import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
-
+import static java.util.Objects.requireNonNull;
 import static java.lang.Long.toHexString;
 import static org.apache.commons.lang3.StringUtils.leftPad;
 
+/**
+ * Stores the value as primitive, the bytes are only created if they are requested.
+ */
 public abstract class UnsignedIntLEByteValue extends ByteValue {
 
     public static final int UNSIGNED_INT_LE_NUM_BYTES = 4;
@@ -33,15 +35,11 @@ public abstract class UnsignedIntLEByteValue extends ByteValue {
     private final long longValue;
 
     protected UnsignedIntLEByteValue(byte... value) {
-        super(value);
-        assertLength(UNSIGNED_INT_LE_NUM_BYTES);
-        longValue = ByteBuffer.wrap(value)
-            .order(ByteOrder.LITTLE_ENDIAN)
-            .getInt();
+        this(ofBytes(value));
     }
 
     protected UnsignedIntLEByteValue(long value) {
-        super(ofLong(value));
+        checkUnsignedBounds(value, UNSIGNED_INT_LE_NUM_BYTES);
         longValue = value;
     }
 
@@ -53,18 +51,41 @@ public abstract class UnsignedIntLEByteValue extends ByteValue {
         this(byteBuf.readUnsignedIntLE());
     }
 
-    private static byte[] ofLong(long value) {
-        checkUnsignedBounds(value, UNSIGNED_INT_LE_NUM_BYTES);
-        return ByteBuffer.allocate(UNSIGNED_INT_LE_NUM_BYTES)
-            .order(ByteOrder.LITTLE_ENDIAN)
-            .putInt((int) (value & 0xffff_ffff))
-            .array();
+    private static long ofBytes(byte[] value) {
+        requireNonNull(value);
+        if (value.length != UNSIGNED_INT_LE_NUM_BYTES) {
+            throw new IllegalArgumentException("Expected length " + UNSIGNED_INT_LE_NUM_BYTES + " got " + value.length);
+        }
+        return (value[0] & 0xffL)
+            | (value[1] & 0xffL) << 8
+            | (value[2] & 0xffL) << 16
+            | (value[3] & 0xffL) << 24;
     }
 
     public long getAsLong() {
         return longValue;
     }
 
+    @Override
+    public byte[] getBytes() {
+        return new byte[]{
+            (byte) longValue,
+            (byte) (longValue >> 8),
+            (byte) (longValue >> 16),
+            (byte) (longValue >> 24)
+        };
+    }
+
+    @Override
+    public ByteBuf getByteBuf() {
+        return Unpooled.buffer(UNSIGNED_INT_LE_NUM_BYTES, UNSIGNED_INT_LE_NUM_BYTES).writeIntLE((int) longValue);
+    }
+
+    @Override
+    public void writeTo(ByteBuf byteBuf) {
+        byteBuf.writeIntLE((int) longValue);
+    }
+
     @Override
     public long getCalculatedLength() {
         return UNSIGNED_INT_LE_NUM_BYTES;
@@ -78,9 +99,6 @@ public abstract class UnsignedIntLEByteValue extends ByteValue {
         if (!(o instanceof UnsignedIntLEByteValue)) {
             return false;
         }
-        if (!super.equals(o)) {
-            return false;
-        }
 
         UnsignedIntLEByteValue that = (UnsignedIntLEByteValue) o;
 
@@ -89,9 +107,7 @@ public abstract class UnsignedIntLEByteValue extends ByteValue {
 
     @Override
     public int hashCode() {
-        int result = super.hashCode();
-        result = 31 * result + (int) (longValue ^ (longValue >>> 32));
-        return result;
+        return Long.hashCode(longValue);
     }
 
     @Override
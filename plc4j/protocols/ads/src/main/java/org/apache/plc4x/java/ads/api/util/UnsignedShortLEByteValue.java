@@ -19,13 +19,15 @@
 package org.apache.plc4x.java.ads.api.util;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
 
-import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
-
+import static java.util.Objects.requireNonNull;
 import static java.lang.Integer.toHexString;
 import static org.apache.commons.lang3.StringUtils.leftPad;
 
+/**
+ * Stores the value as primitive, the bytes are only created if they are requested.
+ */
 public abstract class UnsignedShortLEByteValue extends ByteValue {
 
     public static final int UNSIGNED_SHORT_LE_NUM_BYTES = 2;
@@ -33,15 +35,11 @@ public abstract class UnsignedShortLEByteValue extends ByteValue {
     private final int intValue;
 
     protected UnsignedShortLEByteValue(byte... value) {
-        super(value);
-        assertLength(UNSIGNED_SHORT_LE_NUM_BYTES);
-        intValue = ByteBuffer.wrap(value)
-            .order(ByteOrder.LITTLE_ENDIAN)
-            .getShort();
+        this(ofBytes(value));
     }
 
     protected UnsignedShortLEByteValue(int value) {
-        super(ofInt(value));
+        checkUnsignedBounds(value, UNSIGNED_SHORT_LE_NUM_BYTES);
         intValue = value;
     }
 
@@ -53,18 +51,36 @@ public abstract class UnsignedShortLEByteValue extends ByteValue {
         this(byteBuf.readUnsignedShortLE());
     }
 
-    private static byte[] ofInt(int value) {
-        checkUnsignedBounds(value, UNSIGNED_SHORT_LE_NUM_BYTES);
-        return ByteBuffer.allocate(UNSIGNED_SHORT_LE_NUM_BYTES)
-            .order(ByteOrder.LITTLE_ENDIAN)
-            .putShort((short) (value & 0xffff))
-            .array();
+    private static int ofBytes(byte[] value) {
+        requireNonNull(value);
+        if (value.length != UNSIGNED_SHORT_LE_NUM_BYTES) {
+            throw new IllegalArgumentException("Expected length " + UNSIGNED_SHORT_LE_NUM_BYTES + " got " + value.length);
+        }
+        return (value[0] & 0xff) | (value[1] & 0xff) << 8;
     }
 
     public int getAsInt() {
         return intValue;
     }
 
+    @Override
+    public byte[] getBytes() {
+        return new byte[]{
+            (byte) intValue,
+            (byte) (intValue >> 8)
+        };
+    }
+
+    @Override
+    public ByteBuf getByteBuf() {
+        return Unpooled.buffer(UNSIGNED_SHORT_LE_NUM_BYTES, UNSIGNED_SHORT_LE_NUM_BYTES).writeShortLE(intValue);
+    }
+
+    @Override
+    public void writeTo(ByteBuf byteBuf) {
+        byteBuf.writeShortLE(intValue);
+    }
+
     @Override
     public long getCalculatedLength() {
         return UNSIGNED_SHORT_LE_NUM_BYTES;
@@ -78,9 +94,6 @@ public abstract class UnsignedShortLEByteValue extends ByteValue {
         if (!(o instanceof UnsignedShortLEByteValue)) {
             return false;
         }
-        if (!super.equals(o)) {
-            return false;
-        }
 
         UnsignedShortLEByteValue that = (UnsignedShortLEByteValue) o;
 
@@ -89,9 +102,7 @@ public abstract class UnsignedShortLEByteValue extends ByteValue {
 
     @Override
     public int hashCode() {
-        int result = super.hashCode();
-        result = 31 * result + intValue;
-        return result;
+        return intValue;
     }
 
     @Override
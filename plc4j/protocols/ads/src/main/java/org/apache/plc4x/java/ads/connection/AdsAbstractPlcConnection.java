@@ -18,17 +18,24 @@
  */
 package org.apache.plc4x.java.ads.connection;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelFuture;
 import org.apache.commons.configuration2.Configuration;
 import org.apache.commons.configuration2.SystemConfiguration;
+import org.apache.plc4x.java.ads.api.commands.AdsReadRequest;
+import org.apache.plc4x.java.ads.api.commands.AdsReadResponse;
 import org.apache.plc4x.java.ads.api.commands.AdsReadWriteRequest;
 import org.apache.plc4x.java.ads.api.commands.AdsReadWriteResponse;
 import org.apache.plc4x.java.ads.api.commands.AdsWriteRequest;
 import org.apache.plc4x.java.ads.api.commands.types.*;
+import org.apache.plc4x.java.ads.api.generic.AmsPacket;
 import org.apache.plc4x.java.ads.api.generic.types.AmsNetId;
 import org.apache.plc4x.java.ads.api.generic.types.AmsPort;
 import org.apache.plc4x.java.ads.api.generic.types.Invoke;
 import org.apache.plc4x.java.ads.model.AdsAddress;
+import org.apache.plc4x.java.ads.model.AdsSymbol;
+import org.apache.plc4x.java.ads.model.AdsSymbolTable;
 import org.apache.plc4x.java.ads.model.SymbolicAdsAddress;
 import org.apache.plc4x.java.api.connection.PlcProprietarySender;
 import org.apache.plc4x.java.api.connection.PlcReader;
@@ -43,7 +50,13 @@ import org.apache.plc4x.java.base.connection.ChannelFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
 import java.util.concurrent.*;
+import java.util.stream.Collectors;
 
 public abstract class AdsAbstractPlcConnection extends AbstractPlcConnection implements PlcReader, PlcWriter, PlcProprietarySender {
 
@@ -51,6 +64,19 @@ public abstract class AdsAbstractPlcConnection extends AbstractPlcConnection imp
 
     protected static final Configuration CONF = new SystemConfiguration();
     protected static final long SYMBOL_RESOLVE_TIMEOUT = CONF.getLong("plc4x.adsconnection.symbol.resolve,timeout", 3000);
+    protected static final int MAX_SUM_COMMAND_ITEMS = CONF.getInt("plc4x.adsconnection.max_sum_command_items", 500);
+    protected static final boolean SYMBOL_TABLE_UPLOAD = CONF.getBoolean("plc4x.adsconnection.symbol.table.upload", false);
+    protected static final long SYMBOL_TABLE_UPLOAD_TIMEOUT = CONF.getLong("plc4x.adsconnection.symbol.table.upload.timeout", 30000);
+    protected static final String SYMBOL_TABLE_CACHE_DIRECTORY = CONF.getString("plc4x.adsconnection.symbol.table.cache_directory",
+        Paths.get(System.getProperty("java.io.tmpdir"), "plc4x-ads-symbols").toString());
+
+    // Number of symbols, length of the symbols, number of data types, length of the data types, max and used dynamic symbols.
+    private static final int UPLOAD_INFO_LENGTH = 6 * 4;
+
+    // Index group, index offset and length of every item of a sum write command.
+    private static final int SUM_WRITE_ITEM_INFO_LENGTH = IndexGroup.NUM_BYTES + IndexOffset.NUM_BYTES + Length.NUM_BYTES;
+    // Index group, index offset, read length and write length of every item of a sum read-write command.
+    private static final int SUM_READ_WRITE_ITEM_INFO_LENGTH = SUM_WRITE_ITEM_INFO_LENGTH + Length.NUM_BYTES;
 
     protected final AmsNetId targetAmsNetId;
 
@@ -62,6 +88,18 @@ public abstract class AdsAbstractPlcConnection extends AbstractPlcConnection imp
 
     protected final ConcurrentMap<SymbolicAdsAddress, AdsAddress> addressMapping;
 
+    // Futures of all symbols being resolved right now, shared by all callers waiting for the same symbol.
+    private final ConcurrentMap<SymbolicAdsAddress, CompletableFuture<AdsAddress>> pendingSymbols;
+
+    // Symbols waiting for the currently running resolution to finish (guarded by itself).
+    private final Queue<SymbolicAdsAddress> queuedSymbols;
+
+    private boolean symbolResolutionInFlight;
+
+    private Path symbolTableCacheDirectory;
+
+    private volatile AdsSymbolTable symbolTable;
+
     protected AdsAbstractPlcConnection(ChannelFactory channelFactory, AmsNetId targetAmsNetId, AmsPort targetAmsPort) {
         this(channelFactory, targetAmsNetId, targetAmsPort, generateAMSNetId(), generateAMSPort());
     }
@@ -73,6 +111,9 @@ public abstract class AdsAbstractPlcConnection extends AbstractPlcConnection imp
         this.sourceAmsNetId = sourceAmsNetId;
         this.sourceAmsPort = sourceAmsPort;
         this.addressMapping = new ConcurrentHashMap<>();
+        this.pendingSymbols = new ConcurrentHashMap<>();
+        this.queuedSymbols = new LinkedList<>();
+        this.symbolTableCacheDirectory = Paths.get(SYMBOL_TABLE_CACHE_DIRECTORY);
     }
 
     public AmsNetId getTargetAmsNetId() {
@@ -92,6 +133,125 @@ public abstract class AdsAbstractPlcConnection extends AbstractPlcConnection imp
     }
 
 
+    /**
+     * Connects to the PLC and, if enabled via {@code plc4x.adsconnection.symbol.table.upload}, loads its symbol table.
+     */
+    @Override
+    public void connect() throws PlcConnectionException {
+        super.connect();
+        if (SYMBOL_TABLE_UPLOAD) {
+            try {
+                getFromFuture(loadSymbolTable(), SYMBOL_TABLE_UPLOAD_TIMEOUT);
+            } catch (PlcRuntimeException e) {
+                LOGGER.warn("Couldn't load symbol table, resolving symbols by handle", e);
+            }
+        }
+    }
+
+    /**
+     * Loads the symbol table of the PLC. If a table with the current symbol version, number and length of symbols of
+     * the PLC has been persisted before, it is read from the cache directory, otherwise the complete table is uploaded
+     * from the PLC and persisted.
+     * As soon as the table is loaded, all symbols contained in it are accessed by their index group and offset
+     * directly instead of acquiring a handle first.
+     *
+     * @return future completed with the loaded symbol table.
+     */
+    public CompletableFuture<AdsSymbolTable> loadSymbolTable() {
+        return readFromPlc(IndexGroup.ReservedGroups.ADSIGRP_SYM_VERSION, 1)
+            .thenCompose(versionData -> {
+                if (versionData.length < 1) {
+                    throw new PlcRuntimeException("No symbol version received");
+                }
+                int version = versionData[0] & 0xFF;
+                return readFromPlc(IndexGroup.ReservedGroups.ADSIGRP_SYM_UPLOADINFO, UPLOAD_INFO_LENGTH)
+                    .thenCompose(uploadInfo -> loadSymbolTable(version, uploadInfo));
+            })
+            .thenApply(loadedSymbolTable -> {
+                symbolTable = loadedSymbolTable;
+                return loadedSymbolTable;
+            });
+    }
+
+    private CompletableFuture<AdsSymbolTable> loadSymbolTable(int version, byte[] uploadInfo) {
+        if (uploadInfo.length < 8) {
+            throw new PlcRuntimeException("Upload info too short " + uploadInfo.length);
+        }
+        long numSymbols = Unpooled.wrappedBuffer(uploadInfo).getUnsignedIntLE(0);
+        long symbolsLength = Unpooled.wrappedBuffer(uploadInfo).getUnsignedIntLE(4);
+        Path cacheFile = getSymbolTableCacheFile(version);
+        if (Files.isReadable(cacheFile)) {
+            try {
+                AdsSymbolTable cachedSymbolTable = AdsSymbolTable.readFrom(cacheFile);
+                if (cachedSymbolTable.matches(version, numSymbols, symbolsLength)) {
+                    LOGGER.debug("Loaded {} from {}", cachedSymbolTable, cacheFile);
+                    return CompletableFuture.completedFuture(cachedSymbolTable);
+                }
+                LOGGER.debug("Cached {} doesn't match {} symbols with {} bytes, uploading it again",
+                    cachedSymbolTable, numSymbols, symbolsLength);
+            } catch (IOException e) {
+                LOGGER.warn("Couldn't read cached symbol table {}, uploading it again", cacheFile, e);
+            }
+        }
+        LOGGER.debug("Uploading {} bytes of symbols", symbolsLength);
+        return readFromPlc(IndexGroup.ReservedGroups.ADSIGRP_SYM_UPLOAD, symbolsLength)
+            .thenApply(symbols -> {
+                AdsSymbolTable uploadedSymbolTable = AdsSymbolTable.of(version, Unpooled.wrappedBuffer(symbols));
+                try {
+                    uploadedSymbolTable.writeTo(cacheFile);
+                } catch (IOException e) {
+                    LOGGER.warn("Couldn't persist symbol table to {}", cacheFile, e);
+                }
+                return uploadedSymbolTable;
+            });
+    }
+
+    private CompletableFuture<byte[]> readFromPlc(IndexGroup indexGroup, long length) {
+        AdsReadRequest adsReadRequest = AdsReadRequest.of(
+            targetAmsNetId,
+            targetAmsPort,
+            sourceAmsNetId,
+            sourceAmsPort,
+            Invoke.NONE,
+            indexGroup,
+            IndexOffset.NONE,
+            Length.of(length)
+        );
+        CompletableFuture<PlcProprietaryResponse<AdsReadResponse>> readFuture = new CompletableFuture<>();
+        ChannelFuture channelFuture = channel.writeAndFlush(new PlcRequestContainer<>(new PlcProprietaryRequest<>(adsReadRequest), readFuture));
+        channelFuture.addListener(future -> {
+            if (!future.isSuccess()) {
+                readFuture.completeExceptionally(future.cause());
+            }
+        });
+        return readFuture.thenApply(readResponse -> {
+            AdsReadResponse response = readResponse.getResponse();
+            if (response.getResult().toAdsReturnCode() != AdsReturnCode.ADS_CODE_0) {
+                throw new PlcRuntimeException("Non error code received " + response.getResult() + " reading " + indexGroup);
+            }
+            return response.getData().getBytes();
+        });
+    }
+
+    private Path getSymbolTableCacheFile(int version) {
+        return symbolTableCacheDirectory.resolve(targetAmsNetId + "_" + targetAmsPort + "_" + version + ".symbols");
+    }
+
+    /**
+     * @return the loaded symbol table or null if none has been loaded yet.
+     */
+    public AdsSymbolTable getSymbolTable() {
+        return symbolTable;
+    }
+
+    public Path getSymbolTableCacheDirectory() {
+        return symbolTableCacheDirectory;
+    }
+
+    public void setSymbolTableCacheDirectory(Path symbolTableCacheDirectory) {
+        this.symbolTableCacheDirectory = symbolTableCacheDirectory;
+    }
+
     @Override
     public Address parseAddress(String addressString) {
         if (AdsAddress.matches(addressString)) {
@@ -103,58 +263,163 @@ public abstract class AdsAbstractPlcConnection extends AbstractPlcConnection imp
 
     @Override
     public CompletableFuture<PlcReadResponse> read(PlcReadRequest readRequest) {
-        mapAddresses(readRequest);
         CompletableFuture<PlcReadResponse> readFuture = new CompletableFuture<>();
-        ChannelFuture channelFuture = channel.writeAndFlush(new PlcRequestContainer<>(readRequest, readFuture));
-        channelFuture.addListener(future -> {
-            if (!future.isSuccess()) {
-                readFuture.completeExceptionally(future.cause());
-            }
-        });
+        sendMapped(readRequest, readFuture);
         return readFuture;
     }
 
     @Override
     public CompletableFuture<PlcWriteResponse> write(PlcWriteRequest writeRequest) {
-        mapAddresses(writeRequest);
         CompletableFuture<PlcWriteResponse> writeFuture = new CompletableFuture<>();
-        ChannelFuture channelFuture = channel.writeAndFlush(new PlcRequestContainer<>(writeRequest, writeFuture));
-        channelFuture.addListener(future -> {
-            if (!future.isSuccess()) {
-                writeFuture.completeExceptionally(future.cause());
-            }
-        });
+        sendMapped(writeRequest, writeFuture);
         return writeFuture;
     }
 
     @Override
     public <T, R> CompletableFuture<PlcProprietaryResponse<R>> send(PlcProprietaryRequest<T> proprietaryRequest) {
-        mapAddresses(proprietaryRequest);
         CompletableFuture<PlcProprietaryResponse<R>> sendFuture = new CompletableFuture<>();
-        ChannelFuture channelFuture = channel.writeAndFlush(new PlcRequestContainer<>(proprietaryRequest, sendFuture));
-        channelFuture.addListener(future -> {
-            if (!future.isSuccess()) {
-                sendFuture.completeExceptionally(future.cause());
+        sendMapped(proprietaryRequest, sendFuture);
+        return sendFuture;
+    }
+
+    /**
+     * Sends the request as soon as all symbolic addresses it contains are resolved.
+     */
+    private <T extends PlcRequest, R extends PlcResponse> void sendMapped(T request, CompletableFuture<R> responseFuture) {
+        mapAddresses(request).whenComplete((ignored, throwable) -> {
+            if (throwable != null) {
+                responseFuture.completeExceptionally(unwrap(throwable));
+                return;
             }
+            ChannelFuture channelFuture = channel.writeAndFlush(new PlcRequestContainer<>(request, responseFuture));
+            channelFuture.addListener(future -> {
+                if (!future.isSuccess()) {
+                    responseFuture.completeExceptionally(future.cause());
+                }
+            });
         });
-        return sendFuture;
     }
 
-    protected void mapAddresses(PlcRequest<?> request) {
-        request.getRequestItems().stream()
-            .parallel()
+    /**
+     * Resolves all symbolic addresses of the given request, which are not resolved yet. All symbols are resolved
+     * with as few round trips as possible.
+     *
+     * @param request request containing the addresses.
+     * @return future completing as soon as all symbolic addresses are contained in the {@link #addressMapping}.
+     */
+    protected CompletableFuture<Void> mapAddresses(PlcRequest<?> request) {
+        CompletableFuture<?>[] mappedFutures = request.getRequestItems().stream()
             .map(RequestItem::getAddress)
             .filter(SymbolicAdsAddress.class::isInstance)
             .map(SymbolicAdsAddress.class::cast)
-            .forEach(this::mapAddress);
+            .distinct()
+            .map(this::enqueueSymbol)
+            .toArray(CompletableFuture[]::new);
+        sendQueuedSymbols();
+        return CompletableFuture.allOf(mappedFutures);
     }
 
-    protected void mapAddress(SymbolicAdsAddress symbolicAdsAddress) {
-        // If the map doesn't contain an entry for the given symbolicAdsAddress,
-        // resolve it and add it to the map.
-        addressMapping.computeIfAbsent(symbolicAdsAddress, symbolicAdsAddressInternal -> {
-            LOGGER.debug("Resolving {}", symbolicAdsAddressInternal);
-            AdsReadWriteRequest adsReadWriteRequest = AdsReadWriteRequest.of(
+    /**
+     * Resolves the given symbolic address, if it isn't resolved yet.
+     *
+     * @param symbolicAdsAddress symbolic address to resolve.
+     * @return future completed with the handle based address of the symbol.
+     */
+    protected CompletableFuture<AdsAddress> mapAddress(SymbolicAdsAddress symbolicAdsAddress) {
+        CompletableFuture<AdsAddress> mappedFuture = enqueueSymbol(symbolicAdsAddress);
+        sendQueuedSymbols();
+        return mappedFuture;
+    }
+
+    /**
+     * Queues the symbol for resolution, unless it is already resolved or its resolution is already in progress.
+     * In these cases, the already existing result or the future of the pending resolution is returned, so
+     * concurrent callers share the same lookup.
+     */
+    private CompletableFuture<AdsAddress> enqueueSymbol(SymbolicAdsAddress symbolicAdsAddress) {
+        AdsAddress adsAddress = addressMapping.get(symbolicAdsAddress);
+        if (adsAddress != null) {
+            return CompletableFuture.completedFuture(adsAddress);
+        }
+        // Symbols contained in the symbol table don't need a handle.
+        AdsSymbolTable currentSymbolTable = symbolTable;
+        if (currentSymbolTable != null) {
+            Optional<AdsSymbol> symbol = currentSymbolTable.getSymbol(symbolicAdsAddress.getSymbolicAddress());
+            if (symbol.isPresent()) {
+                adsAddress = symbol.get().toAdsAddress();
+                addressMapping.put(symbolicAdsAddress, adsAddress);
+                return CompletableFuture.completedFuture(adsAddress);
+            }
+        }
+        CompletableFuture<AdsAddress> mappedFuture = new CompletableFuture<>();
+        CompletableFuture<AdsAddress> pendingFuture = pendingSymbols.putIfAbsent(symbolicAdsAddress, mappedFuture);
+        if (pendingFuture != null) {
+            return pendingFuture;
+        }
+        // The symbol might have been resolved since checking the mapping above.
+        adsAddress = addressMapping.get(symbolicAdsAddress);
+        if (adsAddress != null) {
+            pendingSymbols.remove(symbolicAdsAddress, mappedFuture);
+            mappedFuture.complete(adsAddress);
+            return mappedFuture;
+        }
+        synchronized (queuedSymbols) {
+            queuedSymbols.add(symbolicAdsAddress);
+        }
+        return mappedFuture;
+    }
+
+    /**
+     * Sends the next batch of queued symbols to the PLC. Only one batch is in flight at a time, symbols queued in the
+     * meantime are sent together as soon as the current batch is answered.
+     */
+    private void sendQueuedSymbols() {
+        List<SymbolicAdsAddress> symbols;
+        synchronized (queuedSymbols) {
+            if (symbolResolutionInFlight || queuedSymbols.isEmpty()) {
+                return;
+            }
+            symbols = new ArrayList<>(Math.min(queuedSymbols.size(), MAX_SUM_COMMAND_ITEMS));
+            while (!queuedSymbols.isEmpty() && symbols.size() < MAX_SUM_COMMAND_ITEMS) {
+                symbols.add(queuedSymbols.poll());
+            }
+            symbolResolutionInFlight = true;
+        }
+        LOGGER.debug("Resolving {}", symbols);
+        CompletableFuture<PlcProprietaryResponse<AdsReadWriteResponse>> getHandleFuture = new CompletableFuture<>();
+        getHandleFuture.whenComplete((getHandleResponse, throwable) -> {
+            try {
+                if (throwable != null) {
+                    symbols.forEach(symbol -> failSymbol(symbol, unwrap(throwable)));
+                } else {
+                    decodeSymbolHandles(symbols, getHandleResponse.getResponse());
+                }
+            } catch (RuntimeException e) {
+                LOGGER.warn("Error decoding symbol handles for {}", symbols, e);
+                symbols.forEach(symbol -> failSymbol(symbol, e));
+            } finally {
+                synchronized (queuedSymbols) {
+                    symbolResolutionInFlight = false;
+                }
+                sendQueuedSymbols();
+            }
+        });
+        ChannelFuture channelFuture = channel.writeAndFlush(
+            new PlcRequestContainer<>(new PlcProprietaryRequest<>(encodeGetHandleRequest(symbols)), getHandleFuture));
+        channelFuture.addListener(future -> {
+            if (!future.isSuccess()) {
+                getHandleFuture.completeExceptionally(future.cause());
+            }
+        });
+    }
+
+    /**
+     * A single symbol is resolved by a plain {@code ADSIGRP_SYM_HNDBYNAME} request, multiple symbols with a sum
+     * read-write command containing one {@code ADSIGRP_SYM_HNDBYNAME} request per symbol.
+     */
+    private AdsReadWriteRequest encodeGetHandleRequest(List<SymbolicAdsAddress> symbols) {
+        if (symbols.size() == 1) {
+            return AdsReadWriteRequest.of(
                 targetAmsNetId,
                 targetAmsPort,
                 sourceAmsNetId,
@@ -163,22 +428,88 @@ public abstract class AdsAbstractPlcConnection extends AbstractPlcConnection imp
                 IndexGroup.ReservedGroups.ADSIGRP_SYM_HNDBYNAME,
                 IndexOffset.NONE,
                 ReadLength.of(IndexOffset.NUM_BYTES),
-                Data.of(symbolicAdsAddressInternal.getSymbolicAddress())
+                Data.of(symbols.get(0).getSymbolicAddress())
             );
+        }
+        ByteBuf itemInfos = Unpooled.buffer(symbols.size() * SUM_READ_WRITE_ITEM_INFO_LENGTH);
+        ByteBuf itemData = Unpooled.buffer();
+        for (SymbolicAdsAddress symbol : symbols) {
+            byte[] symbolName = Data.of(symbol.getSymbolicAddress()).getBytes();
+            itemInfos.writeIntLE((int) IndexGroup.ReservedGroups.ADSIGRP_SYM_HNDBYNAME.getAsLong());
+            itemInfos.writeIntLE((int) IndexOffset.NONE.getAsLong());
+            itemInfos.writeIntLE(IndexOffset.NUM_BYTES);
+            itemInfos.writeIntLE(symbolName.length);
+            itemData.writeBytes(symbolName);
+        }
+        // Every item is answered with a result, the length of its data and the handle itself.
+        long readLength = symbols.size() * (long) (Result.NUM_BYTES + Length.NUM_BYTES + IndexOffset.NUM_BYTES);
+        return AdsReadWriteRequest.of(
+            targetAmsNetId,
+            targetAmsPort,
+            sourceAmsNetId,
+            sourceAmsPort,
+            Invoke.NONE,
+            IndexGroup.ReservedGroups.ADSIGRP_SUMUP_READWRITE,
+            IndexOffset.of(symbols.size()),
+            ReadLength.of(readLength),
+            Data.of(Unpooled.wrappedBuffer(itemInfos, itemData))
+        );
+    }
 
-            // TODO: This is blocking, should be changed to be async.
-            CompletableFuture<PlcProprietaryResponse<AdsReadWriteResponse>> getHandelFuture = new CompletableFuture<>();
-            channel.writeAndFlush(new PlcRequestContainer<>(new PlcProprietaryRequest<>(adsReadWriteRequest), getHandelFuture));
-            PlcProprietaryResponse<AdsReadWriteResponse> getHandleResponse = getFromFuture(getHandelFuture, SYMBOL_RESOLVE_TIMEOUT);
-            AdsReadWriteResponse response = getHandleResponse.getResponse();
-
-            if (response.getResult().toAdsReturnCode() != AdsReturnCode.ADS_CODE_0) {
-                throw new PlcRuntimeException("Non error code received " + response.getResult());
+    private void decodeSymbolHandles(List<SymbolicAdsAddress> symbols, AdsReadWriteResponse response) {
+        if (response.getResult().toAdsReturnCode() != AdsReturnCode.ADS_CODE_0) {
+            PlcRuntimeException exception = new PlcRuntimeException("Non error code received " + response.getResult());
+            symbols.forEach(symbol -> failSymbol(symbol, exception));
+            return;
+        }
+        ByteBuf byteBuf = Unpooled.wrappedBuffer(response.getData().getBytes());
+        if (symbols.size() == 1) {
+            resolveSymbol(symbols.get(0), IndexOffset.of(byteBuf));
+            return;
+        }
+        int headerLength = symbols.size() * (Result.NUM_BYTES + Length.NUM_BYTES);
+        if (byteBuf.readableBytes() < headerLength) {
+            PlcRuntimeException exception = new PlcRuntimeException("Sum response too short for " + symbols.size() + " symbols");
+            symbols.forEach(symbol -> failSymbol(symbol, exception));
+            return;
+        }
+        ByteBuf headers = byteBuf.readSlice(headerLength);
+        for (SymbolicAdsAddress symbol : symbols) {
+            Result result = Result.of(headers.readUnsignedIntLE());
+            int length = (int) headers.readUnsignedIntLE();
+            if (byteBuf.readableBytes() < length) {
+                failSymbol(symbol, new PlcRuntimeException("Sum response too short for handle of " + symbol));
+                continue;
             }
+            ByteBuf handle = byteBuf.readSlice(length);
+            if (result.toAdsReturnCode() != AdsReturnCode.ADS_CODE_0) {
+                failSymbol(symbol, new PlcRuntimeException("Non error code received " + result + " for " + symbol));
+            } else if (length < IndexOffset.NUM_BYTES) {
+                failSymbol(symbol, new PlcRuntimeException("Invalid handle length " + length + " for " + symbol));
+            } else {
+                resolveSymbol(symbol, IndexOffset.of(handle));
+            }
+        }
+    }
 
-            IndexOffset symbolHandle = IndexOffset.of(response.getData().getBytes());
-            return AdsAddress.of(IndexGroup.ReservedGroups.ADSIGRP_SYM_VALBYHND.getAsLong(), symbolHandle.getAsLong());
-        });
+    private void resolveSymbol(SymbolicAdsAddress symbol, IndexOffset symbolHandle) {
+        AdsAddress adsAddress = AdsAddress.of(IndexGroup.ReservedGroups.ADSIGRP_SYM_VALBYHND.getAsLong(), symbolHandle.getAsLong());
+        addressMapping.put(symbol, adsAddress);
+        CompletableFuture<AdsAddress> mappedFuture = pendingSymbols.remove(symbol);
+        if (mappedFuture != null) {
+            mappedFuture.complete(adsAddress);
+        }
+    }
+
+    private void failSymbol(SymbolicAdsAddress symbol, Throwable cause) {
+        CompletableFuture<AdsAddress> mappedFuture = pendingSymbols.remove(symbol);
+        if (mappedFuture != null) {
+            mappedFuture.completeExceptionally(cause);
+        }
+    }
+
+    private static Throwable unwrap(Throwable throwable) {
+        return (throwable instanceof CompletionException) && (throwable.getCause() != null) ? throwable.getCause() : throwable;
     }
 
     protected static AmsNetId generateAMSNetId() {
@@ -189,11 +520,27 @@ public abstract class AdsAbstractPlcConnection extends AbstractPlcConnection imp
         return AmsPort.of(0);
     }
 
+    /**
+     * Releases all symbol handles with as few sum write commands as possible and closes the connection.
+     * Addresses taken from the symbol table aren't handles and don't need to be released.
+     */
     @Override
     public void close() throws PlcConnectionException {
-        addressMapping.values().stream()
-            .parallel()
-            .map(adsAddress -> AdsWriteRequest.of(
+        List<AdsAddress> handles = addressMapping.values().stream()
+            .filter(adsAddress -> adsAddress.getIndexGroup() == IndexGroup.ReservedGroups.ADSIGRP_SYM_VALBYHND.getAsLong())
+            .collect(Collectors.toList());
+        for (int start = 0; start < handles.size(); start += MAX_SUM_COMMAND_ITEMS) {
+            List<AdsAddress> chunk = handles.subList(start, Math.min(start + MAX_SUM_COMMAND_ITEMS, handles.size()));
+            // We don't need a response so we just supply a throw away future.
+            channel.write(new PlcRequestContainer<>(new PlcProprietaryRequest<>(encodeReleaseHandleRequest(chunk)), new CompletableFuture<>()));
+        }
+        channel.flush();
+        super.close();
+    }
+
+    private AmsPacket encodeReleaseHandleRequest(List<AdsAddress> handles) {
+        if (handles.size() == 1) {
+            return AdsWriteRequest.of(
                 targetAmsNetId,
                 targetAmsPort,
                 sourceAmsNetId,
@@ -201,13 +548,28 @@ public abstract class AdsAbstractPlcConnection extends AbstractPlcConnection imp
                 Invoke.NONE,
                 IndexGroup.ReservedGroups.ADSIGRP_SYM_RELEASEHND,
                 IndexOffset.NONE,
-                Data.of(IndexGroup.of(adsAddress.getIndexGroup()).getBytes())
-            ))
-            .map(adsWriteRequest -> new PlcRequestContainer<>(new PlcProprietaryRequest<>(adsWriteRequest), new CompletableFuture<>()))
-            // We don't need a response so we just supply a throw away future.
-            .forEach(channel::write);
-        channel.flush();
-        super.close();
+                Data.of(IndexOffset.of(handles.get(0).getIndexOffset()).getBytes())
+            );
+        }
+        ByteBuf itemInfos = Unpooled.buffer(handles.size() * SUM_WRITE_ITEM_INFO_LENGTH);
+        ByteBuf itemData = Unpooled.buffer(handles.size() * IndexOffset.NUM_BYTES);
+        for (AdsAddress handle : handles) {
+            itemInfos.writeIntLE((int) IndexGroup.ReservedGroups.ADSIGRP_SYM_RELEASEHND.getAsLong());
+            itemInfos.writeIntLE((int) IndexOffset.NONE.getAsLong());
+            itemInfos.writeIntLE(IndexOffset.NUM_BYTES);
+            itemData.writeIntLE((int) handle.getIndexOffset());
+        }
+        return AdsReadWriteRequest.of(
+            targetAmsNetId,
+            targetAmsPort,
+            sourceAmsNetId,
+            sourceAmsPort,
+            Invoke.NONE,
+            IndexGroup.ReservedGroups.ADSIGRP_SUMUP_WRITE,
+            IndexOffset.of(handles.size()),
+            ReadLength.of(handles.size() * (long) Result.NUM_BYTES),
+            Data.of(Unpooled.wrappedBuffer(itemInfos, itemData))
+        );
     }
 
     /**
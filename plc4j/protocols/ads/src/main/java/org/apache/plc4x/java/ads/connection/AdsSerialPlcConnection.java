@@ -27,13 +27,17 @@ import org.apache.plc4x.java.ads.api.generic.types.AmsPort;
 import org.apache.plc4x.java.ads.protocol.Ads2PayloadProtocol;
 import org.apache.plc4x.java.ads.protocol.Payload2SerialProtocol;
 import org.apache.plc4x.java.ads.protocol.Plc4x2AdsProtocol;
-import org.apache.plc4x.java.ads.protocol.util.SingleMessageRateLimiter;
+import org.apache.plc4x.java.ads.protocol.util.AmsResponseMatcher;
 import org.apache.plc4x.java.base.connection.SerialChannelFactory;
+import org.apache.plc4x.java.base.protocol.InFlightWindowHandler;
 
 import java.util.concurrent.CompletableFuture;
 
 public class AdsSerialPlcConnection extends AdsAbstractPlcConnection {
 
+    // Most serial devices can only handle one request at a time.
+    private static final int WINDOW_SIZE = CONF.getInt("plc4x.adsconnection.serial.window_size", 1);
+
     private AdsSerialPlcConnection(String serialPort, AmsNetId targetAmsNetId, AmsPort targetAmsPort) {
         this(serialPort, targetAmsNetId, targetAmsPort, generateAMSNetId(), generateAMSPort());
     }
@@ -58,7 +62,7 @@ public class AdsSerialPlcConnection extends AdsAbstractPlcConnection {
                 // Build the protocol stack for communicating with the ads protocol.
                 ChannelPipeline pipeline = channel.pipeline();
                 pipeline.addLast(new Payload2SerialProtocol());
-                pipeline.addLast(new SingleMessageRateLimiter());
+                pipeline.addLast(new InFlightWindowHandler(WINDOW_SIZE, new AmsResponseMatcher()));
                 pipeline.addLast(new Ads2PayloadProtocol());
                 pipeline.addLast(new Plc4x2AdsProtocol(targetAmsNetId, targetAmsPort, sourceAmsNetId, sourceAmsPort, addressMapping));
             }
@@ -18,12 +18,17 @@ under the License.
 */
 package org.apache.plc4x.java.ads.connection;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
 import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelPipeline;
 import org.apache.plc4x.java.ads.api.commands.*;
 import org.apache.plc4x.java.ads.api.commands.types.*;
+import org.apache.plc4x.java.ads.api.generic.AmsPacket;
 import org.apache.plc4x.java.ads.api.generic.types.AmsNetId;
 import org.apache.plc4x.java.ads.api.generic.types.AmsPort;
 import org.apache.plc4x.java.ads.api.generic.types.Invoke;
@@ -33,6 +38,7 @@ import org.apache.plc4x.java.ads.model.SymbolicAdsAddress;
 import org.apache.plc4x.java.ads.protocol.Ads2PayloadProtocol;
 import org.apache.plc4x.java.ads.protocol.Payload2TcpProtocol;
 import org.apache.plc4x.java.ads.protocol.Plc4x2AdsProtocol;
+import org.apache.plc4x.java.ads.protocol.util.AdsNotificationSampleListener;
 import org.apache.plc4x.java.ads.protocol.util.LittleEndianDecoder;
 import org.apache.plc4x.java.api.connection.PlcSubscriber;
 import org.apache.plc4x.java.api.exceptions.PlcNotImplementedException;
@@ -40,10 +46,12 @@ import org.apache.plc4x.java.api.exceptions.PlcProtocolException;
 import org.apache.plc4x.java.api.exceptions.PlcRuntimeException;
 import org.apache.plc4x.java.api.messages.*;
 import org.apache.plc4x.java.api.messages.items.SubscriptionEventItem;
+import org.apache.plc4x.java.api.messages.items.SubscriptionRequestCyclicItem;
 import org.apache.plc4x.java.api.messages.items.SubscriptionRequestItem;
 import org.apache.plc4x.java.api.messages.items.SubscriptionResponseItem;
 import org.apache.plc4x.java.api.messages.items.UnsubscriptionRequestItem;
 import org.apache.plc4x.java.api.model.Address;
+import org.apache.plc4x.java.api.model.SubscriptionType;
 import org.apache.plc4x.java.api.types.ResponseCode;
 import org.apache.plc4x.java.base.connection.TcpSocketChannelFactory;
 import org.slf4j.Logger;
@@ -52,13 +60,11 @@ import org.slf4j.LoggerFactory;
 import java.net.Inet4Address;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
-import java.util.Calendar;
-import java.util.Collections;
-import java.util.List;
-import java.util.Objects;
+import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 public class AdsTcpPlcConnection extends AdsAbstractPlcConnection implements PlcSubscriber {
 
@@ -66,8 +72,13 @@ public class AdsTcpPlcConnection extends AdsAbstractPlcConnection implements Plc
 
     private static final int TCP_PORT = 48898;
 
-    private static final long ADD_DEVICE_TIMEOUT = CONF.getLong("plc4x.adsconnection.add.device,timeout", 3000);
-    private static final long DEL_DEVICE_TIMEOUT = CONF.getLong("plc4x.adsconnection.del.device,timeout", 3000);
+    private static final long NOTIFICATION_CYCLE_TIME = CONF.getLong("plc4x.adsconnection.notification.cycle_time", 400);
+    private static final long NOTIFICATION_MAX_DELAY = CONF.getLong("plc4x.adsconnection.notification.max_delay", 0);
+
+    // Index group, index offset, length, transmission mode, max delay, cycle time and the reserved bytes.
+    private static final int SUM_ADD_DEVICE_NOTIFICATION_ITEM_LENGTH = IndexGroup.NUM_BYTES + IndexOffset.NUM_BYTES +
+        Length.NUM_BYTES + TransmissionMode.NUM_BYTES + MaxDelay.NUM_BYTES + CycleTime.NUM_BYTES +
+        AdsAddDeviceNotificationRequest.Reserved.NUM_BYTES;
 
     private static AtomicInteger localPorts = new AtomicInteger(30000);
 
@@ -110,9 +121,12 @@ public class AdsTcpPlcConnection extends AdsAbstractPlcConnection implements Plc
             protected void initChannel(Channel channel) {
                 // Build the protocol stack for communicating with the ads protocol.
                 ChannelPipeline pipeline = channel.pipeline();
+                Plc4x2AdsProtocol plc4x2AdsProtocol =
+                    new Plc4x2AdsProtocol(targetAmsNetId, targetAmsPort, sourceAmsNetId, sourceAmsPort, addressMapping);
                 pipeline.addLast(new Payload2TcpProtocol());
-                pipeline.addLast(new Ads2PayloadProtocol());
-                pipeline.addLast(new Plc4x2AdsProtocol(targetAmsNetId, targetAmsPort, sourceAmsNetId, sourceAmsPort, addressMapping));
+                // Notification samples are passed from the payload directly to their subscriptions.
+                pipeline.addLast(new Ads2PayloadProtocol(plc4x2AdsProtocol));
+                pipeline.addLast(plc4x2AdsProtocol);
             }
         };
     }
@@ -133,131 +147,332 @@ public class AdsTcpPlcConnection extends AdsAbstractPlcConnection implements Plc
         return AmsPort.of(localPorts.getAndIncrement());
     }
 
+    /**
+     * Adds one device notification per item. All symbolic addresses are resolved first, then the notifications are
+     * added by a single request (or a sum command for multiple items), so the caller isn't blocked at any time.
+     * Cyclic items are sampled by the plc with their period, change of state items are checked every
+     * {@code plc4x.adsconnection.notification.cycle_time} milliseconds.
+     * If adding the notifications fails for any chunk of items, the notifications added for the other chunks are
+     * deleted again, as the caller doesn't get any handles to unsubscribe them.
+     */
     @Override
     public CompletableFuture<PlcSubscriptionResponse> subscribe(PlcSubscriptionRequest subscriptionRequest) {
-        // TODO: Make this multi-value
-        CompletableFuture<PlcSubscriptionResponse> future = new CompletableFuture<>();
-        if (subscriptionRequest.getNumberOfItems() != 1) {
-            throw new PlcNotImplementedException("Multirequest on subscribe not implemented yet");
+        List<SubscriptionRequestItem<?>> subscriptionRequestItems = subscriptionRequest.getRequestItems();
+        List<CompletableFuture<AdsAddress>> addressFutures = new ArrayList<>(subscriptionRequestItems.size());
+        for (SubscriptionRequestItem<?> subscriptionRequestItem : subscriptionRequestItems) {
+            Objects.requireNonNull(subscriptionRequestItem.getConsumer());
+            Objects.requireNonNull(subscriptionRequestItem.getAddress());
+            Objects.requireNonNull(subscriptionRequestItem.getDatatype());
+            if (subscriptionRequestItem.getSubscriptionType() == SubscriptionType.EVENT) {
+                throw new PlcNotImplementedException("Event subscriptions not supported by ads");
+            }
+            addressFutures.add(resolveAddress(subscriptionRequestItem.getAddress()));
         }
 
-        SubscriptionRequestItem<?> subscriptionRequestItem = subscriptionRequest.getRequestItem().orElseThrow(NullPointerException::new);
-
-        Objects.requireNonNull(subscriptionRequestItem.getConsumer());
-        Objects.requireNonNull(subscriptionRequestItem.getAddress());
-        Objects.requireNonNull(subscriptionRequestItem.getDatatype());
-
-        Address address = subscriptionRequestItem.getAddress();
-        Class<?> datatype = subscriptionRequestItem.getDatatype();
+        return CompletableFuture.allOf(addressFutures.toArray(new CompletableFuture[0])).thenCompose(ignored -> {
+            List<CompletableFuture<List<SubscriptionResponseItem<?>>>> chunkFutures = new ArrayList<>();
+            for (int start = 0; start < subscriptionRequestItems.size(); start += MAX_SUM_COMMAND_ITEMS) {
+                int end = Math.min(start + MAX_SUM_COMMAND_ITEMS, subscriptionRequestItems.size());
+                List<AdsAddress> adsAddresses = addressFutures.subList(start, end).stream()
+                    .map(CompletableFuture::join)
+                    .collect(Collectors.toList());
+                chunkFutures.add(addDeviceNotifications(subscriptionRequestItems.subList(start, end), adsAddresses));
+            }
+            CompletableFuture<PlcSubscriptionResponse> future = new CompletableFuture<>();
+            CompletableFuture.allOf(chunkFutures.toArray(new CompletableFuture[0])).whenComplete((ignoredChunks, throwable) -> {
+                if (throwable == null) {
+                    List<SubscriptionResponseItem<?>> subscriptionResponseItems = new ArrayList<>(subscriptionRequestItems.size());
+                    chunkFutures.forEach(chunkFuture -> subscriptionResponseItems.addAll(chunkFuture.join()));
+                    future.complete(new PlcSubscriptionResponse(subscriptionRequest, subscriptionResponseItems));
+                    return;
+                }
+                List<NotificationHandle> notificationHandles = chunkFutures.stream()
+                    .filter(chunkFuture -> !chunkFuture.isCompletedExceptionally())
+                    .flatMap(chunkFuture -> chunkFuture.join().stream())
+                    .map(SubscriptionResponseItem::getSubscriptionHandle)
+                    .filter(AdsSubscriptionHandle.class::isInstance)
+                    .map(subscriptionHandle -> ((AdsSubscriptionHandle) subscriptionHandle).getNotificationHandle())
+                    .collect(Collectors.toList());
+                removeDeviceNotifications(notificationHandles).whenComplete((ignoredRemoval, removalThrowable) -> {
+                    if (removalThrowable != null) {
+                        LOGGER.warn("Error deleting the notifications of a failed subscription", removalThrowable);
+                    }
+                    future.completeExceptionally(throwable);
+                });
+            });
+            return future;
+        });
+    }
 
-        IndexGroup indexGroup;
-        IndexOffset indexOffset;
+    private CompletableFuture<AdsAddress> resolveAddress(Address address) {
         // If this is a symbolic address, it has to be resolved first.
-        // TODO: This is blocking, should be changed to be async.
         if (address instanceof SymbolicAdsAddress) {
-            mapAddress((SymbolicAdsAddress) address);
-            AdsAddress adsAddress = addressMapping.get(address);
-            if (adsAddress == null) {
-                throw new PlcRuntimeException("Unresolvable address" + address);
-            }
-            indexGroup = IndexGroup.of(adsAddress.getIndexGroup());
-            indexOffset = IndexOffset.of(adsAddress.getIndexOffset());
+            return mapAddress((SymbolicAdsAddress) address);
         }
         // If it's no symbolic address, we can continue immediately
         // without having to do any resolving.
-        else if (address instanceof AdsAddress) {
-            AdsAddress adsAddress = (AdsAddress) address;
-            indexGroup = IndexGroup.of(adsAddress.getIndexGroup());
-            indexOffset = IndexOffset.of(adsAddress.getIndexOffset());
-        } else {
-            throw new IllegalArgumentException("Unsupported address type " + address.getClass());
+        if (address instanceof AdsAddress) {
+            return CompletableFuture.completedFuture((AdsAddress) address);
         }
+        throw new IllegalArgumentException("Unsupported address type " + address.getClass());
+    }
 
-        // Prepare the subscription request itself.
-        AdsAddDeviceNotificationRequest adsAddDeviceNotificationRequest = AdsAddDeviceNotificationRequest.of(
+    private CompletableFuture<List<SubscriptionResponseItem<?>>> addDeviceNotifications(
+        List<SubscriptionRequestItem<?>> subscriptionRequestItems, List<AdsAddress> adsAddresses) {
+        Plc4x2AdsProtocol plc4x2AdsProtocol = getChannel().pipeline().get(Plc4x2AdsProtocol.class);
+        CompletableFuture<PlcProprietaryResponse<AmsPacket>> addDeviceFuture = new CompletableFuture<>();
+        // The routes have to be in place before the next notification is decoded, so the response is handled as soon
+        // as it's decoded and not by the thread waiting for the subscription.
+        CompletableFuture<List<SubscriptionResponseItem<?>>> future = addDeviceFuture.thenApply(addDeviceResponse ->
+            decodeAddDeviceNotificationResponse(subscriptionRequestItems, addDeviceResponse.getResponse(), plc4x2AdsProtocol));
+        ChannelFuture channelFuture = channel.writeAndFlush(new PlcRequestContainer<>(
+            new PlcProprietaryRequest<>(encodeAddDeviceNotificationRequest(subscriptionRequestItems, adsAddresses)), addDeviceFuture));
+        channelFuture.addListener(writeFuture -> {
+            if (!writeFuture.isSuccess()) {
+                addDeviceFuture.completeExceptionally(writeFuture.cause());
+            }
+        });
+        return future;
+    }
+
+    /**
+     * A single notification is added by a plain {@link AdsAddDeviceNotificationRequest}, multiple notifications with
+     * a {@code ADSIGRP_SUMUP_ADDDEVNOTE} sum command containing the parameters of one request per item.
+     */
+    private AmsPacket encodeAddDeviceNotificationRequest(List<SubscriptionRequestItem<?>> subscriptionRequestItems, List<AdsAddress> adsAddresses) {
+        if (subscriptionRequestItems.size() == 1) {
+            SubscriptionRequestItem<?> subscriptionRequestItem = subscriptionRequestItems.get(0);
+            AdsAddress adsAddress = adsAddresses.get(0);
+            return AdsAddDeviceNotificationRequest.of(
+                targetAmsNetId,
+                targetAmsPort,
+                sourceAmsNetId,
+                sourceAmsPort,
+                Invoke.NONE,
+                IndexGroup.of(adsAddress.getIndexGroup()),
+                IndexOffset.of(adsAddress.getIndexOffset()),
+                LittleEndianDecoder.getLengthFor(subscriptionRequestItem.getDatatype(), 1),
+                getTransmissionMode(subscriptionRequestItem),
+                getMaxDelay(subscriptionRequestItem),
+                getCycleTime(subscriptionRequestItem)
+            );
+        }
+        ByteBuf itemData = Unpooled.buffer(subscriptionRequestItems.size() * SUM_ADD_DEVICE_NOTIFICATION_ITEM_LENGTH);
+        for (int i = 0; i < subscriptionRequestItems.size(); i++) {
+            SubscriptionRequestItem<?> subscriptionRequestItem = subscriptionRequestItems.get(i);
+            AdsAddress adsAddress = adsAddresses.get(i);
+            itemData.writeIntLE((int) adsAddress.getIndexGroup());
+            itemData.writeIntLE((int) adsAddress.getIndexOffset());
+            itemData.writeIntLE((int) LittleEndianDecoder.getLengthFor(subscriptionRequestItem.getDatatype(), 1).getAsLong());
+            itemData.writeIntLE((int) getTransmissionMode(subscriptionRequestItem).getAsLong());
+            itemData.writeIntLE((int) getMaxDelay(subscriptionRequestItem).getAsLong());
+            itemData.writeIntLE((int) getCycleTime(subscriptionRequestItem).getAsLong());
+            itemData.writeZero(AdsAddDeviceNotificationRequest.Reserved.NUM_BYTES);
+        }
+        // Every item is answered with a result and the notification handle.
+        long readLength = subscriptionRequestItems.size() * (long) (Result.NUM_BYTES + NotificationHandle.NUM_BYTES);
+        return AdsReadWriteRequest.of(
             targetAmsNetId,
             targetAmsPort,
             sourceAmsNetId,
             sourceAmsPort,
             Invoke.NONE,
-            indexGroup,
-            indexOffset,
-            LittleEndianDecoder.getLengthFor(datatype, 1),
-            TransmissionMode.DefinedValues.ADSTRANS_SERVERCYCLE,
-            MaxDelay.of(0),
-            CycleTime.of(4000000)
+            IndexGroup.ReservedGroups.ADSIGRP_SUMUP_ADDDEVNOTE,
+            IndexOffset.of(subscriptionRequestItems.size()),
+            ReadLength.of(readLength),
+            Data.of(itemData)
         );
+    }
 
-        // Send the request to the plc and wait for a response
-        // TODO: This is blocking, should be changed to be async.
-        CompletableFuture<PlcProprietaryResponse<AdsAddDeviceNotificationResponse>> addDeviceFuture = new CompletableFuture<>();
-        channel.writeAndFlush(new PlcRequestContainer<>(new PlcProprietaryRequest<>(adsAddDeviceNotificationRequest), addDeviceFuture));
-        PlcProprietaryResponse<AdsAddDeviceNotificationResponse> addDeviceResponse = getFromFuture(addDeviceFuture, ADD_DEVICE_TIMEOUT);
-        AdsAddDeviceNotificationResponse response = addDeviceResponse.getResponse();
-
-        // Abort if we got anything but a successful response.
+    private List<SubscriptionResponseItem<?>> decodeAddDeviceNotificationResponse(
+        List<SubscriptionRequestItem<?>> subscriptionRequestItems, AmsPacket amsPacket, Plc4x2AdsProtocol plc4x2AdsProtocol) {
+        if (subscriptionRequestItems.size() == 1) {
+            AdsAddDeviceNotificationResponse response = (AdsAddDeviceNotificationResponse) amsPacket;
+            return Collections.singletonList(createSubscriptionResponseItem(
+                subscriptionRequestItems.get(0), response.getResult(), response.getNotificationHandle(), plc4x2AdsProtocol));
+        }
+        AdsReadWriteResponse response = (AdsReadWriteResponse) amsPacket;
         if (response.getResult().toAdsReturnCode() != AdsReturnCode.ADS_CODE_0) {
-            throw new PlcRuntimeException("Error code received " + response.getResult());
+            throw new PlcRuntimeException("Non error code received " + response.getResult());
         }
-        AdsSubscriptionHandle adsSubscriptionHandle = new AdsSubscriptionHandle(response.getNotificationHandle());
-        future.complete(new PlcSubscriptionResponse(subscriptionRequest, Collections.singletonList(
-            new SubscriptionResponseItem<>(subscriptionRequestItem, adsSubscriptionHandle, ResponseCode.OK))));
-
-        Consumer<AdsDeviceNotificationRequest> adsDeviceNotificationRequestConsumer =
-            adsDeviceNotificationRequest -> adsDeviceNotificationRequest.getAdsStampHeaders().forEach(adsStampHeader -> {
-                Calendar timeStamp = Calendar.getInstance();
-                timeStamp.setTime(adsStampHeader.getTimeStamp().getAsDate());
-
-                adsStampHeader.getAdsNotificationSamples()
-                    .forEach(adsNotificationSample -> {
-                        Data data = adsNotificationSample.getData();
-                        try {
-                            @SuppressWarnings("unchecked")
-                            List<?> decodeData = LittleEndianDecoder.decodeData(datatype, data.getBytes());
-                            SubscriptionEventItem subscriptionEventItem =
-                                new SubscriptionEventItem(subscriptionRequestItem, timeStamp, decodeData);
-                            subscriptionRequestItem.getConsumer().accept(subscriptionEventItem);
-                        } catch (PlcProtocolException | RuntimeException e) {
-                            LOGGER.error("Can't decode {}", data, e);
-                        }
-                    });
-            });
-        // TODO: What's this for? Is this still needed if we use the consumers in the subscriptions?
-        getChannel().pipeline().get(Plc4x2AdsProtocol.class).addConsumer(adsDeviceNotificationRequestConsumer);
-        return future;
+        ByteBuf byteBuf = Unpooled.wrappedBuffer(response.getData().getBytes());
+        if (byteBuf.readableBytes() < subscriptionRequestItems.size() * (Result.NUM_BYTES + NotificationHandle.NUM_BYTES)) {
+            throw new PlcRuntimeException("Sum response too short for " + subscriptionRequestItems.size() + " subscriptions");
+        }
+        List<SubscriptionResponseItem<?>> subscriptionResponseItems = new ArrayList<>(subscriptionRequestItems.size());
+        for (SubscriptionRequestItem<?> subscriptionRequestItem : subscriptionRequestItems) {
+            Result result = Result.of(byteBuf.readUnsignedIntLE());
+            NotificationHandle notificationHandle = NotificationHandle.of(byteBuf.readUnsignedIntLE());
+            subscriptionResponseItems.add(
+                createSubscriptionResponseItem(subscriptionRequestItem, result, notificationHandle, plc4x2AdsProtocol));
+        }
+        return subscriptionResponseItems;
+    }
+
+    private <T> SubscriptionResponseItem<T> createSubscriptionResponseItem(SubscriptionRequestItem<T> subscriptionRequestItem,
+                                                                           Result result, NotificationHandle notificationHandle,
+                                                                           Plc4x2AdsProtocol plc4x2AdsProtocol) {
+        if (result.toAdsReturnCode() != AdsReturnCode.ADS_CODE_0) {
+            LOGGER.warn("Error code {} received subscribing {}", result, subscriptionRequestItem);
+            return new SubscriptionResponseItem<>(subscriptionRequestItem, null, ResponseCode.INTERNAL_ERROR);
+        }
+        plc4x2AdsProtocol.addNotificationRoute(notificationHandle, createNotificationRoute(subscriptionRequestItem));
+        return new SubscriptionResponseItem<>(subscriptionRequestItem, new AdsSubscriptionHandle(notificationHandle), ResponseCode.OK);
+    }
+
+    /**
+     * Only the samples of the given subscription are routed to the returned listener. The samples are only
+     * converted to {@link SubscriptionEventItem}s here, at the very end of the pipeline.
+     */
+    @SuppressWarnings("unchecked")
+    private static AdsNotificationSampleListener createNotificationRoute(SubscriptionRequestItem<?> subscriptionRequestItem) {
+        Class<?> datatype = subscriptionRequestItem.getDatatype();
+        return (notificationHandle, timeStampNanos, data) -> {
+            try {
+                Calendar calendar = Calendar.getInstance();
+                calendar.setTimeInMillis(TimeUnit.NANOSECONDS.toMillis(timeStampNanos));
+                List<?> decodeData = LittleEndianDecoder.decodeData(datatype, ByteBufUtil.getBytes(data));
+                SubscriptionEventItem subscriptionEventItem =
+                    new SubscriptionEventItem(subscriptionRequestItem, calendar, decodeData);
+                subscriptionRequestItem.getConsumer().accept(subscriptionEventItem);
+            } catch (PlcProtocolException | RuntimeException e) {
+                LOGGER.error("Can't decode {}", ByteBufUtil.hexDump(data), e);
+            }
+        };
+    }
+
+    private static TransmissionMode getTransmissionMode(SubscriptionRequestItem<?> subscriptionRequestItem) {
+        if (subscriptionRequestItem instanceof SubscriptionRequestCyclicItem) {
+            return TransmissionMode.DefinedValues.ADSTRANS_SERVERCYCLE;
+        }
+        return TransmissionMode.DefinedValues.ADSTRANS_SERVERONCHA;
+    }
+
+    /**
+     * Cyclic items are sampled with their period, change of state items are checked for changes with the configured
+     * cycle time.
+     */
+    private static CycleTime getCycleTime(SubscriptionRequestItem<?> subscriptionRequestItem) {
+        if (subscriptionRequestItem instanceof SubscriptionRequestCyclicItem) {
+            SubscriptionRequestCyclicItem subscriptionRequestCyclicItem = (SubscriptionRequestCyclicItem) subscriptionRequestItem;
+            return CycleTime.of(toAdsTime(subscriptionRequestCyclicItem.getTimeUnit().toNanos(subscriptionRequestCyclicItem.getPeriod())));
+        }
+        return CycleTime.of(toAdsTime(TimeUnit.MILLISECONDS.toNanos(NOTIFICATION_CYCLE_TIME)));
+    }
+
+    /**
+     * The plc collects samples up to the max delay before it sends them, which allows it to send the samples of many
+     * items in a single notification. Cyclic items are delayed by at most one period, so the samples still arrive
+     * in time for the next one.
+     */
+    private static MaxDelay getMaxDelay(SubscriptionRequestItem<?> subscriptionRequestItem) {
+        if (subscriptionRequestItem instanceof SubscriptionRequestCyclicItem) {
+            return MaxDelay.of(getCycleTime(subscriptionRequestItem).getAsLong());
+        }
+        return MaxDelay.of(toAdsTime(TimeUnit.MILLISECONDS.toNanos(NOTIFICATION_MAX_DELAY)));
+    }
+
+    /**
+     * @return the given time in the ads unit of 100ns, limited to the range of an unsigned int.
+     */
+    private static long toAdsTime(long nanos) {
+        return Math.min(Math.max(nanos / 100, 0), 0xFFFF_FFFFL);
     }
 
     @Override
     public CompletableFuture<PlcUnsubscriptionResponse> unsubscribe(PlcUnsubscriptionRequest unsubscriptionRequest) {
+        List<NotificationHandle> notificationHandles = new ArrayList<>(unsubscriptionRequest.getNumberOfItems());
         for (UnsubscriptionRequestItem unsubscriptionRequestItem : unsubscriptionRequest.getRequestItems()) {
             Objects.requireNonNull(unsubscriptionRequestItem);
             if (unsubscriptionRequestItem.getSubscriptionHandle() instanceof AdsSubscriptionHandle) {
                 AdsSubscriptionHandle adsSubscriptionHandle =
                     (AdsSubscriptionHandle) unsubscriptionRequestItem.getSubscriptionHandle();
-                AdsDeleteDeviceNotificationRequest adsDeleteDeviceNotificationRequest =
-                    AdsDeleteDeviceNotificationRequest.of(
-                        targetAmsNetId,
-                        targetAmsPort,
-                        sourceAmsNetId,
-                        sourceAmsPort,
-                        Invoke.NONE,
-                        adsSubscriptionHandle.getNotificationHandle()
-                    );
-                CompletableFuture<PlcProprietaryResponse<AdsDeleteDeviceNotificationResponse>> deleteDeviceFuture =
-                    new CompletableFuture<>();
-                channel.writeAndFlush(new PlcRequestContainer<>(new PlcProprietaryRequest<>(
-                    adsDeleteDeviceNotificationRequest), deleteDeviceFuture));
-
-                PlcProprietaryResponse<AdsDeleteDeviceNotificationResponse> deleteDeviceResponse =
-                    getFromFuture(deleteDeviceFuture, DEL_DEVICE_TIMEOUT);
-                AdsDeleteDeviceNotificationResponse response = deleteDeviceResponse.getResponse();
-                if (response.getResult().toAdsReturnCode() != AdsReturnCode.ADS_CODE_0) {
-                    throw new PlcRuntimeException("Non error code received " + response.getResult());
-                }
+                notificationHandles.add(adsSubscriptionHandle.getNotificationHandle());
             }
         }
-        CompletableFuture<PlcUnsubscriptionResponse> future = new CompletableFuture<>();
-        future.complete(new PlcUnsubscriptionResponse());
+        return removeDeviceNotifications(notificationHandles).thenApply(ignored -> new PlcUnsubscriptionResponse());
+    }
+
+    private CompletableFuture<Void> removeDeviceNotifications(List<NotificationHandle> notificationHandles) {
+        Plc4x2AdsProtocol plc4x2AdsProtocol = getChannel().pipeline().get(Plc4x2AdsProtocol.class);
+        // Stop dispatching samples right away, the plc might send some more until it processed the request.
+        notificationHandles.forEach(plc4x2AdsProtocol::removeNotificationRoute);
+        List<CompletableFuture<Void>> chunkFutures = new ArrayList<>();
+        for (int start = 0; start < notificationHandles.size(); start += MAX_SUM_COMMAND_ITEMS) {
+            chunkFutures.add(deleteDeviceNotifications(
+                notificationHandles.subList(start, Math.min(start + MAX_SUM_COMMAND_ITEMS, notificationHandles.size()))));
+        }
+        return CompletableFuture.allOf(chunkFutures.toArray(new CompletableFuture[0]));
+    }
+
+    private CompletableFuture<Void> deleteDeviceNotifications(List<NotificationHandle> notificationHandles) {
+        CompletableFuture<PlcProprietaryResponse<AmsPacket>> deleteDeviceFuture = new CompletableFuture<>();
+        CompletableFuture<Void> future = deleteDeviceFuture.thenAccept(deleteDeviceResponse ->
+            decodeDeleteDeviceNotificationResponse(notificationHandles, deleteDeviceResponse.getResponse()));
+        ChannelFuture channelFuture = channel.writeAndFlush(new PlcRequestContainer<>(
+            new PlcProprietaryRequest<>(encodeDeleteDeviceNotificationRequest(notificationHandles)), deleteDeviceFuture));
+        channelFuture.addListener(writeFuture -> {
+            if (!writeFuture.isSuccess()) {
+                deleteDeviceFuture.completeExceptionally(writeFuture.cause());
+            }
+        });
         return future;
     }
+
+    /**
+     * A single notification is deleted by a plain {@link AdsDeleteDeviceNotificationRequest}, multiple notifications
+     * with a {@code ADSIGRP_SUMUP_DELDEVNOTE} sum command containing the handles.
+     */
+    private AmsPacket encodeDeleteDeviceNotificationRequest(List<NotificationHandle> notificationHandles) {
+        if (notificationHandles.size() == 1) {
+            return AdsDeleteDeviceNotificationRequest.of(
+                targetAmsNetId,
+                targetAmsPort,
+                sourceAmsNetId,
+                sourceAmsPort,
+                Invoke.NONE,
+                notificationHandles.get(0)
+            );
+        }
+        ByteBuf itemData = Unpooled.buffer(notificationHandles.size() * NotificationHandle.NUM_BYTES);
+        notificationHandles.forEach(notificationHandle -> itemData.writeIntLE((int) notificationHandle.getAsLong()));
+        return AdsReadWriteRequest.of(
+            targetAmsNetId,
+            targetAmsPort,
+            sourceAmsNetId,
+            sourceAmsPort,
+            Invoke.NONE,
+            IndexGroup.ReservedGroups.ADSIGRP_SUMUP_DELDEVNOTE,
+            IndexOffset.of(notificationHandles.size()),
+            ReadLength.of(notificationHandles.size() * (long) Result.NUM_BYTES),
+            Data.of(itemData)
+        );
+    }
+
+    private void decodeDeleteDeviceNotificationResponse(List<NotificationHandle> notificationHandles, AmsPacket amsPacket) {
+        if (notificationHandles.size() == 1) {
+            AdsDeleteDeviceNotificationResponse response = (AdsDeleteDeviceNotificationResponse) amsPacket;
+            if (response.getResult().toAdsReturnCode() != AdsReturnCode.ADS_CODE_0) {
+                throw new PlcRuntimeException("Non error code received " + response.getResult());
+            }
+            return;
+        }
+        AdsReadWriteResponse response = (AdsReadWriteResponse) amsPacket;
+        if (response.getResult().toAdsReturnCode() != AdsReturnCode.ADS_CODE_0) {
+            throw new PlcRuntimeException("Non error code received " + response.getResult());
+        }
+        ByteBuf byteBuf = Unpooled.wrappedBuffer(response.getData().getBytes());
+        if (byteBuf.readableBytes() < notificationHandles.size() * Result.NUM_BYTES) {
+            throw new PlcRuntimeException("Sum response too short for " + notificationHandles.size() + " subscriptions");
+        }
+        List<NotificationHandle> failedNotificationHandles = new LinkedList<>();
+        for (NotificationHandle notificationHandle : notificationHandles) {
+            if (Result.of(byteBuf.readUnsignedIntLE()).toAdsReturnCode() != AdsReturnCode.ADS_CODE_0) {
+                failedNotificationHandles.add(notificationHandle);
+            }
+        }
+        if (!failedNotificationHandles.isEmpty()) {
+            throw new PlcRuntimeException("Non error code received deleting " + failedNotificationHandles);
+        }
+    }
 }
@@ -0,0 +1,123 @@
+/*
+ Licensed to the Apache Software Foundation (ASF) under one
+ or more contributor license agreements.  See the NOTICE file
+ distributed with this work for additional information
+ regarding copyright ownership.  The ASF licenses this file
+ to you under the Apache License, Version 2.0 (the
+ "License"); you may not use this file except in compliance
+ with the License.  You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing,
+ software distributed under the License is distributed on an
+ "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ KIND, either express or implied.  See the License for the
+ specific language governing permissions and limitations
+ under the License.
+ */
+package org.apache.plc4x.java.ads.model;
+
+import java.util.Objects;
+
+/**
+ * Entry of the symbol table of a PLC: the location, size and type of a symbol.
+ */
+public class AdsSymbol {
+
+    private final String name;
+
+    private final long indexGroup;
+
+    private final long indexOffset;
+
+    private final long size;
+
+    private final long dataType;
+
+    private final String typeName;
+
+    private AdsSymbol(String name, long indexGroup, long indexOffset, long size, long dataType, String typeName) {
+        this.name = Objects.requireNonNull(name);
+        this.indexGroup = indexGroup;
+        this.indexOffset = indexOffset;
+        this.size = size;
+        this.dataType = dataType;
+        this.typeName = Objects.requireNonNull(typeName);
+    }
+
+    public static AdsSymbol of(String name, long indexGroup, long indexOffset, long size, long dataType, String typeName) {
+        return new AdsSymbol(name, indexGroup, indexOffset, size, dataType, typeName);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getIndexGroup() {
+        return indexGroup;
+    }
+
+    public long getIndexOffset() {
+        return indexOffset;
+    }
+
+    /**
+     * @return size of the symbol in bytes.
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * @return ADS data type id of the symbol.
+     */
+    public long getDataType() {
+        return dataType;
+    }
+
+    public String getTypeName() {
+        return typeName;
+    }
+
+    /**
+     * @return the address the symbol can be accessed with directly, without acquiring a handle first.
+     */
+    public AdsAddress toAdsAddress() {
+        return AdsAddress.of(indexGroup, indexOffset);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof AdsSymbol)) {
+            return false;
+        }
+        AdsSymbol adsSymbol = (AdsSymbol) o;
+        return indexGroup == adsSymbol.indexGroup &&
+            indexOffset == adsSymbol.indexOffset &&
+            size == adsSymbol.size &&
+            dataType == adsSymbol.dataType &&
+            Objects.equals(name, adsSymbol.name) &&
+            Objects.equals(typeName, adsSymbol.typeName);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(name, indexGroup, indexOffset, size, dataType, typeName);
+    }
+
+    @Override
+    public String toString() {
+        return "AdsSymbol{" +
+            "name='" + name + '\'' +
+            ", indexGroup=" + indexGroup +
+            ", indexOffset=" + indexOffset +
+            ", size=" + size +
+            ", dataType=" + dataType +
+            ", typeName='" + typeName + '\'' +
+            '}';
+    }
+}
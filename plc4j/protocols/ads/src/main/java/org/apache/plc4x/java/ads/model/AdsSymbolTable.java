@@ -0,0 +1,234 @@
+/*
+ Licensed to the Apache Software Foundation (ASF) under one
+ or more contributor license agreements.  See the NOTICE file
+ distributed with this work for additional information
+ regarding copyright ownership.  The ASF licenses this file
+ to you under the Apache License, Version 2.0 (the
+ "License"); you may not use this file except in compliance
+ with the License.  You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing,
+ software distributed under the License is distributed on an
+ "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ KIND, either express or implied.  See the License for the
+ specific language governing permissions and limitations
+ under the License.
+ */
+package org.apache.plc4x.java.ads.model;
+
+import io.netty.buffer.ByteBuf;
+
+import java.io.*;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+
+/**
+ * In-memory index of the symbol table of a PLC, as uploaded with {@code ADSIGRP_SYM_UPLOAD}. Symbols are looked up by
+ * their name, ignoring the case like the PLC does.
+ *
+ * The table is tagged with the symbol version ({@code ADSIGRP_SYM_VERSION}) of the PLC it was uploaded from and the
+ * number and length of the uploaded symbol entries. As long as these don't change (see {@link #matches(int, long, long)}),
+ * the table can be persisted with {@link #writeTo(Path)} and loaded again with {@link #readFrom(Path)} instead of
+ * uploading it again.
+ */
+public class AdsSymbolTable {
+
+    // Entry length, index group, index offset, size, data type, flags, name length, type length and comment length.
+    private static final int SYMBOL_ENTRY_HEADER_LENGTH = 6 * 4 + 3 * 2;
+
+    private static final Charset SYMBOL_CHARSET = StandardCharsets.ISO_8859_1;
+
+    // "ADSY"
+    private static final int FILE_MAGIC = 0x41445359;
+    private static final int FILE_FORMAT_VERSION = 2;
+
+    private final int version;
+
+    private final long numUploadedSymbols;
+
+    private final long uploadLength;
+
+    private final Map<String, AdsSymbol> symbols;
+
+    private AdsSymbolTable(int version, long numUploadedSymbols, long uploadLength, Collection<AdsSymbol> symbols) {
+        this.version = version;
+        this.numUploadedSymbols = numUploadedSymbols;
+        this.uploadLength = uploadLength;
+        this.symbols = new HashMap<>(symbols.size() * 4 / 3 + 1);
+        for (AdsSymbol symbol : symbols) {
+            this.symbols.put(normalize(symbol.getName()), symbol);
+        }
+    }
+
+    public static AdsSymbolTable of(int version, Collection<AdsSymbol> symbols) {
+        return new AdsSymbolTable(version, symbols.size(), -1, symbols);
+    }
+
+    /**
+     * Parses the symbol entries returned by an {@code ADSIGRP_SYM_UPLOAD} read.
+     *
+     * @param version    symbol version of the PLC the symbols were uploaded from.
+     * @param uploadData the uploaded symbol entries.
+     * @return the symbol table.
+     */
+    public static AdsSymbolTable of(int version, ByteBuf uploadData) {
+        long uploadLength = uploadData.readableBytes();
+        List<AdsSymbol> symbols = new LinkedList<>();
+        while (uploadData.readableBytes() >= SYMBOL_ENTRY_HEADER_LENGTH) {
+            int entryStart = uploadData.readerIndex();
+            long entryLength = uploadData.getUnsignedIntLE(entryStart);
+            if ((entryLength < SYMBOL_ENTRY_HEADER_LENGTH) || (entryLength > uploadData.readableBytes())) {
+                throw new IllegalArgumentException("Invalid symbol entry length " + entryLength + " at " + entryStart);
+            }
+            long indexGroup = uploadData.getUnsignedIntLE(entryStart + 4);
+            long indexOffset = uploadData.getUnsignedIntLE(entryStart + 8);
+            long size = uploadData.getUnsignedIntLE(entryStart + 12);
+            long dataType = uploadData.getUnsignedIntLE(entryStart + 16);
+            int nameLength = uploadData.getUnsignedShortLE(entryStart + 24);
+            int typeLength = uploadData.getUnsignedShortLE(entryStart + 26);
+            // Name and type are both terminated by a 0 byte.
+            if (SYMBOL_ENTRY_HEADER_LENGTH + nameLength + 1 + typeLength + 1 > entryLength) {
+                throw new IllegalArgumentException("Symbol entry at " + entryStart + " too short for name and type");
+            }
+            int nameStart = entryStart + SYMBOL_ENTRY_HEADER_LENGTH;
+            String name = uploadData.toString(nameStart, nameLength, SYMBOL_CHARSET);
+            String typeName = uploadData.toString(nameStart + nameLength + 1, typeLength, SYMBOL_CHARSET);
+            symbols.add(AdsSymbol.of(name, indexGroup, indexOffset, size, dataType, typeName));
+            uploadData.readerIndex(entryStart + (int) entryLength);
+        }
+        return new AdsSymbolTable(version, symbols.size(), uploadLength, symbols);
+    }
+
+    /**
+     * Reads a symbol table written by {@link #writeTo(Path)}.
+     *
+     * @param file file to read.
+     * @return the symbol table.
+     * @throws IOException if the file can't be read or isn't a valid symbol table file.
+     */
+    public static AdsSymbolTable readFrom(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != FILE_MAGIC) {
+                throw new IOException("Not a symbol table file: " + file);
+            }
+            int formatVersion = in.readInt();
+            if (formatVersion != FILE_FORMAT_VERSION) {
+                throw new IOException("Unsupported symbol table file format " + formatVersion + ": " + file);
+            }
+            int version = in.readInt();
+            long numUploadedSymbols = in.readLong();
+            long uploadLength = in.readLong();
+            int numSymbols = in.readInt();
+            List<AdsSymbol> symbols = new ArrayList<>(numSymbols);
+            for (int i = 0; i < numSymbols; i++) {
+                String name = in.readUTF();
+                long indexGroup = in.readInt() & 0xFFFFFFFFL;
+                long indexOffset = in.readInt() & 0xFFFFFFFFL;
+                long size = in.readInt() & 0xFFFFFFFFL;
+                long dataType = in.readInt() & 0xFFFFFFFFL;
+                String typeName = in.readUTF();
+                symbols.add(AdsSymbol.of(name, indexGroup, indexOffset, size, dataType, typeName));
+            }
+            return new AdsSymbolTable(version, numUploadedSymbols, uploadLength, symbols);
+        }
+    }
+
+    /**
+     * Writes this symbol table to the given file. The file is written to a temporary file first and then moved to
+     * its final location, so concurrent readers never see a partially written table.
+     *
+     * @param file file to write.
+     * @throws IOException if the file can't be written.
+     */
+    public void writeTo(Path file) throws IOException {
+        Path directory = file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path tempFile = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+                out.writeInt(FILE_MAGIC);
+                out.writeInt(FILE_FORMAT_VERSION);
+                out.writeInt(version);
+                out.writeLong(numUploadedSymbols);
+                out.writeLong(uploadLength);
+                out.writeInt(symbols.size());
+                for (AdsSymbol symbol : symbols.values()) {
+                    out.writeUTF(symbol.getName());
+                    out.writeInt((int) symbol.getIndexGroup());
+                    out.writeInt((int) symbol.getIndexOffset());
+                    out.writeInt((int) symbol.getSize());
+                    out.writeInt((int) symbol.getDataType());
+                    out.writeUTF(symbol.getTypeName());
+                }
+            }
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    /**
+     * @return symbol version of the PLC this table was uploaded from.
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * @return number of symbol entries this table was parsed from.
+     */
+    public long getNumUploadedSymbols() {
+        return numUploadedSymbols;
+    }
+
+    /**
+     * @return length in bytes of the symbol entries this table was parsed from, -1 if unknown.
+     */
+    public long getUploadLength() {
+        return uploadLength;
+    }
+
+    /**
+     * The symbol version is only a single byte, which may wrap around or stay the same after some changes, so
+     * a table only matches the symbols of a PLC, if their number and length reported by
+     * {@code ADSIGRP_SYM_UPLOADINFO} are the same too.
+     *
+     * @param version       current symbol version of the PLC.
+     * @param numSymbols    current number of symbols of the PLC.
+     * @param symbolsLength current length of the symbol entries of the PLC.
+     * @return true if this table matches the symbols of the PLC.
+     */
+    public boolean matches(int version, long numSymbols, long symbolsLength) {
+        return (this.version == version) && (numUploadedSymbols == numSymbols) && (uploadLength == symbolsLength);
+    }
+
+    public Optional<AdsSymbol> getSymbol(String name) {
+        return Optional.ofNullable(symbols.get(normalize(name)));
+    }
+
+    public Collection<AdsSymbol> getSymbols() {
+        return Collections.unmodifiableCollection(symbols.values());
+    }
+
+    public int size() {
+        return symbols.size();
+    }
+
+    private static String normalize(String name) {
+        return name.toUpperCase(Locale.ROOT);
+    }
+
+    @Override
+    public String toString() {
+        return "AdsSymbolTable{" +
+            "version=" + version +
+            ", symbols=" + symbols.size() +
+            '}';
+    }
+}
@@ -19,6 +19,8 @@
 package org.apache.plc4x.java.ads.protocol;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.UnpooledByteBufAllocator;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.MessageToMessageCodec;
 import org.apache.commons.configuration2.Configuration;
@@ -26,8 +28,10 @@ import org.apache.commons.configuration2.SystemConfiguration;
 import org.apache.plc4x.java.ads.api.commands.*;
 import org.apache.plc4x.java.ads.api.commands.types.*;
 import org.apache.plc4x.java.ads.api.generic.AmsHeader;
+import org.apache.plc4x.java.ads.api.generic.AmsHeaderView;
 import org.apache.plc4x.java.ads.api.generic.AmsPacket;
 import org.apache.plc4x.java.ads.api.generic.types.*;
+import org.apache.plc4x.java.ads.protocol.util.AdsNotificationSampleListener;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -51,10 +55,30 @@ public class Ads2PayloadProtocol extends MessageToMessageCodec<ByteBuf, AmsPacke
     private static final long ADS_READ_WRITE_COMMAND_REQUEST_MAX_BYTES = CONF.getLong("plc4x.ads2payloadprotocol.ads_read_write_command_request_max_bytes", 134217728L);
     private static final long ADS_READ_WRITE_COMMAND_RESPONSE_MAX_BYTES = CONF.getLong("plc4x.ads2payloadprotocol.ads_read_write_command_response_max_bytes", 134217728L);
 
+    // The biggest packets accepted are read and read write responses: AMS header (32 bytes), result, length and data.
+    static final long MAX_RESPONSE_PACKET_LENGTH = 32 + Result.NUM_BYTES + Length.NUM_BYTES
+        + Math.max(ADS_READ_COMMAND_MAX_BYTES, ADS_READ_WRITE_COMMAND_RESPONSE_MAX_BYTES);
+
     private final ConcurrentMap<Invoke, AmsPacket> requests;
 
+    // Only used from decode, which is always called by the same thread.
+    private final AmsHeaderView amsHeaderView = new AmsHeaderView();
+
+    private final AdsNotificationSampleListener notificationSampleListener;
+
     public Ads2PayloadProtocol() {
+        this(null);
+    }
+
+    /**
+     * @param notificationSampleListener if not null, device notifications are decoded in place and their samples are
+     *                                   passed to this listener instead of being decoded to
+     *                                   {@link AdsDeviceNotificationRequest}s, as long as the listener
+     *                                   {@link AdsNotificationSampleListener#acceptsSamplesOnly() accepts samples only}.
+     */
+    public Ads2PayloadProtocol(AdsNotificationSampleListener notificationSampleListener) {
         this.requests = new ConcurrentHashMap<>();
+        this.notificationSampleListener = notificationSampleListener;
     }
 
     /**
@@ -71,12 +95,21 @@ public class Ads2PayloadProtocol extends MessageToMessageCodec<ByteBuf, AmsPacke
         if (invokeId != Invoke.NONE) {
             requests.put(invokeId, amsPacket);
         }
-        out.add(amsPacket.getByteBuf());
+        // Serialize into a single (pooled) buffer, fall back to unpooled buffers when used outside a pipeline.
+        ByteBufAllocator allocator = channelHandlerContext != null ? channelHandlerContext.alloc() : UnpooledByteBufAllocator.DEFAULT;
+        ByteBuf byteBuf = allocator.buffer((int) amsPacket.getCalculatedLength());
+        amsPacket.writeTo(byteBuf);
+        out.add(byteBuf);
     }
 
     @Override
     protected void decode(ChannelHandlerContext channelHandlerContext, ByteBuf byteBuf, List<Object> out) {
         LOGGER.trace("(-->IN): {}, {}, {}", channelHandlerContext, byteBuf, out);
+        if (notificationSampleListener != null && notificationSampleListener.acceptsSamplesOnly()
+            && isDeviceNotificationRequest(byteBuf)) {
+            decodeDeviceNotificationSamples(byteBuf);
+            return;
+        }
         AmsNetId targetAmsNetId = AmsNetId.of(byteBuf);
         AmsPort targetAmsPort = AmsPort.of(byteBuf);
         AmsNetId sourceAmsNetId = AmsNetId.of(byteBuf);
@@ -273,6 +306,55 @@ public class Ads2PayloadProtocol extends MessageToMessageCodec<ByteBuf, AmsPacke
         return amsPacket;
     }
 
+    private boolean isDeviceNotificationRequest(ByteBuf byteBuf) {
+        amsHeaderView.wrap(byteBuf);
+        return amsHeaderView.isComplete()
+            && amsHeaderView.getCommandId() == Command.ADS_DEVICE_NOTIFICATION.getIntValue()
+            && !amsHeaderView.isResponse();
+    }
+
+    /**
+     * Walks through the stamps and samples of a device notification without copying anything. Only the primitive
+     * values and a slice of the sample data are passed to the {@link #notificationSampleListener}.
+     */
+    private void decodeDeviceNotificationSamples(ByteBuf byteBuf) {
+        long dataLength = amsHeaderView.wrap(byteBuf).getDataLength();
+        byteBuf.skipBytes(AmsHeaderView.LENGTH);
+        if (dataLength > byteBuf.readableBytes()) {
+            throw new IllegalStateException("Overflow in datalength: " + dataLength);
+        }
+        ByteBuf commandBuffer = byteBuf.readSlice((int) dataLength);
+        long length = commandBuffer.readUnsignedIntLE();
+        if (length > commandBuffer.readableBytes()) {
+            throw new IllegalStateException("Overflow in datalength: " + length);
+        }
+        long stamps = commandBuffer.readUnsignedIntLE();
+        if (stamps > MAX_NUM_STAMPS) {
+            throw new IllegalStateException("Overflow of MAX_NUM_STAMPS: " + MAX_NUM_STAMPS + ". Actual " + stamps);
+        }
+        for (long stamp = 0; stamp < stamps; stamp++) {
+            long timeStampNanos = TimeStamp.winTimeToEpochNanos(commandBuffer.readLongLE());
+            long samples = commandBuffer.readUnsignedIntLE();
+            if (samples > MAX_NUM_SAMPLES) {
+                throw new IllegalStateException("Overflow of MAX_NUM_SAMPLES: " + MAX_NUM_SAMPLES + ". Actual " + samples);
+            }
+            for (long sample = 0; sample < samples; sample++) {
+                long notificationHandle = commandBuffer.readUnsignedIntLE();
+                long sampleSize = commandBuffer.readUnsignedIntLE();
+                if (sampleSize > ADS_NOTIFICATION_SAMPLE_MAX_BYTES) {
+                    throw new IllegalStateException("Overflow of ADS_NOTIFICATION_SAMPLE_MAX_BYTES: " + ADS_NOTIFICATION_SAMPLE_MAX_BYTES + ". Actual " + sampleSize + "bytes.");
+                }
+                if (sampleSize > commandBuffer.readableBytes()) {
+                    throw new IllegalStateException("Overflow in datalength: " + sampleSize);
+                }
+                notificationSampleListener.onSample(notificationHandle, timeStampNanos, commandBuffer.readSlice((int) sampleSize));
+            }
+        }
+        if (commandBuffer.readableBytes() > 0) {
+            throw new IllegalStateException("Unread bytes left: " + commandBuffer.readableBytes());
+        }
+    }
+
     private AmsPacket handleADSDeviceNotificationCommand(State stateId, ByteBuf commandBuffer, AmsHeader amsHeader) {
         AmsPacket amsPacket;
         if (stateId.isRequest()) {
@@ -19,147 +19,362 @@
 package org.apache.plc4x.java.ads.protocol;
 
 import io.netty.buffer.ByteBuf;
-import io.netty.channel.ChannelFuture;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelHandlerContext;
-import io.netty.handler.codec.MessageToMessageCodec;
+import io.netty.channel.ChannelPromise;
+import io.netty.handler.codec.ByteToMessageCodec;
+import io.netty.handler.codec.EncoderException;
 import io.netty.util.ReferenceCountUtil;
 import io.netty.util.concurrent.ScheduledFuture;
-import org.apache.commons.lang3.mutable.MutableInt;
+import org.apache.commons.configuration2.Configuration;
+import org.apache.commons.configuration2.SystemConfiguration;
 import org.apache.plc4x.java.ads.api.serial.AmsSerialAcknowledgeFrame;
 import org.apache.plc4x.java.ads.api.serial.AmsSerialFrame;
 import org.apache.plc4x.java.ads.api.serial.AmsSerialResetFrame;
 import org.apache.plc4x.java.ads.api.serial.types.*;
 import org.apache.plc4x.java.ads.protocol.util.DigestUtil;
+import org.apache.plc4x.java.ads.protocol.util.RoundTripTimeEstimator;
 import org.apache.plc4x.java.api.exceptions.PlcProtocolException;
 import org.apache.plc4x.java.api.exceptions.PlcProtocolPayloadTooBigException;
 import org.apache.plc4x.java.api.exceptions.PlcRuntimeException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.nio.channels.ClosedChannelException;
+import java.util.ArrayDeque;
 import java.util.List;
+import java.util.Queue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.atomic.AtomicReference;
 
-public class Payload2SerialProtocol extends MessageToMessageCodec<ByteBuf, ByteBuf> {
+/**
+ * Transports AMS packets in AMS serial frames (magic cookie, addresses, fragment number, length, user data and
+ * CRC).
+ *
+ * Incoming data is accumulated until a complete frame is available, so frames split across several serial reads
+ * are decoded as well. Received data frames are acknowledged without waiting for the acknowledge to be written.
+ *
+ * Up to {@code plc4x.payload2serialprotocol.window_size} sent frames (each using its own fragment number) may wait
+ * for their acknowledge at the same time, further frames are queued until an acknowledge arrives. The write promise
+ * of a queued frame is only completed once the frame is actually written (or failed, if the channel closes first).
+ * Unacknowledged
+ * frames are retransmitted after a timeout which adapts to the measured round trip time and is backed off
+ * exponentially on every retry. All state is only accessed from the event loop of the channel.
+ */
+public class Payload2SerialProtocol extends ByteToMessageCodec<ByteBuf> {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(Payload2SerialProtocol.class);
 
+    private static final Configuration CONF = new SystemConfiguration();
+    // Most devices only support one frame in flight.
+    private static final int DEFAULT_WINDOW_SIZE = CONF.getInt("plc4x.payload2serialprotocol.window_size", 1);
+    private static final int MAX_RETRIES = CONF.getInt("plc4x.payload2serialprotocol.max_retries", 10);
+    private static final long INITIAL_RETRANSMISSION_TIMEOUT = CONF.getLong("plc4x.payload2serialprotocol.initial_retransmission_timeout", 100);
+    private static final long MIN_RETRANSMISSION_TIMEOUT = CONF.getLong("plc4x.payload2serialprotocol.min_retransmission_timeout", 20);
+    private static final long MAX_RETRANSMISSION_TIMEOUT = CONF.getLong("plc4x.payload2serialprotocol.max_retransmission_timeout", 1000);
+
+    static final int HEADER_LENGTH = MagicCookie.NUM_BYTES + TransmitterAddress.NUM_BYTES + ReceiverAddress.NUM_BYTES + FragmentNumber.NUM_BYTES + UserDataLength.NUM_BYTES;
+
+    private static final int NUM_FRAGMENT_NUMBERS = 256;
+
+    private static final int MAX_USER_DATA_LENGTH = 255;
+
+    private final int windowSize;
+
     private final AtomicInteger fragmentCounter = new AtomicInteger(0);
 
-    private AtomicReference<ScheduledFuture<?>> currentRetryer = new AtomicReference<>();
+    // Indexed by fragment number.
+    private final PendingFrame[] pendingFrames = new PendingFrame[NUM_FRAGMENT_NUMBERS];
+
+    private int numPendingFrames;
+
+    // Frames waiting for a free slot in the window.
+    private final Queue<PendingFrame> queuedFrames = new ArrayDeque<>();
+
+    private final RoundTripTimeEstimator roundTripTimeEstimator = new RoundTripTimeEstimator(
+        INITIAL_RETRANSMISSION_TIMEOUT, MIN_RETRANSMISSION_TIMEOUT, MAX_RETRANSMISSION_TIMEOUT, TimeUnit.MILLISECONDS);
+
+    // Fragment number of the last received data frame to detect retransmissions caused by a lost acknowledge.
+    private int lastReceivedFragmentNumber = -1;
+
+    public Payload2SerialProtocol() {
+        this(DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * @param windowSize maximum number of frames waiting for their acknowledge. Limited to half of the fragment
+     *                   numbers, so an acknowledge can always be assigned to the right frame.
+     */
+    public Payload2SerialProtocol(int windowSize) {
+        if (windowSize < 1 || windowSize > NUM_FRAGMENT_NUMBERS / 2) {
+            throw new IllegalArgumentException("Window size must be between 1 and " + NUM_FRAGMENT_NUMBERS / 2 + ". Was " + windowSize);
+        }
+        this.windowSize = windowSize;
+    }
+
+    /**
+     * Frames which don't fit into the window are queued together with their promise instead of being encoded.
+     */
+    @Override
+    public void write(ChannelHandlerContext channelHandlerContext, Object msg, ChannelPromise promise) throws Exception {
+        if (!(msg instanceof ByteBuf) || canSend(fragmentCounter.get())) {
+            super.write(channelHandlerContext, msg, promise);
+            return;
+        }
+        ByteBuf amsPacket = (ByteBuf) msg;
+        try {
+            LOGGER.trace("(<--OUT): {}, {}", channelHandlerContext, amsPacket);
+            PendingFrame pendingFrame = createPendingFrame(amsPacket, promise);
+            LOGGER.debug("Window full, queueing fragment {}", pendingFrame.fragmentNumber);
+            queuedFrames.add(pendingFrame);
+        } catch (PlcProtocolPayloadTooBigException e) {
+            throw new EncoderException(e);
+        } finally {
+            ReferenceCountUtil.release(amsPacket);
+        }
+    }
 
     @Override
-    protected void encode(ChannelHandlerContext channelHandlerContext, ByteBuf amsPacket, List<Object> out) throws PlcProtocolPayloadTooBigException {
+    protected void encode(ChannelHandlerContext channelHandlerContext, ByteBuf amsPacket, ByteBuf out) throws PlcProtocolPayloadTooBigException {
         LOGGER.trace("(<--OUT): {}, {}, {}", channelHandlerContext, amsPacket, out);
-        int fragmentNumber = fragmentCounter.getAndUpdate(value -> value > 255 ? 0 : ++value);
-        LOGGER.debug("Using fragmentNumber {} for {}", fragmentNumber, amsPacket);
-        UserData userData = UserData.of(amsPacket);
-        if (userData.getCalculatedLength() > 255) {
-            throw new PlcProtocolPayloadTooBigException("ADS/AMS", 255, (int) userData.getCalculatedLength(), amsPacket);
+        PendingFrame pendingFrame = createPendingFrame(amsPacket, null);
+        if (canSend(pendingFrame.fragmentNumber)) {
+            out.writeBytes(pendingFrame.frame, pendingFrame.frame.readerIndex(), pendingFrame.frame.readableBytes());
+            sent(channelHandlerContext, pendingFrame);
+        } else {
+            LOGGER.debug("Window full, queueing fragment {}", pendingFrame.fragmentNumber);
+            queuedFrames.add(pendingFrame);
         }
-        AmsSerialFrame amsSerialFrame = AmsSerialFrame.of(FragmentNumber.of((byte) fragmentNumber), userData);
+    }
 
-        MutableInt retryCount = new MutableInt(0);
-        ScheduledFuture<?> oldRetryer = currentRetryer.get();
-        if (oldRetryer != null) {
-            oldRetryer.cancel(false);
+    private boolean canSend(int fragmentNumber) {
+        return numPendingFrames < windowSize && queuedFrames.isEmpty() && pendingFrames[fragmentNumber] == null;
+    }
+
+    private PendingFrame createPendingFrame(ByteBuf amsPacket, ChannelPromise promise) throws PlcProtocolPayloadTooBigException {
+        if (amsPacket.readableBytes() > MAX_USER_DATA_LENGTH) {
+            throw new PlcProtocolPayloadTooBigException("ADS/AMS", MAX_USER_DATA_LENGTH, amsPacket.readableBytes(), amsPacket);
         }
-        currentRetryer.set(channelHandlerContext.executor().scheduleAtFixedRate(() -> {
-            LOGGER.trace("Retrying {} the {} time", amsSerialFrame, retryCount);
-            int currentTry = retryCount.incrementAndGet();
-            if (currentTry > 10) {
-                // TODO: we might need to throw an exception to potentially cancel upstream waiting
-                channelHandlerContext.writeAndFlush(AmsSerialResetFrame.of(FragmentNumber.of((byte) fragmentNumber)));
-                PlcRuntimeException plcRuntimeException = new PlcRuntimeException("Retry exhausted after " + retryCount + " times");
-                channelHandlerContext.fireExceptionCaught(plcRuntimeException);
-                throw plcRuntimeException;
-            } else {
-                channelHandlerContext.writeAndFlush(amsSerialFrame);
-            }
-        }, 100, 100, TimeUnit.MILLISECONDS));
-        out.add(amsSerialFrame.getByteBuf());
+        int fragmentNumber = fragmentCounter.getAndUpdate(value -> (value + 1) % NUM_FRAGMENT_NUMBERS);
+        LOGGER.debug("Using fragmentNumber {} for {}", fragmentNumber, amsPacket);
+        return new PendingFrame(fragmentNumber, buildFrame(fragmentNumber, amsPacket), promise);
     }
 
     @Override
     protected void decode(ChannelHandlerContext channelHandlerContext, ByteBuf byteBuf, List<Object> out) throws Exception {
         LOGGER.trace("(-->IN): {}, {}, {}", channelHandlerContext, byteBuf, out);
-        if (byteBuf.readableBytes() < MagicCookie.NUM_BYTES + TransmitterAddress.NUM_BYTES + ReceiverAddress.NUM_BYTES + FragmentNumber.NUM_BYTES) {
-            return;
+        while (byteBuf.readableBytes() >= MagicCookie.NUM_BYTES) {
+            int readerIndex = byteBuf.readerIndex();
+            int magicCookie = byteBuf.getUnsignedShortLE(readerIndex);
+            if (magicCookie != AmsSerialFrame.ID && magicCookie != AmsSerialAcknowledgeFrame.ID && magicCookie != AmsSerialResetFrame.ID) {
+                // Not at the start of a frame (e.g. after line noise), search for the next magic cookie.
+                byteBuf.skipBytes(1);
+                continue;
+            }
+            if (byteBuf.readableBytes() < HEADER_LENGTH) {
+                return;
+            }
+            int userDataLength = byteBuf.getUnsignedByte(readerIndex + HEADER_LENGTH - UserDataLength.NUM_BYTES);
+            int frameLength = HEADER_LENGTH + userDataLength + CRC.NUM_BYTES;
+            if (byteBuf.readableBytes() < frameLength) {
+                // Wait for the rest of the frame.
+                return;
+            }
+            int crc = byteBuf.getUnsignedShortLE(readerIndex + HEADER_LENGTH + userDataLength);
+            int calculatedCrc = DigestUtil.calculateCrc16(byteBuf, readerIndex, HEADER_LENGTH + userDataLength);
+            if (crc != calculatedCrc) {
+                // Drop the frame, the other side retransmits it as it isn't acknowledged.
+                byteBuf.skipBytes(frameLength);
+                throw new PlcProtocolException("CRC checksum wrong. Got " + CRC.of(crc) + " expected " + CRC.of(calculatedCrc));
+            }
+            byteBuf.skipBytes(MagicCookie.NUM_BYTES);
+            TransmitterAddress transmitterAddress = TransmitterAddress.of(byteBuf);
+            ReceiverAddress receiverAddress = ReceiverAddress.of(byteBuf);
+            FragmentNumber fragmentNumber = FragmentNumber.of(byteBuf);
+            byteBuf.skipBytes(UserDataLength.NUM_BYTES);
+            ByteBuf userData = byteBuf.readSlice(userDataLength);
+            byteBuf.skipBytes(CRC.NUM_BYTES);
+            int fragment = Byte.toUnsignedInt(fragmentNumber.getAsByte());
+            switch (magicCookie) {
+                case AmsSerialFrame.ID:
+                    LOGGER.debug("Ams Serial Frame received with fragment {} and {} bytes", fragment, userDataLength);
+                    // Don't wait for the acknowledge to be written, it's independent of forwarding the data.
+                    ChannelFutureListener acknowledgeListener = future -> {
+                        if (!future.isSuccess()) {
+                            LOGGER.warn("Error sending acknowledge for fragment {}", fragment, future.cause());
+                        }
+                    };
+                    channelHandlerContext.writeAndFlush(AmsSerialAcknowledgeFrame.of(transmitterAddress, receiverAddress, fragmentNumber).getByteBuf())
+                        .addListener(acknowledgeListener);
+                    if (fragment == lastReceivedFragmentNumber) {
+                        LOGGER.debug("Dropping retransmitted fragment {}", fragment);
+                    } else {
+                        lastReceivedFragmentNumber = fragment;
+                        out.add(userData.retain());
+                    }
+                    break;
+                case AmsSerialAcknowledgeFrame.ID:
+                    LOGGER.debug("Ams Serial ACK Frame received for fragment {}", fragment);
+                    acknowledged(channelHandlerContext, fragment);
+                    break;
+                case AmsSerialResetFrame.ID:
+                    LOGGER.debug("Ams Serial Reset Frame received");
+                    lastReceivedFragmentNumber = -1;
+                    break;
+                default:
+                    throw new IllegalStateException("Unexpected magic cookie " + magicCookie);
+            }
         }
-        MagicCookie magicCookie = MagicCookie.of(byteBuf);
-        TransmitterAddress transmitterAddress = TransmitterAddress.of(byteBuf);
-        ReceiverAddress receiverAddress = ReceiverAddress.of(byteBuf);
-        FragmentNumber fragmentNumber = FragmentNumber.of(byteBuf);
-        int expectedFrameNumber = fragmentCounter.get() - 1;
-        if (expectedFrameNumber < 0) {
-            expectedFrameNumber = 255;
+    }
+
+    /**
+     * Writes the frame directly into one buffer, so the crc can be calculated over it without copying.
+     */
+    private static ByteBuf buildFrame(int fragmentNumber, ByteBuf amsPacket) {
+        int userDataLength = amsPacket.readableBytes();
+        ByteBuf frame = Unpooled.buffer(HEADER_LENGTH + userDataLength + CRC.NUM_BYTES);
+        frame.writeShortLE(AmsSerialFrame.ID);
+        TransmitterAddress.RS232_COMM_ADDRESS.writeTo(frame);
+        ReceiverAddress.RS232_COMM_ADDRESS.writeTo(frame);
+        frame.writeByte(fragmentNumber);
+        frame.writeByte(userDataLength);
+        frame.writeBytes(amsPacket, amsPacket.readerIndex(), userDataLength);
+        frame.writeShortLE(DigestUtil.calculateCrc16(frame, 0, HEADER_LENGTH + userDataLength));
+        return frame;
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext channelHandlerContext) throws Exception {
+        for (int i = 0; i < pendingFrames.length; i++) {
+            if (pendingFrames[i] != null) {
+                pendingFrames[i].discard();
+                pendingFrames[i] = null;
+            }
         }
-        if (fragmentNumber.getAsByte() != expectedFrameNumber) {
-            LOGGER.warn("Unexpected fragment {} received. Expected {}", fragmentNumber, expectedFrameNumber);
+        numPendingFrames = 0;
+        PendingFrame queuedFrame;
+        while ((queuedFrame = queuedFrames.poll()) != null) {
+            queuedFrame.discard();
+            if (queuedFrame.promise != null) {
+                queuedFrame.promise.tryFailure(new ClosedChannelException());
+            }
         }
-        UserDataLength userDataLength = UserDataLength.of(byteBuf);
-        UserData userData;
-        byte userDataLengthAsByte = userDataLength.getAsByte();
-        if (byteBuf.readableBytes() < userDataLengthAsByte) {
+        super.channelInactive(channelHandlerContext);
+    }
+
+    private void sent(ChannelHandlerContext channelHandlerContext, PendingFrame pendingFrame) {
+        pendingFrames[pendingFrame.fragmentNumber] = pendingFrame;
+        numPendingFrames++;
+        pendingFrame.sentNanos = System.nanoTime();
+        scheduleRetransmission(channelHandlerContext, pendingFrame);
+    }
+
+    private void scheduleRetransmission(ChannelHandlerContext channelHandlerContext, PendingFrame pendingFrame) {
+        long timeoutNanos = roundTripTimeEstimator.getRetransmissionTimeoutNanos(pendingFrame.retries);
+        pendingFrame.retransmissionTimer = channelHandlerContext.executor().schedule(
+            () -> retransmit(channelHandlerContext, pendingFrame), timeoutNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private void retransmit(ChannelHandlerContext channelHandlerContext, PendingFrame pendingFrame) {
+        if (pendingFrames[pendingFrame.fragmentNumber] != pendingFrame) {
+            // Acknowledged in the meantime.
             return;
         }
-        if (userDataLengthAsByte > 0) {
-            byte[] userDataByteArray = new byte[userDataLengthAsByte];
-            byteBuf.readBytes(userDataByteArray);
-            userData = UserData.of(userDataByteArray);
-        } else {
-            userData = UserData.EMPTY;
+        if (pendingFrame.retries >= MAX_RETRIES) {
+            removePendingFrame(pendingFrame);
+            pendingFrame.discard();
+            channelHandlerContext.writeAndFlush(AmsSerialResetFrame.of(FragmentNumber.of((byte) pendingFrame.fragmentNumber)).getByteBuf());
+            channelHandlerContext.fireExceptionCaught(new PlcRuntimeException("Retry exhausted after " + pendingFrame.retries + " times for fragment " + pendingFrame.fragmentNumber));
+            sendQueuedFrames(channelHandlerContext);
+            return;
         }
-        CRC crc = CRC.of(byteBuf);
+        pendingFrame.retries++;
+        LOGGER.trace("Retrying fragment {} the {} time", pendingFrame.fragmentNumber, pendingFrame.retries);
+        channelHandlerContext.writeAndFlush(pendingFrame.frame.retainedDuplicate());
+        scheduleRetransmission(channelHandlerContext, pendingFrame);
+    }
 
-        // we don't need to retransmit
-        ScheduledFuture<?> scheduledFuture = currentRetryer.get();
-        if (scheduledFuture != null) {
-            scheduledFuture.cancel(false);
+    private void acknowledged(ChannelHandlerContext channelHandlerContext, int fragmentNumber) {
+        PendingFrame pendingFrame = pendingFrames[fragmentNumber];
+        if (pendingFrame == null) {
+            LOGGER.debug("Unexpected acknowledge for fragment {}", fragmentNumber);
+            return;
         }
-
-        Runnable postAction = null;
-        switch (magicCookie.getAsInt()) {
-            case AmsSerialFrame.ID:
-                AmsSerialFrame amsSerialFrame = AmsSerialFrame.of(magicCookie, transmitterAddress, receiverAddress, fragmentNumber, userDataLength, userData, crc);
-                LOGGER.debug("Ams Serial Frame received {}", amsSerialFrame);
-                postAction = () -> {
-                    // TODO: check if this is the right way to ack a package.
-                    ChannelFuture channelFuture = channelHandlerContext.writeAndFlush(AmsSerialAcknowledgeFrame.of(transmitterAddress, receiverAddress, fragmentNumber).getByteBuf());
-                    // waiting for the ack-frame to be transmitted before we forward the package
-                    try {
-                        channelFuture.await();
-                    } catch (InterruptedException e) {
-                        Thread.currentThread().interrupt();
-                        throw new PlcRuntimeException(e);
-                    }
-                    out.add(userData.getByteBuf());
-                };
-                break;
-            case AmsSerialAcknowledgeFrame.ID:
-                AmsSerialAcknowledgeFrame amsSerialAcknowledgeFrame = AmsSerialAcknowledgeFrame.of(magicCookie, transmitterAddress, receiverAddress, fragmentNumber, userDataLength, crc);
-                LOGGER.debug("Ams Serial ACK Frame received {}", amsSerialAcknowledgeFrame);
-                ReferenceCountUtil.release(byteBuf);
-                break;
-            case AmsSerialResetFrame.ID:
-                // TODO: how to react to a reset
-                AmsSerialResetFrame amsSerialResetFrame = AmsSerialResetFrame.of(magicCookie, transmitterAddress, receiverAddress, fragmentNumber, userDataLength, crc);
-                LOGGER.debug("Ams Serial Reset Frame received {}", amsSerialResetFrame);
-                ReferenceCountUtil.release(byteBuf);
-                break;
+        removePendingFrame(pendingFrame);
+        // Karn's algorithm: an acknowledge of a retransmitted frame can't be assigned to one transmission.
+        if (pendingFrame.retries == 0) {
+            roundTripTimeEstimator.addSample(System.nanoTime() - pendingFrame.sentNanos);
         }
-        CRC calculatedCrc = CRC.of(DigestUtil.calculateCrc16(magicCookie, transmitterAddress, receiverAddress, fragmentNumber, userDataLength, userData));
-        if (!crc.equals(calculatedCrc)) {
-            throw new PlcProtocolException("CRC checksum wrong. Got " + crc + " expected " + calculatedCrc);
+        pendingFrame.discard();
+        sendQueuedFrames(channelHandlerContext);
+    }
+
+    private void removePendingFrame(PendingFrame pendingFrame) {
+        pendingFrames[pendingFrame.fragmentNumber] = null;
+        numPendingFrames--;
+    }
+
+    private void sendQueuedFrames(ChannelHandlerContext channelHandlerContext) {
+        while (numPendingFrames < windowSize && !queuedFrames.isEmpty()
+            && pendingFrames[queuedFrames.peek().fragmentNumber] == null) {
+            PendingFrame pendingFrame = queuedFrames.poll();
+            if (pendingFrame.promise != null) {
+                channelHandlerContext.writeAndFlush(pendingFrame.frame.retainedDuplicate(), pendingFrame.promise);
+            } else {
+                channelHandlerContext.writeAndFlush(pendingFrame.frame.retainedDuplicate());
+            }
+            sent(channelHandlerContext, pendingFrame);
         }
+    }
 
-        if (postAction != null) {
-            postAction.run();
+    /**
+     * @return the estimator used for the retransmission timeouts, exposed for monitoring.
+     */
+    public RoundTripTimeEstimator getRoundTripTimeEstimator() {
+        return roundTripTimeEstimator;
+    }
+
+    /**
+     * @return number of frames waiting for their acknowledge.
+     */
+    public int getNumPendingFrames() {
+        return numPendingFrames;
+    }
+
+    /**
+     * @return number of frames waiting for a free slot in the window.
+     */
+    public int getNumQueuedFrames() {
+        return queuedFrames.size();
+    }
+
+    private static class PendingFrame {
+
+        private final int fragmentNumber;
+
+        private final ByteBuf frame;
+
+        // Promise of the original write, if it had to wait for a free slot in the window.
+        private final ChannelPromise promise;
+
+        private int retries;
+
+        private long sentNanos;
+
+        private ScheduledFuture<?> retransmissionTimer;
+
+        private PendingFrame(int fragmentNumber, ByteBuf frame, ChannelPromise promise) {
+            this.fragmentNumber = fragmentNumber;
+            this.frame = frame;
+            this.promise = promise;
         }
 
-        if (byteBuf.readableBytes() > 0) {
-            throw new IllegalStateException("Unread bytes left: " + byteBuf.readableBytes());
+        private void discard() {
+            if (retransmissionTimer != null) {
+                retransmissionTimer.cancel(false);
+            }
+            ReferenceCountUtil.release(frame);
         }
     }
 }
@@ -20,41 +20,106 @@ package org.apache.plc4x.java.ads.protocol;
 
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
-import io.netty.handler.codec.MessageToMessageCodec;
-import org.apache.plc4x.java.ads.api.tcp.AmsTCPPacket;
+import io.netty.handler.codec.ByteToMessageCodec;
+import io.netty.handler.codec.TooLongFrameException;
+import org.apache.commons.configuration2.Configuration;
+import org.apache.commons.configuration2.SystemConfiguration;
 import org.apache.plc4x.java.ads.api.tcp.AmsTcpHeader;
 import org.apache.plc4x.java.ads.api.tcp.types.TcpLength;
-import org.apache.plc4x.java.ads.api.tcp.types.UserData;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.List;
 
-public class Payload2TcpProtocol extends MessageToMessageCodec<ByteBuf, ByteBuf> {
+/**
+ * Frames AMS packets using the 6 byte AMS/TCP header (2 reserved bytes followed by the little endian
+ * length of the AMS packet).
+ *
+ * As TCP doesn't preserve message boundaries, incoming data is accumulated until at least one complete
+ * AMS/TCP packet is available. Multiple packets arriving in one read are all decoded. Every AMS packet is
+ * passed on as a retained slice of the accumulated data, which is released by the next layer.
+ *
+ * Packets longer than the maximum packet length are rejected with a {@link TooLongFrameException} as soon as
+ * their header is read and their data is discarded as it arrives, instead of being accumulated.
+ */
+public class Payload2TcpProtocol extends ByteToMessageCodec<ByteBuf> {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(Payload2TcpProtocol.class);
 
+    private static final Configuration CONF = new SystemConfiguration();
+    private static final long DEFAULT_MAX_PACKET_LENGTH = CONF.getLong("plc4x.payload2tcpprotocol.max_packet_length", Ads2PayloadProtocol.MAX_RESPONSE_PACKET_LENGTH);
+
+    static final int AMS_TCP_HEADER_LENGTH = AmsTcpHeader.Reserved.NUM_BYTES + TcpLength.NUM_BYTES;
+
+    private final long maxPacketLength;
+
+    // Remaining bytes of a rejected packet, which still have to be skipped.
+    private long bytesToDiscard;
+
+    public Payload2TcpProtocol() {
+        this(DEFAULT_MAX_PACKET_LENGTH);
+    }
+
+    /**
+     * @param maxPacketLength maximum length of an AMS packet (without the AMS/TCP header).
+     */
+    public Payload2TcpProtocol(long maxPacketLength) {
+        // Packets are passed on as slices, so they can't be longer than a single buffer.
+        this.maxPacketLength = Math.min(maxPacketLength, Integer.MAX_VALUE - AMS_TCP_HEADER_LENGTH);
+    }
+
     @Override
-    protected void encode(ChannelHandlerContext channelHandlerContext, ByteBuf amsPacket, List<Object> out) {
+    protected void encode(ChannelHandlerContext channelHandlerContext, ByteBuf amsPacket, ByteBuf out) {
         LOGGER.trace("(<--OUT): {}, {}, {}", channelHandlerContext, amsPacket, out);
-        out.add(AmsTCPPacket.of(UserData.of(amsPacket)).getByteBuf());
+        // Write the header directly in front of the packet instead of copying it into an AmsTCPPacket first.
+        out.ensureWritable(AMS_TCP_HEADER_LENGTH + amsPacket.readableBytes());
+        // Reserved, must be 0
+        out.writeZero(AmsTcpHeader.Reserved.NUM_BYTES);
+        out.writeIntLE(amsPacket.readableBytes());
+        out.writeBytes(amsPacket);
     }
 
-    @SuppressWarnings("unchecked")
     @Override
     protected void decode(ChannelHandlerContext channelHandlerContext, ByteBuf byteBuf, List<Object> out) {
         LOGGER.trace("(-->IN): {}, {}, {}", channelHandlerContext, byteBuf, out);
+        if (!discard(byteBuf)) {
+            return;
+        }
+        // Wait until the header is complete.
+        if (byteBuf.readableBytes() < AMS_TCP_HEADER_LENGTH) {
+            return;
+        }
+        // Peek into the length without changing the read position.
+        long packetLength = byteBuf.getUnsignedIntLE(byteBuf.readerIndex() + AmsTcpHeader.Reserved.NUM_BYTES);
+        if (packetLength > maxPacketLength) {
+            // Skip the packet right away instead of waiting for (and keeping) all of its data.
+            byteBuf.skipBytes(AMS_TCP_HEADER_LENGTH);
+            bytesToDiscard = packetLength;
+            discard(byteBuf);
+            throw new TooLongFrameException(
+                "AMS/TCP packet length exceeds " + maxPacketLength + ": " + packetLength + " - discarded");
+        }
+        // Wait until the packet is complete.
+        if (byteBuf.readableBytes() < AMS_TCP_HEADER_LENGTH + packetLength) {
+            return;
+        }
+
         // Reserved
         byteBuf.skipBytes(AmsTcpHeader.Reserved.NUM_BYTES);
-        TcpLength packetLength = TcpLength.of(byteBuf);
-        AmsTcpHeader amsTcpHeader = AmsTcpHeader.of(packetLength);
+        AmsTcpHeader amsTcpHeader = AmsTcpHeader.of(TcpLength.of(byteBuf));
         LOGGER.debug("AMS TCP Header {}", amsTcpHeader);
 
-        int readableBytes = byteBuf.readableBytes();
-        if (readableBytes != packetLength.getAsLong()) {
-            throw new IllegalStateException("To many bytes to read: " + readableBytes + " bytes. Expected " + packetLength.getAsLong() + " bytes.");
-        }
-        out.add(byteBuf.readBytes(readableBytes));
+        out.add(byteBuf.readRetainedSlice((int) packetLength));
+    }
+
+    /**
+     * @return true, if all data of a rejected packet has been skipped.
+     */
+    private boolean discard(ByteBuf byteBuf) {
+        int discardedBytes = (int) Math.min(bytesToDiscard, byteBuf.readableBytes());
+        byteBuf.skipBytes(discardedBytes);
+        bytesToDiscard -= discardedBytes;
+        return bytesToDiscard == 0;
     }
 
 }
@@ -18,8 +18,14 @@
  */
 package org.apache.plc4x.java.ads.protocol;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.MessageToMessageCodec;
+import io.netty.util.collection.LongObjectHashMap;
+import io.netty.util.collection.LongObjectMap;
+import org.apache.commons.configuration2.Configuration;
+import org.apache.commons.configuration2.SystemConfiguration;
 import org.apache.plc4x.java.ads.api.commands.*;
 import org.apache.plc4x.java.ads.api.commands.types.*;
 import org.apache.plc4x.java.ads.api.generic.AmsPacket;
@@ -29,6 +35,7 @@ import org.apache.plc4x.java.ads.api.generic.types.Invoke;
 import org.apache.plc4x.java.ads.model.AdsAddress;
 import org.apache.plc4x.java.ads.model.SymbolicAdsAddress;
 import org.apache.plc4x.java.ads.protocol.exception.AdsException;
+import org.apache.plc4x.java.ads.protocol.util.AdsNotificationSampleListener;
 import org.apache.plc4x.java.api.exceptions.PlcException;
 import org.apache.plc4x.java.api.exceptions.PlcIoException;
 import org.apache.plc4x.java.api.exceptions.PlcProtocolException;
@@ -43,32 +50,53 @@ import org.apache.plc4x.java.api.messages.specific.TypeSafePlcWriteRequest;
 import org.apache.plc4x.java.api.messages.specific.TypeSafePlcWriteResponse;
 import org.apache.plc4x.java.api.model.Address;
 import org.apache.plc4x.java.api.types.ResponseCode;
+import org.apache.plc4x.java.base.timeout.RequestTimeouts;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import static org.apache.plc4x.java.ads.protocol.util.LittleEndianDecoder.decodeData;
+import static org.apache.plc4x.java.ads.protocol.util.LittleEndianDecoder.getLengthFor;
 import static org.apache.plc4x.java.ads.protocol.util.LittleEndianEncoder.encodeData;
 
-public class Plc4x2AdsProtocol extends MessageToMessageCodec<AmsPacket, PlcRequestContainer<PlcRequest, PlcResponse>> {
+public class Plc4x2AdsProtocol extends MessageToMessageCodec<AmsPacket, PlcRequestContainer<PlcRequest, PlcResponse>> implements AdsNotificationSampleListener {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(Plc4x2AdsProtocol.class);
 
+    // Fetch values from configuration
+    private static final Configuration CONF = new SystemConfiguration();
+    private static final long REQUEST_TIMEOUT = CONF.getLong("plc4x.adsprotocol.request_timeout", 10_000);
+    private static final int MAX_SUM_COMMAND_ITEMS = CONF.getInt("plc4x.adsprotocol.max_sum_command_items", 500);
+
+    // Index group, index offset and length of every item of a sum command.
+    private static final int SUM_ITEM_INFO_LENGTH = IndexGroup.NUM_BYTES + IndexOffset.NUM_BYTES + Length.NUM_BYTES;
+
     private static final AtomicLong correlationBuilder = new AtomicLong(1);
 
     private final ConcurrentMap<Long, PlcRequestContainer<PlcRequest, PlcResponse>> requests;
 
+    private final RequestTimeouts<Long> requestTimeouts;
+
     private final ConcurrentMap<SymbolicAdsAddress, AdsAddress> addressMapping;
 
-    private List<Consumer<AdsDeviceNotificationRequest>> deviceNotificationListeners;
+    private final List<Consumer<AdsDeviceNotificationRequest>> deviceNotificationListeners;
+
+    // Copy on write, as routes are changed rarely but looked up for every notification sample.
+    private volatile LongObjectMap<AdsNotificationSampleListener> notificationRoutes;
 
     private final AmsNetId targetAmsNetId;
     private final AmsPort targetAmsPort;
@@ -76,13 +104,19 @@ public class Plc4x2AdsProtocol extends MessageToMessageCodec<AmsPacket, PlcReque
     private final AmsPort sourceAmsPort;
 
     public Plc4x2AdsProtocol(AmsNetId targetAmsNetId, AmsPort targetAmsPort, AmsNetId sourceAmsNetId, AmsPort sourceAmsPort, ConcurrentMap<SymbolicAdsAddress, AdsAddress> addressMapping) {
+        this(targetAmsNetId, targetAmsPort, sourceAmsNetId, sourceAmsPort, addressMapping, REQUEST_TIMEOUT);
+    }
+
+    public Plc4x2AdsProtocol(AmsNetId targetAmsNetId, AmsPort targetAmsPort, AmsNetId sourceAmsNetId, AmsPort sourceAmsPort, ConcurrentMap<SymbolicAdsAddress, AdsAddress> addressMapping, long requestTimeout) {
         this.targetAmsNetId = targetAmsNetId;
         this.targetAmsPort = targetAmsPort;
         this.sourceAmsNetId = sourceAmsNetId;
         this.sourceAmsPort = sourceAmsPort;
         this.requests = new ConcurrentHashMap<>();
+        this.requestTimeouts = new RequestTimeouts<>("ADS", requestTimeout, requests);
         this.addressMapping = addressMapping;
-        this.deviceNotificationListeners = new LinkedList<>();
+        this.deviceNotificationListeners = new CopyOnWriteArrayList<>();
+        this.notificationRoutes = new LongObjectHashMap<>();
     }
 
     @Override
@@ -107,6 +141,7 @@ public class Plc4x2AdsProtocol extends MessageToMessageCodec<AmsPacket, PlcReque
             Invoke invokeId = ((AdsException) cause).getInvokeId();
             if (invokeId != null) {
                 PlcRequestContainer<PlcRequest, PlcResponse> remove = requests.remove(invokeId.getAsLong());
+                requestTimeouts.cancel(invokeId.getAsLong());
                 if (remove != null) {
                     remove.getResponseFuture().completeExceptionally(new PlcIoException(cause));
                 } else {
@@ -126,6 +161,7 @@ public class Plc4x2AdsProtocol extends MessageToMessageCodec<AmsPacket, PlcReque
                 }
                 // Clear the list
                 requests.clear();
+                requestTimeouts.cancelAll();
             }
         } else {
             super.exceptionCaught(ctx, cause);
@@ -134,20 +170,15 @@ public class Plc4x2AdsProtocol extends MessageToMessageCodec<AmsPacket, PlcReque
 
     private void encodeWriteRequest(PlcRequestContainer<PlcRequest, PlcResponse> msg, List<Object> out) throws PlcException {
         PlcWriteRequest writeRequest = (PlcWriteRequest) msg.getRequest();
-        if (writeRequest.getRequestItems().size() != 1) {
-            throw new PlcProtocolException("Only one item supported");
+        if (writeRequest.getRequestItems().isEmpty()) {
+            throw new PlcProtocolException("No items to write");
         }
-        WriteRequestItem<?> writeRequestItem = writeRequest.getRequestItems().get(0);
-        Address address = writeRequestItem.getAddress();
-        if (address instanceof SymbolicAdsAddress) {
-            AdsAddress mappedAddress = addressMapping.get(address);
-            LOGGER.debug("Replacing {} with {}", address, mappedAddress);
-            address = mappedAddress;
-        }
-        if (!(address instanceof AdsAddress)) {
-            throw new PlcProtocolException("Address not of type AdsAddress: " + address.getClass());
+        if (writeRequest.getRequestItems().size() > 1) {
+            encodeSumWriteRequests(msg, out);
+            return;
         }
-        AdsAddress adsAddress = (AdsAddress) address;
+        WriteRequestItem<?> writeRequestItem = writeRequest.getRequestItems().get(0);
+        AdsAddress adsAddress = resolveAddress(writeRequestItem.getAddress());
         Invoke invokeId = Invoke.of(correlationBuilder.incrementAndGet());
         IndexGroup indexGroup = IndexGroup.of(adsAddress.getIndexGroup());
         IndexOffset indexOffset = IndexOffset.of(adsAddress.getIndexOffset());
@@ -157,16 +188,168 @@ public class Plc4x2AdsProtocol extends MessageToMessageCodec<AmsPacket, PlcReque
         LOGGER.debug("encoded write request {}", amsPacket);
         out.add(amsPacket);
         requests.put(invokeId.getAsLong(), msg);
+        requestTimeouts.schedule(invokeId.getAsLong(), msg);
     }
 
     private void encodeReadRequest(PlcRequestContainer<PlcRequest, PlcResponse> msg, List<Object> out) throws PlcException {
         PlcReadRequest readRequest = (PlcReadRequest) msg.getRequest();
 
-        if (readRequest.getRequestItems().size() != 1) {
-            throw new PlcProtocolException("Only one item supported");
+        if (readRequest.getRequestItems().isEmpty()) {
+            throw new PlcProtocolException("No items to read");
+        }
+        if (readRequest.getRequestItems().size() > 1) {
+            encodeSumReadRequests(msg, out);
+            return;
         }
         ReadRequestItem<?> readRequestItem = readRequest.getRequestItems().get(0);
-        Address address = readRequestItem.getAddress();
+        AdsAddress adsAddress = resolveAddress(readRequestItem.getAddress());
+        Invoke invokeId = Invoke.of(correlationBuilder.incrementAndGet());
+        IndexGroup indexGroup = IndexGroup.of(adsAddress.getIndexGroup());
+        IndexOffset indexOffset = IndexOffset.of(adsAddress.getIndexOffset());
+        Length length = Length.of(getReadLength(readRequestItem));
+        AmsPacket amsPacket = AdsReadRequest.of(targetAmsNetId, targetAmsPort, sourceAmsNetId, sourceAmsPort, invokeId, indexGroup, indexOffset, length);
+        LOGGER.debug("encoded read request {}", amsPacket);
+        out.add(amsPacket);
+        requests.put(invokeId.getAsLong(), msg);
+        requestTimeouts.schedule(invokeId.getAsLong(), msg);
+    }
+
+    /**
+     * Encodes a read request with multiple items as ADS sum read commands ({@code ADSIGRP_SUMUP_READ}). Every command
+     * carries a list of (index group, index offset, length) triples for up to {@link #MAX_SUM_COMMAND_ITEMS} items,
+     * bigger requests are split into multiple commands, whose responses are merged again.
+     */
+    private void encodeSumReadRequests(PlcRequestContainer<PlcRequest, PlcResponse> msg, List<Object> out) throws PlcException {
+        PlcReadRequest readRequest = (PlcReadRequest) msg.getRequest();
+        List<ReadRequestItem<?>> requestItems = readRequest.getRequestItems();
+        if (requestItems.size() <= MAX_SUM_COMMAND_ITEMS) {
+            Invoke invokeId = Invoke.of(correlationBuilder.incrementAndGet());
+            sendSumRequest(encodeSumReadRequest(invokeId, requestItems), msg, out);
+            return;
+        }
+        List<AmsPacket> amsPackets = new LinkedList<>();
+        List<PlcRequestContainer<PlcRequest, PlcResponse>> chunkContainers = new LinkedList<>();
+        for (int start = 0; start < requestItems.size(); start += MAX_SUM_COMMAND_ITEMS) {
+            List<ReadRequestItem<?>> chunkItems = new ArrayList<>(
+                requestItems.subList(start, Math.min(start + MAX_SUM_COMMAND_ITEMS, requestItems.size())));
+            Invoke invokeId = Invoke.of(correlationBuilder.incrementAndGet());
+            amsPackets.add(encodeSumReadRequest(invokeId, chunkItems));
+            chunkContainers.add(new PlcRequestContainer<>(new PlcReadRequest(chunkItems), new CompletableFuture<>()));
+        }
+        completeWhenAllChunksDone(msg, chunkContainers, chunkResponses -> {
+            List<ReadResponseItem<?>> responseItems = new ArrayList<>(requestItems.size());
+            for (PlcResponse chunkResponse : chunkResponses) {
+                responseItems.addAll(((PlcReadResponse) chunkResponse).getResponseItems());
+            }
+            return createReadResponse(readRequest, responseItems);
+        });
+        for (int i = 0; i < amsPackets.size(); i++) {
+            sendSumRequest(amsPackets.get(i), chunkContainers.get(i), out);
+        }
+    }
+
+    private AmsPacket encodeSumReadRequest(Invoke invokeId, List<ReadRequestItem<?>> requestItems) throws PlcException {
+        ByteBuf itemInfos = Unpooled.buffer(requestItems.size() * SUM_ITEM_INFO_LENGTH);
+        long readLength = requestItems.size() * (long) Result.NUM_BYTES;
+        for (ReadRequestItem<?> requestItem : requestItems) {
+            AdsAddress adsAddress = resolveAddress(requestItem.getAddress());
+            long length = getReadLength(requestItem);
+            itemInfos.writeIntLE((int) adsAddress.getIndexGroup());
+            itemInfos.writeIntLE((int) adsAddress.getIndexOffset());
+            itemInfos.writeIntLE((int) length);
+            readLength += length;
+        }
+        AmsPacket amsPacket = AdsReadWriteRequest.of(targetAmsNetId, targetAmsPort, sourceAmsNetId, sourceAmsPort, invokeId,
+            IndexGroup.ReservedGroups.ADSIGRP_SUMUP_READ, IndexOffset.of(requestItems.size()), ReadLength.of(readLength),
+            Data.of(itemInfos));
+        LOGGER.debug("encoded sum read request for {} items {}", requestItems.size(), amsPacket);
+        return amsPacket;
+    }
+
+    /**
+     * Encodes a write request with multiple items as ADS sum write commands ({@code ADSIGRP_SUMUP_WRITE}). Every
+     * command carries a list of (index group, index offset, length) triples for up to {@link #MAX_SUM_COMMAND_ITEMS}
+     * items followed by the data of all items, bigger requests are split into multiple commands, whose responses are
+     * merged again.
+     */
+    private void encodeSumWriteRequests(PlcRequestContainer<PlcRequest, PlcResponse> msg, List<Object> out) throws PlcException {
+        PlcWriteRequest writeRequest = (PlcWriteRequest) msg.getRequest();
+        List<WriteRequestItem<?>> requestItems = writeRequest.getRequestItems();
+        if (requestItems.size() <= MAX_SUM_COMMAND_ITEMS) {
+            Invoke invokeId = Invoke.of(correlationBuilder.incrementAndGet());
+            sendSumRequest(encodeSumWriteRequest(invokeId, requestItems), msg, out);
+            return;
+        }
+        List<AmsPacket> amsPackets = new LinkedList<>();
+        List<PlcRequestContainer<PlcRequest, PlcResponse>> chunkContainers = new LinkedList<>();
+        for (int start = 0; start < requestItems.size(); start += MAX_SUM_COMMAND_ITEMS) {
+            List<WriteRequestItem<?>> chunkItems = new ArrayList<>(
+                requestItems.subList(start, Math.min(start + MAX_SUM_COMMAND_ITEMS, requestItems.size())));
+            Invoke invokeId = Invoke.of(correlationBuilder.incrementAndGet());
+            amsPackets.add(encodeSumWriteRequest(invokeId, chunkItems));
+            chunkContainers.add(new PlcRequestContainer<>(new PlcWriteRequest(chunkItems), new CompletableFuture<>()));
+        }
+        completeWhenAllChunksDone(msg, chunkContainers, chunkResponses -> {
+            List<WriteResponseItem<?>> responseItems = new ArrayList<>(requestItems.size());
+            for (PlcResponse chunkResponse : chunkResponses) {
+                responseItems.addAll(((PlcWriteResponse) chunkResponse).getResponseItems());
+            }
+            return createWriteResponse(writeRequest, responseItems);
+        });
+        for (int i = 0; i < amsPackets.size(); i++) {
+            sendSumRequest(amsPackets.get(i), chunkContainers.get(i), out);
+        }
+    }
+
+    private AmsPacket encodeSumWriteRequest(Invoke invokeId, List<WriteRequestItem<?>> requestItems) throws PlcException {
+        ByteBuf itemInfos = Unpooled.buffer(requestItems.size() * SUM_ITEM_INFO_LENGTH);
+        ByteBuf itemData = Unpooled.buffer();
+        for (WriteRequestItem<?> requestItem : requestItems) {
+            AdsAddress adsAddress = resolveAddress(requestItem.getAddress());
+            byte[] bytes = encodeData(requestItem.getDatatype(), requestItem.getValues().toArray());
+            itemInfos.writeIntLE((int) adsAddress.getIndexGroup());
+            itemInfos.writeIntLE((int) adsAddress.getIndexOffset());
+            itemInfos.writeIntLE(bytes.length);
+            itemData.writeBytes(bytes);
+        }
+        AmsPacket amsPacket = AdsReadWriteRequest.of(targetAmsNetId, targetAmsPort, sourceAmsNetId, sourceAmsPort, invokeId,
+            IndexGroup.ReservedGroups.ADSIGRP_SUMUP_WRITE, IndexOffset.of(requestItems.size()),
+            ReadLength.of(requestItems.size() * (long) Result.NUM_BYTES), Data.of(Unpooled.wrappedBuffer(itemInfos, itemData)));
+        LOGGER.debug("encoded sum write request for {} items {}", requestItems.size(), amsPacket);
+        return amsPacket;
+    }
+
+    private void sendSumRequest(AmsPacket amsPacket, PlcRequestContainer<PlcRequest, PlcResponse> container, List<Object> out) {
+        long invokeId = amsPacket.getAmsHeader().getInvokeId().getAsLong();
+        out.add(amsPacket);
+        requests.put(invokeId, container);
+        requestTimeouts.schedule(invokeId, container);
+    }
+
+    /**
+     * Completes the future of the original request as soon as all sum commands it was split into are answered.
+     * If any of the commands fails, the original request fails with the same cause.
+     */
+    private void completeWhenAllChunksDone(PlcRequestContainer<PlcRequest, PlcResponse> msg,
+                                           List<PlcRequestContainer<PlcRequest, PlcResponse>> chunkContainers,
+                                           Function<List<PlcResponse>, PlcResponse> responseMerger) {
+        CompletableFuture<?>[] chunkFutures = chunkContainers.stream()
+            .map(PlcRequestContainer::getResponseFuture)
+            .toArray(CompletableFuture[]::new);
+        CompletableFuture.allOf(chunkFutures).whenComplete((ignored, throwable) -> {
+            if (throwable != null) {
+                msg.getResponseFuture().completeExceptionally(
+                    throwable instanceof CompletionException ? throwable.getCause() : throwable);
+                return;
+            }
+            List<PlcResponse> chunkResponses = chunkContainers.stream()
+                .map(chunkContainer -> chunkContainer.getResponseFuture().join())
+                .collect(Collectors.toList());
+            msg.getResponseFuture().complete(responseMerger.apply(chunkResponses));
+        });
+    }
+
+    private AdsAddress resolveAddress(Address address) throws PlcProtocolException {
         if (address instanceof SymbolicAdsAddress) {
             AdsAddress mappedAddress = addressMapping.get(address);
             if (mappedAddress == null) {
@@ -178,15 +361,14 @@ public class Plc4x2AdsProtocol extends MessageToMessageCodec<AmsPacket, PlcReque
         if (!(address instanceof AdsAddress)) {
             throw new PlcProtocolException("Address not of type AdsAddress: " + address.getClass());
         }
-        AdsAddress adsAddress = (AdsAddress) address;
-        Invoke invokeId = Invoke.of(correlationBuilder.incrementAndGet());
-        IndexGroup indexGroup = IndexGroup.of(adsAddress.getIndexGroup());
-        IndexOffset indexOffset = IndexOffset.of(adsAddress.getIndexOffset());
-        Length length = Length.of(readRequestItem.getSize());
-        AmsPacket amsPacket = AdsReadRequest.of(targetAmsNetId, targetAmsPort, sourceAmsNetId, sourceAmsPort, invokeId, indexGroup, indexOffset, length);
-        LOGGER.debug("encoded read request {}", amsPacket);
-        out.add(amsPacket);
-        requests.put(invokeId.getAsLong(), msg);
+        return (AdsAddress) address;
+    }
+
+    /**
+     * Number of bytes to read for an item, the same for single reads and the items of sum reads.
+     */
+    private static long getReadLength(ReadRequestItem<?> requestItem) {
+        return getLengthFor(requestItem.getDatatype(), 1).getAsLong() * requestItem.getSize();
     }
 
     private void encodeProprietaryRequest(PlcRequestContainer<PlcRequest, PlcResponse> msg, List<Object> out) throws PlcProtocolException {
@@ -198,6 +380,7 @@ public class Plc4x2AdsProtocol extends MessageToMessageCodec<AmsPacket, PlcReque
         LOGGER.debug("encoded proprietary request {}", amsPacket);
         out.add(amsPacket);
         requests.put(amsPacket.getAmsHeader().getInvokeId().getAsLong(), msg);
+        requestTimeouts.schedule(amsPacket.getAmsHeader().getInvokeId().getAsLong(), msg);
     }
 
     @Override
@@ -213,6 +396,7 @@ public class Plc4x2AdsProtocol extends MessageToMessageCodec<AmsPacket, PlcReque
             LOGGER.info("Unmapped packet received {}", amsPacket);
             return;
         }
+        requestTimeouts.cancel(amsPacket.getAmsHeader().getInvokeId().getAsLong());
         PlcRequest request = plcRequestContainer.getRequest();
         PlcResponse response = null;
 
@@ -220,12 +404,16 @@ public class Plc4x2AdsProtocol extends MessageToMessageCodec<AmsPacket, PlcReque
         if (request instanceof PlcReadRequest) {
             if (amsPacket instanceof AdsReadResponse) {
                 response = decodeReadResponse((AdsReadResponse) amsPacket, plcRequestContainer);
+            } else if (amsPacket instanceof AdsReadWriteResponse) {
+                response = decodeSumReadResponse((AdsReadWriteResponse) amsPacket, plcRequestContainer);
             } else {
                 throw new PlcProtocolException("Wrong type correlated " + amsPacket);
             }
         } else if (request instanceof PlcWriteRequest) {
             if (amsPacket instanceof AdsWriteResponse) {
                 response = decodeWriteResponse((AdsWriteResponse) amsPacket, plcRequestContainer);
+            } else if (amsPacket instanceof AdsReadWriteResponse) {
+                response = decodeSumWriteResponse((AdsReadWriteResponse) amsPacket, plcRequestContainer);
             } else {
                 throw new PlcProtocolException("Wrong type correlated " + amsPacket);
             }
@@ -241,6 +429,15 @@ public class Plc4x2AdsProtocol extends MessageToMessageCodec<AmsPacket, PlcReque
     }
 
     private void handleAdsDeviceNotificationRequest(AdsDeviceNotificationRequest adsDeviceNotificationRequest) {
+        if (!notificationRoutes.isEmpty()) {
+            for (AdsStampHeader adsStampHeader : adsDeviceNotificationRequest.getAdsStampHeaders()) {
+                long timeStampNanos = TimeStamp.winTimeToEpochNanos(adsStampHeader.getTimeStamp().getAsWinTime());
+                for (AdsNotificationSample adsNotificationSample : adsStampHeader.getAdsNotificationSamples()) {
+                    onSample(adsNotificationSample.getNotificationHandle().getAsLong(), timeStampNanos,
+                        Unpooled.wrappedBuffer(adsNotificationSample.getData().getBytes()));
+                }
+            }
+        }
         for (Consumer<AdsDeviceNotificationRequest> deviceNotificationListener : deviceNotificationListeners) {
             try {
                 deviceNotificationListener.accept(adsDeviceNotificationRequest);
@@ -250,6 +447,11 @@ public class Plc4x2AdsProtocol extends MessageToMessageCodec<AmsPacket, PlcReque
         }
     }
 
+    /**
+     * The consumer receives every {@link AdsDeviceNotificationRequest}. While consumers are registered, an
+     * {@link Ads2PayloadProtocol} using this as its {@link AdsNotificationSampleListener} decodes the notifications
+     * completely instead of only passing on their samples.
+     */
     public boolean addConsumer(Consumer<AdsDeviceNotificationRequest> adsDeviceNotificationRequestConsumer) {
         return deviceNotificationListeners.add(adsDeviceNotificationRequestConsumer);
     }
@@ -258,6 +460,74 @@ public class Plc4x2AdsProtocol extends MessageToMessageCodec<AmsPacket, PlcReque
         return deviceNotificationListeners.remove(adsDeviceNotificationRequestConsumer);
     }
 
+    /**
+     * Only the samples are needed, as long as no consumer needs the complete notifications.
+     */
+    @Override
+    public boolean acceptsSamplesOnly() {
+        return deviceNotificationListeners.isEmpty();
+    }
+
+    /**
+     * Dispatches a single notification sample to the route of its handle. If the {@link Ads2PayloadProtocol} in front
+     * of this protocol uses this as its {@link AdsNotificationSampleListener}, samples are passed here directly and
+     * the notifications never reach {@link #decode(ChannelHandlerContext, AmsPacket, List)}.
+     */
+    @Override
+    public void onSample(long notificationHandle, long timeStampNanos, ByteBuf data) {
+        AdsNotificationSampleListener notificationRoute = notificationRoutes.get(notificationHandle);
+        if (notificationRoute == null) {
+            LOGGER.debug("No route for notification sample of handle {}", notificationHandle);
+            return;
+        }
+        try {
+            notificationRoute.onSample(notificationHandle, timeStampNanos, data);
+        } catch (RuntimeException e) {
+            LOGGER.error("Exception received from {} while handling sample of handle {}", notificationRoute, notificationHandle, e);
+        }
+    }
+
+    /**
+     * Routes all notification samples with the given handle to the given listener. Unlike the consumers added with
+     * {@link #addConsumer(Consumer)}, which receive every notification, a route only receives the samples of its own
+     * subscription.
+     *
+     * @param notificationHandle         handle returned by the PLC when adding the device notification.
+     * @param notificationSampleListener listener receiving the samples.
+     */
+    public synchronized void addNotificationRoute(NotificationHandle notificationHandle, AdsNotificationSampleListener notificationSampleListener) {
+        LongObjectMap<AdsNotificationSampleListener> newNotificationRoutes = new LongObjectHashMap<>(notificationRoutes.size() + 1);
+        newNotificationRoutes.putAll(notificationRoutes);
+        newNotificationRoutes.put(notificationHandle.getAsLong(), notificationSampleListener);
+        notificationRoutes = newNotificationRoutes;
+    }
+
+    /**
+     * @param notificationHandle handle of the route to remove.
+     * @return true if there was a route for the given handle.
+     */
+    public synchronized boolean removeNotificationRoute(NotificationHandle notificationHandle) {
+        if (!notificationRoutes.containsKey(notificationHandle.getAsLong())) {
+            return false;
+        }
+        LongObjectMap<AdsNotificationSampleListener> newNotificationRoutes = new LongObjectHashMap<>(notificationRoutes.size());
+        newNotificationRoutes.putAll(notificationRoutes);
+        newNotificationRoutes.remove(notificationHandle.getAsLong());
+        notificationRoutes = newNotificationRoutes;
+        return true;
+    }
+
+    /**
+     * @return number of subscriptions notification samples are routed to.
+     */
+    public int getNumNotificationRoutes() {
+        return notificationRoutes.size();
+    }
+
+    public RequestTimeouts<Long> getRequestTimeouts() {
+        return requestTimeouts;
+    }
+
 
     @SuppressWarnings("unchecked")
     private PlcResponse decodeWriteResponse(AdsWriteResponse responseMessage, PlcRequestContainer<PlcRequest, PlcResponse> requestContainer) {
@@ -289,6 +559,88 @@ public class Plc4x2AdsProtocol extends MessageToMessageCodec<AmsPacket, PlcReque
         }
     }
 
+    /**
+     * Decodes the response to a sum read command: a list of one result per item, followed by the data of all items.
+     */
+    @SuppressWarnings("unchecked")
+    private PlcResponse decodeSumReadResponse(AdsReadWriteResponse responseMessage, PlcRequestContainer<PlcRequest, PlcResponse> requestContainer) throws PlcProtocolException {
+        PlcReadRequest plcReadRequest = (PlcReadRequest) requestContainer.getRequest();
+        List<ReadRequestItem<?>> requestItems = plcReadRequest.getRequestItems();
+        List<ReadResponseItem<?>> responseItems = new ArrayList<>(requestItems.size());
+
+        ResponseCode commandResponseCode = decodeResponseCode(responseMessage.getResult());
+        if (commandResponseCode != ResponseCode.OK) {
+            for (ReadRequestItem requestItem : requestItems) {
+                responseItems.add(new ReadResponseItem<>(requestItem, commandResponseCode, Collections.emptyList()));
+            }
+            return createReadResponse(plcReadRequest, responseItems);
+        }
+
+        ByteBuf byteBuf = Unpooled.wrappedBuffer(responseMessage.getData().getBytes());
+        if (byteBuf.readableBytes() < requestItems.size() * Result.NUM_BYTES) {
+            throw new PlcProtocolException("Sum read response too short for " + requestItems.size() + " results");
+        }
+        ByteBuf results = byteBuf.readSlice(requestItems.size() * Result.NUM_BYTES);
+        for (ReadRequestItem requestItem : requestItems) {
+            ResponseCode responseCode = decodeResponseCode(Result.of(results.readUnsignedIntLE()));
+            int length = (int) getReadLength(requestItem);
+            if (byteBuf.readableBytes() < length) {
+                throw new PlcProtocolException("Sum read response too short for data of " + requestItem);
+            }
+            byte[] bytes = new byte[length];
+            byteBuf.readBytes(bytes);
+            List decoded = responseCode == ResponseCode.OK ? decodeData(requestItem.getDatatype(), bytes) : Collections.emptyList();
+            responseItems.add(new ReadResponseItem<>(requestItem, responseCode, decoded));
+        }
+        return createReadResponse(plcReadRequest, responseItems);
+    }
+
+    /**
+     * Decodes the response to a sum write command: a list of one result per item.
+     */
+    @SuppressWarnings("unchecked")
+    private PlcResponse decodeSumWriteResponse(AdsReadWriteResponse responseMessage, PlcRequestContainer<PlcRequest, PlcResponse> requestContainer) throws PlcProtocolException {
+        PlcWriteRequest plcWriteRequest = (PlcWriteRequest) requestContainer.getRequest();
+        List<WriteRequestItem<?>> requestItems = plcWriteRequest.getRequestItems();
+        List<WriteResponseItem<?>> responseItems = new ArrayList<>(requestItems.size());
+
+        ResponseCode commandResponseCode = decodeResponseCode(responseMessage.getResult());
+        if (commandResponseCode != ResponseCode.OK) {
+            for (WriteRequestItem requestItem : requestItems) {
+                responseItems.add(new WriteResponseItem<>(requestItem, commandResponseCode));
+            }
+            return createWriteResponse(plcWriteRequest, responseItems);
+        }
+
+        ByteBuf byteBuf = Unpooled.wrappedBuffer(responseMessage.getData().getBytes());
+        if (byteBuf.readableBytes() < requestItems.size() * Result.NUM_BYTES) {
+            throw new PlcProtocolException("Sum write response too short for " + requestItems.size() + " results");
+        }
+        for (WriteRequestItem requestItem : requestItems) {
+            ResponseCode responseCode = decodeResponseCode(Result.of(byteBuf.readUnsignedIntLE()));
+            responseItems.add(new WriteResponseItem<>(requestItem, responseCode));
+        }
+        return createWriteResponse(plcWriteRequest, responseItems);
+    }
+
+    @SuppressWarnings("unchecked")
+    private PlcResponse createReadResponse(PlcReadRequest plcReadRequest, List<ReadResponseItem<?>> responseItems) {
+        if (plcReadRequest instanceof TypeSafePlcReadRequest) {
+            return new TypeSafePlcReadResponse((TypeSafePlcReadRequest) plcReadRequest, (List) responseItems);
+        } else {
+            return new PlcReadResponse(plcReadRequest, responseItems);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private PlcResponse createWriteResponse(PlcWriteRequest plcWriteRequest, List<WriteResponseItem<?>> responseItems) {
+        if (plcWriteRequest instanceof TypeSafePlcWriteRequest) {
+            return new TypeSafePlcWriteResponse((TypeSafePlcWriteRequest) plcWriteRequest, (List) responseItems);
+        } else {
+            return new PlcWriteResponse(plcWriteRequest, responseItems);
+        }
+    }
+
     private PlcResponse decodeProprietaryResponse(AmsPacket amsPacket, PlcRequestContainer<PlcRequest, PlcResponse> plcRequestContainer) {
         return new PlcProprietaryResponse<>((PlcProprietaryRequest) plcRequestContainer.getRequest(), amsPacket);
     }
@@ -0,0 +1,46 @@
+/*
+ Licensed to the Apache Software Foundation (ASF) under one
+ or more contributor license agreements.  See the NOTICE file
+ distributed with this work for additional information
+ regarding copyright ownership.  The ASF licenses this file
+ to you under the Apache License, Version 2.0 (the
+ "License"); you may not use this file except in compliance
+ with the License.  You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing,
+ software distributed under the License is distributed on an
+ "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ KIND, either express or implied.  See the License for the
+ specific language governing permissions and limitations
+ under the License.
+ */
+package org.apache.plc4x.java.ads.protocol.util;
+
+import io.netty.buffer.ByteBuf;
+
+/**
+ * Receives the samples of device notifications as primitives, so they can be handled without creating any
+ * objects per sample.
+ */
+@FunctionalInterface
+public interface AdsNotificationSampleListener {
+
+    /**
+     * @param notificationHandle handle of the notification the sample belongs to.
+     * @param timeStampNanos     time the sample was taken in nanoseconds since 1970-01-01.
+     * @param data               data of the sample. It's only valid during this call and has to be copied if it's
+     *                           needed later on.
+     */
+    void onSample(long notificationHandle, long timeStampNanos, ByteBuf data);
+
+    /**
+     * @return true if the samples are all this listener needs, false if device notifications have to be decoded
+     * completely, for example because someone needs the whole notification packets.
+     */
+    default boolean acceptsSamplesOnly() {
+        return true;
+    }
+
+}
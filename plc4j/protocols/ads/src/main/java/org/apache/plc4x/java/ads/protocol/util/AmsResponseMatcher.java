@@ -0,0 +1,48 @@
+/*
+ Licensed to the Apache Software Foundation (ASF) under one
+ or more contributor license agreements.  See the NOTICE file
+ distributed with this work for additional information
+ regarding copyright ownership.  The ASF licenses this file
+ to you under the Apache License, Version 2.0 (the
+ "License"); you may not use this file except in compliance
+ with the License.  You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing,
+ software distributed under the License is distributed on an
+ "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ KIND, either express or implied.  See the License for the
+ specific language governing permissions and limitations
+ under the License.
+ */
+package org.apache.plc4x.java.ads.protocol.util;
+
+import io.netty.buffer.ByteBuf;
+import org.apache.plc4x.java.ads.api.generic.AmsHeaderView;
+import org.apache.plc4x.java.ads.api.generic.types.State;
+
+import java.util.function.Predicate;
+
+/**
+ * Matches serialized AMS packets which are responses to a previously sent request. Unsolicited packets like
+ * device notifications are requests sent by the PLC and don't match.
+ */
+public class AmsResponseMatcher implements Predicate<Object> {
+
+    // Only used from the event loop of the channel this matcher belongs to.
+    private final AmsHeaderView amsHeaderView = new AmsHeaderView();
+
+    @Override
+    public boolean test(Object msg) {
+        if (!(msg instanceof ByteBuf)) {
+            return false;
+        }
+        ByteBuf byteBuf = (ByteBuf) msg;
+        if (byteBuf.readableBytes() < AmsHeaderView.STATE_OFFSET + State.NUM_BYTES) {
+            return false;
+        }
+        return amsHeaderView.wrap(byteBuf).isResponse();
+    }
+
+}
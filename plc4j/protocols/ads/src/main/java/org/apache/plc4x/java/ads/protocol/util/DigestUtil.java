@@ -19,6 +19,7 @@
 package org.apache.plc4x.java.ads.protocol.util;
 
 import com.github.snksoft.crc.CRC;
+import io.netty.buffer.ByteBuf;
 import org.apache.plc4x.java.ads.api.util.ByteReadable;
 
 public class DigestUtil {
@@ -33,27 +34,72 @@ public class DigestUtil {
         CRC16.isReflectOut(),
         CRC16.getFinalXor());
 
-    private static CRC crc16 = new CRC(CRC16_ADS);
+    // CRC16_ADS is reflected, so the table is built from the reversed polynomial 0x8005.
+    private static final int REVERSED_POLYNOMIAL = 0xA001;
+
+    private static final int[] CRC16_ADS_TABLE = new int[256];
+
+    static {
+        for (int i = 0; i < CRC16_ADS_TABLE.length; i++) {
+            int crc = i;
+            for (int bit = 0; bit < 8; bit++) {
+                crc = (crc & 1) != 0 ? (crc >>> 1) ^ REVERSED_POLYNOMIAL : crc >>> 1;
+            }
+            CRC16_ADS_TABLE[i] = crc;
+        }
+    }
 
     private DigestUtil() {
         // Utility class
     }
 
     public static int calculateCrc16(ByteReadable... byteReadables) {
-        if (byteReadables.length == 1) {
-            return calculateCrc16(byteReadables[0].getBytes());
-        }
-        long currentCrcValue = crc16.init();
+        int crc = (int) CRC16_ADS.getInit();
         for (ByteReadable byteReadable : byteReadables) {
-            currentCrcValue = crc16.update(currentCrcValue, byteReadable.getBytes());
+            ByteBuf byteBuf = byteReadable.getByteBuf();
+            crc = update(crc, byteBuf, byteBuf.readerIndex(), byteBuf.readableBytes());
         }
-        short finalCrc = crc16.finalCRC16(currentCrcValue);
-        return Short.toUnsignedInt(Short.reverseBytes(finalCrc));
+        return finish(crc);
     }
 
     public static int calculateCrc16(byte[] bytes) {
-        short finalCrc = (short) crc16.calculateCRC(bytes);
-        return Short.toUnsignedInt(Short.reverseBytes(finalCrc));
+        int crc = (int) CRC16_ADS.getInit();
+        for (byte b : bytes) {
+            crc = (crc >>> 8) ^ CRC16_ADS_TABLE[(crc ^ b) & 0xFF];
+        }
+        return finish(crc);
+    }
+
+    /**
+     * Calculates the crc of a range of the given buffer without copying it. The indexes of the buffer aren't modified.
+     *
+     * @param byteBuf buffer containing the data.
+     * @param index   absolute index of the first byte.
+     * @param length  number of bytes.
+     * @return the crc in the byte order used by {@link org.apache.plc4x.java.ads.api.serial.types.CRC}.
+     */
+    public static int calculateCrc16(ByteBuf byteBuf, int index, int length) {
+        return finish(update((int) CRC16_ADS.getInit(), byteBuf, index, length));
+    }
+
+    private static int update(int crc, ByteBuf byteBuf, int index, int length) {
+        if (byteBuf.hasArray()) {
+            byte[] array = byteBuf.array();
+            int start = byteBuf.arrayOffset() + index;
+            for (int i = start; i < start + length; i++) {
+                crc = (crc >>> 8) ^ CRC16_ADS_TABLE[(crc ^ array[i]) & 0xFF];
+            }
+        } else {
+            for (int i = index; i < index + length; i++) {
+                crc = (crc >>> 8) ^ CRC16_ADS_TABLE[(crc ^ byteBuf.getByte(i)) & 0xFF];
+            }
+        }
+        return crc;
+    }
+
+    // The crc is transmitted in big endian order but read as little endian CRC.
+    private static int finish(int crc) {
+        return Short.toUnsignedInt(Short.reverseBytes((short) crc));
     }
 
 }
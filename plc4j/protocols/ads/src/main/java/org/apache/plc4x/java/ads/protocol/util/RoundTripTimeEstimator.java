@@ -0,0 +1,121 @@
+/*
+ Licensed to the Apache Software Foundation (ASF) under one
+ or more contributor license agreements.  See the NOTICE file
+ distributed with this work for additional information
+ regarding copyright ownership.  The ASF licenses this file
+ to you under the Apache License, Version 2.0 (the
+ "License"); you may not use this file except in compliance
+ with the License.  You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing,
+ software distributed under the License is distributed on an
+ "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ KIND, either express or implied.  See the License for the
+ specific language governing permissions and limitations
+ under the License.
+ */
+package org.apache.plc4x.java.ads.protocol.util;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Estimates the retransmission timeout of a link from measured round trip times, using the smoothed round trip
+ * time and its variation as described in RFC 6298.
+ *
+ * Only round trips of frames which weren't retransmitted must be sampled, as it's unknown which transmission an
+ * acknowledge belongs to otherwise (Karn's algorithm). Not thread safe.
+ */
+public class RoundTripTimeEstimator {
+
+    private final long initialTimeoutNanos;
+    private final long minTimeoutNanos;
+    private final long maxTimeoutNanos;
+
+    private long smoothedRoundTripTimeNanos;
+    private long roundTripTimeVariationNanos;
+    private long retransmissionTimeoutNanos;
+
+    /**
+     * @param initialTimeout timeout used until the first round trip has been measured.
+     * @param minTimeout     lower bound of the timeout.
+     * @param maxTimeout     upper bound of the timeout, also for timeouts which are backed off.
+     * @param timeUnit       unit of the given timeouts.
+     */
+    public RoundTripTimeEstimator(long initialTimeout, long minTimeout, long maxTimeout, TimeUnit timeUnit) {
+        if (minTimeout <= 0 || minTimeout > maxTimeout) {
+            throw new IllegalArgumentException("Invalid timeout bounds: " + minTimeout + " - " + maxTimeout);
+        }
+        this.minTimeoutNanos = timeUnit.toNanos(minTimeout);
+        this.maxTimeoutNanos = timeUnit.toNanos(maxTimeout);
+        this.initialTimeoutNanos = clamp(timeUnit.toNanos(initialTimeout));
+        reset();
+    }
+
+    /**
+     * Forgets all measured round trips.
+     */
+    public void reset() {
+        smoothedRoundTripTimeNanos = -1;
+        roundTripTimeVariationNanos = 0;
+        retransmissionTimeoutNanos = initialTimeoutNanos;
+    }
+
+    /**
+     * @param roundTripTimeNanos measured time between sending a frame and receiving its acknowledge.
+     */
+    public void addSample(long roundTripTimeNanos) {
+        if (roundTripTimeNanos < 0) {
+            return;
+        }
+        if (smoothedRoundTripTimeNanos < 0) {
+            smoothedRoundTripTimeNanos = roundTripTimeNanos;
+            roundTripTimeVariationNanos = roundTripTimeNanos / 2;
+        } else {
+            // RTTVAR = 3/4 * RTTVAR + 1/4 * |SRTT - R|, SRTT = 7/8 * SRTT + 1/8 * R
+            roundTripTimeVariationNanos += (Math.abs(smoothedRoundTripTimeNanos - roundTripTimeNanos) - roundTripTimeVariationNanos) / 4;
+            smoothedRoundTripTimeNanos += (roundTripTimeNanos - smoothedRoundTripTimeNanos) / 8;
+        }
+        retransmissionTimeoutNanos = clamp(smoothedRoundTripTimeNanos + 4 * roundTripTimeVariationNanos);
+    }
+
+    /**
+     * @return the timeout for the first transmission of a frame.
+     */
+    public long getRetransmissionTimeoutNanos() {
+        return retransmissionTimeoutNanos;
+    }
+
+    /**
+     * @param retries number of times the frame has already been retransmitted.
+     * @return the exponentially backed off timeout for the next transmission of a frame.
+     */
+    public long getRetransmissionTimeoutNanos(int retries) {
+        long timeout = retransmissionTimeoutNanos;
+        for (int i = 0; i < retries && timeout < maxTimeoutNanos; i++) {
+            timeout *= 2;
+        }
+        return clamp(timeout);
+    }
+
+    /**
+     * @return the smoothed round trip time or -1 if no round trip has been measured yet.
+     */
+    public long getSmoothedRoundTripTimeNanos() {
+        return smoothedRoundTripTimeNanos;
+    }
+
+    private long clamp(long timeoutNanos) {
+        return Math.max(minTimeoutNanos, Math.min(maxTimeoutNanos, timeoutNanos));
+    }
+
+    @Override
+    public String toString() {
+        return "RoundTripTimeEstimator{" +
+            "smoothedRoundTripTimeNanos=" + smoothedRoundTripTimeNanos +
+            ", roundTripTimeVariationNanos=" + roundTripTimeVariationNanos +
+            ", retransmissionTimeoutNanos=" + retransmissionTimeoutNanos +
+            '}';
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ Licensed to the Apache Software Foundation (ASF) under one
+ or more contributor license agreements.  See the NOTICE file
+ distributed with this work for additional information
+ regarding copyright ownership.  The ASF licenses this file
+ to you under the Apache License, Version 2.0 (the
+ "License"); you may not use this file except in compliance
+ with the License.  You may obtain a copy of the License at
+ 
+   http://www.apache.org/licenses/LICENSE-2.0
+ 
+ Unless required by applicable law or agreed to in writing,
+ software distributed under the License is distributed on an
+ "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ KIND, either express or implied.  See the License for the
+ specific language governing permissions and limitations
+ under the License.
+ */
+package org.apache.plc4x.java.ads.api.commands.types;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.Date;
+
+import static org.apache.plc4x.java.base.util.Junit5Backport.assertThrows;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class TimeStampTest {
+
+    @Test
+    public void ofDate() {
+        Date date = new Date(1_500_000_000_000L);
+        TimeStamp timeStamp = TimeStamp.of(date);
+        assertEquals(date, timeStamp.getAsDate());
+        assertEquals(TimeStamp.EPOCH_DIFF_IN_WIN_TIME + 1_500_000_000_000L * 10_000, timeStamp.getAsWinTime());
+        assertEquals(BigInteger.valueOf(timeStamp.getAsWinTime()), timeStamp.getBigIntegerValue());
+    }
+
+    @Test
+    public void bytesRoundTrip() {
+        TimeStamp timeStamp = TimeStamp.of(new Date());
+        TimeStamp copy = TimeStamp.of(timeStamp.getBytes());
+        assertEquals(timeStamp, copy);
+        assertEquals(timeStamp.hashCode(), copy.hashCode());
+    }
+
+    @Test
+    public void writeToMatchesGetBytes() {
+        TimeStamp timeStamp = TimeStamp.of(new Date());
+        ByteBuf byteBuf = Unpooled.buffer();
+        timeStamp.writeTo(byteBuf);
+        assertEquals(TimeStamp.NUM_BYTES, byteBuf.readableBytes());
+        byte[] written = new byte[TimeStamp.NUM_BYTES];
+        byteBuf.getBytes(0, written);
+        assertArrayEquals(timeStamp.getBytes(), written);
+        assertEquals(timeStamp, TimeStamp.of(byteBuf));
+    }
+
+    @Test
+    public void unsignedValues() {
+        byte[] maxValue = {-1, -1, -1, -1, -1, -1, -1, -1};
+        TimeStamp timeStamp = TimeStamp.of(maxValue);
+        assertEquals(BigInteger.ONE.shiftLeft(64).subtract(BigInteger.ONE), timeStamp.getBigIntegerValue());
+        assertEquals(timeStamp, TimeStamp.ofWinTime(timeStamp.getBigIntegerValue()));
+        assertArrayEquals(maxValue, timeStamp.getBytes());
+    }
+
+    @Test
+    public void ofBytesWrongLength() {
+        assertThrows(IllegalArgumentException.class, () -> TimeStamp.of(new byte[7]));
+        assertThrows(IllegalArgumentException.class, () -> TimeStamp.ofWinTime(BigInteger.ONE.shiftLeft(64)));
+    }
+}
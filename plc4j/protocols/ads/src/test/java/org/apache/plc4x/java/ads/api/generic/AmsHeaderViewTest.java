@@ -0,0 +1,71 @@
+/*
+ Licensed to the Apache Software Foundation (ASF) under one
+ or more contributor license agreements.  See the NOTICE file
+ distributed with this work for additional information
+ regarding copyright ownership.  The ASF licenses this file
+ to you under the Apache License, Version 2.0 (the
+ "License"); you may not use this file except in compliance
+ with the License.  You may obtain a copy of the License at
+ 
+   http://www.apache.org/licenses/LICENSE-2.0
+ 
+ Unless required by applicable law or agreed to in writing,
+ software distributed under the License is distributed on an
+ "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ KIND, either express or implied.  See the License for the
+ specific language governing permissions and limitations
+ under the License.
+ */
+package org.apache.plc4x.java.ads.api.generic;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.apache.plc4x.java.ads.api.generic.types.*;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AmsHeaderViewTest {
+
+    private final AmsHeaderView SUT = new AmsHeaderView();
+
+    @Test
+    public void readsSerializedHeader() {
+        AmsHeader amsHeader = AmsHeader.of(
+            AmsNetId.of("1.2.3.4.5.6"),
+            AmsPort.of(851),
+            AmsNetId.of("6.5.4.3.2.1"),
+            AmsPort.of(32905),
+            Command.ADS_READ,
+            State.DEFAULT_RESPONSE,
+            DataLength.of(12),
+            AmsError.of(0x704),
+            Invoke.of(0xFFFF_FFFEL));
+        ByteBuf byteBuf = Unpooled.buffer();
+        // Some leading garbage to make sure the reader index is honored.
+        byteBuf.writeZero(3).readerIndex(3);
+        amsHeader.writeTo(byteBuf);
+
+        assertEquals(AmsHeaderView.LENGTH, amsHeader.getCalculatedLength());
+        assertEquals(AmsHeaderView.LENGTH, byteBuf.readableBytes());
+
+        SUT.wrap(byteBuf);
+        assertTrue(SUT.isComplete());
+        assertEquals(Command.ADS_READ.getIntValue(), SUT.getCommandId());
+        assertEquals(State.DEFAULT_RESPONSE.getAsInt(), SUT.getStateFlags());
+        assertTrue(SUT.isResponse());
+        assertEquals(12, SUT.getDataLength());
+        assertEquals(0x704, SUT.getCode());
+        assertEquals(0xFFFF_FFFEL, SUT.getInvokeId());
+        assertEquals(3, byteBuf.readerIndex());
+    }
+
+    @Test
+    public void incompleteHeader() {
+        ByteBuf byteBuf = Unpooled.buffer().writeZero(AmsHeaderView.LENGTH - 1);
+        assertFalse(SUT.wrap(byteBuf).isComplete());
+        assertTrue(SUT.wrap(byteBuf.writeZero(1)).isComplete());
+    }
+}
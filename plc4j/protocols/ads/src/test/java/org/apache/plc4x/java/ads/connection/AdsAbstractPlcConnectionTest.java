@@ -18,18 +18,26 @@
  */
 package org.apache.plc4x.java.ads.connection;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelHandler;
 import io.netty.util.concurrent.Future;
 import io.netty.util.concurrent.GenericFutureListener;
 import org.apache.commons.lang3.reflect.FieldUtils;
+import org.apache.plc4x.java.ads.api.commands.AdsReadRequest;
+import org.apache.plc4x.java.ads.api.commands.AdsReadResponse;
+import org.apache.plc4x.java.ads.api.commands.AdsReadWriteRequest;
 import org.apache.plc4x.java.ads.api.commands.AdsReadWriteResponse;
 import org.apache.plc4x.java.ads.api.commands.types.Data;
+import org.apache.plc4x.java.ads.api.commands.types.IndexGroup;
 import org.apache.plc4x.java.ads.api.commands.types.Result;
 import org.apache.plc4x.java.ads.api.generic.types.AmsNetId;
 import org.apache.plc4x.java.ads.api.generic.types.AmsPort;
 import org.apache.plc4x.java.ads.model.AdsAddress;
+import org.apache.plc4x.java.ads.model.AdsSymbolTable;
+import org.apache.plc4x.java.ads.model.AdsSymbolTableTest;
 import org.apache.plc4x.java.ads.model.SymbolicAdsAddress;
 import org.apache.plc4x.java.api.exceptions.PlcRuntimeException;
 import org.apache.plc4x.java.api.messages.*;
@@ -40,9 +48,12 @@ import org.apache.plc4x.java.api.messages.specific.TypeSafePlcWriteResponse;
 import org.apache.plc4x.java.api.model.Address;
 import org.apache.plc4x.java.base.connection.ChannelFactory;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
 import org.mockito.Answers;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 import org.slf4j.Logger;
@@ -51,6 +62,7 @@ import org.slf4j.LoggerFactory;
 import java.util.Map;
 import java.util.Queue;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.apache.plc4x.java.base.util.Junit5Backport.assertThrows;
 import static org.junit.Assert.*;
@@ -65,6 +77,9 @@ public class AdsAbstractPlcConnectionTest {
 
     private AdsAbstractPlcConnection SUT;
 
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
     @Mock(answer = Answers.RETURNS_DEEP_STUBS)
     private ChannelFactory channelFactory;
 
@@ -205,8 +220,9 @@ public class AdsAbstractPlcConnectionTest {
                 return mock(ChannelFuture.class);
             });
 
-            SUT.mapAddress(SymbolicAdsAddress.of("Main.byByte[0]"));
-            SUT.mapAddress(SymbolicAdsAddress.of("Main.byByte[0]"));
+            AdsAddress adsAddress = SUT.getFromFuture(SUT.mapAddress(SymbolicAdsAddress.of("Main.byByte[0]")), 1000);
+            assertEquals(AdsAddress.of(0xF005, 0x04030201), adsAddress);
+            SUT.getFromFuture(SUT.mapAddress(SymbolicAdsAddress.of("Main.byByte[0]")), 1000);
             verify(channel, times(1)).writeAndFlush(any(PlcRequestContainer.class));
             SUT.clearMapping();
             reset(channel);
@@ -223,13 +239,125 @@ public class AdsAbstractPlcConnectionTest {
                 return mock(ChannelFuture.class);
             });
 
-            assertThrows(PlcRuntimeException.class, () -> SUT.mapAddress(SymbolicAdsAddress.of("Main.byByte[0]")));
+            assertThrows(PlcRuntimeException.class, () -> SUT.getFromFuture(SUT.mapAddress(SymbolicAdsAddress.of("Main.byByte[0]")), 1000));
             verify(channel, times(1)).writeAndFlush(any(PlcRequestContainer.class));
             SUT.clearMapping();
             reset(channel);
         }
     }
 
+    @Test
+    public void mapAddressesBatchesSymbols() throws Exception {
+        when(channel.writeAndFlush(any(PlcRequestContainer.class))).then(invocation -> {
+            PlcRequestContainer plcRequestContainer = invocation.getArgument(0);
+            AdsReadWriteRequest adsReadWriteRequest = (AdsReadWriteRequest) ((PlcProprietaryRequest) plcRequestContainer.getRequest()).getRequest();
+            assertEquals(IndexGroup.ReservedGroups.ADSIGRP_SUMUP_READWRITE, adsReadWriteRequest.getIndexGroup());
+            assertEquals(3, adsReadWriteRequest.getIndexOffset().getAsLong());
+            assertEquals(3 * 12, adsReadWriteRequest.getReadLength().getAsLong());
+
+            ByteBuf data = Unpooled.buffer();
+            // Results and lengths
+            data.writeIntLE(0).writeIntLE(4);
+            data.writeIntLE(0x710).writeIntLE(0);
+            data.writeIntLE(0).writeIntLE(4);
+            // Handles
+            data.writeIntLE(1);
+            data.writeIntLE(3);
+            AdsReadWriteResponse adsReadWriteResponse = mock(AdsReadWriteResponse.class);
+            when(adsReadWriteResponse.getResult()).thenReturn(Result.of(0));
+            when(adsReadWriteResponse.getData()).thenReturn(Data.of(data));
+            PlcProprietaryResponse plcProprietaryResponse = mock(PlcProprietaryResponse.class);
+            when(plcProprietaryResponse.getResponse()).thenReturn(adsReadWriteResponse);
+            plcRequestContainer.getResponseFuture().complete(plcProprietaryResponse);
+            return mock(ChannelFuture.class);
+        });
+        SymbolicAdsAddress first = SymbolicAdsAddress.of("Main.first");
+        SymbolicAdsAddress unknown = SymbolicAdsAddress.of("Main.unknown");
+        SymbolicAdsAddress third = SymbolicAdsAddress.of("Main.third");
+        PlcReadRequest readRequest = PlcReadRequest.builder()
+            .addItem(Byte.class, first)
+            .addItem(Byte.class, unknown)
+            .addItem(Byte.class, third)
+            .addItem(Byte.class, first)
+            .build();
+
+        CompletableFuture<Void> mapped = SUT.mapAddresses(readRequest);
+
+        verify(channel, times(1)).writeAndFlush(any(PlcRequestContainer.class));
+        assertTrue(mapped.isCompletedExceptionally());
+        Map addressMapping = (Map) FieldUtils.getDeclaredField(AdsAbstractPlcConnection.class, "addressMapping", true).get(SUT);
+        assertEquals(AdsAddress.of(0xF005, 1), addressMapping.get(first));
+        assertNull(addressMapping.get(unknown));
+        assertEquals(AdsAddress.of(0xF005, 3), addressMapping.get(third));
+    }
+
+    @Test
+    public void mapAddressSharesPendingLookups() {
+        CompletableFuture<AdsAddress> first = SUT.mapAddress(SymbolicAdsAddress.of("Main.byByte[0]"));
+        CompletableFuture<AdsAddress> second = SUT.mapAddress(SymbolicAdsAddress.of("Main.byByte[0]"));
+        // A second symbol has to wait until the pending lookup is answered.
+        SUT.mapAddress(SymbolicAdsAddress.of("Main.byByte[1]"));
+
+        assertSame(first, second);
+        verify(channel, times(1)).writeAndFlush(any(PlcRequestContainer.class));
+    }
+
+    @Test
+    public void loadSymbolTable() throws Exception {
+        ByteBuf symbols = Unpooled.buffer();
+        AdsSymbolTableTest.writeSymbolEntry(symbols, "MAIN.counter", 0x4020, 4, 2, 2, "INT", "");
+        AtomicInteger numSymbols = new AtomicInteger(1);
+        when(channel.writeAndFlush(any(PlcRequestContainer.class))).then(invocation -> {
+            PlcRequestContainer plcRequestContainer = invocation.getArgument(0);
+            AdsReadRequest adsReadRequest = (AdsReadRequest) ((PlcProprietaryRequest) plcRequestContainer.getRequest()).getRequest();
+            ByteBuf data = Unpooled.buffer();
+            if (adsReadRequest.getIndexGroup().equals(IndexGroup.ReservedGroups.ADSIGRP_SYM_VERSION)) {
+                data.writeByte(3);
+            } else if (adsReadRequest.getIndexGroup().equals(IndexGroup.ReservedGroups.ADSIGRP_SYM_UPLOADINFO)) {
+                data.writeIntLE(numSymbols.get()).writeIntLE(symbols.readableBytes()).writeZero(16);
+            } else if (adsReadRequest.getIndexGroup().equals(IndexGroup.ReservedGroups.ADSIGRP_SYM_UPLOAD)) {
+                assertEquals(symbols.readableBytes(), adsReadRequest.getLength().getAsLong());
+                data.writeBytes(symbols, symbols.readerIndex(), symbols.readableBytes());
+            } else {
+                fail("Unexpected request " + adsReadRequest);
+            }
+            AdsReadResponse adsReadResponse = mock(AdsReadResponse.class);
+            when(adsReadResponse.getResult()).thenReturn(Result.of(0));
+            when(adsReadResponse.getData()).thenReturn(Data.of(data));
+            PlcProprietaryResponse plcProprietaryResponse = mock(PlcProprietaryResponse.class);
+            when(plcProprietaryResponse.getResponse()).thenReturn(adsReadResponse);
+            plcRequestContainer.getResponseFuture().complete(plcProprietaryResponse);
+            return mock(ChannelFuture.class);
+        });
+        SUT.setSymbolTableCacheDirectory(temporaryFolder.getRoot().toPath());
+
+        // The first time the table is uploaded and persisted.
+        AdsSymbolTable symbolTable = SUT.getFromFuture(SUT.loadSymbolTable(), 1000);
+        assertEquals(3, symbolTable.getVersion());
+        assertEquals(1, symbolTable.size());
+        verify(channel, times(3)).writeAndFlush(any(PlcRequestContainer.class));
+
+        // Symbols of the table don't need a handle.
+        AdsAddress adsAddress = SUT.getFromFuture(SUT.mapAddress(SymbolicAdsAddress.of("MAIN.counter")), 1000);
+        assertEquals(AdsAddress.of(0x4020, 4), adsAddress);
+        verify(channel, times(3)).writeAndFlush(any(PlcRequestContainer.class));
+
+        // As long as the version and the upload info don't change, the persisted table is used.
+        clearInvocations(channel);
+        AdsSymbolTable cachedSymbolTable = SUT.getFromFuture(SUT.loadSymbolTable(), 1000);
+        assertEquals(symbolTable.getSymbols().iterator().next(), cachedSymbolTable.getSymbols().iterator().next());
+        verify(channel, times(2)).writeAndFlush(any(PlcRequestContainer.class));
+
+        // A symbol added without changing the version is noticed by the upload info.
+        clearInvocations(channel);
+        AdsSymbolTableTest.writeSymbolEntry(symbols, "MAIN.flag", 0xF021, 0x80000001L, 1, 33, "BOOL", "");
+        numSymbols.set(2);
+        AdsSymbolTable reloadedSymbolTable = SUT.getFromFuture(SUT.loadSymbolTable(), 1000);
+        assertEquals(3, reloadedSymbolTable.getVersion());
+        assertEquals(2, reloadedSymbolTable.size());
+        verify(channel, times(3)).writeAndFlush(any(PlcRequestContainer.class));
+    }
+
     @Test
     public void generateAMSNetId() {
         AmsNetId targetAmsNetId = AdsAbstractPlcConnection.generateAMSNetId();
@@ -249,6 +377,20 @@ public class AdsAbstractPlcConnectionTest {
         SUT.close();
     }
 
+    @Test
+    public void closeReleasesHandlesInOneRequest() throws Exception {
+        Map addressMapping = (Map) FieldUtils.getDeclaredField(AdsAbstractPlcConnection.class, "addressMapping", true).get(SUT);
+        addressMapping.put(SymbolicAdsAddress.of("Main.first"), AdsAddress.of(0xF005, 1));
+        addressMapping.put(SymbolicAdsAddress.of("Main.second"), AdsAddress.of(0xF005, 2));
+        SUT.close();
+
+        ArgumentCaptor<PlcRequestContainer> captor = ArgumentCaptor.forClass(PlcRequestContainer.class);
+        verify(channel, times(1)).write(captor.capture());
+        AdsReadWriteRequest adsReadWriteRequest = (AdsReadWriteRequest) ((PlcProprietaryRequest) captor.getValue().getRequest()).getRequest();
+        assertEquals(IndexGroup.ReservedGroups.ADSIGRP_SUMUP_WRITE, adsReadWriteRequest.getIndexGroup());
+        assertEquals(2, adsReadWriteRequest.getIndexOffset().getAsLong());
+    }
+
     @Test
     public void getFromFuture() throws Exception {
         runInThread(() -> {
@@ -19,6 +19,9 @@ under the License.
 
 package org.apache.plc4x.java.ads.connection;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelFuture;
 import org.apache.commons.lang3.reflect.FieldUtils;
@@ -27,13 +30,15 @@ import org.apache.plc4x.java.ads.api.commands.types.*;
 import org.apache.plc4x.java.ads.api.generic.types.AmsNetId;
 import org.apache.plc4x.java.ads.api.generic.types.AmsPort;
 import org.apache.plc4x.java.ads.model.AdsAddress;
+import org.apache.plc4x.java.ads.model.AdsSubscriptionHandle;
 import org.apache.plc4x.java.ads.model.SymbolicAdsAddress;
 import org.apache.plc4x.java.ads.protocol.Plc4x2AdsProtocol;
+import org.apache.plc4x.java.ads.protocol.util.AdsNotificationSampleListener;
+import org.apache.plc4x.java.api.exceptions.PlcRuntimeException;
 import org.apache.plc4x.java.api.messages.*;
 import org.apache.plc4x.java.api.messages.items.SubscriptionEventItem;
-import org.apache.plc4x.java.api.messages.items.SubscriptionRequestChangeOfStateItem;
-import org.apache.plc4x.java.api.messages.items.SubscriptionRequestItem;
-import org.apache.plc4x.java.api.messages.items.SubscriptionResponseItem;
+import org.apache.plc4x.java.api.messages.items.*;
+import org.apache.plc4x.java.api.types.ResponseCode;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -41,15 +46,16 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.net.InetAddress;
-import java.util.Collections;
-import java.util.Date;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 
+import static org.hamcrest.core.IsInstanceOf.instanceOf;
 import static org.hamcrest.core.IsNull.notNullValue;
 import static org.junit.Assert.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -142,24 +148,16 @@ public class AdsTcpPlcConnectionTests {
                 return mock(ChannelFuture.class);
             });
         Plc4x2AdsProtocol plc4x2AdsProtocol = mock(Plc4x2AdsProtocol.class);
-        when(plc4x2AdsProtocol.addConsumer(any())).then(invocation -> {
-            Consumer<AdsDeviceNotificationRequest> consumer = invocation.getArgument(0);
+        doAnswer(invocation -> {
+            AdsNotificationSampleListener notificationRoute = invocation.getArgument(1);
             executorService.submit(() -> {
                 while (!Thread.currentThread().isInterrupted()) {
-                    AdsDeviceNotificationRequest mock = mock(AdsDeviceNotificationRequest.class);
-                    AdsStampHeader adsStampHeader = mock(AdsStampHeader.class, RETURNS_DEEP_STUBS);
-                    when(adsStampHeader.getTimeStamp()).thenReturn(TimeStamp.of(new Date()));
-                    AdsNotificationSample adsNotificationSample = mock(AdsNotificationSample.class, RETURNS_DEEP_STUBS);
-                    when(adsNotificationSample.getNotificationHandle()).thenReturn(NotificationHandle.of(0));
-                    when(adsNotificationSample.getData()).thenReturn(Data.of("Hello " + consumer));
-                    when(adsStampHeader.getAdsNotificationSamples()).thenReturn(Collections.singletonList(adsNotificationSample));
-                    List<AdsStampHeader> adsStampHeaders = Collections.singletonList(adsStampHeader);
-                    when(mock.getAdsStampHeaders()).thenReturn(adsStampHeaders);
-                    consumer.accept(mock);
+                    notificationRoute.onSample(0, TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis()),
+                        Unpooled.wrappedBuffer(Data.of("Hello " + notificationRoute).getBytes()));
                 }
             });
-            return true;
-        });
+            return null;
+        }).when(plc4x2AdsProtocol).addNotificationRoute(eq(NotificationHandle.of(0)), any());
         when(channelMock.pipeline().get(Plc4x2AdsProtocol.class)).thenReturn(plc4x2AdsProtocol);
 
         CompletableFuture<?> notificationReceived = new CompletableFuture<>();
@@ -174,7 +172,7 @@ public class AdsTcpPlcConnectionTests {
             String.class, SUT.parseAddress("Main.by[0]"), plcNotificationConsumer));*/
         CompletableFuture<? extends PlcSubscriptionResponse> subscriptionFuture = SUT.subscribe(subscriptionRequest);
         PlcSubscriptionResponse subscriptionResponse = subscriptionFuture.get(5, TimeUnit.SECONDS);
-        //notificationReceived.get(3, TimeUnit.SECONDS);
+        notificationReceived.get(3, TimeUnit.SECONDS);
         assertThat(subscriptionResponse, notNullValue());
         assertThat(subscriptionResponse.getNumberOfItems(), equalTo(1));
 
@@ -189,4 +187,161 @@ public class AdsTcpPlcConnectionTests {
         PlcUnsubscriptionResponse plcUnsubscriptionResponse = unsubscriptionFuture.get(5, TimeUnit.SECONDS);
         assertThat(plcUnsubscriptionResponse, notNullValue());*/
     }
-}
\ No newline at end of file
+
+    @Test
+    public void subscribeMultipleItemsWithSumCommand() throws Exception {
+        List<AdsReadWriteRequest> requests = new ArrayList<>();
+        when(channelMock.writeAndFlush(any(PlcRequestContainer.class)))
+            .then(invocationOnMock -> {
+                PlcRequestContainer plcRequestContainer = invocationOnMock.getArgument(0);
+                AdsReadWriteRequest request = (AdsReadWriteRequest) ((PlcProprietaryRequest) plcRequestContainer.getRequest()).getRequest();
+                requests.add(request);
+                // The first notification is added, the second one fails.
+                AdsReadWriteResponse response = AdsReadWriteResponse.of(AmsNetId.of("0.0.0.0.0.0"), AmsPort.of(13),
+                    AmsNetId.of("0.0.0.0.0.0"), AmsPort.of(13), request.getAmsHeader().getInvokeId(), Result.of(0),
+                    Data.of(new byte[]{0, 0, 0, 0, 5, 0, 0, 0, 0x10, 0x07, 0, 0, 0, 0, 0, 0}));
+                plcRequestContainer.getResponseFuture().complete(
+                    new PlcProprietaryResponse<>((PlcProprietaryRequest) plcRequestContainer.getRequest(), response));
+                return mock(ChannelFuture.class);
+            });
+        Plc4x2AdsProtocol plc4x2AdsProtocol = mock(Plc4x2AdsProtocol.class);
+        when(channelMock.pipeline().get(Plc4x2AdsProtocol.class)).thenReturn(plc4x2AdsProtocol);
+
+        PlcSubscriptionRequest subscriptionRequest = new PlcSubscriptionRequest();
+        subscriptionRequest.addItem(new SubscriptionRequestCyclicItem(
+            Integer.class, SUT.parseAddress("1/2"), plcNotification -> {
+        }, TimeUnit.MILLISECONDS, 100));
+        subscriptionRequest.addItem(new SubscriptionRequestChangeOfStateItem(
+            Short.class, SUT.parseAddress("3/4"), plcNotification -> {
+        }));
+        PlcSubscriptionResponse subscriptionResponse = SUT.subscribe(subscriptionRequest).get(5, TimeUnit.SECONDS);
+
+        assertThat(requests.size(), equalTo(1));
+        AdsReadWriteRequest request = requests.get(0);
+        assertThat(request.getIndexGroup(), equalTo(IndexGroup.ReservedGroups.ADSIGRP_SUMUP_ADDDEVNOTE));
+        assertThat(request.getIndexOffset().getAsLong(), equalTo(2L));
+        assertThat(request.getReadLength().getAsLong(), equalTo(16L));
+        ByteBuf data = Unpooled.wrappedBuffer(request.getData().getBytes());
+        assertThat(data.readableBytes(), equalTo(80));
+        // Cyclic item: sampled by the server every 100ms and delayed by at most one period.
+        assertThat(data.readIntLE(), equalTo(1));
+        assertThat(data.readIntLE(), equalTo(2));
+        assertThat(data.readIntLE(), equalTo(4));
+        assertThat((long) data.readIntLE(), equalTo(TransmissionMode.DefinedValues.ADSTRANS_SERVERCYCLE.getAsLong()));
+        assertThat(data.readIntLE(), equalTo(1000000));
+        assertThat(data.readIntLE(), equalTo(1000000));
+        data.skipBytes(16);
+        // Change of state item: sent as soon as it changes.
+        assertThat(data.readIntLE(), equalTo(3));
+        assertThat(data.readIntLE(), equalTo(4));
+        assertThat(data.readIntLE(), equalTo(2));
+        assertThat((long) data.readIntLE(), equalTo(TransmissionMode.DefinedValues.ADSTRANS_SERVERONCHA.getAsLong()));
+        assertThat(data.readIntLE(), equalTo(0));
+        assertThat(data.readIntLE(), equalTo(4000000));
+
+        List<? extends SubscriptionResponseItem<?>> responseItems = subscriptionResponse.getResponseItems();
+        assertThat(responseItems.size(), equalTo(2));
+        assertThat(responseItems.get(0).getResponseCode(), equalTo(ResponseCode.OK));
+        assertThat(((AdsSubscriptionHandle) responseItems.get(0).getSubscriptionHandle()).getNotificationHandle(),
+            equalTo(NotificationHandle.of(5)));
+        assertThat(responseItems.get(1).getResponseCode(), equalTo(ResponseCode.INTERNAL_ERROR));
+        verify(plc4x2AdsProtocol).addNotificationRoute(eq(NotificationHandle.of(5)), any());
+        verify(plc4x2AdsProtocol, never()).addNotificationRoute(eq(NotificationHandle.of(0)), any());
+    }
+
+    @Test
+    public void failedChunkDeletesNotificationsOfOtherChunks() throws Exception {
+        List<AdsReadWriteRequest> requests = new ArrayList<>();
+        when(channelMock.writeAndFlush(any(PlcRequestContainer.class)))
+            .then(invocationOnMock -> {
+                PlcRequestContainer plcRequestContainer = invocationOnMock.getArgument(0);
+                AdsReadWriteRequest request = (AdsReadWriteRequest) ((PlcProprietaryRequest) plcRequestContainer.getRequest()).getRequest();
+                requests.add(request);
+                int numItems = (int) request.getIndexOffset().getAsLong();
+                ByteBuf data = Unpooled.buffer();
+                Result result = Result.of(0);
+                if (request.getIndexGroup().equals(IndexGroup.ReservedGroups.ADSIGRP_SUMUP_DELDEVNOTE)) {
+                    data.writeZero(numItems * Result.NUM_BYTES);
+                } else if (requests.size() == 1) {
+                    // The first chunk is added, handles start at 1.
+                    for (int i = 1; i <= numItems; i++) {
+                        data.writeIntLE(0);
+                        data.writeIntLE(i);
+                    }
+                } else {
+                    // The second chunk fails as a whole.
+                    result = Result.of(AdsReturnCode.ADS_CODE_1793.getHex());
+                }
+                AdsReadWriteResponse response = AdsReadWriteResponse.of(AmsNetId.of("0.0.0.0.0.0"), AmsPort.of(13),
+                    AmsNetId.of("0.0.0.0.0.0"), AmsPort.of(13), request.getAmsHeader().getInvokeId(), result,
+                    Data.of(ByteBufUtil.getBytes(data)));
+                plcRequestContainer.getResponseFuture().complete(
+                    new PlcProprietaryResponse<>((PlcProprietaryRequest) plcRequestContainer.getRequest(), response));
+                return mock(ChannelFuture.class);
+            });
+        Plc4x2AdsProtocol plc4x2AdsProtocol = mock(Plc4x2AdsProtocol.class);
+        when(channelMock.pipeline().get(Plc4x2AdsProtocol.class)).thenReturn(plc4x2AdsProtocol);
+
+        // Two items more than fit into a single sum command, so the second chunk is a sum command, too.
+        int numItems = AdsAbstractPlcConnection.MAX_SUM_COMMAND_ITEMS + 2;
+        PlcSubscriptionRequest subscriptionRequest = new PlcSubscriptionRequest();
+        for (int i = 0; i < numItems; i++) {
+            subscriptionRequest.addItem(new SubscriptionRequestChangeOfStateItem(
+                Short.class, SUT.parseAddress("1/" + i), plcNotification -> {
+            }));
+        }
+        try {
+            SUT.subscribe(subscriptionRequest).get(5, TimeUnit.SECONDS);
+            fail("Subscription should have failed");
+        } catch (ExecutionException e) {
+            assertThat(e.getCause(), instanceOf(PlcRuntimeException.class));
+        }
+
+        // The notifications added by the first chunk are deleted again ...
+        assertThat(requests.size(), equalTo(3));
+        AdsReadWriteRequest request = requests.get(2);
+        assertThat(request.getIndexGroup(), equalTo(IndexGroup.ReservedGroups.ADSIGRP_SUMUP_DELDEVNOTE));
+        assertThat(request.getIndexOffset().getAsLong(), equalTo((long) AdsAbstractPlcConnection.MAX_SUM_COMMAND_ITEMS));
+        ByteBuf data = Unpooled.wrappedBuffer(request.getData().getBytes());
+        for (int i = 1; i <= AdsAbstractPlcConnection.MAX_SUM_COMMAND_ITEMS; i++) {
+            assertThat(data.readIntLE(), equalTo(i));
+        }
+        // ... and so are their routes.
+        verify(plc4x2AdsProtocol, times(AdsAbstractPlcConnection.MAX_SUM_COMMAND_ITEMS)).addNotificationRoute(any(), any());
+        verify(plc4x2AdsProtocol, times(AdsAbstractPlcConnection.MAX_SUM_COMMAND_ITEMS)).removeNotificationRoute(any());
+        verify(plc4x2AdsProtocol).removeNotificationRoute(NotificationHandle.of(1));
+    }
+
+    @Test
+    public void unsubscribeMultipleItemsWithSumCommand() throws Exception {
+        List<AdsReadWriteRequest> requests = new ArrayList<>();
+        when(channelMock.writeAndFlush(any(PlcRequestContainer.class)))
+            .then(invocationOnMock -> {
+                PlcRequestContainer plcRequestContainer = invocationOnMock.getArgument(0);
+                AdsReadWriteRequest request = (AdsReadWriteRequest) ((PlcProprietaryRequest) plcRequestContainer.getRequest()).getRequest();
+                requests.add(request);
+                AdsReadWriteResponse response = AdsReadWriteResponse.of(AmsNetId.of("0.0.0.0.0.0"), AmsPort.of(13),
+                    AmsNetId.of("0.0.0.0.0.0"), AmsPort.of(13), request.getAmsHeader().getInvokeId(), Result.of(0),
+                    Data.of(new byte[8]));
+                plcRequestContainer.getResponseFuture().complete(
+                    new PlcProprietaryResponse<>((PlcProprietaryRequest) plcRequestContainer.getRequest(), response));
+                return mock(ChannelFuture.class);
+            });
+        Plc4x2AdsProtocol plc4x2AdsProtocol = mock(Plc4x2AdsProtocol.class);
+        when(channelMock.pipeline().get(Plc4x2AdsProtocol.class)).thenReturn(plc4x2AdsProtocol);
+
+        PlcUnsubscriptionRequest unsubscriptionRequest = new PlcUnsubscriptionRequest();
+        unsubscriptionRequest.addItem(new UnsubscriptionRequestItem(new AdsSubscriptionHandle(NotificationHandle.of(5))));
+        unsubscriptionRequest.addItem(new UnsubscriptionRequestItem(new AdsSubscriptionHandle(NotificationHandle.of(6))));
+        PlcUnsubscriptionResponse unsubscriptionResponse = SUT.unsubscribe(unsubscriptionRequest).get(5, TimeUnit.SECONDS);
+        assertThat(unsubscriptionResponse, notNullValue());
+
+        assertThat(requests.size(), equalTo(1));
+        AdsReadWriteRequest request = requests.get(0);
+        assertThat(request.getIndexGroup(), equalTo(IndexGroup.ReservedGroups.ADSIGRP_SUMUP_DELDEVNOTE));
+        assertThat(request.getIndexOffset().getAsLong(), equalTo(2L));
+        assertThat(request.getData().getBytes(), equalTo(new byte[]{5, 0, 0, 0, 6, 0, 0, 0}));
+        verify(plc4x2AdsProtocol).removeNotificationRoute(NotificationHandle.of(5));
+        verify(plc4x2AdsProtocol).removeNotificationRoute(NotificationHandle.of(6));
+    }
+}
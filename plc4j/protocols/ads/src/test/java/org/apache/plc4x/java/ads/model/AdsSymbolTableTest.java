@@ -0,0 +1,125 @@
+/*
+ Licensed to the Apache Software Foundation (ASF) under one
+ or more contributor license agreements.  See the NOTICE file
+ distributed with this work for additional information
+ regarding copyright ownership.  The ASF licenses this file
+ to you under the Apache License, Version 2.0 (the
+ "License"); you may not use this file except in compliance
+ with the License.  You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing,
+ software distributed under the License is distributed on an
+ "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ KIND, either express or implied.  See the License for the
+ specific language governing permissions and limitations
+ under the License.
+ */
+package org.apache.plc4x.java.ads.model;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+public class AdsSymbolTableTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void parseUploadData() {
+        ByteBuf uploadData = Unpooled.buffer();
+        writeSymbolEntry(uploadData, "MAIN.counter", 0x4020, 4, 4, 3, "INT", "the counter");
+        writeSymbolEntry(uploadData, "MAIN.values", 0x4020, 8, 20, 65, "ARRAY [0..4] OF REAL", "");
+
+        AdsSymbolTable symbolTable = AdsSymbolTable.of(7, uploadData);
+
+        assertThat(symbolTable.getVersion(), is(7));
+        assertThat(symbolTable.size(), is(2));
+        AdsSymbol counter = symbolTable.getSymbol("MAIN.counter").orElseThrow(AssertionError::new);
+        assertThat(counter, equalTo(AdsSymbol.of("MAIN.counter", 0x4020, 4, 4, 3, "INT")));
+        assertThat(counter.toAdsAddress(), equalTo(AdsAddress.of(0x4020, 4)));
+        assertThat(symbolTable.getSymbol("main.VALUES").map(AdsSymbol::getTypeName), equalTo(java.util.Optional.of("ARRAY [0..4] OF REAL")));
+        assertThat(symbolTable.getSymbol("MAIN.unknown").isPresent(), is(false));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void parseInvalidEntryLength() {
+        ByteBuf uploadData = Unpooled.buffer();
+        writeSymbolEntry(uploadData, "MAIN.counter", 0x4020, 4, 4, 3, "INT", "");
+        uploadData.setIntLE(0, 1000);
+
+        AdsSymbolTable.of(7, uploadData);
+    }
+
+    @Test
+    public void writeAndRead() throws IOException {
+        ByteBuf uploadData = Unpooled.buffer();
+        writeSymbolEntry(uploadData, "MAIN.counter", 0x4020, 4, 4, 3, "INT", "");
+        writeSymbolEntry(uploadData, "MAIN.flag", 0xF021, 0x80000001L, 1, 33, "BOOL", "");
+        AdsSymbolTable symbolTable = AdsSymbolTable.of(42, uploadData);
+        Path file = temporaryFolder.getRoot().toPath().resolve("sub").resolve("table.symbols");
+
+        symbolTable.writeTo(file);
+        AdsSymbolTable readSymbolTable = AdsSymbolTable.readFrom(file);
+
+        assertThat(readSymbolTable.getVersion(), is(42));
+        assertThat(readSymbolTable.getSymbols(), containsInAnyOrder(symbolTable.getSymbols().toArray()));
+        assertThat(readSymbolTable.getNumUploadedSymbols(), is(2L));
+        assertThat(readSymbolTable.getUploadLength(), is(symbolTable.getUploadLength()));
+    }
+
+    @Test
+    public void matchesVersionAndUploadInfo() {
+        ByteBuf uploadData = Unpooled.buffer();
+        writeSymbolEntry(uploadData, "MAIN.counter", 0x4020, 4, 4, 3, "INT", "");
+        long uploadLength = uploadData.readableBytes();
+        AdsSymbolTable symbolTable = AdsSymbolTable.of(42, uploadData);
+
+        assertThat(symbolTable.matches(42, 1, uploadLength), is(true));
+        assertThat(symbolTable.matches(43, 1, uploadLength), is(false));
+        assertThat(symbolTable.matches(42, 2, uploadLength), is(false));
+        assertThat(symbolTable.matches(42, 1, uploadLength + 1), is(false));
+    }
+
+    @Test(expected = IOException.class)
+    public void readInvalidFile() throws IOException {
+        Path file = temporaryFolder.newFile().toPath();
+        Files.write(file, new byte[]{1, 2, 3, 4, 5, 6, 7, 8});
+
+        AdsSymbolTable.readFrom(file);
+    }
+
+    /**
+     * Writes a symbol entry in the format returned by an {@code ADSIGRP_SYM_UPLOAD} read.
+     */
+    public static void writeSymbolEntry(ByteBuf byteBuf, String name, long indexGroup, long indexOffset, long size, long dataType, String typeName, String comment) {
+        byte[] nameBytes = name.getBytes(StandardCharsets.ISO_8859_1);
+        byte[] typeBytes = typeName.getBytes(StandardCharsets.ISO_8859_1);
+        byte[] commentBytes = comment.getBytes(StandardCharsets.ISO_8859_1);
+        int entryLength = 30 + nameBytes.length + 1 + typeBytes.length + 1 + commentBytes.length + 1;
+        byteBuf.writeIntLE(entryLength);
+        byteBuf.writeIntLE((int) indexGroup);
+        byteBuf.writeIntLE((int) indexOffset);
+        byteBuf.writeIntLE((int) size);
+        byteBuf.writeIntLE((int) dataType);
+        byteBuf.writeIntLE(0);
+        byteBuf.writeShortLE(nameBytes.length);
+        byteBuf.writeShortLE(typeBytes.length);
+        byteBuf.writeShortLE(commentBytes.length);
+        byteBuf.writeBytes(nameBytes).writeByte(0);
+        byteBuf.writeBytes(typeBytes).writeByte(0);
+        byteBuf.writeBytes(commentBytes).writeByte(0);
+    }
+}
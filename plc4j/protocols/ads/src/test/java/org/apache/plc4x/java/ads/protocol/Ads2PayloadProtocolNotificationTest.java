@@ -0,0 +1,93 @@
+/*
+ Licensed to the Apache Software Foundation (ASF) under one
+ or more contributor license agreements.  See the NOTICE file
+ distributed with this work for additional information
+ regarding copyright ownership.  The ASF licenses this file
+ to you under the Apache License, Version 2.0 (the
+ "License"); you may not use this file except in compliance
+ with the License.  You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing,
+ software distributed under the License is distributed on an
+ "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ KIND, either express or implied.  See the License for the
+ specific language governing permissions and limitations
+ under the License.
+ */
+package org.apache.plc4x.java.ads.protocol;
+
+import io.netty.buffer.ByteBuf;
+import org.apache.plc4x.java.ads.api.commands.AdsDeviceNotificationRequest;
+import org.apache.plc4x.java.ads.api.commands.AdsReadResponse;
+import org.apache.plc4x.java.ads.api.commands.types.*;
+import org.apache.plc4x.java.ads.api.generic.AmsPacket;
+import org.apache.plc4x.java.ads.api.generic.types.AmsNetId;
+import org.apache.plc4x.java.ads.api.generic.types.AmsPort;
+import org.apache.plc4x.java.ads.api.generic.types.Invoke;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+public class Ads2PayloadProtocolNotificationTest {
+
+    private static final AmsNetId TARGET_AMS_NET_ID = AmsNetId.of("1.2.3.4.5.6");
+    private static final AmsPort TARGET_AMS_PORT = AmsPort.of(7);
+    private static final AmsNetId SOURCE_AMS_NET_ID = AmsNetId.of("8.9.10.11.12.13");
+    private static final AmsPort SOURCE_AMS_PORT = AmsPort.of(14);
+
+    private List<String> receivedSamples;
+
+    private Ads2PayloadProtocol SUT;
+
+    @Before
+    public void setUp() {
+        receivedSamples = new ArrayList<>();
+        SUT = new Ads2PayloadProtocol((notificationHandle, timeStampNanos, data) ->
+            receivedSamples.add(notificationHandle + "@" + timeStampNanos + ":" + data.readableBytes() + "/" + data.getByte(data.readerIndex())));
+    }
+
+    @Test
+    public void notificationSamplesArePassedToListener() throws Exception {
+        AdsDeviceNotificationRequest notification = AdsDeviceNotificationRequest.of(
+            TARGET_AMS_NET_ID, TARGET_AMS_PORT, SOURCE_AMS_NET_ID, SOURCE_AMS_PORT, Invoke.NONE, Stamps.of(2),
+            Arrays.asList(
+                AdsStampHeader.of(TimeStamp.of(1000), Arrays.asList(
+                    AdsNotificationSample.of(NotificationHandle.of(1), Data.of(new byte[]{1, 2})),
+                    AdsNotificationSample.of(NotificationHandle.of(2), Data.of(new byte[]{3, 4, 5, 6})))),
+                AdsStampHeader.of(TimeStamp.of(2000), Arrays.asList(
+                    AdsNotificationSample.of(NotificationHandle.of(1), Data.of(new byte[]{7, 8}))))
+            ));
+
+        List<Object> out = new ArrayList<>();
+        ByteBuf byteBuf = notification.getByteBuf();
+        SUT.decode(null, byteBuf, out);
+
+        assertThat(out, empty());
+        assertThat(byteBuf.readableBytes(), equalTo(0));
+        assertThat(receivedSamples, contains(
+            "1@1000000000:2/1",
+            "2@1000000000:4/3",
+            "1@2000000000:2/7"));
+    }
+
+    @Test
+    public void otherPacketsAreStillDecoded() throws Exception {
+        AmsPacket response = AdsReadResponse.of(
+            TARGET_AMS_NET_ID, TARGET_AMS_PORT, SOURCE_AMS_NET_ID, SOURCE_AMS_PORT, Invoke.of(1), Result.of(0), Data.of(new byte[]{1, 2}));
+
+        List<Object> out = new ArrayList<>();
+        SUT.decode(null, response.getByteBuf(), out);
+
+        assertThat(out, contains(response));
+        assertThat(receivedSamples, empty());
+    }
+
+}
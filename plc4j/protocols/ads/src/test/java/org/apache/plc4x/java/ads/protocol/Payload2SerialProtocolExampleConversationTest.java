@@ -165,7 +165,7 @@ public class Payload2SerialProtocolExampleConversationTest {
         );
         AmsSerialFrame amsSerialFrame = AmsSerialFrame.of(FragmentNumber.of((byte) 0x06), UserData.of(amsPacket.getBytes()));
         errorCollector.checkThat("example request not same", amsSerialFrame.getBytes(), byteArrayEqualsTo(exampleRequest));
-        SUT.encode(channelHandlerContextMock, amsPacket.getByteBuf(), new ArrayList<>());
+        SUT.encode(channelHandlerContextMock, amsPacket.getByteBuf(), Unpooled.buffer());
 
         // PLC --> Terminal : Acknowledge:
         int[] exampleResponsAckInt = {
@@ -81,10 +81,10 @@ public class Payload2SerialProtocolTest extends AbstractProtocolTest {
 
     @Test
     public void encode() throws Exception {
-        ArrayList<Object> out = new ArrayList<>();
+        ByteBuf out = Unpooled.buffer();
         SUT.encode(channelHandlerContextMock, Unpooled.wrappedBuffer(amsPacketBytes), out);
-        assertEquals(1, out.size());
-        assertThat(out, hasSize(1));
+        assertByteBufferEquals(amsSerialFrame.getByteBuf(), out);
+        assertEquals(1, SUT.getNumPendingFrames());
     }
 
     @Test
@@ -96,12 +96,8 @@ public class Payload2SerialProtocolTest extends AbstractProtocolTest {
 
     @Test
     public void roundTrip() throws Exception {
-        ArrayList<Object> outbound = new ArrayList<>();
-        SUT.encode(channelHandlerContextMock, Unpooled.wrappedBuffer(amsPacketBytes), outbound);
-        assertEquals(1, outbound.size());
-        assertThat(outbound, hasSize(1));
-        assertThat(outbound.get(0), instanceOf(ByteBuf.class));
-        ByteBuf byteBuf = (ByteBuf) outbound.get(0);
+        ByteBuf byteBuf = Unpooled.buffer();
+        SUT.encode(channelHandlerContextMock, Unpooled.wrappedBuffer(amsPacketBytes), byteBuf);
         ArrayList<Object> inbound = new ArrayList<>();
         SUT.decode(channelHandlerContextMock, byteBuf, inbound);
         assertEquals(1, inbound.size());
@@ -0,0 +1,187 @@
+/*
+ Licensed to the Apache Software Foundation (ASF) under one
+ or more contributor license agreements.  See the NOTICE file
+ distributed with this work for additional information
+ regarding copyright ownership.  The ASF licenses this file
+ to you under the Apache License, Version 2.0 (the
+ "License"); you may not use this file except in compliance
+ with the License.  You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing,
+ software distributed under the License is distributed on an
+ "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ KIND, either express or implied.  See the License for the
+ specific language governing permissions and limitations
+ under the License.
+ */
+package org.apache.plc4x.java.ads.protocol;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.apache.plc4x.java.ads.api.serial.AmsSerialAcknowledgeFrame;
+import org.apache.plc4x.java.ads.api.serial.AmsSerialFrame;
+import org.apache.plc4x.java.ads.api.serial.types.FragmentNumber;
+import org.apache.plc4x.java.ads.api.serial.types.ReceiverAddress;
+import org.apache.plc4x.java.ads.api.serial.types.TransmitterAddress;
+import org.apache.plc4x.java.ads.api.serial.types.UserData;
+import org.junit.After;
+import org.junit.Test;
+
+import java.nio.channels.ClosedChannelException;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class Payload2SerialProtocolWindowTest {
+
+    private static final byte[] PAYLOAD = {0x01, 0x02, 0x03, 0x04};
+
+    private Payload2SerialProtocol SUT;
+
+    private EmbeddedChannel channel;
+
+    @After
+    public void tearDown() {
+        if (channel != null) {
+            channel.finishAndReleaseAll();
+        }
+    }
+
+    @Test
+    public void decodeFrameSplitAcrossReads() {
+        setUp(1);
+        byte[] frame = AmsSerialFrame.of(FragmentNumber.of((byte) 3), UserData.of(PAYLOAD)).getBytes();
+        // Some line noise in front of the frame, which has to be skipped.
+        channel.writeInbound(Unpooled.wrappedBuffer(new byte[]{0x00, 0x42}));
+        for (byte b : frame) {
+            assertThat(channel.readInbound(), nullValue());
+            channel.writeInbound(Unpooled.wrappedBuffer(new byte[]{b}));
+        }
+        channel.checkException();
+
+        assertPayload(channel.readInbound());
+        assertThat(channel.readInbound(), nullValue());
+        assertThat(toBytes(channel.readOutbound()), equalTo(acknowledge(3)));
+    }
+
+    @Test
+    public void retransmittedFrameIsAcknowledgedButNotForwardedTwice() {
+        setUp(1);
+        byte[] frame = AmsSerialFrame.of(FragmentNumber.of((byte) 7), UserData.of(PAYLOAD)).getBytes();
+        channel.writeInbound(Unpooled.wrappedBuffer(frame));
+        channel.writeInbound(Unpooled.wrappedBuffer(frame));
+
+        assertPayload(channel.readInbound());
+        assertThat(channel.readInbound(), nullValue());
+        assertThat(toBytes(channel.readOutbound()), equalTo(acknowledge(7)));
+        assertThat(toBytes(channel.readOutbound()), equalTo(acknowledge(7)));
+    }
+
+    @Test
+    public void framesAreQueuedUntilWindowHasRoom() {
+        setUp(2);
+        channel.writeOutbound(Unpooled.wrappedBuffer(PAYLOAD));
+        channel.writeOutbound(Unpooled.wrappedBuffer(PAYLOAD));
+        channel.writeOutbound(Unpooled.wrappedBuffer(PAYLOAD));
+
+        assertThat(toBytes(channel.readOutbound()), equalTo(frame(0)));
+        assertThat(toBytes(channel.readOutbound()), equalTo(frame(1)));
+        // Nothing is written for the queued frame yet.
+        assertThat(channel.readOutbound(), nullValue());
+        assertThat(SUT.getNumPendingFrames(), equalTo(2));
+        assertThat(SUT.getNumQueuedFrames(), equalTo(1));
+
+        channel.writeInbound(Unpooled.wrappedBuffer(acknowledge(1)));
+        assertThat(toBytes(channel.readOutbound()), equalTo(frame(2)));
+        assertThat(SUT.getNumPendingFrames(), equalTo(2));
+        assertThat(SUT.getNumQueuedFrames(), equalTo(0));
+
+        channel.writeInbound(Unpooled.wrappedBuffer(acknowledge(0)));
+        channel.writeInbound(Unpooled.wrappedBuffer(acknowledge(2)));
+        assertThat(SUT.getNumPendingFrames(), equalTo(0));
+        assertThat(SUT.getRoundTripTimeEstimator().getSmoothedRoundTripTimeNanos(), greaterThan(-1L));
+        channel.checkException();
+    }
+
+    @Test
+    public void queuedFrameCompletesItsPromiseWhenWritten() {
+        setUp(1);
+        ChannelPromise firstPromise = channel.newPromise();
+        channel.writeAndFlush(Unpooled.wrappedBuffer(PAYLOAD), firstPromise);
+        ChannelPromise queuedPromise = channel.newPromise();
+        channel.writeAndFlush(Unpooled.wrappedBuffer(PAYLOAD), queuedPromise);
+
+        assertThat(firstPromise.isSuccess(), equalTo(true));
+        assertThat(queuedPromise.isDone(), equalTo(false));
+
+        channel.writeInbound(Unpooled.wrappedBuffer(acknowledge(0)));
+        assertThat(toBytes(channel.readOutbound()), equalTo(frame(0)));
+        assertThat(toBytes(channel.readOutbound()), equalTo(frame(1)));
+        assertThat(queuedPromise.isSuccess(), equalTo(true));
+        channel.checkException();
+    }
+
+    @Test
+    public void queuedFrameFailsItsPromiseWhenChannelCloses() {
+        setUp(1);
+        channel.writeAndFlush(Unpooled.wrappedBuffer(PAYLOAD));
+        ChannelPromise queuedPromise = channel.newPromise();
+        channel.writeAndFlush(Unpooled.wrappedBuffer(PAYLOAD), queuedPromise);
+        assertThat(queuedPromise.isDone(), equalTo(false));
+
+        channel.close();
+
+        assertThat(queuedPromise.cause(), instanceOf(ClosedChannelException.class));
+        assertThat(SUT.getNumQueuedFrames(), equalTo(0));
+    }
+
+    @Test
+    public void unacknowledgedFrameIsRetransmitted() throws Exception {
+        setUp(1);
+        channel.writeOutbound(Unpooled.wrappedBuffer(PAYLOAD));
+        assertThat(toBytes(channel.readOutbound()), equalTo(frame(0)));
+
+        long timeoutNanos = SUT.getRoundTripTimeEstimator().getRetransmissionTimeoutNanos();
+        TimeUnit.NANOSECONDS.sleep(timeoutNanos + TimeUnit.MILLISECONDS.toNanos(20));
+        channel.runScheduledPendingTasks();
+        assertThat(toBytes(channel.readOutbound()), equalTo(frame(0)));
+
+        // The acknowledge of a retransmitted frame must not be used as round trip sample.
+        channel.writeInbound(Unpooled.wrappedBuffer(acknowledge(0)));
+        assertThat(SUT.getNumPendingFrames(), equalTo(0));
+        assertThat(SUT.getRoundTripTimeEstimator().getSmoothedRoundTripTimeNanos(), equalTo(-1L));
+        channel.checkException();
+    }
+
+    private void setUp(int windowSize) {
+        SUT = new Payload2SerialProtocol(windowSize);
+        channel = new EmbeddedChannel(SUT);
+    }
+
+    private static void assertPayload(ByteBuf actual) {
+        assertThat(toBytes(actual), equalTo(PAYLOAD));
+    }
+
+    private static byte[] frame(int fragmentNumber) {
+        return AmsSerialFrame.of(FragmentNumber.of((byte) fragmentNumber), UserData.of(PAYLOAD)).getBytes();
+    }
+
+    private static byte[] acknowledge(int fragmentNumber) {
+        return AmsSerialAcknowledgeFrame.of(TransmitterAddress.RS232_COMM_ADDRESS, ReceiverAddress.RS232_COMM_ADDRESS, FragmentNumber.of((byte) fragmentNumber)).getBytes();
+    }
+
+    private static byte[] toBytes(ByteBuf byteBuf) {
+        byte[] bytes = new byte[byteBuf.readableBytes()];
+        byteBuf.readBytes(bytes);
+        byteBuf.release();
+        return bytes;
+    }
+}
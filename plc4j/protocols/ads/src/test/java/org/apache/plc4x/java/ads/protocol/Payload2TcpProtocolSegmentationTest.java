@@ -0,0 +1,96 @@
+/*
+ Licensed to the Apache Software Foundation (ASF) under one
+ or more contributor license agreements.  See the NOTICE file
+ distributed with this work for additional information
+ regarding copyright ownership.  The ASF licenses this file
+ to you under the Apache License, Version 2.0 (the
+ "License"); you may not use this file except in compliance
+ with the License.  You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing,
+ software distributed under the License is distributed on an
+ "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ KIND, either express or implied.  See the License for the
+ specific language governing permissions and limitations
+ under the License.
+ */
+package org.apache.plc4x.java.ads.protocol;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.apache.plc4x.java.ads.api.generic.AmsPacket;
+import org.apache.plc4x.java.ads.api.tcp.AmsTCPPacket;
+import org.apache.plc4x.java.ads.api.tcp.types.UserData;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Feeds a capture of AMS/TCP packets to the {@link Payload2TcpProtocol} after randomly re-segmenting it,
+ * just like it could happen on a real TCP connection: Packets get split up at arbitrary positions
+ * and multiple packets arrive in one single read.
+ */
+public class Payload2TcpProtocolSegmentationTest extends AbstractProtocolTest {
+
+    private static final int NUM_ITERATIONS = 200;
+
+    @Test
+    public void decodeRandomlySegmentedCapture() {
+        List<byte[]> amsPackets = amsPacketStream().map(AmsPacket::getBytes).collect(Collectors.toList());
+        byte[] capture = createCapture(amsPackets);
+
+        for (int seed = 0; seed < NUM_ITERATIONS; seed++) {
+            Random random = new Random(seed);
+            EmbeddedChannel channel = new EmbeddedChannel(new Payload2TcpProtocol());
+            List<ByteBuf> segments = new ArrayList<>();
+            int position = 0;
+            while (position < capture.length) {
+                // Mix tiny segments (even splitting up the header) with big ones spanning multiple packets.
+                int maxSegmentLength = random.nextBoolean() ? 8 : capture.length;
+                int segmentLength = Math.min(capture.length - position, 1 + random.nextInt(maxSegmentLength));
+                ByteBuf segment = Unpooled.buffer(segmentLength);
+                segment.writeBytes(capture, position, segmentLength);
+                segments.add(segment);
+                channel.writeInbound(segment);
+                position += segmentLength;
+            }
+            channel.checkException();
+
+            for (byte[] expected : amsPackets) {
+                ByteBuf decoded = channel.readInbound();
+                byte[] actual = new byte[decoded.readableBytes()];
+                decoded.readBytes(actual);
+                decoded.release();
+                assertThat("Seed " + seed, actual, equalTo(expected));
+            }
+            assertThat("Seed " + seed, channel.readInbound(), nullValue());
+
+            // As soon as all decoded packets are released, no received data may be retained any more.
+            channel.finish();
+            for (ByteBuf segment : segments) {
+                assertThat("Seed " + seed, segment.refCnt(), equalTo(0));
+            }
+        }
+    }
+
+    private byte[] createCapture(List<byte[]> amsPackets) {
+        ByteBuf capture = Unpooled.buffer();
+        for (byte[] amsPacket : amsPackets) {
+            capture.writeBytes(AmsTCPPacket.of(UserData.of(amsPacket)).getBytes());
+        }
+        byte[] bytes = new byte[capture.readableBytes()];
+        capture.readBytes(bytes);
+        return bytes;
+    }
+
+}
@@ -21,6 +21,7 @@ package org.apache.plc4x.java.ads.protocol;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.TooLongFrameException;
 import org.apache.plc4x.java.ads.api.tcp.AmsTCPPacket;
 import org.apache.plc4x.java.ads.api.tcp.types.UserData;
 import org.junit.Before;
@@ -38,6 +39,7 @@ import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.instanceOf;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
 import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
 import static org.mockito.Mockito.mock;
 
@@ -80,10 +82,9 @@ public class Payload2TcpProtocolTest extends AbstractProtocolTest {
 
     @Test
     public void encode() throws Exception {
-        ArrayList<Object> out = new ArrayList<>();
+        ByteBuf out = Unpooled.buffer();
         SUT.encode(channelHandlerContextMock, Unpooled.wrappedBuffer(amsPacketBytes), out);
-        assertEquals(1, out.size());
-        assertThat(out, hasSize(1));
+        assertEquals(Payload2TcpProtocol.AMS_TCP_HEADER_LENGTH + amsPacketBytes.length, out.readableBytes());
     }
 
     @Test
@@ -93,14 +94,45 @@ public class Payload2TcpProtocolTest extends AbstractProtocolTest {
         assertThat(out, hasSize(1));
     }
 
+    @Test
+    public void decodeIncomplete() throws Exception {
+        ByteBuf byteBuf = amsTCPPacket.getByteBuf();
+        ByteBuf incomplete = byteBuf.slice(0, byteBuf.readableBytes() - 1);
+        ArrayList<Object> out = new ArrayList<>();
+        SUT.decode(channelHandlerContextMock, incomplete, out);
+        assertThat(out, hasSize(0));
+        assertEquals(0, incomplete.readerIndex());
+    }
+
+    @Test
+    public void decodeTooLong() throws Exception {
+        SUT = new Payload2TcpProtocol(amsPacketBytes.length);
+        int tooLongPacketLength = amsPacketBytes.length + 1;
+        ByteBuf byteBuf = Unpooled.buffer();
+        byteBuf.writeZero(2);
+        byteBuf.writeIntLE(tooLongPacketLength);
+        ArrayList<Object> out = new ArrayList<>();
+
+        // The packet is rejected as soon as its header is complete ...
+        try {
+            SUT.decode(channelHandlerContextMock, byteBuf, out);
+            fail("Packet should have been rejected");
+        } catch (TooLongFrameException e) {
+            assertThat(out, hasSize(0));
+        }
+
+        // ... and its data is skipped, so the following packet is decoded again.
+        byteBuf.writeZero(tooLongPacketLength);
+        SUT.encode(channelHandlerContextMock, Unpooled.wrappedBuffer(amsPacketBytes), byteBuf);
+        SUT.decode(channelHandlerContextMock, byteBuf, out);
+        assertThat(out, hasSize(1));
+        assertByteBufferEquals(Unpooled.wrappedBuffer(this.amsPacketBytes), (ByteBuf) out.get(0));
+    }
+
     @Test
     public void roundTrip() throws Exception {
-        ArrayList<Object> outbound = new ArrayList<>();
-        SUT.encode(channelHandlerContextMock, Unpooled.wrappedBuffer(amsPacketBytes), outbound);
-        assertEquals(1, outbound.size());
-        assertThat(outbound, hasSize(1));
-        assertThat(outbound.get(0), instanceOf(ByteBuf.class));
-        ByteBuf byteBuf = (ByteBuf) outbound.get(0);
+        ByteBuf byteBuf = Unpooled.buffer();
+        SUT.encode(channelHandlerContextMock, Unpooled.wrappedBuffer(amsPacketBytes), byteBuf);
         ArrayList<Object> inbound = new ArrayList<>();
         SUT.decode(channelHandlerContextMock, byteBuf, inbound);
         assertEquals(1, inbound.size());
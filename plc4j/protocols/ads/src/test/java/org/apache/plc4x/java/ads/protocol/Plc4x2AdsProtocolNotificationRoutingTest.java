@@ -0,0 +1,143 @@
+/*
+ Licensed to the Apache Software Foundation (ASF) under one
+ or more contributor license agreements.  See the NOTICE file
+ distributed with this work for additional information
+ regarding copyright ownership.  The ASF licenses this file
+ to you under the Apache License, Version 2.0 (the
+ "License"); you may not use this file except in compliance
+ with the License.  You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing,
+ software distributed under the License is distributed on an
+ "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ KIND, either express or implied.  See the License for the
+ specific language governing permissions and limitations
+ under the License.
+ */
+package org.apache.plc4x.java.ads.protocol;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.apache.plc4x.java.ads.api.commands.AdsDeviceNotificationRequest;
+import org.apache.plc4x.java.ads.api.commands.types.*;
+import org.apache.plc4x.java.ads.api.generic.types.AmsNetId;
+import org.apache.plc4x.java.ads.api.generic.types.AmsPort;
+import org.apache.plc4x.java.ads.api.generic.types.Invoke;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+public class Plc4x2AdsProtocolNotificationRoutingTest {
+
+    private static final AmsNetId TARGET_AMS_NET_ID = AmsNetId.of("1.2.3.4.5.6");
+    private static final AmsPort TARGET_AMS_PORT = AmsPort.of(7);
+    private static final AmsNetId SOURCE_AMS_NET_ID = AmsNetId.of("8.9.10.11.12.13");
+    private static final AmsPort SOURCE_AMS_PORT = AmsPort.of(14);
+
+    private Plc4x2AdsProtocol SUT;
+
+    @Before
+    public void setUp() {
+        SUT = new Plc4x2AdsProtocol(TARGET_AMS_NET_ID, TARGET_AMS_PORT, SOURCE_AMS_NET_ID, SOURCE_AMS_PORT, new ConcurrentHashMap<>());
+    }
+
+    @Test
+    public void samplesAreRoutedByNotificationHandle() throws Exception {
+        List<Byte> firstSamples = new ArrayList<>();
+        List<Byte> secondSamples = new ArrayList<>();
+        SUT.addNotificationRoute(NotificationHandle.of(1), (handle, timeStampNanos, data) -> firstSamples.add(data.readByte()));
+        SUT.addNotificationRoute(NotificationHandle.of(2), (handle, timeStampNanos, data) -> secondSamples.add(data.readByte()));
+        assertThat(SUT.getNumNotificationRoutes(), equalTo(2));
+
+        AdsNotificationSample first = AdsNotificationSample.of(NotificationHandle.of(1), Data.of(new byte[]{1}));
+        AdsNotificationSample second = AdsNotificationSample.of(NotificationHandle.of(2), Data.of(new byte[]{2}));
+        AdsNotificationSample unrouted = AdsNotificationSample.of(NotificationHandle.of(3), Data.of(new byte[]{3}));
+        SUT.decode(null, notification(0, first, second, unrouted, first), new ArrayList<>());
+
+        assertThat(firstSamples, contains((byte) 1, (byte) 1));
+        assertThat(secondSamples, contains((byte) 2));
+    }
+
+    @Test
+    public void timeStampIsPassedAsEpochNanos() throws Exception {
+        List<Long> timeStamps = new ArrayList<>();
+        SUT.addNotificationRoute(NotificationHandle.of(1), (handle, timeStampNanos, data) -> timeStamps.add(timeStampNanos));
+        AdsNotificationSample sample = AdsNotificationSample.of(NotificationHandle.of(1), Data.of(new byte[]{1}));
+        SUT.decode(null, notification(1234, sample), new ArrayList<>());
+
+        assertThat(timeStamps, contains(1234_000_000L));
+    }
+
+    @Test
+    public void removedRouteReceivesNoMoreSamples() throws Exception {
+        List<Long> handles = new ArrayList<>();
+        SUT.addNotificationRoute(NotificationHandle.of(1), (handle, timeStampNanos, data) -> handles.add(handle));
+        AdsNotificationSample sample = AdsNotificationSample.of(NotificationHandle.of(1), Data.of(new byte[]{1}));
+        SUT.decode(null, notification(0, sample), new ArrayList<>());
+
+        assertThat(SUT.removeNotificationRoute(NotificationHandle.of(1)), equalTo(true));
+        assertThat(SUT.removeNotificationRoute(NotificationHandle.of(1)), equalTo(false));
+        assertThat(SUT.getNumNotificationRoutes(), equalTo(0));
+        SUT.decode(null, notification(0, sample), new ArrayList<>());
+
+        assertThat(handles, contains(1L));
+    }
+
+    @Test
+    public void failingRouteDoesNotAffectOtherRoutes() throws Exception {
+        List<Long> handles = new ArrayList<>();
+        SUT.addNotificationRoute(NotificationHandle.of(1), (handle, timeStampNanos, data) -> {
+            throw new IllegalStateException("Expected");
+        });
+        SUT.addNotificationRoute(NotificationHandle.of(2), (handle, timeStampNanos, data) -> handles.add(handle));
+        AdsNotificationSample failing = AdsNotificationSample.of(NotificationHandle.of(1), Data.of(new byte[]{1}));
+        AdsNotificationSample working = AdsNotificationSample.of(NotificationHandle.of(2), Data.of(new byte[]{2}));
+        SUT.decode(null, notification(0, failing, working), new ArrayList<>());
+
+        assertThat(handles, contains(2L));
+    }
+
+    @Test
+    public void consumerReceivesNotificationsOnTcpPipeline() {
+        EmbeddedChannel channel = new EmbeddedChannel(new Payload2TcpProtocol(), new Ads2PayloadProtocol(SUT), SUT);
+        List<Long> handles = new ArrayList<>();
+        List<AdsDeviceNotificationRequest> notifications = new ArrayList<>();
+        SUT.addNotificationRoute(NotificationHandle.of(1), (handle, timeStampNanos, data) -> handles.add(handle));
+        AdsNotificationSample sample = AdsNotificationSample.of(NotificationHandle.of(1), Data.of(new byte[]{1}));
+
+        // Without consumers only the samples are decoded ...
+        channel.writeInbound(encodeTcp(notification(0, sample)));
+        assertThat(handles, contains(1L));
+
+        // ... a consumer needs the complete notifications, the routes still receive their samples.
+        assertThat(SUT.addConsumer(notifications::add), equalTo(true));
+        channel.writeInbound(encodeTcp(notification(0, sample)));
+        assertThat(notifications, hasSize(1));
+        assertThat(notifications.get(0).getAdsStampHeaders().get(0).getAdsNotificationSamples(), contains(sample));
+        assertThat(handles, contains(1L, 1L));
+
+        assertThat(channel.finish(), equalTo(false));
+    }
+
+    private static ByteBuf encodeTcp(AdsDeviceNotificationRequest notification) {
+        EmbeddedChannel channel = new EmbeddedChannel(new Payload2TcpProtocol(), new Ads2PayloadProtocol());
+        channel.writeOutbound(notification);
+        return channel.readOutbound();
+    }
+
+    private static AdsDeviceNotificationRequest notification(long timeStampMillis, AdsNotificationSample... samples) {
+        AdsStampHeader adsStampHeader = AdsStampHeader.of(TimeStamp.of(timeStampMillis), Arrays.asList(samples));
+        return AdsDeviceNotificationRequest.of(SOURCE_AMS_NET_ID, SOURCE_AMS_PORT, TARGET_AMS_NET_ID, TARGET_AMS_PORT,
+            Invoke.NONE, Stamps.of(1), Collections.singletonList(adsStampHeader));
+    }
+}
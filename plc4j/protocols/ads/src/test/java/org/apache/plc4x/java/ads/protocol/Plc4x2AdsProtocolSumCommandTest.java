@@ -0,0 +1,235 @@
+/*
+ Licensed to the Apache Software Foundation (ASF) under one
+ or more contributor license agreements.  See the NOTICE file
+ distributed with this work for additional information
+ regarding copyright ownership.  The ASF licenses this file
+ to you under the Apache License, Version 2.0 (the
+ "License"); you may not use this file except in compliance
+ with the License.  You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing,
+ software distributed under the License is distributed on an
+ "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ KIND, either express or implied.  See the License for the
+ specific language governing permissions and limitations
+ under the License.
+ */
+package org.apache.plc4x.java.ads.protocol;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.apache.plc4x.java.ads.api.commands.AdsReadRequest;
+import org.apache.plc4x.java.ads.api.commands.AdsReadWriteRequest;
+import org.apache.plc4x.java.ads.api.commands.AdsReadWriteResponse;
+import org.apache.plc4x.java.ads.api.commands.types.Data;
+import org.apache.plc4x.java.ads.api.commands.types.IndexGroup;
+import org.apache.plc4x.java.ads.api.commands.types.Result;
+import org.apache.plc4x.java.ads.api.generic.types.AmsNetId;
+import org.apache.plc4x.java.ads.api.generic.types.AmsPort;
+import org.apache.plc4x.java.ads.model.AdsAddress;
+import org.apache.plc4x.java.api.messages.*;
+import org.apache.plc4x.java.api.messages.items.ReadResponseItem;
+import org.apache.plc4x.java.api.messages.items.WriteResponseItem;
+import org.apache.plc4x.java.api.types.ResponseCode;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+public class Plc4x2AdsProtocolSumCommandTest {
+
+    private static final AmsNetId TARGET_AMS_NET_ID = AmsNetId.of("1.2.3.4.5.6");
+    private static final AmsPort TARGET_AMS_PORT = AmsPort.of(7);
+    private static final AmsNetId SOURCE_AMS_NET_ID = AmsNetId.of("8.9.10.11.12.13");
+    private static final AmsPort SOURCE_AMS_PORT = AmsPort.of(14);
+
+    private Plc4x2AdsProtocol SUT;
+
+    @Before
+    public void setUp() {
+        SUT = new Plc4x2AdsProtocol(TARGET_AMS_NET_ID, TARGET_AMS_PORT, SOURCE_AMS_NET_ID, SOURCE_AMS_PORT, new ConcurrentHashMap<>());
+    }
+
+    @Test
+    public void multiItemReadIsEncodedAsSumRead() throws Exception {
+        PlcRequestContainer<PlcRequest, PlcResponse> container = new PlcRequestContainer<>(
+            PlcReadRequest.builder()
+                .addItem(Integer.class, AdsAddress.of(1, 2))
+                .addItem(Short.class, AdsAddress.of(3, 4), 2)
+                .build(), new CompletableFuture<>());
+
+        List<Object> out = new ArrayList<>();
+        SUT.encode(null, container, out);
+
+        assertThat(out, hasSize(1));
+        assertThat(out.get(0), instanceOf(AdsReadWriteRequest.class));
+        AdsReadWriteRequest request = (AdsReadWriteRequest) out.get(0);
+        assertThat(request.getIndexGroup(), equalTo(IndexGroup.ReservedGroups.ADSIGRP_SUMUP_READ));
+        assertThat(request.getIndexOffset().getAsLong(), equalTo(2L));
+        // Two results, one integer and two shorts.
+        assertThat(request.getReadLength().getAsLong(), equalTo(2L * 4 + 4 + 2 * 2));
+        assertThat(request.getData().getBytes(), equalTo(new byte[]{
+            0x01, 0x00, 0x00, 0x00, 0x02, 0x00, 0x00, 0x00, 0x04, 0x00, 0x00, 0x00,
+            0x03, 0x00, 0x00, 0x00, 0x04, 0x00, 0x00, 0x00, 0x04, 0x00, 0x00, 0x00}));
+    }
+
+    @Test
+    public void singleAndSumReadRequestTheSameLength() throws Exception {
+        List<Object> out = new ArrayList<>();
+        SUT.encode(null, new PlcRequestContainer<>(
+            PlcReadRequest.builder()
+                .addItem(Short.class, AdsAddress.of(3, 4), 3)
+                .build(), new CompletableFuture<>()), out);
+        SUT.encode(null, new PlcRequestContainer<>(
+            PlcReadRequest.builder()
+                .addItem(Short.class, AdsAddress.of(3, 4), 3)
+                .addItem(Short.class, AdsAddress.of(3, 4), 3)
+                .build(), new CompletableFuture<>()), out);
+
+        assertThat(out, hasSize(2));
+        AdsReadRequest singleRequest = (AdsReadRequest) out.get(0);
+        AdsReadWriteRequest sumRequest = (AdsReadWriteRequest) out.get(1);
+        // Three shorts in both cases, the length of a sum read item follows its index group and offset.
+        assertThat(singleRequest.getLength().getAsLong(), equalTo(3L * 2));
+        assertThat((long) Unpooled.wrappedBuffer(sumRequest.getData().getBytes()).getIntLE(8),
+            equalTo(singleRequest.getLength().getAsLong()));
+    }
+
+    @Test
+    public void sumReadResponseIsDemultiplexed() throws Exception {
+        PlcRequestContainer<PlcRequest, PlcResponse> container = new PlcRequestContainer<>(
+            PlcReadRequest.builder()
+                .addItem(Integer.class, AdsAddress.of(1, 2))
+                .addItem(Short.class, AdsAddress.of(3, 4), 2)
+                .addItem(Integer.class, AdsAddress.of(5, 6))
+                .build(), new CompletableFuture<>());
+        List<Object> out = new ArrayList<>();
+        SUT.encode(null, container, out);
+        AdsReadWriteRequest request = (AdsReadWriteRequest) out.get(0);
+
+        ByteBuf data = Unpooled.buffer();
+        data.writeIntLE(0).writeIntLE(0).writeIntLE(6);
+        data.writeIntLE(42);
+        data.writeShortLE(1).writeShortLE(2);
+        data.writeZero(4);
+        SUT.decode(null, createResponse(request, Result.of(0), data), new ArrayList<>());
+
+        PlcReadResponse response = (PlcReadResponse) container.getResponseFuture().get(1, TimeUnit.SECONDS);
+        List<? extends ReadResponseItem<?>> responseItems = response.getResponseItems();
+        assertThat(responseItems, hasSize(3));
+        assertThat(responseItems.get(0).getResponseCode(), equalTo(ResponseCode.OK));
+        assertThat(responseItems.get(0).getValues(), contains(42));
+        assertThat(responseItems.get(1).getResponseCode(), equalTo(ResponseCode.OK));
+        assertThat(responseItems.get(1).getValues(), contains((short) 1, (short) 2));
+        assertThat(responseItems.get(2).getResponseCode(), equalTo(ResponseCode.INVALID_ADDRESS));
+        assertThat(responseItems.get(2).getValues(), empty());
+    }
+
+    @Test
+    public void failedSumCommandFailsAllItems() throws Exception {
+        PlcRequestContainer<PlcRequest, PlcResponse> container = new PlcRequestContainer<>(
+            PlcReadRequest.builder()
+                .addItem(Integer.class, AdsAddress.of(1, 2))
+                .addItem(Integer.class, AdsAddress.of(3, 4))
+                .build(), new CompletableFuture<>());
+        List<Object> out = new ArrayList<>();
+        SUT.encode(null, container, out);
+        AdsReadWriteRequest request = (AdsReadWriteRequest) out.get(0);
+
+        SUT.decode(null, createResponse(request, Result.of(6), Unpooled.EMPTY_BUFFER), new ArrayList<>());
+
+        PlcReadResponse response = (PlcReadResponse) container.getResponseFuture().get(1, TimeUnit.SECONDS);
+        assertThat(response.getResponseItems(), hasSize(2));
+        for (ReadResponseItem<?> responseItem : response.getResponseItems()) {
+            assertThat(responseItem.getResponseCode(), equalTo(ResponseCode.INVALID_ADDRESS));
+        }
+    }
+
+    @Test
+    public void multiItemWriteIsEncodedAsSumWrite() throws Exception {
+        PlcRequestContainer<PlcRequest, PlcResponse> container = new PlcRequestContainer<>(
+            PlcWriteRequest.builder()
+                .addItem(AdsAddress.of(1, 2), 0x11223344)
+                .addItem(AdsAddress.of(3, 4), (short) 0x5566)
+                .build(), new CompletableFuture<>());
+        List<Object> out = new ArrayList<>();
+        SUT.encode(null, container, out);
+
+        assertThat(out, hasSize(1));
+        assertThat(out.get(0), instanceOf(AdsReadWriteRequest.class));
+        AdsReadWriteRequest request = (AdsReadWriteRequest) out.get(0);
+        assertThat(request.getIndexGroup(), equalTo(IndexGroup.ReservedGroups.ADSIGRP_SUMUP_WRITE));
+        assertThat(request.getIndexOffset().getAsLong(), equalTo(2L));
+        assertThat(request.getReadLength().getAsLong(), equalTo(2L * 4));
+        assertThat(request.getData().getBytes(), equalTo(new byte[]{
+            0x01, 0x00, 0x00, 0x00, 0x02, 0x00, 0x00, 0x00, 0x04, 0x00, 0x00, 0x00,
+            0x03, 0x00, 0x00, 0x00, 0x04, 0x00, 0x00, 0x00, 0x02, 0x00, 0x00, 0x00,
+            0x44, 0x33, 0x22, 0x11, 0x66, 0x55}));
+
+        ByteBuf data = Unpooled.buffer();
+        data.writeIntLE(0).writeIntLE(6);
+        SUT.decode(null, createResponse(request, Result.of(0), data), new ArrayList<>());
+
+        PlcWriteResponse response = (PlcWriteResponse) container.getResponseFuture().get(1, TimeUnit.SECONDS);
+        List<? extends WriteResponseItem<?>> responseItems = response.getResponseItems();
+        assertThat(responseItems, hasSize(2));
+        assertThat(responseItems.get(0).getResponseCode(), equalTo(ResponseCode.OK));
+        assertThat(responseItems.get(1).getResponseCode(), equalTo(ResponseCode.INVALID_ADDRESS));
+    }
+
+    @Test
+    public void bigReadIsSplitIntoMultipleSumCommands() throws Exception {
+        int numItems = 501;
+        PlcReadRequest.Builder builder = PlcReadRequest.builder();
+        for (int i = 0; i < numItems; i++) {
+            builder.addItem(Integer.class, AdsAddress.of(1, i * 4));
+        }
+        PlcRequestContainer<PlcRequest, PlcResponse> container = new PlcRequestContainer<>(builder.build(), new CompletableFuture<>());
+        List<Object> out = new ArrayList<>();
+        SUT.encode(null, container, out);
+
+        assertThat(out, hasSize(2));
+        AdsReadWriteRequest first = (AdsReadWriteRequest) out.get(0);
+        AdsReadWriteRequest second = (AdsReadWriteRequest) out.get(1);
+        assertThat(first.getIndexOffset().getAsLong(), equalTo(500L));
+        assertThat(second.getIndexOffset().getAsLong(), equalTo(1L));
+
+        // Answer out of order, the merged response has to keep the original order.
+        ByteBuf secondData = Unpooled.buffer();
+        secondData.writeIntLE(0).writeIntLE(500);
+        SUT.decode(null, createResponse(second, Result.of(0), secondData), new ArrayList<>());
+        assertThat(container.getResponseFuture().isDone(), equalTo(false));
+
+        ByteBuf firstData = Unpooled.buffer();
+        for (int i = 0; i < 500; i++) {
+            firstData.writeIntLE(0);
+        }
+        for (int i = 0; i < 500; i++) {
+            firstData.writeIntLE(i);
+        }
+        SUT.decode(null, createResponse(first, Result.of(0), firstData), new ArrayList<>());
+
+        PlcReadResponse response = (PlcReadResponse) container.getResponseFuture().get(1, TimeUnit.SECONDS);
+        assertThat(response.getResponseItems(), hasSize(numItems));
+        for (int i = 0; i < numItems; i++) {
+            ReadResponseItem<?> responseItem = response.getResponseItems().get(i);
+            assertThat(responseItem.getRequestItem(), sameInstance(container.getRequest().getRequestItems().get(i)));
+            assertThat(responseItem.getValues(), contains(i));
+        }
+    }
+
+    private AdsReadWriteResponse createResponse(AdsReadWriteRequest request, Result result, ByteBuf data) {
+        return AdsReadWriteResponse.of(SOURCE_AMS_NET_ID, SOURCE_AMS_PORT, TARGET_AMS_NET_ID, TARGET_AMS_PORT,
+            request.getAmsHeader().getInvokeId(), result, Data.of(data));
+    }
+
+}
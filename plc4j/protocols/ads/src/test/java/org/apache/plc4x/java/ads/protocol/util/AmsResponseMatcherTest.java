@@ -0,0 +1,96 @@
+/*
+ Licensed to the Apache Software Foundation (ASF) under one
+ or more contributor license agreements.  See the NOTICE file
+ distributed with this work for additional information
+ regarding copyright ownership.  The ASF licenses this file
+ to you under the Apache License, Version 2.0 (the
+ "License"); you may not use this file except in compliance
+ with the License.  You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing,
+ software distributed under the License is distributed on an
+ "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ KIND, either express or implied.  See the License for the
+ specific language governing permissions and limitations
+ under the License.
+ */
+package org.apache.plc4x.java.ads.protocol.util;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.apache.plc4x.java.ads.api.commands.AdsDeviceNotificationRequest;
+import org.apache.plc4x.java.ads.api.commands.AdsReadRequest;
+import org.apache.plc4x.java.ads.api.commands.AdsReadResponse;
+import org.apache.plc4x.java.ads.api.commands.types.*;
+import org.apache.plc4x.java.ads.api.generic.types.AmsNetId;
+import org.apache.plc4x.java.ads.api.generic.types.AmsPort;
+import org.apache.plc4x.java.ads.api.generic.types.Invoke;
+import org.apache.plc4x.java.base.protocol.InFlightWindowHandler;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+public class AmsResponseMatcherTest {
+
+    private static final AmsNetId TARGET_AMS_NET_ID = AmsNetId.of("1.2.3.4.5.6");
+    private static final AmsPort TARGET_AMS_PORT = AmsPort.of(7);
+    private static final AmsNetId SOURCE_AMS_NET_ID = AmsNetId.of("8.9.10.11.12.13");
+    private static final AmsPort SOURCE_AMS_PORT = AmsPort.of(14);
+
+    // Net ids, ports, command, state, length and error code precede the invoke id.
+    private static final int INVOKE_ID_OFFSET = 28;
+
+    private final AmsResponseMatcher SUT = new AmsResponseMatcher();
+
+    @Test
+    public void matchesOnlyResponses() {
+        assertThat(SUT.test(request(1)), is(false));
+        assertThat(SUT.test(response(1)), is(true));
+        assertThat(SUT.test(notification()), is(false));
+        assertThat(SUT.test("no packet"), is(false));
+    }
+
+    @Test
+    public void responseReleasesNextQueuedRequest() {
+        InFlightWindowHandler windowHandler = new InFlightWindowHandler(1, SUT, 0);
+        EmbeddedChannel channel = new EmbeddedChannel(windowHandler);
+
+        channel.writeOutbound(request(1), request(2));
+        assertThat(((ByteBuf) channel.readOutbound()).getUnsignedIntLE(INVOKE_ID_OFFSET), is(1L));
+        assertThat(channel.readOutbound(), nullValue());
+        assertThat(windowHandler.getQueueDepth(), is(1));
+
+        // Notifications don't answer a request.
+        channel.writeInbound(notification());
+        assertThat(channel.readOutbound(), nullValue());
+
+        channel.writeInbound(response(1));
+        assertThat(((ByteBuf) channel.readOutbound()).getUnsignedIntLE(INVOKE_ID_OFFSET), is(2L));
+        assertThat(windowHandler.getQueueDepth(), is(0));
+        assertThat(windowHandler.getMaxQueueDepth(), is(1));
+        assertThat(windowHandler.getNumDelayedWrites(), is(1L));
+        assertThat(windowHandler.getMaxWaitTime(TimeUnit.NANOSECONDS), greaterThan(0L));
+        channel.finishAndReleaseAll();
+    }
+
+    private static ByteBuf request(int invokeId) {
+        return AdsReadRequest.of(TARGET_AMS_NET_ID, TARGET_AMS_PORT, SOURCE_AMS_NET_ID, SOURCE_AMS_PORT, Invoke.of(invokeId),
+            IndexGroup.of(1), IndexOffset.of(2), Length.of(4)).getByteBuf();
+    }
+
+    private static ByteBuf response(int invokeId) {
+        return AdsReadResponse.of(SOURCE_AMS_NET_ID, SOURCE_AMS_PORT, TARGET_AMS_NET_ID, TARGET_AMS_PORT, Invoke.of(invokeId),
+            Result.of(0), Data.of(new byte[]{1, 2, 3, 4})).getByteBuf();
+    }
+
+    private static ByteBuf notification() {
+        return AdsDeviceNotificationRequest.of(SOURCE_AMS_NET_ID, SOURCE_AMS_PORT, TARGET_AMS_NET_ID, TARGET_AMS_PORT, Invoke.NONE,
+            Stamps.of(0), Collections.emptyList()).getByteBuf();
+    }
+}
@@ -19,6 +19,7 @@
 package org.apache.plc4x.java.ads.protocol.util;
 
 import com.github.snksoft.crc.CRC;
+import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
 import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -27,6 +28,7 @@ import org.junit.Test;
 
 import java.nio.ByteBuffer;
 import java.util.Arrays;
+import java.util.Random;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
@@ -49,6 +51,26 @@ public class DigestUtilTest {
             DigestUtil.calculateCrc16(() -> Unpooled.wrappedBuffer(new byte[]{47})));
     }
 
+    @Test
+    public void sameAsReferenceImplementation() {
+        CRC reference = new CRC(DigestUtil.CRC16_ADS);
+        Random random = new Random(42);
+        for (int length = 0; length < 300; length++) {
+            byte[] bytes = new byte[length];
+            random.nextBytes(bytes);
+            int expected = Short.toUnsignedInt(Short.reverseBytes((short) reference.calculateCRC(bytes)));
+            assertEquals(expected, DigestUtil.calculateCrc16(bytes));
+
+            // Heap and direct buffer with some bytes around the range.
+            ByteBuf heapBuffer = Unpooled.buffer().writeZero(3).writeBytes(bytes).writeZero(2);
+            assertEquals(expected, DigestUtil.calculateCrc16(heapBuffer.slice(1, length + 3), 2, length));
+            ByteBuf directBuffer = Unpooled.directBuffer().writeZero(3).writeBytes(bytes).writeZero(2);
+            assertEquals(expected, DigestUtil.calculateCrc16(directBuffer, 3, length));
+            assertEquals(length + 5, directBuffer.readableBytes());
+            directBuffer.release();
+        }
+    }
+
     @Test
     public void displayValue() {
         Object[] crcs = IntStream.range(0, 256)
@@ -0,0 +1,74 @@
+/*
+ Licensed to the Apache Software Foundation (ASF) under one
+ or more contributor license agreements.  See the NOTICE file
+ distributed with this work for additional information
+ regarding copyright ownership.  The ASF licenses this file
+ to you under the Apache License, Version 2.0 (the
+ "License"); you may not use this file except in compliance
+ with the License.  You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing,
+ software distributed under the License is distributed on an
+ "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ KIND, either express or implied.  See the License for the
+ specific language governing permissions and limitations
+ under the License.
+ */
+package org.apache.plc4x.java.ads.protocol.util;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.apache.plc4x.java.base.util.Junit5Backport.assertThrows;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+
+public class RoundTripTimeEstimatorTest {
+
+    private final RoundTripTimeEstimator SUT = new RoundTripTimeEstimator(100, 10, 1000, TimeUnit.NANOSECONDS);
+
+    @Test
+    public void initialTimeout() {
+        assertThat(SUT.getRetransmissionTimeoutNanos(), equalTo(100L));
+        assertThat(SUT.getSmoothedRoundTripTimeNanos(), equalTo(-1L));
+    }
+
+    @Test
+    public void firstSample() {
+        SUT.addSample(40);
+        // SRTT = R, RTTVAR = R/2, RTO = SRTT + 4 * RTTVAR
+        assertThat(SUT.getSmoothedRoundTripTimeNanos(), equalTo(40L));
+        assertThat(SUT.getRetransmissionTimeoutNanos(), equalTo(120L));
+    }
+
+    @Test
+    public void adaptsToStableRoundTrips() {
+        for (int i = 0; i < 100; i++) {
+            SUT.addSample(40);
+        }
+        assertThat(SUT.getSmoothedRoundTripTimeNanos(), equalTo(40L));
+        // The variation converges to (almost) 0, so the timeout approaches the round trip time.
+        assertThat(SUT.getRetransmissionTimeoutNanos(), lessThan(60L));
+        SUT.reset();
+        assertThat(SUT.getRetransmissionTimeoutNanos(), equalTo(100L));
+    }
+
+    @Test
+    public void backoff() {
+        assertThat(SUT.getRetransmissionTimeoutNanos(0), equalTo(100L));
+        assertThat(SUT.getRetransmissionTimeoutNanos(1), equalTo(200L));
+        assertThat(SUT.getRetransmissionTimeoutNanos(3), equalTo(800L));
+        assertThat(SUT.getRetransmissionTimeoutNanos(4), equalTo(1000L));
+        assertThat(SUT.getRetransmissionTimeoutNanos(Integer.MAX_VALUE), equalTo(1000L));
+    }
+
+    @Test
+    public void invalidBounds() {
+        assertThrows(IllegalArgumentException.class, () -> new RoundTripTimeEstimator(100, 0, 1000, TimeUnit.NANOSECONDS));
+        assertThrows(IllegalArgumentException.class, () -> new RoundTripTimeEstimator(100, 1000, 10, TimeUnit.NANOSECONDS));
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ Licensed to the Apache Software Foundation (ASF) under one
+ or more contributor license agreements.  See the NOTICE file
+ distributed with this work for additional information
+ regarding copyright ownership.  The ASF licenses this file
+ to you under the Apache License, Version 2.0 (the
+ "License"); you may not use this file except in compliance
+ with the License.  You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing,
+ software distributed under the License is distributed on an
+ "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ KIND, either express or implied.  See the License for the
+ specific language governing permissions and limitations
+ under the License.
+ */
+package org.apache.plc4x.java.ads.protocol.util;
+
+import com.github.snksoft.crc.CRC;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.apache.plc4x.java.ads.api.serial.types.*;
+import org.apache.plc4x.java.ads.api.util.ByteReadable;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the table driven crc calculation of {@link DigestUtil} with the generic {@link CRC} implementation it
+ * used before, for AMS serial frames of different sizes.
+ */
+public class DigestUtilBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class MyState {
+
+        @Param({"0", "44", "255"})
+        int userDataLength;
+
+        CRC crc = new CRC(DigestUtil.CRC16_ADS);
+        ByteReadable[] frameParts;
+        ByteBuf heapFrame;
+        ByteBuf directFrame;
+        int crcLength;
+
+        @Setup(Level.Trial)
+        public void doSetup() {
+            byte[] userData = new byte[userDataLength];
+            new Random(42).nextBytes(userData);
+            frameParts = new ByteReadable[]{
+                MagicCookie.of(0xA501),
+                TransmitterAddress.RS232_COMM_ADDRESS,
+                ReceiverAddress.RS232_COMM_ADDRESS,
+                FragmentNumber.of((byte) 6),
+                UserDataLength.of((byte) userDataLength),
+                UserData.of(userData)
+            };
+            heapFrame = Unpooled.buffer();
+            for (ByteReadable framePart : frameParts) {
+                framePart.writeTo(heapFrame);
+            }
+            crcLength = heapFrame.readableBytes();
+            directFrame = Unpooled.directBuffer(crcLength).writeBytes(heapFrame, 0, crcLength);
+        }
+
+        @TearDown(Level.Trial)
+        public void doTearDown() {
+            directFrame.release();
+        }
+
+    }
+
+    @Benchmark
+    @Warmup(iterations = 5, time = 1)
+    @Measurement(iterations = 5, time = 1)
+    @Fork(3)
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public int measureGenericCrcOverFrameParts(MyState myState) {
+        // The implementation used before: every part is copied into an array to feed the generic crc.
+        long currentCrcValue = myState.crc.init();
+        for (ByteReadable framePart : myState.frameParts) {
+            currentCrcValue = myState.crc.update(currentCrcValue, framePart.getBytes());
+        }
+        short finalCrc = myState.crc.finalCRC16(currentCrcValue);
+        return Short.toUnsignedInt(Short.reverseBytes(finalCrc));
+    }
+
+    @Benchmark
+    @Warmup(iterations = 5, time = 1)
+    @Measurement(iterations = 5, time = 1)
+    @Fork(3)
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public int measureTableCrcOverFrameParts(MyState myState) {
+        return DigestUtil.calculateCrc16(myState.frameParts);
+    }
+
+    @Benchmark
+    @Warmup(iterations = 5, time = 1)
+    @Measurement(iterations = 5, time = 1)
+    @Fork(3)
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public int measureTableCrcOverHeapBuffer(MyState myState) {
+        return DigestUtil.calculateCrc16(myState.heapFrame, 0, myState.crcLength);
+    }
+
+    @Benchmark
+    @Warmup(iterations = 5, time = 1)
+    @Measurement(iterations = 5, time = 1)
+    @Fork(3)
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public int measureTableCrcOverDirectBuffer(MyState myState) {
+        return DigestUtil.calculateCrc16(myState.directFrame, 0, myState.crcLength);
+    }
+
+}
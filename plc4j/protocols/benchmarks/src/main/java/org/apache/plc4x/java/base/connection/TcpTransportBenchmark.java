@@ -0,0 +1,166 @@
+/*
+ Licensed to the Apache Software Foundation (ASF) under one
+ or more contributor license agreements.  See the NOTICE file
+ distributed with this work for additional information
+ regarding copyright ownership.  The ASF licenses this file
+ to you under the Apache License, Version 2.0 (the
+ "License"); you may not use this file except in compliance
+ with the License.  You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing,
+ software distributed under the License is distributed on an
+ "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ KIND, either express or implied.  See the License for the
+ specific language governing permissions and limitations
+ under the License.
+ */
+
+package org.apache.plc4x.java.base.connection;
+
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.*;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.util.ReferenceCountUtil;
+import org.openjdk.jmh.annotations.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the round-trip latency of a small request/response exchange with a PLC simulator
+ * listening on the loopback interface for the different {@link TcpTransport}s.
+ *
+ * The simulator answers every Modbus/TCP "read holding registers" request with a response containing
+ * 10 registers, so the exchanged frames have the size of a typical polling cycle.
+ */
+public class TcpTransportBenchmark {
+
+    private static final Logger logger = LoggerFactory.getLogger(TcpTransportBenchmark.class);
+
+    // Read 10 holding registers starting at address 0 of unit 1.
+    private static final byte[] REQUEST = {
+        0x00, 0x01, 0x00, 0x00, 0x00, 0x06, 0x01, 0x03, 0x00, 0x00, 0x00, 0x0A
+    };
+
+    // Response containing 10 registers (20 bytes).
+    private static final int RESPONSE_SIZE = 9 + 20;
+
+    @State(Scope.Benchmark)
+    public static class MyState {
+
+        @Param({"NIO", "EPOLL"})
+        TcpTransport transport;
+
+        EventLoopGroup simulatorGroup;
+        Channel simulatorChannel;
+        Channel channel;
+        ResponseHandler responseHandler;
+
+        @Setup(Level.Trial)
+        public void doSetup() throws Exception {
+            // Start a simple simulator on a random port of the loopback interface.
+            simulatorGroup = new NioEventLoopGroup(1);
+            simulatorChannel = new ServerBootstrap()
+                .group(simulatorGroup)
+                .channel(NioServerSocketChannel.class)
+                .childOption(ChannelOption.TCP_NODELAY, true)
+                .childHandler(new SimulatorHandler())
+                .bind(InetAddress.getLoopbackAddress(), 0).sync().channel();
+            int port = ((InetSocketAddress) simulatorChannel.localAddress()).getPort();
+
+            if (!transport.isAvailable()) {
+                logger.warn("Transport {} not available, measuring the fallback transport", transport);
+            }
+            responseHandler = new ResponseHandler();
+            channel = new TcpSocketChannelFactory(InetAddress.getLoopbackAddress(), port, transport)
+                .createChannel(responseHandler);
+        }
+
+        @TearDown(Level.Trial)
+        public void doTearDown() throws Exception {
+            channel.close().sync();
+            simulatorChannel.close().sync();
+            simulatorGroup.shutdownGracefully().sync();
+        }
+
+    }
+
+    @Benchmark
+    @Warmup(iterations = 5, time = 1)
+    @Measurement(iterations = 5, time = 1)
+    @Fork(3)
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void measureRoundTrip(MyState myState) throws Exception {
+        CompletableFuture<Void> responseFuture = myState.responseHandler.expectResponse();
+        myState.channel.writeAndFlush(Unpooled.wrappedBuffer(REQUEST));
+        responseFuture.get(1, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Completes the pending future as soon as a full response has been received.
+     */
+    private static class ResponseHandler extends ChannelInboundHandlerAdapter {
+
+        private volatile CompletableFuture<Void> responseFuture;
+        private int receivedBytes;
+
+        CompletableFuture<Void> expectResponse() {
+            responseFuture = new CompletableFuture<>();
+            return responseFuture;
+        }
+
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+            ByteBuf byteBuf = (ByteBuf) msg;
+            receivedBytes += byteBuf.readableBytes();
+            ReferenceCountUtil.release(msg);
+            if (receivedBytes >= RESPONSE_SIZE) {
+                receivedBytes -= RESPONSE_SIZE;
+                responseFuture.complete(null);
+            }
+        }
+
+    }
+
+    /**
+     * Answers every complete request with a canned response.
+     */
+    private static class SimulatorHandler extends ChannelInboundHandlerAdapter {
+
+        private int receivedBytes;
+
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+            ByteBuf byteBuf = (ByteBuf) msg;
+            receivedBytes += byteBuf.readableBytes();
+            ReferenceCountUtil.release(msg);
+            while (receivedBytes >= REQUEST.length) {
+                receivedBytes -= REQUEST.length;
+                ByteBuf response = ctx.alloc().buffer(RESPONSE_SIZE);
+                // Transaction id, protocol id, length, unit id
+                response.writeShort(0x0001);
+                response.writeShort(0x0000);
+                response.writeShort(RESPONSE_SIZE - 6);
+                response.writeByte(0x01);
+                // Function code and byte count
+                response.writeByte(0x03);
+                response.writeByte(20);
+                response.writeZero(20);
+                ctx.write(response);
+            }
+            ctx.flush();
+        }
+
+    }
+
+}
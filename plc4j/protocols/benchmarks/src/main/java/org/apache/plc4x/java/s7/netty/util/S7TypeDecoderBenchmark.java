@@ -0,0 +1,96 @@
+/*
+ Licensed to the Apache Software Foundation (ASF) under one
+ or more contributor license agreements.  See the NOTICE file
+ distributed with this work for additional information
+ regarding copyright ownership.  The ASF licenses this file
+ to you under the Apache License, Version 2.0 (the
+ "License"); you may not use this file except in compliance
+ with the License.  You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing,
+ software distributed under the License is distributed on an
+ "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ KIND, either express or implied.  See the License for the
+ specific language governing permissions and limitations
+ under the License.
+ */
+package org.apache.plc4x.java.s7.netty.util;
+
+import org.apache.plc4x.java.api.exceptions.PlcProtocolException;
+import org.apache.plc4x.java.api.types.PrimitiveValueList;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares decoding the result of a large REAL array read into a list of boxed values with decoding it into
+ * a {@link S7ValueList} view and either fetching the values as primitive array or iterating over the view.
+ */
+public class S7TypeDecoderBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class MyState {
+
+        @Param({"100", "4000"})
+        int numValues;
+
+        byte[] s7Data;
+
+        @Setup(Level.Trial)
+        public void doSetup() {
+            s7Data = new byte[numValues * 4];
+            new Random(42).nextBytes(s7Data);
+        }
+
+    }
+
+    @Benchmark
+    @Warmup(iterations = 5, time = 1)
+    @Measurement(iterations = 5, time = 1)
+    @Fork(3)
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public float measureBoxedList(MyState myState) throws PlcProtocolException {
+        List<Float> values = S7TypeDecoder.decodeData(Float.class, myState.s7Data);
+        float sum = 0;
+        for (Float value : values) {
+            sum += value;
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @Warmup(iterations = 5, time = 1)
+    @Measurement(iterations = 5, time = 1)
+    @Fork(3)
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public float measurePrimitiveArray(MyState myState) throws PlcProtocolException {
+        List<Float> values = S7TypeDecoder.decodeDataAsView(Float.class, myState.s7Data);
+        float sum = 0;
+        for (float value : ((PrimitiveValueList<Float>) values).toFloatArray()) {
+            sum += value;
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @Warmup(iterations = 5, time = 1)
+    @Measurement(iterations = 5, time = 1)
+    @Fork(3)
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public float measureView(MyState myState) throws PlcProtocolException {
+        List<Float> values = S7TypeDecoder.decodeDataAsView(Float.class, myState.s7Data);
+        float sum = 0;
+        for (int i = 0; i < values.size(); i++) {
+            sum += values.get(i);
+        }
+        return sum;
+    }
+
+}
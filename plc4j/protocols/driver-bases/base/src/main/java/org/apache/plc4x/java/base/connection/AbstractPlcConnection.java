@@ -81,6 +81,10 @@ public abstract class AbstractPlcConnection implements PlcConnection {
 
     @Override
     public void close() throws PlcConnectionException {
+        // Closing the channel releases all resources bound to it (e.g. the reference to a shared event loop group).
+        if ((channel != null) && channel.isOpen()) {
+            channel.close();
+        }
         channel = null;
         connected = false;
     }
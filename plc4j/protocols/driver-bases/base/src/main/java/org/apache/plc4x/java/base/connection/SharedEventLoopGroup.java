@@ -0,0 +1,127 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+package org.apache.plc4x.java.base.connection;
+
+import io.netty.channel.Channel;
+import io.netty.channel.EventLoopGroup;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.function.IntFunction;
+
+/**
+ * Reference counted {@link EventLoopGroup} that is shared by all channels created by the
+ * {@link ChannelFactory} implementations of one transport type. Instead of creating (and later on
+ * shutting down) a new {@link EventLoopGroup} for every connection, every channel acquires a
+ * reference to this shared group when being created and releases it as soon as it is closed.
+ * As soon as the last reference is released, the group is shut down. It is lazily re-created
+ * as soon as a new channel needs it.
+ *
+ * The number of threads is usually configured via a system property by the {@link ChannelFactory}
+ * owning the group, but can be changed with {@link #setNumThreads(int)}. Changes only take effect
+ * the next time the group is created.
+ */
+public class SharedEventLoopGroup {
+
+    private static final Logger logger = LoggerFactory.getLogger(SharedEventLoopGroup.class);
+
+    private final String name;
+    private final IntFunction<? extends EventLoopGroup> eventLoopGroupFactory;
+    private int numThreads;
+
+    private EventLoopGroup eventLoopGroup;
+    private int referenceCount;
+
+    /**
+     * @param name                  name used for logging.
+     * @param eventLoopGroupFactory factory creating a new {@link EventLoopGroup} with the given number of threads.
+     * @param numThreads            number of threads the group should use (0 = use nettys default).
+     */
+    public SharedEventLoopGroup(String name, IntFunction<? extends EventLoopGroup> eventLoopGroupFactory,
+                                int numThreads) {
+        this.name = name;
+        this.eventLoopGroupFactory = eventLoopGroupFactory;
+        this.numThreads = numThreads;
+        this.eventLoopGroup = null;
+        this.referenceCount = 0;
+    }
+
+    /**
+     * Acquires a reference to the shared {@link EventLoopGroup}, creating it if it doesn't exist yet.
+     * Every call has to be matched with a call to {@link #release()}.
+     *
+     * @return the shared event loop group.
+     */
+    public synchronized EventLoopGroup acquire() {
+        if (eventLoopGroup == null) {
+            logger.debug("Creating shared event loop group {} with {} threads", name, numThreads);
+            eventLoopGroup = eventLoopGroupFactory.apply(numThreads);
+        }
+        referenceCount++;
+        return eventLoopGroup;
+    }
+
+    /**
+     * Makes sure the reference acquired for the given channel is released as soon as the channel is closed.
+     *
+     * @param channel channel using the shared event loop group.
+     */
+    public void releaseOnClose(Channel channel) {
+        channel.closeFuture().addListener(future -> release());
+    }
+
+    /**
+     * Releases a reference to the shared {@link EventLoopGroup}. If this was the last reference,
+     * the group is shut down gracefully.
+     */
+    public synchronized void release() {
+        if (referenceCount <= 0) {
+            logger.warn("Shared event loop group {} released more often than acquired", name);
+            return;
+        }
+        referenceCount--;
+        if (referenceCount == 0) {
+            logger.debug("Shutting down shared event loop group {}", name);
+            eventLoopGroup.shutdownGracefully();
+            eventLoopGroup = null;
+        }
+    }
+
+    /**
+     * @return the number of channels currently referencing the shared group.
+     */
+    public synchronized int getReferenceCount() {
+        return referenceCount;
+    }
+
+    public synchronized int getNumThreads() {
+        return numThreads;
+    }
+
+    /**
+     * Changes the number of threads used by the shared group. As a running {@link EventLoopGroup}
+     * can't be resized, this only takes effect the next time the group is created.
+     *
+     * @param numThreads number of threads the group should use (0 = use nettys default).
+     */
+    public synchronized void setNumThreads(int numThreads) {
+        this.numThreads = numThreads;
+    }
+
+}
@@ -0,0 +1,300 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+package org.apache.plc4x.java.base.protocol;
+
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.concurrent.ScheduledFuture;
+import org.apache.commons.configuration2.Configuration;
+import org.apache.commons.configuration2.SystemConfiguration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.channels.ClosedChannelException;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+/**
+ * Limits the number of requests a channel has "in-flight" (sent, but not answered yet) at the same time.
+ *
+ * Writes are passed on as long as less than {@code windowSize} requests are in-flight, all others are queued.
+ * Every inbound message accepted by the {@code responseMatcher} frees one slot of the window, and the next queued
+ * write is sent immediately. Devices, which can only handle one request at a time, use a window size of 1.
+ *
+ * If a response gets lost, its slot is freed after the release timeout, which can be configured with the
+ * "plc4x.inflightwindowhandler.release_timeout" system property (milliseconds, default 10000, 0 = never).
+ * Exceptions don't free a slot, as a response failing to decode doesn't mean the request isn't in-flight anymore.
+ * A failed write however frees its slot right away, as the request never reached the device.
+ *
+ * As all methods of a handler are called on the event loop of its channel, the handler doesn't need any locking.
+ * The metrics (queue depth and wait times) can safely be read from any thread.
+ */
+public class InFlightWindowHandler extends ChannelDuplexHandler {
+
+    private static final Logger logger = LoggerFactory.getLogger(InFlightWindowHandler.class);
+
+    // Fetch values from configuration
+    private static final Configuration CONF = new SystemConfiguration();
+    private static final long RELEASE_TIMEOUT = CONF.getLong("plc4x.inflightwindowhandler.release_timeout", 10_000);
+
+    private final int windowSize;
+    private final Predicate<Object> responseMatcher;
+    private final long releaseTimeout;
+
+    private final Queue<PendingWrite> pendingWrites;
+    private final Queue<InFlightSlot> inFlightSlots;
+
+    private volatile int queueDepth;
+    private volatile int maxQueueDepth;
+    private final LongAdder numDelayedWrites;
+    private final LongAdder totalWaitTime;
+    private final AtomicLong maxWaitTime;
+    private final LongAdder numReleaseTimeouts;
+
+    /**
+     * @param windowSize      maximum number of requests in-flight at the same time.
+     * @param responseMatcher returns true for all inbound messages answering a previously sent request.
+     */
+    public InFlightWindowHandler(int windowSize, Predicate<Object> responseMatcher) {
+        this(windowSize, responseMatcher, RELEASE_TIMEOUT);
+    }
+
+    /**
+     * @param windowSize      maximum number of requests in-flight at the same time.
+     * @param responseMatcher returns true for all inbound messages answering a previously sent request.
+     * @param releaseTimeout  time in milliseconds after which an unanswered request no longer occupies a slot (0 = never).
+     */
+    public InFlightWindowHandler(int windowSize, Predicate<Object> responseMatcher, long releaseTimeout) {
+        if (windowSize < 1) {
+            throw new IllegalArgumentException("Window size must be at least 1: " + windowSize);
+        }
+        this.windowSize = windowSize;
+        this.responseMatcher = responseMatcher;
+        this.releaseTimeout = releaseTimeout;
+        this.pendingWrites = new ArrayDeque<>();
+        this.inFlightSlots = new ArrayDeque<>();
+        this.numDelayedWrites = new LongAdder();
+        this.totalWaitTime = new LongAdder();
+        this.maxWaitTime = new AtomicLong();
+        this.numReleaseTimeouts = new LongAdder();
+    }
+
+    @Override
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) {
+        if (pendingWrites.isEmpty() && (inFlightSlots.size() < windowSize)) {
+            send(ctx, msg, promise);
+        } else {
+            logger.trace("Window full, queueing {}", msg);
+            pendingWrites.add(new PendingWrite(msg, promise));
+            updateQueueDepth();
+            numDelayedWrites.increment();
+        }
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) {
+        // Check before passing the message on, as the next handlers might release it.
+        if (responseMatcher.test(msg)) {
+            releaseSlot(ctx);
+        }
+        ctx.fireChannelRead(msg);
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        failPendingWrites();
+        super.channelInactive(ctx);
+    }
+
+    @Override
+    public void handlerRemoved(ChannelHandlerContext ctx) {
+        failPendingWrites();
+    }
+
+    private void send(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) {
+        InFlightSlot slot = new InFlightSlot(ctx);
+        if (releaseTimeout > 0) {
+            slot.timeout = ctx.executor().schedule(slot, releaseTimeout, TimeUnit.MILLISECONDS);
+        }
+        inFlightSlots.add(slot);
+        // A void promise can't be listened to, so replace it with one which still passes failures on.
+        ChannelPromise writePromise = promise.unvoid();
+        writePromise.addListener(future -> {
+            if (!future.isSuccess() && inFlightSlots.remove(slot)) {
+                logger.debug("Write failed, releasing slot", future.cause());
+                if (slot.timeout != null) {
+                    slot.timeout.cancel(false);
+                }
+                sendPendingWrites(ctx);
+            }
+        });
+        ctx.write(msg, writePromise);
+    }
+
+    private void releaseSlot(ChannelHandlerContext ctx) {
+        InFlightSlot slot = inFlightSlots.poll();
+        if (slot == null) {
+            logger.debug("Response received without any request in-flight");
+            return;
+        }
+        if (slot.timeout != null) {
+            slot.timeout.cancel(false);
+        }
+        sendPendingWrites(ctx);
+    }
+
+    private void sendPendingWrites(ChannelHandlerContext ctx) {
+        boolean sent = false;
+        while (!pendingWrites.isEmpty() && (inFlightSlots.size() < windowSize)) {
+            PendingWrite pendingWrite = pendingWrites.poll();
+            updateQueueDepth();
+            long waitTime = System.nanoTime() - pendingWrite.queuedAt;
+            totalWaitTime.add(waitTime);
+            maxWaitTime.accumulateAndGet(waitTime, Math::max);
+            if (pendingWrite.promise.isDone()) {
+                // Cancelled while waiting.
+                ReferenceCountUtil.release(pendingWrite.msg);
+                continue;
+            }
+            send(ctx, pendingWrite.msg, pendingWrite.promise);
+            sent = true;
+        }
+        if (sent) {
+            ctx.flush();
+        }
+    }
+
+    private void failPendingWrites() {
+        for (InFlightSlot slot : inFlightSlots) {
+            if (slot.timeout != null) {
+                slot.timeout.cancel(false);
+            }
+        }
+        inFlightSlots.clear();
+        PendingWrite pendingWrite;
+        while ((pendingWrite = pendingWrites.poll()) != null) {
+            ReferenceCountUtil.release(pendingWrite.msg);
+            pendingWrite.promise.tryFailure(new ClosedChannelException());
+        }
+        updateQueueDepth();
+    }
+
+    private void updateQueueDepth() {
+        queueDepth = pendingWrites.size();
+        if (queueDepth > maxQueueDepth) {
+            maxQueueDepth = queueDepth;
+        }
+    }
+
+    public int getWindowSize() {
+        return windowSize;
+    }
+
+    /**
+     * @return number of writes currently waiting for a free slot.
+     */
+    public int getQueueDepth() {
+        return queueDepth;
+    }
+
+    /**
+     * @return maximum number of writes waiting for a free slot at the same time.
+     */
+    public int getMaxQueueDepth() {
+        return maxQueueDepth;
+    }
+
+    /**
+     * @return number of writes which had to wait for a free slot.
+     */
+    public long getNumDelayedWrites() {
+        return numDelayedWrites.sum();
+    }
+
+    /**
+     * @param unit unit of the returned time.
+     * @return accumulated time all delayed writes had to wait for a free slot.
+     */
+    public long getTotalWaitTime(TimeUnit unit) {
+        return unit.convert(totalWaitTime.sum(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @param unit unit of the returned time.
+     * @return longest time a write had to wait for a free slot.
+     */
+    public long getMaxWaitTime(TimeUnit unit) {
+        return unit.convert(maxWaitTime.get(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @return number of slots freed because their response didn't arrive in time.
+     */
+    public long getNumReleaseTimeouts() {
+        return numReleaseTimeouts.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "InFlightWindowHandler{" +
+            "windowSize=" + windowSize +
+            ", queueDepth=" + queueDepth +
+            ", maxQueueDepth=" + maxQueueDepth +
+            ", numDelayedWrites=" + numDelayedWrites +
+            ", numReleaseTimeouts=" + numReleaseTimeouts +
+            '}';
+    }
+
+    private static final class PendingWrite {
+        private final Object msg;
+        private final ChannelPromise promise;
+        private final long queuedAt;
+
+        private PendingWrite(Object msg, ChannelPromise promise) {
+            this.msg = msg;
+            this.promise = promise;
+            this.queuedAt = System.nanoTime();
+        }
+    }
+
+    private final class InFlightSlot implements Runnable {
+        private final ChannelHandlerContext ctx;
+        private ScheduledFuture<?> timeout;
+
+        private InFlightSlot(ChannelHandlerContext ctx) {
+            this.ctx = ctx;
+        }
+
+        @Override
+        public void run() {
+            if (inFlightSlots.remove(this)) {
+                logger.warn("No response received within {}ms, releasing slot", releaseTimeout);
+                numReleaseTimeouts.increment();
+                sendPendingWrites(ctx);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,191 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+package org.apache.plc4x.java.base.timeout;
+
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timeout;
+import io.netty.util.Timer;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import org.apache.commons.configuration2.Configuration;
+import org.apache.commons.configuration2.SystemConfiguration;
+import org.apache.plc4x.java.api.messages.PlcRequestContainer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+
+/**
+ * Keeps track of the timeouts of all "in-flight" requests of one protocol layer.
+ *
+ * Protocol layers usually keep their in-flight {@link PlcRequestContainer}s in a map keyed by some sort of
+ * correlation id (tpdu reference, transaction id, invoke id, ...). Whenever a request is put into this map,
+ * it's registered here with {@link #schedule(Object, PlcRequestContainer)} and as soon as it's removed
+ * again it's unregistered with {@link #cancel(Object)}. If a request isn't answered in time, it's removed
+ * from the map and its future is completed exceptionally with a {@link TimeoutException}.
+ *
+ * All instances share one {@link HashedWheelTimer}, so tracking a request only adds an entry to the
+ * timers wheel instead of scheduling a task per request. The resolution of the timer can be configured
+ * with the "plc4x.requesttimeouts.tick_duration" system property (milliseconds, default 100).
+ *
+ * @param <K> type of the correlation id.
+ */
+public class RequestTimeouts<K> {
+
+    private static final Logger logger = LoggerFactory.getLogger(RequestTimeouts.class);
+
+    // Fetch values from configuration
+    private static final Configuration CONF = new SystemConfiguration();
+    private static final long TICK_DURATION = CONF.getLong("plc4x.requesttimeouts.tick_duration", 100);
+
+    private static final LongAdder TOTAL_TIMEOUTS = new LongAdder();
+
+    private final String name;
+    private final long timeout;
+    private final ConcurrentMap<K, ?> requests;
+    private final ConcurrentMap<K, Timeout> timeouts;
+    private final LongAdder numTimeouts;
+    private volatile BiConsumer<K, PlcRequestContainer<?, ?>> timeoutListener;
+
+    /**
+     * @param name     name of the protocol layer used for logging.
+     * @param timeout  time in milliseconds after which a request is considered lost (0 = never).
+     * @param requests map of in-flight requests of the protocol layer, timed out requests are removed from it.
+     */
+    public RequestTimeouts(String name, long timeout, ConcurrentMap<K, ?> requests) {
+        this.name = name;
+        this.timeout = timeout;
+        this.requests = requests;
+        this.timeouts = new ConcurrentHashMap<>();
+        this.numTimeouts = new LongAdder();
+    }
+
+    /**
+     * Starts tracking the timeout of a request which was just added to the in-flight map.
+     *
+     * @param key       correlation id of the request.
+     * @param container the request itself.
+     */
+    public void schedule(K key, PlcRequestContainer<?, ?> container) {
+        if (timeout <= 0) {
+            return;
+        }
+        Timeout requestTimeout = TimerHolder.TIMER.newTimeout(
+            expired -> expire(key, container, expired), timeout, TimeUnit.MILLISECONDS);
+        Timeout previous = timeouts.put(key, requestTimeout);
+        if (previous != null) {
+            previous.cancel();
+        }
+    }
+
+    /**
+     * Stops tracking the timeout of a request, usually because its response has been received.
+     *
+     * @param key correlation id of the request.
+     */
+    public void cancel(K key) {
+        Timeout requestTimeout = timeouts.remove(key);
+        if (requestTimeout != null) {
+            requestTimeout.cancel();
+        }
+    }
+
+    /**
+     * Stops tracking all requests, usually because the connection is gone.
+     */
+    public void cancelAll() {
+        for (K key : timeouts.keySet()) {
+            cancel(key);
+        }
+    }
+
+    /**
+     * Registers a listener notified after a request timed out and was removed from the in-flight map.
+     * It's called on the timers thread, so it should only hand over work to the channels event loop.
+     *
+     * @param timeoutListener listener receiving the correlation id and the request.
+     */
+    public void setTimeoutListener(BiConsumer<K, PlcRequestContainer<?, ?>> timeoutListener) {
+        this.timeoutListener = timeoutListener;
+    }
+
+    /**
+     * @return the timeout in milliseconds.
+     */
+    public long getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * @return number of requests currently being tracked.
+     */
+    public int getNumPending() {
+        return timeouts.size();
+    }
+
+    /**
+     * @return number of requests that timed out in this protocol layer.
+     */
+    public long getNumTimeouts() {
+        return numTimeouts.sum();
+    }
+
+    /**
+     * @return number of requests that timed out in all protocol layers.
+     */
+    public static long getTotalNumTimeouts() {
+        return TOTAL_TIMEOUTS.sum();
+    }
+
+    private void expire(K key, PlcRequestContainer<?, ?> container, Timeout expired) {
+        timeouts.remove(key, expired);
+        // If the request is no longer in the map, the response won the race.
+        if (!requests.remove(key, container)) {
+            return;
+        }
+        numTimeouts.increment();
+        TOTAL_TIMEOUTS.increment();
+        logger.debug("{}: request {} timed out after {}ms", name, key, timeout);
+        container.getResponseFuture().completeExceptionally(
+            new TimeoutException("Request timed out after " + timeout + "ms"));
+        BiConsumer<K, PlcRequestContainer<?, ?>> listener = timeoutListener;
+        if (listener != null) {
+            listener.accept(key, container);
+        }
+    }
+
+    /**
+     * Lazily creates the shared timer as soon as the first request is tracked.
+     */
+    private static final class TimerHolder {
+
+        private static final Timer TIMER = new HashedWheelTimer(
+            new DefaultThreadFactory("plc4x-request-timeouts", true), TICK_DURATION, TimeUnit.MILLISECONDS);
+
+        private TimerHolder() {
+            // Not to be instantiated.
+        }
+
+    }
+
+}
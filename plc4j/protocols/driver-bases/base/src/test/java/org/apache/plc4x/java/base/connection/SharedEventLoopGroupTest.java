@@ -0,0 +1,122 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+package org.apache.plc4x.java.base.connection;
+
+import io.netty.channel.DefaultEventLoopGroup;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+public class SharedEventLoopGroupTest {
+
+    private List<EventLoopGroup> createdGroups;
+
+    private SharedEventLoopGroup SUT;
+
+    @Before
+    public void setUp() {
+        createdGroups = new ArrayList<>();
+        SUT = new SharedEventLoopGroup("test", numThreads -> {
+            EventLoopGroup eventLoopGroup = new DefaultEventLoopGroup(numThreads);
+            createdGroups.add(eventLoopGroup);
+            return eventLoopGroup;
+        }, 1);
+    }
+
+    @After
+    public void tearDown() {
+        for (EventLoopGroup createdGroup : createdGroups) {
+            createdGroup.shutdownGracefully();
+        }
+    }
+
+    @Test
+    public void acquireCreatesOneSharedGroup() {
+        EventLoopGroup first = SUT.acquire();
+        EventLoopGroup second = SUT.acquire();
+
+        assertThat(second, sameInstance(first));
+        assertThat(createdGroups, hasSize(1));
+        assertThat(SUT.getReferenceCount(), equalTo(2));
+    }
+
+    @Test
+    public void releaseOfLastReferenceShutsDownGroup() {
+        EventLoopGroup eventLoopGroup = SUT.acquire();
+        SUT.acquire();
+
+        SUT.release();
+        assertThat(eventLoopGroup.isShuttingDown(), is(false));
+        assertThat(SUT.getReferenceCount(), equalTo(1));
+
+        SUT.release();
+        assertThat(eventLoopGroup.isShuttingDown(), is(true));
+        assertThat(SUT.getReferenceCount(), equalTo(0));
+    }
+
+    @Test
+    public void reacquireAfterShutdownCreatesNewGroup() {
+        EventLoopGroup first = SUT.acquire();
+        SUT.release();
+        SUT.setNumThreads(2);
+
+        EventLoopGroup second = SUT.acquire();
+
+        assertThat(second, not(sameInstance(first)));
+        assertThat(second.isShuttingDown(), is(false));
+        assertThat(createdGroups, hasSize(2));
+        assertThat(SUT.getNumThreads(), equalTo(2));
+    }
+
+    @Test
+    public void doubleReleaseIsIgnored() {
+        EventLoopGroup eventLoopGroup = SUT.acquire();
+        SUT.release();
+        SUT.release();
+        assertThat(SUT.getReferenceCount(), equalTo(0));
+
+        // The surplus release must neither go negative nor shut down the next group.
+        EventLoopGroup next = SUT.acquire();
+        assertThat(next, not(sameInstance(eventLoopGroup)));
+        assertThat(SUT.getReferenceCount(), equalTo(1));
+        assertThat(next.isShuttingDown(), is(false));
+    }
+
+    @Test
+    public void releaseOnCloseReleasesWhenChannelIsClosed() {
+        EventLoopGroup eventLoopGroup = SUT.acquire();
+        EmbeddedChannel channel = new EmbeddedChannel();
+        SUT.releaseOnClose(channel);
+        assertThat(SUT.getReferenceCount(), equalTo(1));
+
+        channel.close();
+
+        assertThat(SUT.getReferenceCount(), equalTo(0));
+        assertThat(eventLoopGroup.isShuttingDown(), is(true));
+    }
+
+}
@@ -0,0 +1,161 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+package org.apache.plc4x.java.base.protocol;
+
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.apache.plc4x.java.api.exceptions.PlcProtocolException;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.channels.ClosedChannelException;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class InFlightWindowHandlerTest {
+
+    private static final String RESPONSE = "response";
+
+    private InFlightWindowHandler SUT;
+
+    private EmbeddedChannel channel;
+
+    @Before
+    public void setUp() {
+        SUT = new InFlightWindowHandler(1, RESPONSE::equals, 50);
+        channel = new EmbeddedChannel(SUT);
+    }
+
+    @Test
+    public void responseSendsNextQueuedWrite() throws Exception {
+        channel.writeOutbound("first", "second");
+        assertThat(channel.readOutbound(), is("first"));
+        assertThat(channel.readOutbound(), nullValue());
+        assertThat(SUT.getQueueDepth(), is(1));
+
+        Thread.sleep(10);
+        channel.writeInbound(RESPONSE);
+
+        assertThat(channel.readOutbound(), is("second"));
+        assertThat(channel.readInbound(), is(RESPONSE));
+        assertThat(SUT.getQueueDepth(), is(0));
+        assertThat(SUT.getMaxQueueDepth(), is(1));
+        assertThat(SUT.getNumDelayedWrites(), is(1L));
+        assertThat(SUT.getMaxWaitTime(TimeUnit.MILLISECONDS), greaterThanOrEqualTo(10L));
+        assertThat(SUT.getTotalWaitTime(TimeUnit.NANOSECONDS), is(SUT.getMaxWaitTime(TimeUnit.NANOSECONDS)));
+        assertThat(SUT.getNumReleaseTimeouts(), is(0L));
+    }
+
+    @Test
+    public void lostResponseIsReleasedAfterTimeout() throws Exception {
+        channel.writeOutbound("first", "second");
+        assertThat(channel.readOutbound(), is("first"));
+        assertThat(channel.readOutbound(), nullValue());
+
+        Thread.sleep(100);
+        channel.runScheduledPendingTasks();
+
+        assertThat(channel.readOutbound(), is("second"));
+        assertThat(SUT.getNumReleaseTimeouts(), is(1L));
+    }
+
+    @Test
+    public void exceptionDoesNotReleaseSlot() {
+        channel.writeOutbound("first", "second");
+        assertThat(channel.readOutbound(), is("first"));
+
+        // For example a response failing its checksum, the request is still in-flight.
+        channel.pipeline().fireExceptionCaught(new PlcProtocolException("CRC mismatch"));
+        try {
+            channel.checkException();
+            fail("Exception should have been passed on");
+        } catch (Exception e) {
+            assertThat(e, instanceOf(PlcProtocolException.class));
+        }
+
+        assertThat(channel.readOutbound(), nullValue());
+        assertThat(SUT.getQueueDepth(), is(1));
+    }
+
+    @Test
+    public void failedWriteReleasesSlot() {
+        // Fails every write of "failing", like a serial port not transmitting the frame.
+        channel.pipeline().addFirst(new ChannelOutboundHandlerAdapter() {
+            @Override
+            public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+                if ("failing".equals(msg)) {
+                    promise.setFailure(new IOException("Write failed"));
+                } else {
+                    super.write(ctx, msg, promise);
+                }
+            }
+        });
+        channel.writeOutbound("first");
+        ChannelPromise promise = channel.newPromise();
+        channel.writeAndFlush("failing", promise);
+        channel.writeOutbound("third");
+        assertThat(channel.readOutbound(), is("first"));
+        assertThat(SUT.getQueueDepth(), is(2));
+
+        // The response sends the failing write, whose slot is freed right away instead of after the release timeout.
+        channel.writeInbound(RESPONSE);
+        assertThat(promise.cause(), instanceOf(IOException.class));
+        assertThat(channel.readOutbound(), is("third"));
+        assertThat(channel.readOutbound(), nullValue());
+        assertThat(SUT.getQueueDepth(), is(0));
+        assertThat(SUT.getNumReleaseTimeouts(), is(0L));
+    }
+
+    @Test
+    public void writeCancelledWhileQueuedIsDropped() {
+        channel.writeOutbound("first");
+        ChannelPromise promise = channel.newPromise();
+        channel.writeAndFlush("cancelled", promise);
+        channel.writeOutbound("third");
+        assertThat(promise.cancel(false), is(true));
+
+        channel.writeInbound(RESPONSE);
+
+        assertThat(channel.readOutbound(), is("first"));
+        assertThat(channel.readOutbound(), is("third"));
+        assertThat(channel.readOutbound(), nullValue());
+        assertThat(SUT.getQueueDepth(), is(0));
+    }
+
+    @Test
+    public void queuedWritesFailWhenChannelBecomesInactive() {
+        channel.writeOutbound("first");
+        ChannelPromise promise = channel.newPromise();
+        channel.writeAndFlush("second", promise);
+        assertThat(promise.isDone(), is(false));
+
+        channel.close();
+
+        assertThat(promise.isSuccess(), is(false));
+        assertThat(promise.cause(), instanceOf(ClosedChannelException.class));
+        assertThat(SUT.getQueueDepth(), is(0));
+    }
+
+}
@@ -26,10 +26,20 @@ import io.netty.channel.ChannelOption;
 import io.netty.channel.jsc.JSerialCommChannel;
 import io.netty.channel.jsc.JSerialCommDeviceAddress;
 import io.netty.channel.oio.OioEventLoopGroup;
+import org.apache.commons.configuration2.Configuration;
+import org.apache.commons.configuration2.SystemConfiguration;
 import org.apache.plc4x.java.api.exceptions.PlcConnectionException;
 
 public class SerialChannelFactory implements ChannelFactory {
 
+    // Fetch values from configuration
+    private static final Configuration CONF = new SystemConfiguration();
+    private static final int MAX_CHANNELS = CONF.getInt("plc4x.serialchannelfactory.max_channels", 0);
+
+    // All serial connections share one event loop group (As this is an oio group, it uses one thread per channel).
+    private static final SharedEventLoopGroup EVENT_LOOP_GROUP =
+        new SharedEventLoopGroup("serial", OioEventLoopGroup::new, MAX_CHANNELS);
+
     private final String serialPort;
 
     public SerialChannelFactory(String serialPort) {
@@ -41,24 +51,35 @@ public class SerialChannelFactory implements ChannelFactory {
         throws PlcConnectionException {
         JSerialCommDeviceAddress address = new JSerialCommDeviceAddress(serialPort);
 
+        Bootstrap bootstrap = new Bootstrap();
+        bootstrap.group(EVENT_LOOP_GROUP.acquire());
+        bootstrap.channel(JSerialCommChannel.class);
+        bootstrap.option(ChannelOption.SO_KEEPALIVE, true);
+        bootstrap.option(ChannelOption.TCP_NODELAY, true);
+        bootstrap.handler(channelHandler);
+        // Start the client.
+        ChannelFuture f = bootstrap.connect(address);
+        // The shared event loop group is only released, when the channel is closed.
+        EVENT_LOOP_GROUP.releaseOnClose(f.channel());
         try {
-            Bootstrap bootstrap = new Bootstrap();
-            bootstrap.group(new OioEventLoopGroup());
-            bootstrap.channel(JSerialCommChannel.class);
-            bootstrap.option(ChannelOption.SO_KEEPALIVE, true);
-            bootstrap.option(ChannelOption.TCP_NODELAY, true);
-            bootstrap.handler(channelHandler);
-            // Start the client.
-            ChannelFuture f = bootstrap.connect(address).sync();
+            f.sync();
             f.awaitUninterruptibly();
             // Wait till the session is finished initializing.
             return f.channel();
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
+            f.channel().close();
             throw new PlcConnectionException("Error creating channel.", e);
         }
     }
 
+    /**
+     * @return the event loop group shared by all serial connections.
+     */
+    public static SharedEventLoopGroup getSharedEventLoopGroup() {
+        return EVENT_LOOP_GROUP;
+    }
+
     public String getSerialPort() {
         return serialPort;
     }
@@ -23,43 +23,88 @@ import io.netty.channel.Channel;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelOption;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollSocketChannel;
 import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
 import io.netty.channel.socket.nio.NioSocketChannel;
+import org.apache.commons.configuration2.Configuration;
+import org.apache.commons.configuration2.SystemConfiguration;
 import org.apache.plc4x.java.api.exceptions.PlcConnectionException;
 
 import java.net.InetAddress;
+import java.util.EnumMap;
+import java.util.Map;
 
 public class TcpSocketChannelFactory implements ChannelFactory {
 
+    // Fetch values from configuration
+    private static final Configuration CONF = new SystemConfiguration();
+    private static final int NUM_THREADS = CONF.getInt("plc4x.tcpsocketchannelfactory.num_threads", 0);
+
+    // All tcp connections using the same transport share one event loop group.
+    private static final Map<TcpTransport, SharedEventLoopGroup> EVENT_LOOP_GROUPS = new EnumMap<>(TcpTransport.class);
+
+    static {
+        EVENT_LOOP_GROUPS.put(TcpTransport.NIO,
+            new SharedEventLoopGroup("tcp-nio", NioEventLoopGroup::new, NUM_THREADS));
+        // Only reference the epoll classes in a lambda, as they fail to initialize if epoll isn't available.
+        EVENT_LOOP_GROUPS.put(TcpTransport.EPOLL,
+            new SharedEventLoopGroup("tcp-epoll", numThreads -> new EpollEventLoopGroup(numThreads), NUM_THREADS));
+    }
+
     private final InetAddress address;
     private final int port;
+    private final TcpTransport transport;
 
     public TcpSocketChannelFactory(InetAddress address, int port) {
+        this(address, port, TcpTransport.getDefault());
+    }
+
+    public TcpSocketChannelFactory(InetAddress address, int port, TcpTransport transport) {
         this.address = address;
         this.port = port;
+        this.transport = transport.orFallback();
     }
 
     @Override
     public Channel createChannel(ChannelHandler channelHandler)
         throws PlcConnectionException {
+        SharedEventLoopGroup eventLoopGroup = getSharedEventLoopGroup(transport);
+        Bootstrap bootstrap = new Bootstrap();
+        bootstrap.group(eventLoopGroup.acquire());
+        bootstrap.channel(getChannelClass(transport));
+        bootstrap.option(ChannelOption.SO_KEEPALIVE, true);
+        bootstrap.option(ChannelOption.TCP_NODELAY, true);
+        bootstrap.handler(channelHandler);
+        // Start the client.
+        ChannelFuture f = bootstrap.connect(address, port);
+        // The shared event loop group is only released, when the channel is closed.
+        eventLoopGroup.releaseOnClose(f.channel());
         try {
-            Bootstrap bootstrap = new Bootstrap();
-            bootstrap.group(new NioEventLoopGroup());
-            bootstrap.channel(NioSocketChannel.class);
-            bootstrap.option(ChannelOption.SO_KEEPALIVE, true);
-            bootstrap.option(ChannelOption.TCP_NODELAY, true);
-            bootstrap.handler(channelHandler);
-            // Start the client.
-            ChannelFuture f = bootstrap.connect(address, port).sync();
+            f.sync();
             f.awaitUninterruptibly();
             // Wait till the session is finished initializing.
             return f.channel();
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
+            f.channel().close();
             throw new PlcConnectionException("Error creating channel.", e);
         }
     }
 
+    private static Class<? extends SocketChannel> getChannelClass(TcpTransport transport) {
+        return (transport == TcpTransport.EPOLL) ? EpollSocketChannel.class : NioSocketChannel.class;
+    }
+
+    /**
+     * @param transport the transport the connections are using.
+     * @return the event loop group shared by all tcp connections using the given transport.
+     */
+    public static SharedEventLoopGroup getSharedEventLoopGroup(TcpTransport transport) {
+        return EVENT_LOOP_GROUPS.get(transport);
+    }
+
     public InetAddress getAddress() {
         return address;
     }
@@ -67,4 +112,8 @@ public class TcpSocketChannelFactory implements ChannelFactory {
     public int getPort() {
         return port;
     }
+
+    public TcpTransport getTransport() {
+        return transport;
+    }
 }
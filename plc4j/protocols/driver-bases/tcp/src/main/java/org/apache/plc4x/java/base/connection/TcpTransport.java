@@ -0,0 +1,115 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+package org.apache.plc4x.java.base.connection;
+
+import io.netty.channel.epoll.Epoll;
+import org.apache.commons.configuration2.Configuration;
+import org.apache.commons.configuration2.SystemConfiguration;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Transport implementations the {@link TcpSocketChannelFactory} can use.
+ *
+ * The transport can be selected per connection by adding a "transport={nio|epoll}" parameter
+ * to the connection string or globally via the "plc4x.tcpsocketchannelfactory.transport"
+ * system property. If the native epoll transport is selected, but not available on the
+ * current platform, the NIO transport is used instead.
+ */
+public enum TcpTransport {
+
+    /**
+     * Java NIO based transport, available on every platform.
+     */
+    NIO,
+
+    /**
+     * Native epoll based transport, only available on Linux.
+     */
+    EPOLL;
+
+    public static final String PARAMETER_NAME = "transport";
+
+    private static final Logger logger = LoggerFactory.getLogger(TcpTransport.class);
+
+    // Fetch values from configuration
+    private static final Configuration CONF = new SystemConfiguration();
+    private static final TcpTransport DEFAULT_TRANSPORT =
+        parse(CONF.getString("plc4x.tcpsocketchannelfactory.transport", "nio"), NIO);
+
+    /**
+     * @return true if this transport can be used on the current platform.
+     */
+    public boolean isAvailable() {
+        return (this != EPOLL) || Epoll.isAvailable();
+    }
+
+    /**
+     * @return this transport, if it's available on the current platform or {@link #NIO} if it's not.
+     */
+    public TcpTransport orFallback() {
+        return orFallback(isAvailable());
+    }
+
+    // Separated from checking the platform, so the fallback can also be tested on platforms supporting epoll.
+    TcpTransport orFallback(boolean available) {
+        if (!available) {
+            logger.warn("Transport {} not available, falling back to {}", this, NIO, Epoll.unavailabilityCause());
+            return NIO;
+        }
+        return this;
+    }
+
+    /**
+     * @return the transport configured via system property (defaults to {@link #NIO}).
+     */
+    public static TcpTransport getDefault() {
+        return DEFAULT_TRANSPORT;
+    }
+
+    /**
+     * Find the transport in the parameters part of a connection string.
+     *
+     * @param params parameters in the form "name1=value1&amp;name2=value2" (may be null).
+     * @return the transport selected by the "transport" parameter or the default transport.
+     */
+    public static TcpTransport fromParams(String params) {
+        if (!StringUtils.isEmpty(params)) {
+            for (String param : params.split("&")) {
+                String[] paramElements = param.split("=");
+                if ((paramElements.length == 2) && PARAMETER_NAME.equals(paramElements[0])) {
+                    return parse(paramElements[1], DEFAULT_TRANSPORT);
+                }
+            }
+        }
+        return DEFAULT_TRANSPORT;
+    }
+
+    private static TcpTransport parse(String transportName, TcpTransport defaultTransport) {
+        for (TcpTransport transport : values()) {
+            if (transport.name().equalsIgnoreCase(transportName)) {
+                return transport;
+            }
+        }
+        logger.warn("Unknown transport {}, using {}", transportName, defaultTransport);
+        return defaultTransport;
+    }
+
+}
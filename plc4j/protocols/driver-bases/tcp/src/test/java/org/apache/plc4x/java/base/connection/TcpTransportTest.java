@@ -0,0 +1,71 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+package org.apache.plc4x.java.base.connection;
+
+import io.netty.channel.epoll.Epoll;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class TcpTransportTest {
+
+    @Test
+    public void fromParamsWithoutTransportUsesDefault() {
+        assertThat(TcpTransport.fromParams(null), equalTo(TcpTransport.getDefault()));
+        assertThat(TcpTransport.fromParams(""), equalTo(TcpTransport.getDefault()));
+        assertThat(TcpTransport.fromParams("pdu-size=1024"), equalTo(TcpTransport.getDefault()));
+    }
+
+    @Test
+    public void fromParamsFindsTransportBetweenOtherParams() {
+        assertThat(TcpTransport.fromParams("transport=epoll"), equalTo(TcpTransport.EPOLL));
+        assertThat(TcpTransport.fromParams("pdu-size=1024&transport=EPOLL&max-amq-caller=2"),
+            equalTo(TcpTransport.EPOLL));
+        assertThat(TcpTransport.fromParams("transport=Nio"), equalTo(TcpTransport.NIO));
+    }
+
+    @Test
+    public void fromParamsWithInvalidTransportUsesDefault() {
+        assertThat(TcpTransport.fromParams("transport=carrier-pigeon"), equalTo(TcpTransport.getDefault()));
+        assertThat(TcpTransport.fromParams("transport"), equalTo(TcpTransport.getDefault()));
+        assertThat(TcpTransport.fromParams("transport="), equalTo(TcpTransport.getDefault()));
+    }
+
+    @Test
+    public void nioIsAlwaysAvailable() {
+        assertThat(TcpTransport.NIO.isAvailable(), is(true));
+        assertThat(TcpTransport.NIO.orFallback(), equalTo(TcpTransport.NIO));
+    }
+
+    @Test
+    public void epollFallsBackToNioIfNotAvailable() {
+        assertThat(TcpTransport.EPOLL.orFallback(false), equalTo(TcpTransport.NIO));
+        assertThat(TcpTransport.EPOLL.orFallback(true), equalTo(TcpTransport.EPOLL));
+    }
+
+    @Test
+    public void epollAvailabilityDependsOnPlatform() {
+        assertThat(TcpTransport.EPOLL.isAvailable(), is(Epoll.isAvailable()));
+        assertThat(TcpTransport.EPOLL.orFallback(),
+            equalTo(Epoll.isAvailable() ? TcpTransport.EPOLL : TcpTransport.NIO));
+    }
+
+}
@@ -27,6 +27,7 @@ import org.apache.plc4x.java.api.model.Address;
 import org.apache.plc4x.java.base.connection.AbstractPlcConnection;
 import org.apache.plc4x.java.base.connection.ChannelFactory;
 import org.apache.plc4x.java.modbus.model.*;
+import org.apache.plc4x.java.modbus.netty.Plc4XModbusProtocol;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -36,6 +37,8 @@ public abstract class BaseModbusPlcConnection extends AbstractPlcConnection impl
 
     private static final Logger logger = LoggerFactory.getLogger(BaseModbusPlcConnection.class);
 
+    private int maxInFlight = Plc4XModbusProtocol.DEFAULT_MAX_IN_FLIGHT;
+
     protected BaseModbusPlcConnection(ChannelFactory channelFactory, String params) {
         super(channelFactory);
 
@@ -46,6 +49,12 @@ public abstract class BaseModbusPlcConnection extends AbstractPlcConnection impl
                 if (paramElements.length == 2) {
                     String paramValue = paramElements[1];
                     switch (paramName) {
+                        case "max-in-flight":
+                            maxInFlight = Integer.parseInt(paramValue);
+                            break;
+                        case "transport":
+                            // Handled by the channel factory.
+                            break;
                         default:
                             logger.debug("Unknown parameter {} with value {}", paramName, paramValue);
                     }
@@ -56,6 +65,10 @@ public abstract class BaseModbusPlcConnection extends AbstractPlcConnection impl
         }
     }
 
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
     @Override
     public Address parseAddress(String addressString) {
         if (MaskWriteRegisterModbusAddress.ADDRESS_PATTERN.matcher(addressString).matches()) {
@@ -26,6 +26,7 @@ import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelInitializer;
 import org.apache.plc4x.java.base.connection.ChannelFactory;
 import org.apache.plc4x.java.base.connection.TcpSocketChannelFactory;
+import org.apache.plc4x.java.base.connection.TcpTransport;
 import org.apache.plc4x.java.modbus.netty.Plc4XModbusProtocol;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -40,12 +41,12 @@ public class ModbusTcpPlcConnection extends BaseModbusPlcConnection {
     private static final Logger logger = LoggerFactory.getLogger(ModbusTcpPlcConnection.class);
 
     private ModbusTcpPlcConnection(InetAddress address, String params) {
-        this(new TcpSocketChannelFactory(address, MODBUS_TCP_PORT), params);
+        this(new TcpSocketChannelFactory(address, MODBUS_TCP_PORT, TcpTransport.fromParams(params)), params);
         logger.info("Configured ModbusTcpPlcConnection with: host-name {}", address.getHostAddress());
     }
 
     public ModbusTcpPlcConnection(InetAddress address, int port, String params) {
-        this(new TcpSocketChannelFactory(address, port), params);
+        this(new TcpSocketChannelFactory(address, port, TcpTransport.fromParams(params)), params);
         logger.info("Configured ModbusTcpPlcConnection with: host-name {}", address.getHostAddress());
     }
 
@@ -67,7 +68,8 @@ public class ModbusTcpPlcConnection extends BaseModbusPlcConnection {
             @Override
             protected void initChannel(Channel channel) {
                 channel.pipeline().addLast(new ModbusTcpCodec(new ModbusRequestEncoder(), new ModbusResponseDecoder()));
-                channel.pipeline().addLast(new Plc4XModbusProtocol());
+                channel.pipeline().addLast(
+                    new Plc4XModbusProtocol(Plc4XModbusProtocol.DEFAULT_REQUEST_TIMEOUT, getMaxInFlight()));
             }
         };
     }
@@ -0,0 +1,96 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+package org.apache.plc4x.java.modbus.netty;
+
+import org.apache.plc4x.java.api.messages.PlcReadRequest;
+import org.apache.plc4x.java.api.messages.items.ReadRequestItem;
+
+import java.util.List;
+
+/**
+ * Read request for one contiguous block of coils, discrete inputs or registers, which is read with a
+ * single Modbus transaction. The request items are the items of the original request located in this
+ * block, the returned block is split up into one response item per request item again.
+ *
+ * @see ModbusReadRequestCoalescer
+ */
+public class CoalescedReadRequest extends PlcReadRequest {
+
+    /**
+     * The Modbus functions able to read a block of data.
+     */
+    public enum ReadFunction {
+        COILS(true, ModbusReadRequestCoalescer.MAX_COILS_PER_REQUEST),
+        DISCRETE_INPUTS(true, ModbusReadRequestCoalescer.MAX_COILS_PER_REQUEST),
+        HOLDING_REGISTERS(false, ModbusReadRequestCoalescer.MAX_REGISTERS_PER_REQUEST),
+        INPUT_REGISTERS(false, ModbusReadRequestCoalescer.MAX_REGISTERS_PER_REQUEST);
+
+        private final boolean bitAccess;
+        private final int maxQuantity;
+
+        ReadFunction(boolean bitAccess, int maxQuantity) {
+            this.bitAccess = bitAccess;
+            this.maxQuantity = maxQuantity;
+        }
+
+        /**
+         * @return true if this function reads single bits (coils or discrete inputs), false if it reads registers.
+         */
+        public boolean isBitAccess() {
+            return bitAccess;
+        }
+
+        public int getMaxQuantity() {
+            return maxQuantity;
+        }
+    }
+
+    private final ReadFunction readFunction;
+    private final int startAddress;
+    private final int quantity;
+
+    public CoalescedReadRequest(ReadFunction readFunction, int startAddress, int quantity, List<ReadRequestItem<?>> requestItems) {
+        super(requestItems);
+        this.readFunction = readFunction;
+        this.startAddress = startAddress;
+        this.quantity = quantity;
+    }
+
+    public ReadFunction getReadFunction() {
+        return readFunction;
+    }
+
+    public int getStartAddress() {
+        return startAddress;
+    }
+
+    public int getQuantity() {
+        return quantity;
+    }
+
+    @Override
+    public String toString() {
+        return "CoalescedReadRequest{" +
+            "readFunction=" + readFunction +
+            ", startAddress=" + startAddress +
+            ", quantity=" + quantity +
+            "} " + super.toString();
+    }
+
+}
@@ -0,0 +1,141 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+package org.apache.plc4x.java.modbus.netty;
+
+import org.apache.commons.configuration2.Configuration;
+import org.apache.commons.configuration2.SystemConfiguration;
+import org.apache.plc4x.java.api.exceptions.PlcProtocolException;
+import org.apache.plc4x.java.api.messages.PlcReadRequest;
+import org.apache.plc4x.java.api.messages.items.ReadRequestItem;
+import org.apache.plc4x.java.api.model.Address;
+import org.apache.plc4x.java.modbus.model.*;
+import org.apache.plc4x.java.modbus.netty.CoalescedReadRequest.ReadFunction;
+
+import java.util.*;
+
+/**
+ * Splits the items of a multi-item {@link PlcReadRequest} up by the Modbus function needed to read them
+ * and merges items with adjacent or nearly adjacent addresses into as few {@link CoalescedReadRequest}s
+ * as the protocol limits (125 registers or 2000 coils per request) allow.
+ *
+ * Items are merged, if there are no more than "plc4x.modbusprotocol.max_register_gap" (default 10)
+ * unused registers or "plc4x.modbusprotocol.max_coil_gap" (default 80) unused coils between them.
+ * Reading a few unused registers is usually a lot cheaper than an additional round-trip.
+ */
+public class ModbusReadRequestCoalescer {
+
+    public static final int MAX_REGISTERS_PER_REQUEST = 125;
+    public static final int MAX_COILS_PER_REQUEST = 2000;
+
+    // Fetch values from configuration
+    private static final Configuration CONF = new SystemConfiguration();
+    private static final int MAX_REGISTER_GAP = CONF.getInt("plc4x.modbusprotocol.max_register_gap", 10);
+    private static final int MAX_COIL_GAP = CONF.getInt("plc4x.modbusprotocol.max_coil_gap", 80);
+
+    private final int maxRegisterGap;
+    private final int maxCoilGap;
+
+    public ModbusReadRequestCoalescer() {
+        this(MAX_REGISTER_GAP, MAX_COIL_GAP);
+    }
+
+    /**
+     * @param maxRegisterGap maximum number of unused registers read to merge two items.
+     * @param maxCoilGap     maximum number of unused coils (or discrete inputs) read to merge two items.
+     */
+    public ModbusReadRequestCoalescer(int maxRegisterGap, int maxCoilGap) {
+        this.maxRegisterGap = maxRegisterGap;
+        this.maxCoilGap = maxCoilGap;
+    }
+
+    /**
+     * @param readRequest the request to split up.
+     * @return one request per Modbus transaction needed to read all items, every item is contained in exactly one.
+     * @throws PlcProtocolException if an item can't be read or is bigger than the protocol allows.
+     */
+    public List<CoalescedReadRequest> coalesce(PlcReadRequest readRequest) throws PlcProtocolException {
+        Map<ReadFunction, List<ReadRequestItem<?>>> itemsByFunction = new EnumMap<>(ReadFunction.class);
+        for (ReadRequestItem<?> requestItem : readRequest.getRequestItems()) {
+            ReadFunction readFunction = getReadFunction(requestItem.getAddress());
+            if (requestItem.getSize() > readFunction.getMaxQuantity()) {
+                throw new PlcProtocolException("Item " + requestItem + " exceeds the maximum of " +
+                    readFunction.getMaxQuantity() + " per request");
+            }
+            itemsByFunction.computeIfAbsent(readFunction, function -> new ArrayList<>()).add(requestItem);
+        }
+
+        List<CoalescedReadRequest> coalescedRequests = new ArrayList<>();
+        for (Map.Entry<ReadFunction, List<ReadRequestItem<?>>> entry : itemsByFunction.entrySet()) {
+            ReadFunction readFunction = entry.getKey();
+            int maxGap = readFunction.isBitAccess() ? maxCoilGap : maxRegisterGap;
+            List<ReadRequestItem<?>> items = entry.getValue();
+            items.sort(Comparator.comparingInt(ModbusReadRequestCoalescer::getStartAddress));
+
+            int blockStart = -1;
+            int blockEnd = -1;
+            List<ReadRequestItem<?>> blockItems = new ArrayList<>();
+            for (ReadRequestItem<?> item : items) {
+                int itemStart = getStartAddress(item);
+                int itemEnd = itemStart + item.getSize();
+                boolean fitsIntoBlock = !blockItems.isEmpty() && (itemStart <= blockEnd + maxGap) &&
+                    (Math.max(blockEnd, itemEnd) - blockStart <= readFunction.getMaxQuantity());
+                if (!fitsIntoBlock) {
+                    if (!blockItems.isEmpty()) {
+                        coalescedRequests.add(new CoalescedReadRequest(
+                            readFunction, blockStart, blockEnd - blockStart, blockItems));
+                    }
+                    blockItems = new ArrayList<>();
+                    blockStart = itemStart;
+                    blockEnd = itemEnd;
+                }
+                blockItems.add(item);
+                blockEnd = Math.max(blockEnd, itemEnd);
+            }
+            coalescedRequests.add(new CoalescedReadRequest(
+                readFunction, blockStart, blockEnd - blockStart, blockItems));
+        }
+        return coalescedRequests;
+    }
+
+    public int getMaxRegisterGap() {
+        return maxRegisterGap;
+    }
+
+    public int getMaxCoilGap() {
+        return maxCoilGap;
+    }
+
+    static int getStartAddress(ReadRequestItem<?> requestItem) {
+        return ((ModbusAddress) requestItem.getAddress()).getAddress();
+    }
+
+    private static ReadFunction getReadFunction(Address address) throws PlcProtocolException {
+        if (address instanceof CoilModbusAddress) {
+            return ReadFunction.COILS;
+        } else if (address instanceof ReadDiscreteInputsModbusAddress) {
+            return ReadFunction.DISCRETE_INPUTS;
+        } else if ((address instanceof RegisterModbusAddress) || (address instanceof ReadHoldingRegistersModbusAddress)) {
+            return ReadFunction.HOLDING_REGISTERS;
+        } else if (address instanceof ReadInputRegistersModbusAddress) {
+            return ReadFunction.INPUT_REGISTERS;
+        }
+        throw new PlcProtocolException("Unsupported address type " + address.getClass() + " for a read request.");
+    }
+
+}
@@ -25,41 +25,159 @@ import com.digitalpetri.modbus.responses.*;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.util.concurrent.PromiseCombiner;
 import io.netty.handler.codec.MessageToMessageCodec;
+import org.apache.commons.configuration2.Configuration;
+import org.apache.commons.configuration2.SystemConfiguration;
 import org.apache.commons.lang3.ArrayUtils;
 import org.apache.plc4x.java.api.exceptions.PlcException;
+import org.apache.plc4x.java.api.exceptions.PlcIoException;
 import org.apache.plc4x.java.api.exceptions.PlcNotImplementedException;
 import org.apache.plc4x.java.api.exceptions.PlcProtocolException;
 import org.apache.plc4x.java.api.exceptions.PlcRuntimeException;
 import org.apache.plc4x.java.api.messages.*;
 import org.apache.plc4x.java.api.messages.items.*;
 import org.apache.plc4x.java.api.types.ResponseCode;
+import org.apache.plc4x.java.base.timeout.RequestTimeouts;
 import org.apache.plc4x.java.modbus.model.*;
+import org.apache.plc4x.java.modbus.netty.CoalescedReadRequest.ReadFunction;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.math.BigInteger;
-import java.util.Collections;
-import java.util.LinkedList;
-import java.util.List;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicInteger;
 
-
+/**
+ * This layer transforms between {@link PlcRequestContainer}s and {@link ModbusTcpPayload}s.
+ *
+ * Requests are correlated with their responses by the Modbus/TCP transaction id. Up to "max in flight"
+ * transactions are sent to the remote without waiting for the responses of the previous ones. Additional
+ * requests are queued and sent as soon as a response is received or an in-flight request timed out.
+ * The window can be configured with the "max-in-flight" connection parameter or globally with the
+ * "plc4x.modbusprotocol.max_in_flight" system property (default 4).
+ *
+ * Read requests containing multiple items are split up into one {@link CoalescedReadRequest} per block
+ * of adjacent addresses by a {@link ModbusReadRequestCoalescer}. Every block is read with a single
+ * transaction and the results are combined into one response again.
+ */
 public class Plc4XModbusProtocol extends MessageToMessageCodec<ModbusTcpPayload, PlcRequestContainer<PlcRequest, PlcResponse>> {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(Plc4XModbusProtocol.class);
 
+    // Fetch values from configuration
+    private static final Configuration CONF = new SystemConfiguration();
+    public static final long DEFAULT_REQUEST_TIMEOUT = CONF.getLong("plc4x.modbusprotocol.request_timeout", 10_000);
+    public static final int DEFAULT_MAX_IN_FLIGHT = CONF.getInt("plc4x.modbusprotocol.max_in_flight", 4);
+
     public final AtomicInteger transactionId = new AtomicInteger();
 
     private final ConcurrentMap<Short, PlcRequestContainer<PlcRequest, PlcResponse>> requestsMap = new ConcurrentHashMap<>();
 
+    private final RequestTimeouts<Short> requestTimeouts;
+
+    private final int maxInFlight;
+
+    // Requests waiting for a free slot in the in-flight window (only accessed from the event loop).
+    private final Queue<PendingRequest> pendingRequests = new ArrayDeque<>();
+
+    private volatile ChannelHandlerContext context;
+
+    private final ModbusReadRequestCoalescer readRequestCoalescer = new ModbusReadRequestCoalescer();
+
+    public Plc4XModbusProtocol() {
+        this(DEFAULT_REQUEST_TIMEOUT, DEFAULT_MAX_IN_FLIGHT);
+    }
+
+    /**
+     * @param requestTimeout time in milliseconds after which unanswered requests fail (0 = never).
+     */
+    public Plc4XModbusProtocol(long requestTimeout) {
+        this(requestTimeout, DEFAULT_MAX_IN_FLIGHT);
+    }
+
+    /**
+     * @param requestTimeout time in milliseconds after which unanswered requests fail (0 = never).
+     * @param maxInFlight    maximum number of transactions sent without having received their response.
+     */
+    public Plc4XModbusProtocol(long requestTimeout, int maxInFlight) {
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("maxInFlight must be at least 1");
+        }
+        this.maxInFlight = maxInFlight;
+        this.requestTimeouts = new RequestTimeouts<>("Modbus", requestTimeout, requestsMap);
+        // A timed out request frees a slot in the window, so continue sending on the event loop.
+        this.requestTimeouts.setTimeoutListener((key, container) -> {
+            ChannelHandlerContext ctx = context;
+            if (ctx != null) {
+                ctx.executor().execute(() -> sendPendingRequests(ctx));
+            }
+        });
+    }
+
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    /**
+     * @return number of transactions sent to the remote which have not been answered yet.
+     */
+    public int getNumInFlight() {
+        return requestsMap.size();
+    }
+
+    public RequestTimeouts<Short> getRequestTimeouts() {
+        return requestTimeouts;
+    }
+
+    @Override
+    public void handlerAdded(ChannelHandlerContext ctx) throws Exception {
+        context = ctx;
+        super.handlerAdded(ctx);
+    }
+
+    /**
+     * Queues outgoing requests as long as the in-flight window is full.
+     */
+    @Override
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+        if (isMultiItemReadRequest(msg)) {
+            writeCoalescedReadRequests(ctx, (PlcRequestContainer<PlcRequest, PlcResponse>) msg, promise);
+            return;
+        }
+        if (acceptOutboundMessage(msg) && (!pendingRequests.isEmpty() || (requestsMap.size() >= maxInFlight))) {
+            LOGGER.trace("In-flight window full, queueing {}", msg);
+            pendingRequests.add(new PendingRequest(msg, promise));
+            return;
+        }
+        super.write(ctx, msg, promise);
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        // Nothing we sent or queued will ever be answered.
+        PlcIoException cause = new PlcIoException("Connection closed");
+        for (PendingRequest pendingRequest = pendingRequests.poll(); pendingRequest != null; pendingRequest = pendingRequests.poll()) {
+            pendingRequest.promise.tryFailure(cause);
+        }
+        for (Short key : requestsMap.keySet()) {
+            PlcRequestContainer<PlcRequest, PlcResponse> container = requestsMap.remove(key);
+            if (container != null) {
+                requestTimeouts.cancel(key);
+                container.getResponseFuture().completeExceptionally(cause);
+            }
+        }
+        super.channelInactive(ctx);
+    }
+
     @Override
     protected void encode(ChannelHandlerContext ctx, PlcRequestContainer<PlcRequest, PlcResponse> msg, List<Object> out) throws Exception {
         LOGGER.trace("(<--OUT): {}, {}, {}", ctx, msg, out);
-        // Reset transactionId on overflow
-        transactionId.compareAndSet(Short.MAX_VALUE + 1, 0);
         PlcRequest request = msg.getRequest();
         if (request instanceof PlcReadRequest) {
             encodeReadRequest(msg, out);
@@ -119,13 +237,18 @@ public class Plc4XModbusProtocol extends MessageToMessageCodec<ModbusTcpPayload,
         } else {
             throw new PlcProtocolException("Unsupported address type " + address.getClass() + " for a write request.");
         }
-        short transactionId = (short) this.transactionId.getAndIncrement();
+        short transactionId = nextTransactionId();
         requestsMap.put(transactionId, msg);
+        requestTimeouts.schedule(transactionId, msg);
         out.add(new ModbusTcpPayload(transactionId, unitId, modbusRequest));
     }
 
     private void encodeReadRequest(PlcRequestContainer<PlcRequest, PlcResponse> msg, List<Object> out) throws PlcException {
         PlcReadRequest request = (PlcReadRequest) msg.getRequest();
+        if (request instanceof CoalescedReadRequest) {
+            encodeCoalescedReadRequest(msg, out);
+            return;
+        }
         // TODO: support multiple requests
         ReadRequestItem<?> readRequestItem = request.getRequestItem().orElseThrow(() -> new PlcNotImplementedException("Only single message supported for now"));
         // TODO: check if we can map like this. Implication is that we can only work with int, short, byte and boolean
@@ -154,8 +277,38 @@ public class Plc4XModbusProtocol extends MessageToMessageCodec<ModbusTcpPayload,
         } else {
             throw new PlcProtocolException("Unsupported address type " + address.getClass() + " for a read request.");
         }
-        short transactionId = (short) this.transactionId.getAndIncrement();
+        short transactionId = nextTransactionId();
+        requestsMap.put(transactionId, msg);
+        requestTimeouts.schedule(transactionId, msg);
+        out.add(new ModbusTcpPayload(transactionId, unitId, modbusRequest));
+    }
+
+    private void encodeCoalescedReadRequest(PlcRequestContainer<PlcRequest, PlcResponse> msg, List<Object> out) {
+        CoalescedReadRequest request = (CoalescedReadRequest) msg.getRequest();
+        int address = request.getStartAddress();
+        int quantity = request.getQuantity();
+        short unitId = 0;
+
+        ModbusPdu modbusRequest;
+        switch (request.getReadFunction()) {
+            case COILS:
+                modbusRequest = new ReadCoilsRequest(address, quantity);
+                break;
+            case DISCRETE_INPUTS:
+                modbusRequest = new ReadDiscreteInputsRequest(address, quantity);
+                break;
+            case HOLDING_REGISTERS:
+                modbusRequest = new ReadHoldingRegistersRequest(address, quantity);
+                break;
+            case INPUT_REGISTERS:
+                modbusRequest = new ReadInputRegistersRequest(address, quantity);
+                break;
+            default:
+                throw new IllegalStateException("Unmapped read function " + request.getReadFunction());
+        }
+        short transactionId = nextTransactionId();
         requestsMap.put(transactionId, msg);
+        requestTimeouts.schedule(transactionId, msg);
         out.add(new ModbusTcpPayload(transactionId, unitId, modbusRequest));
     }
 
@@ -166,10 +319,18 @@ public class Plc4XModbusProtocol extends MessageToMessageCodec<ModbusTcpPayload,
         LOGGER.debug("{}: transactionId: {}, unitId: {}, modbusPdu:{}", msg, msg.getTransactionId(), msg.getUnitId(), msg.getModbusPdu());
         // TODO: implement me
         short transactionId = msg.getTransactionId();
-        PlcRequestContainer<PlcRequest, PlcResponse> plcRequestContainer = requestsMap.get(transactionId);
+        PlcRequestContainer<PlcRequest, PlcResponse> plcRequestContainer = requestsMap.remove(transactionId);
         if (plcRequestContainer == null) {
             throw new PlcProtocolException("Unrelated payload received. [transactionId: " + msg.getTransactionId() + ", unitId: " + msg.getUnitId() + ", modbusPdu: " + msg.getModbusPdu() + "]");
         }
+        requestTimeouts.cancel(transactionId);
+        // The slot of this transaction is free again.
+        sendPendingRequests(ctx);
+
+        if (plcRequestContainer.getRequest() instanceof CoalescedReadRequest) {
+            decodeCoalescedReadResponse(msg, plcRequestContainer);
+            return;
+        }
 
         // TODO: only single Item supported for now
         PlcRequest<?> request = plcRequestContainer.getRequest();
@@ -236,9 +397,13 @@ public class Plc4XModbusProtocol extends MessageToMessageCodec<ModbusTcpPayload,
             plcRequestContainer.getResponseFuture().complete(new PlcWriteResponse((PlcWriteRequest) request, new WriteResponseItem<>((WriteRequestItem) requestItem, ResponseCode.OK)));
         } else if (modbusPdu instanceof ExceptionResponse) {
             ExceptionResponse exceptionResponse = (ExceptionResponse) modbusPdu;
-            throw new PlcProtocolException("Error received " + exceptionResponse.getExceptionCode());
+            PlcProtocolException exception = new PlcProtocolException("Error received " + exceptionResponse.getExceptionCode());
+            plcRequestContainer.getResponseFuture().completeExceptionally(exception);
+            throw exception;
         } else {
-            throw new PlcProtocolException("Unsupported messageTyp type" + modbusPdu.getClass());
+            PlcProtocolException exception = new PlcProtocolException("Unsupported messageTyp type" + modbusPdu.getClass());
+            plcRequestContainer.getResponseFuture().completeExceptionally(exception);
+            throw exception;
         }
     }
 
@@ -248,6 +413,183 @@ public class Plc4XModbusProtocol extends MessageToMessageCodec<ModbusTcpPayload,
         super.exceptionCaught(ctx, cause);
     }
 
+    private void decodeCoalescedReadResponse(ModbusTcpPayload msg, PlcRequestContainer<PlcRequest, PlcResponse> plcRequestContainer) throws PlcProtocolException {
+        CoalescedReadRequest request = (CoalescedReadRequest) plcRequestContainer.getRequest();
+        ModbusPdu modbusPdu = msg.getModbusPdu();
+        ByteBuf block;
+        if (modbusPdu instanceof ReadCoilsResponse) {
+            block = ((ReadCoilsResponse) modbusPdu).getCoilStatus();
+        } else if (modbusPdu instanceof ReadDiscreteInputsResponse) {
+            block = ((ReadDiscreteInputsResponse) modbusPdu).getInputStatus();
+        } else if (modbusPdu instanceof ReadHoldingRegistersResponse) {
+            block = ((ReadHoldingRegistersResponse) modbusPdu).getRegisters();
+        } else if (modbusPdu instanceof ReadInputRegistersResponse) {
+            block = ((ReadInputRegistersResponse) modbusPdu).getRegisters();
+        } else {
+            PlcProtocolException exception = modbusPdu instanceof ExceptionResponse ?
+                new PlcProtocolException("Error received " + ((ExceptionResponse) modbusPdu).getExceptionCode()) :
+                new PlcProtocolException("Unexpected response " + modbusPdu.getClass() + " to " + request);
+            plcRequestContainer.getResponseFuture().completeExceptionally(exception);
+            throw exception;
+        }
+        ReadFunction readFunction = request.getReadFunction();
+        int requiredBytes = readFunction.isBitAccess() ? (request.getQuantity() + 7) / 8 : request.getQuantity() * 2;
+        if (block.readableBytes() < requiredBytes) {
+            PlcProtocolException exception = new PlcProtocolException(
+                "Response too short. Expected " + requiredBytes + " bytes, got " + block.readableBytes());
+            plcRequestContainer.getResponseFuture().completeExceptionally(exception);
+            throw exception;
+        }
+
+        // Fan the block out to the individual items again.
+        List<ReadResponseItem<?>> responseItems = new ArrayList<>(request.getNumberOfItems());
+        for (ReadRequestItem<?> requestItem : request.getRequestItems()) {
+            int offset = ModbusReadRequestCoalescer.getStartAddress(requestItem) - request.getStartAddress();
+            List<?> values;
+            if (readFunction.isBitAccess()) {
+                values = produceCoilValueList(requestItem, requestItem.getDatatype(),
+                    sliceCoils(block, offset, requestItem.getSize()));
+            } else {
+                values = produceRegisterValueList(requestItem, requestItem.getDatatype(),
+                    block.slice(block.readerIndex() + offset * 2, requestItem.getSize() * 2));
+            }
+            responseItems.add(new ReadResponseItem(requestItem, ResponseCode.OK, values));
+        }
+        plcRequestContainer.getResponseFuture().complete(new PlcReadResponse(request, responseItems));
+    }
+
+    /**
+     * Copies a range of coils starting at an arbitrary bit offset into a new buffer starting at bit 0.
+     */
+    private ByteBuf sliceCoils(ByteBuf coils, int offset, int quantity) {
+        byte[] bits = new byte[(quantity + 7) / 8];
+        for (int i = 0; i < quantity; i++) {
+            int coil = offset + i;
+            if ((coils.getByte(coils.readerIndex() + coil / 8) & (1 << (coil % 8))) != 0) {
+                bits[i / 8] |= 1 << (i % 8);
+            }
+        }
+        return Unpooled.wrappedBuffer(bits);
+    }
+
+    ////////////////////////////////////////////////////////////////////////////////
+    // Multi-item read helpers.
+    ////////////////////////////////////////////////////////////////////////////////
+
+    private boolean isMultiItemReadRequest(Object msg) {
+        if (!(msg instanceof PlcRequestContainer)) {
+            return false;
+        }
+        PlcRequest request = ((PlcRequestContainer) msg).getRequest();
+        return (request instanceof PlcReadRequest) && !(request instanceof CoalescedReadRequest) &&
+            request.isMultiValue();
+    }
+
+    /**
+     * Splits a multi-item read request up into one request per block of adjacent addresses. Every block is
+     * sent as its own transaction (subject to the in-flight window) and the response of the original
+     * request is assembled as soon as all blocks have been answered.
+     */
+    @SuppressWarnings("unchecked")
+    private void writeCoalescedReadRequests(ChannelHandlerContext ctx, PlcRequestContainer<PlcRequest, PlcResponse> msg, ChannelPromise promise) throws Exception {
+        PlcReadRequest readRequest = (PlcReadRequest) msg.getRequest();
+        List<CoalescedReadRequest> coalescedRequests;
+        try {
+            coalescedRequests = readRequestCoalescer.coalesce(readRequest);
+        } catch (PlcProtocolException e) {
+            msg.getResponseFuture().completeExceptionally(e);
+            promise.tryFailure(e);
+            return;
+        }
+        LOGGER.debug("Reading {} items with {} transactions", readRequest.getNumberOfItems(), coalescedRequests.size());
+
+        List<CompletableFuture<PlcResponse>> blockFutures = new ArrayList<>(coalescedRequests.size());
+        PromiseCombiner promiseCombiner = new PromiseCombiner();
+        for (CoalescedReadRequest coalescedRequest : coalescedRequests) {
+            CompletableFuture<PlcResponse> blockFuture = new CompletableFuture<>();
+            blockFutures.add(blockFuture);
+            ChannelPromise blockPromise = ctx.newPromise();
+            blockPromise.addListener(future -> {
+                if (!future.isSuccess()) {
+                    blockFuture.completeExceptionally(future.cause());
+                }
+            });
+            promiseCombiner.add(blockPromise);
+            write(ctx, new PlcRequestContainer<>(coalescedRequest, blockFuture), blockPromise);
+        }
+        promiseCombiner.finish(promise);
+
+        CompletableFuture.allOf(blockFutures.toArray(new CompletableFuture[0])).whenComplete((ignored, throwable) -> {
+            if (throwable != null) {
+                msg.getResponseFuture().completeExceptionally(
+                    throwable instanceof CompletionException ? throwable.getCause() : throwable);
+                return;
+            }
+            // Put the response items back into the order of the original request.
+            Map<ReadRequestItem<?>, ReadResponseItem<?>> responseItemsByRequestItem = new IdentityHashMap<>();
+            for (CompletableFuture<PlcResponse> blockFuture : blockFutures) {
+                PlcReadResponse blockResponse = (PlcReadResponse) blockFuture.join();
+                for (ReadResponseItem<?> responseItem : blockResponse.getResponseItems()) {
+                    responseItemsByRequestItem.put(responseItem.getRequestItem(), responseItem);
+                }
+            }
+            List<ReadResponseItem<?>> responseItems = new ArrayList<>(readRequest.getNumberOfItems());
+            for (ReadRequestItem<?> requestItem : readRequest.getRequestItems()) {
+                responseItems.add(responseItemsByRequestItem.get(requestItem));
+            }
+            msg.getResponseFuture().complete(new PlcReadResponse(readRequest, responseItems));
+        });
+    }
+
+    ////////////////////////////////////////////////////////////////////////////////
+    // In-flight window helpers.
+    ////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Sends as many queued requests as fit into the in-flight window.
+     */
+    private void sendPendingRequests(ChannelHandlerContext ctx) {
+        boolean sent = false;
+        while (!pendingRequests.isEmpty() && (requestsMap.size() < maxInFlight)) {
+            PendingRequest pendingRequest = pendingRequests.poll();
+            try {
+                super.write(ctx, pendingRequest.message, pendingRequest.promise);
+            } catch (Exception e) {
+                pendingRequest.promise.tryFailure(e);
+            }
+            sent = true;
+        }
+        if (sent) {
+            ctx.flush();
+        }
+    }
+
+    /**
+     * Transaction ids still used by in-flight requests are skipped after the counter wrapped around,
+     * so a late response can never be correlated with the wrong request.
+     */
+    private short nextTransactionId() {
+        short nextTransactionId;
+        do {
+            // Reset transactionId on overflow
+            transactionId.compareAndSet(Short.MAX_VALUE + 1, 0);
+            nextTransactionId = (short) transactionId.getAndIncrement();
+        } while (requestsMap.containsKey(nextTransactionId));
+        return nextTransactionId;
+    }
+
+    private static final class PendingRequest {
+
+        private final Object message;
+        private final ChannelPromise promise;
+
+        private PendingRequest(Object message, ChannelPromise promise) {
+            this.message = message;
+            this.promise = promise;
+        }
+
+    }
+
     ////////////////////////////////////////////////////////////////////////////////
     // Encoding helpers.
     ////////////////////////////////////////////////////////////////////////////////
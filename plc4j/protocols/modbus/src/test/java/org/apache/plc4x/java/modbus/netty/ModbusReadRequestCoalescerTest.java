@@ -0,0 +1,110 @@
+/*
+ Licensed to the Apache Software Foundation (ASF) under one
+ or more contributor license agreements.  See the NOTICE file
+ distributed with this work for additional information
+ regarding copyright ownership.  The ASF licenses this file
+ to you under the Apache License, Version 2.0 (the
+ "License"); you may not use this file except in compliance
+ with the License.  You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing,
+ software distributed under the License is distributed on an
+ "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ KIND, either express or implied.  See the License for the
+ specific language governing permissions and limitations
+ under the License.
+ */
+package org.apache.plc4x.java.modbus.netty;
+
+import org.apache.plc4x.java.api.exceptions.PlcProtocolException;
+import org.apache.plc4x.java.api.messages.PlcReadRequest;
+import org.apache.plc4x.java.api.messages.items.ReadRequestItem;
+import org.apache.plc4x.java.modbus.model.CoilModbusAddress;
+import org.apache.plc4x.java.modbus.model.ReadHoldingRegistersModbusAddress;
+import org.apache.plc4x.java.modbus.model.ReadInputRegistersModbusAddress;
+import org.apache.plc4x.java.modbus.model.RegisterModbusAddress;
+import org.apache.plc4x.java.modbus.netty.CoalescedReadRequest.ReadFunction;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+public class ModbusReadRequestCoalescerTest {
+
+    private ModbusReadRequestCoalescer SUT;
+
+    @Before
+    public void setUp() {
+        SUT = new ModbusReadRequestCoalescer(4, 16);
+    }
+
+    @Test
+    public void adjacentAndNearbyRegistersAreMerged() throws Exception {
+        ReadRequestItem<Integer> first = new ReadRequestItem<>(Integer.class, RegisterModbusAddress.of("register:10"), 2);
+        ReadRequestItem<Integer> second = new ReadRequestItem<>(Integer.class, ReadHoldingRegistersModbusAddress.of("readholdingregisters:12"));
+        ReadRequestItem<Integer> third = new ReadRequestItem<>(Integer.class, RegisterModbusAddress.of("register:17"));
+        ReadRequestItem<Integer> far = new ReadRequestItem<>(Integer.class, RegisterModbusAddress.of("register:30"));
+        PlcReadRequest request = PlcReadRequest.builder()
+            .addItem(far).addItem(third).addItem(first).addItem(second).build();
+
+        List<CoalescedReadRequest> coalesced = SUT.coalesce(request);
+
+        assertThat(coalesced, hasSize(2));
+        assertThat(coalesced.get(0).getReadFunction(), equalTo(ReadFunction.HOLDING_REGISTERS));
+        assertThat(coalesced.get(0).getStartAddress(), equalTo(10));
+        assertThat(coalesced.get(0).getQuantity(), equalTo(8));
+        assertThat(coalesced.get(0).getRequestItems(), contains(first, second, third));
+        assertThat(coalesced.get(1).getStartAddress(), equalTo(30));
+        assertThat(coalesced.get(1).getQuantity(), equalTo(1));
+        assertThat(coalesced.get(1).getRequestItems(), contains(far));
+    }
+
+    @Test
+    public void itemsAreGroupedByFunction() throws Exception {
+        PlcReadRequest request = PlcReadRequest.builder()
+            .addItem(Integer.class, RegisterModbusAddress.of("register:1"))
+            .addItem(Integer.class, ReadInputRegistersModbusAddress.of("readinputregisters:1"))
+            .addItem(Boolean.class, CoilModbusAddress.of("coil:1"))
+            .addItem(Boolean.class, CoilModbusAddress.of("coil:15"))
+            .build();
+
+        List<CoalescedReadRequest> coalesced = SUT.coalesce(request);
+
+        assertThat(coalesced, hasSize(3));
+        assertThat(coalesced.get(0).getReadFunction(), equalTo(ReadFunction.COILS));
+        assertThat(coalesced.get(0).getQuantity(), equalTo(15));
+        assertThat(coalesced.get(1).getReadFunction(), equalTo(ReadFunction.HOLDING_REGISTERS));
+        assertThat(coalesced.get(2).getReadFunction(), equalTo(ReadFunction.INPUT_REGISTERS));
+    }
+
+    @Test
+    public void blocksRespectTheProtocolLimit() throws Exception {
+        PlcReadRequest.Builder builder = PlcReadRequest.builder();
+        for (int i = 0; i < 400; i++) {
+            builder.addItem(Integer.class, RegisterModbusAddress.of("register:" + i));
+        }
+
+        List<CoalescedReadRequest> coalesced = SUT.coalesce(builder.build());
+
+        assertThat(coalesced, hasSize(4));
+        for (CoalescedReadRequest coalescedRequest : coalesced) {
+            assertThat(coalescedRequest.getQuantity(), lessThanOrEqualTo(ModbusReadRequestCoalescer.MAX_REGISTERS_PER_REQUEST));
+        }
+        assertThat(coalesced.get(3).getStartAddress(), equalTo(375));
+        assertThat(coalesced.get(3).getQuantity(), equalTo(25));
+    }
+
+    @Test(expected = PlcProtocolException.class)
+    public void oversizedItemIsRejected() throws Exception {
+        SUT.coalesce(PlcReadRequest.builder()
+            .addItem(Integer.class, RegisterModbusAddress.of("register:1"), 126)
+            .addItem(Integer.class, RegisterModbusAddress.of("register:200"))
+            .build());
+    }
+
+}
@@ -0,0 +1,145 @@
+/*
+ Licensed to the Apache Software Foundation (ASF) under one
+ or more contributor license agreements.  See the NOTICE file
+ distributed with this work for additional information
+ regarding copyright ownership.  The ASF licenses this file
+ to you under the Apache License, Version 2.0 (the
+ "License"); you may not use this file except in compliance
+ with the License.  You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing,
+ software distributed under the License is distributed on an
+ "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ KIND, either express or implied.  See the License for the
+ specific language governing permissions and limitations
+ under the License.
+ */
+package org.apache.plc4x.java.modbus.netty;
+
+import com.digitalpetri.modbus.codec.ModbusTcpPayload;
+import com.digitalpetri.modbus.requests.ReadCoilsRequest;
+import com.digitalpetri.modbus.requests.ReadHoldingRegistersRequest;
+import com.digitalpetri.modbus.responses.ReadCoilsResponse;
+import com.digitalpetri.modbus.responses.ReadHoldingRegistersResponse;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.apache.plc4x.java.api.messages.PlcReadRequest;
+import org.apache.plc4x.java.api.messages.PlcReadResponse;
+import org.apache.plc4x.java.api.messages.PlcRequestContainer;
+import org.apache.plc4x.java.api.messages.specific.TypeSafePlcReadRequest;
+import org.apache.plc4x.java.modbus.model.CoilModbusAddress;
+import org.apache.plc4x.java.modbus.model.RegisterModbusAddress;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+public class Plc4XModbusProtocolPipeliningTest {
+
+    private Plc4XModbusProtocol SUT;
+
+    private EmbeddedChannel channel;
+
+    @Before
+    public void setUp() {
+        SUT = new Plc4XModbusProtocol(0, 2);
+        channel = new EmbeddedChannel(SUT);
+    }
+
+    @Test
+    public void requestsBeyondWindowAreQueued() {
+        CompletableFuture<PlcReadResponse> first = read(1);
+        CompletableFuture<PlcReadResponse> second = read(2);
+        CompletableFuture<PlcReadResponse> third = read(3);
+
+        ModbusTcpPayload firstPayload = channel.readOutbound();
+        ModbusTcpPayload secondPayload = channel.readOutbound();
+        assertThat(channel.readOutbound(), nullValue());
+        assertThat(SUT.getNumInFlight(), equalTo(2));
+
+        // Answer the second transaction first, responses are correlated by transaction id.
+        respond(secondPayload);
+        assertThat(second.isDone(), is(true));
+        assertThat(first.isDone(), is(false));
+        ModbusTcpPayload thirdPayload = channel.readOutbound();
+        assertThat(thirdPayload, notNullValue());
+        assertThat(thirdPayload.getTransactionId(), not(equalTo(firstPayload.getTransactionId())));
+
+        respond(firstPayload);
+        respond(thirdPayload);
+        assertThat(first.isDone(), is(true));
+        assertThat(third.isDone(), is(true));
+        assertThat(SUT.getNumInFlight(), equalTo(0));
+    }
+
+    @Test
+    public void closingChannelFailsQueuedAndInFlightRequests() {
+        CompletableFuture<PlcReadResponse> first = read(1);
+        read(2);
+        CompletableFuture<PlcReadResponse> third = read(3);
+
+        channel.close();
+
+        assertThat(first.isCompletedExceptionally(), is(true));
+        assertThat(third.isCompletedExceptionally(), is(true));
+        assertThat(SUT.getNumInFlight(), equalTo(0));
+    }
+
+    @Test
+    public void multiItemReadIsCoalesced() throws Exception {
+        PlcReadRequest request = PlcReadRequest.builder()
+            .addItem(Integer.class, RegisterModbusAddress.of("register:12"))
+            .addItem(Boolean.class, CoilModbusAddress.of("coil:3"), 2)
+            .addItem(Integer.class, RegisterModbusAddress.of("register:10"), 2)
+            .build();
+        CompletableFuture<PlcReadResponse> responseFuture = new CompletableFuture<>();
+        channel.writeAndFlush(new PlcRequestContainer(request, responseFuture));
+
+        // Coils are read first, then the holding registers 10 to 12.
+        ModbusTcpPayload coilsPayload = channel.readOutbound();
+        ModbusTcpPayload registersPayload = channel.readOutbound();
+        assertThat(channel.readOutbound(), nullValue());
+        ReadCoilsRequest coilsRequest = (ReadCoilsRequest) coilsPayload.getModbusPdu();
+        assertThat(coilsRequest.getAddress(), equalTo(3));
+        assertThat(coilsRequest.getQuantity(), equalTo(2));
+        ReadHoldingRegistersRequest registersRequest = (ReadHoldingRegistersRequest) registersPayload.getModbusPdu();
+        assertThat(registersRequest.getAddress(), equalTo(10));
+        assertThat(registersRequest.getQuantity(), equalTo(3));
+
+        channel.writeInbound(new ModbusTcpPayload(registersPayload.getTransactionId(), registersPayload.getUnitId(),
+            new ReadHoldingRegistersResponse(Unpooled.wrappedBuffer(new byte[]{0x00, 0x01, 0x00, 0x02, 0x00, 0x03}))));
+        assertThat(responseFuture.isDone(), is(false));
+        channel.writeInbound(new ModbusTcpPayload(coilsPayload.getTransactionId(), coilsPayload.getUnitId(),
+            new ReadCoilsResponse(Unpooled.wrappedBuffer(new byte[]{0x02}))));
+
+        PlcReadResponse response = responseFuture.get();
+        assertThat(response.getResponseItems(), hasSize(3));
+        assertThat(response.getResponseItems().get(0).getValues(), contains(3));
+        assertThat(response.getResponseItems().get(1).getValues(), contains(false, true));
+        assertThat(response.getResponseItems().get(2).getValues(), contains(1, 2));
+        assertThat(SUT.getNumInFlight(), equalTo(0));
+    }
+
+    private CompletableFuture<PlcReadResponse> read(int register) {
+        CompletableFuture<PlcReadResponse> responseFuture = new CompletableFuture<>();
+        TypeSafePlcReadRequest<Integer> request =
+            new TypeSafePlcReadRequest<>(Integer.class, RegisterModbusAddress.of("register:" + register));
+        channel.writeAndFlush(new PlcRequestContainer(request, responseFuture)).addListener(future -> {
+            if (!future.isSuccess()) {
+                responseFuture.completeExceptionally(future.cause());
+            }
+        });
+        return responseFuture;
+    }
+
+    private void respond(ModbusTcpPayload requestPayload) {
+        channel.writeInbound(new ModbusTcpPayload(requestPayload.getTransactionId(), requestPayload.getUnitId(),
+            new ReadHoldingRegistersResponse(Unpooled.wrappedBuffer(new byte[]{0x00, 0x2A}))));
+    }
+
+}
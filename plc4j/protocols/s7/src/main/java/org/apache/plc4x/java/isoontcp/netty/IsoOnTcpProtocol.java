@@ -20,20 +20,36 @@ package org.apache.plc4x.java.isoontcp.netty;
 
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufUtil;
-import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.handler.codec.ByteToMessageCodec;
 import org.apache.plc4x.java.api.exceptions.PlcProtocolException;
-import org.apache.plc4x.java.base.PlcMessageToMessageCodec;
 import org.apache.plc4x.java.isoontcp.netty.model.IsoOnTcpMessage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.List;
 
-public class IsoOnTcpProtocol extends PlcMessageToMessageCodec<ByteBuf, IsoOnTcpMessage> {
+/**
+ * Implementation of the ISO on TCP (RFC 1006) framing.
+ *
+ * As TCP doesn't preserve message boundaries, a single TPKT can arrive split up into multiple
+ * segments and one segment can contain multiple TPKTs. Therefore incoming data is accumulated
+ * until at least one complete packet is available. Every packet is passed to the next layer as
+ * a retained slice of the accumulated data, so the payload is never copied. The last handler
+ * processing the payload (usually the S7Protocol) is responsible for releasing it.
+ *
+ * When sending, the higher layers can reserve {@link #ISO_ON_TCP_HEADER_LENGTH} bytes in front of
+ * the readable bytes of the user data. In this case the header is written into this reserved space
+ * and the buffer is passed on as it is, so the payload is never copied in this direction either.
+ */
+public class IsoOnTcpProtocol extends ByteToMessageCodec<IsoOnTcpMessage> {
 
     static final byte ISO_ON_TCP_MAGIC_NUMBER = 0x03;
 
+    // Version (1 byte), reserved (1 byte) and packet length (2 bytes).
+    public static final int ISO_ON_TCP_HEADER_LENGTH = 4;
+
     private static final Logger logger = LoggerFactory.getLogger(IsoOnTcpProtocol.class);
 
     ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
@@ -41,30 +57,50 @@ public class IsoOnTcpProtocol extends PlcMessageToMessageCodec<ByteBuf, IsoOnTcp
     ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
 
     @Override
-    protected void encode(ChannelHandlerContext ctx, IsoOnTcpMessage in, List<Object> out) {
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+        if (msg instanceof IsoOnTcpMessage) {
+            ByteBuf userData = ((IsoOnTcpMessage) msg).getUserData();
+            // If the higher layers reserved enough space in front of their data, write the header
+            // in there and pass on the buffer itself instead of copying it into a new one.
+            if ((userData.readerIndex() >= ISO_ON_TCP_HEADER_LENGTH) && !userData.isReadOnly()) {
+                logger.debug("ISO on TCP Message sent");
+                int packetEnd = userData.writerIndex();
+                int packetStart = userData.readerIndex() - ISO_ON_TCP_HEADER_LENGTH;
+                userData.setIndex(packetStart, packetStart);
+                encodeHeader(userData, packetEnd - packetStart);
+                userData.writerIndex(packetEnd);
+                ctx.write(userData, promise);
+                return;
+            }
+        }
+        super.write(ctx, msg, promise);
+    }
+
+    @Override
+    protected void encode(ChannelHandlerContext ctx, IsoOnTcpMessage in, ByteBuf out) {
         logger.debug("ISO on TCP Message sent");
         // At this point of processing all higher levels have already serialized their payload.
         // This data is passed to the lower levels in form of an IoBuffer.
         final ByteBuf userData = in.getUserData();
 
-        int packetSize = userData.readableBytes() + 4;
+        int packetSize = userData.readableBytes() + ISO_ON_TCP_HEADER_LENGTH;
 
-        ByteBuf buf = Unpooled.buffer();
-        // Version (is always constant 0x03)
-        buf.writeByte(ISO_ON_TCP_MAGIC_NUMBER);
-        // Reserved (is always constant 0x00)
-        buf.writeByte((byte) 0x00);
-        // Packet length (including ISOonTCP header)
-        // ("remaining" returns the number of bytes left to read in this buffer.
-        // It is usually set to a read position of 0 and a limit at the end.
-        // So in general remaining is equivalent to a non-existing
-        // "userData.size()" method.)
-        buf.writeShort((short) packetSize);
+        out.ensureWritable(packetSize);
+        encodeHeader(out, packetSize);
 
         // Output the payload.
-        buf.writeBytes(userData);
+        out.writeBytes(userData);
+        // The user data isn't passed on, so it's up to us to release it.
+        userData.release();
+    }
 
-        out.add(buf);
+    private void encodeHeader(ByteBuf out, int packetSize) {
+        // Version (is always constant 0x03)
+        out.writeByte(ISO_ON_TCP_MAGIC_NUMBER);
+        // Reserved (is always constant 0x00)
+        out.writeByte((byte) 0x00);
+        // Packet length (including ISOonTCP header)
+        out.writeShort((short) packetSize);
     }
 
     ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
@@ -76,33 +112,45 @@ public class IsoOnTcpProtocol extends PlcMessageToMessageCodec<ByteBuf, IsoOnTcp
         if(logger.isTraceEnabled()) {
             logger.trace("Got Data: {}", ByteBufUtil.hexDump(in));
         }
-        // If at least 4 bytes are readable, peek into them (without changing the read position)
-        // and get the packet length. Only if the available amount of readable bytes is larger or
-        // equal to this, continue processing the rest.
-        if(in.readableBytes() >= 4) {
-            logger.debug("ISO on TCP Message received");
-            // The ISO on TCP protocol is really simple and in this case the buffer length
-            // will take care of the higher levels not reading more than is in the packet.
-            // So we just gobble up the header and continue reading in higher levels.
-            if (in.getByte(0) != ISO_ON_TCP_MAGIC_NUMBER) {
-                logger.warn("Expecting ISO on TCP magic number: {}", ISO_ON_TCP_MAGIC_NUMBER);
-                if (logger.isDebugEnabled()) {
-                    logger.debug("Got Data: {}", ByteBufUtil.hexDump(in));
-                }
-                exceptionCaught(ctx, new PlcProtocolException(
-                    String.format("Expecting ISO on TCP magic number: %02X", ISO_ON_TCP_MAGIC_NUMBER)));
-                return;
-            }
-            // Byte 1 is a reserved byte set to 0x00
-            short packetLength = in.getShort(2);
-            if(in.readableBytes() >= packetLength) {
-                // Skip the 4 bytes we peeked into manually.
-                in.skipBytes(4);
-                // Simply place the current buffer to the output ... the next handler will continue.
-                ByteBuf payload = in.readBytes(packetLength - 4);
-                out.add(new IsoOnTcpMessage(payload));
+        // Only if at least the 4 header bytes are readable, peek into them (without changing the
+        // read position) and get the packet length. Only if the available amount of readable
+        // bytes is larger or equal to this, the packet is sliced out of the buffer. Otherwise
+        // we wait for more data to arrive. If more than one packet is available, the decoder
+        // will be called again for the remaining data.
+        if(in.readableBytes() < ISO_ON_TCP_HEADER_LENGTH) {
+            return;
+        }
+        int packetStart = in.readerIndex();
+        if (in.getByte(packetStart) != ISO_ON_TCP_MAGIC_NUMBER) {
+            logger.warn("Expecting ISO on TCP magic number: {}", ISO_ON_TCP_MAGIC_NUMBER);
+            if (logger.isDebugEnabled()) {
+                logger.debug("Got Data: {}", ByteBufUtil.hexDump(in));
             }
+            discardInput(ctx, in, new PlcProtocolException(
+                String.format("Expecting ISO on TCP magic number: %02X", ISO_ON_TCP_MAGIC_NUMBER)));
+            return;
         }
+        // Byte 1 is a reserved byte set to 0x00
+        int packetLength = in.getUnsignedShort(packetStart + 2);
+        if (packetLength < ISO_ON_TCP_HEADER_LENGTH) {
+            discardInput(ctx, in, new PlcProtocolException(
+                String.format("Invalid ISO on TCP packet length: %d", packetLength)));
+            return;
+        }
+        if(in.readableBytes() >= packetLength) {
+            logger.debug("ISO on TCP Message received");
+            // Skip the 4 bytes we peeked into manually.
+            in.skipBytes(ISO_ON_TCP_HEADER_LENGTH);
+            // Pass a slice of the current buffer to the output ... the next handler will continue.
+            ByteBuf payload = in.readRetainedSlice(packetLength - ISO_ON_TCP_HEADER_LENGTH);
+            out.add(new IsoOnTcpMessage(payload));
+        }
+    }
+
+    private void discardInput(ChannelHandlerContext ctx, ByteBuf in, PlcProtocolException cause) throws Exception {
+        // We lost track of the packet boundaries, so there's no use in keeping the data.
+        in.skipBytes(in.readableBytes());
+        exceptionCaught(ctx, cause);
     }
 
 }
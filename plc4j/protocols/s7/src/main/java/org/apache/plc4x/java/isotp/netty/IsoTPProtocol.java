@@ -23,6 +23,7 @@ import io.netty.buffer.ByteBufUtil;
 import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelHandlerContext;
+import io.netty.util.ReferenceCountUtil;
 import org.apache.plc4x.java.api.exceptions.PlcProtocolPayloadTooBigException;
 import org.apache.plc4x.java.base.PlcMessageToMessageCodec;
 import org.apache.plc4x.java.base.events.ConnectEvent;
@@ -42,6 +43,9 @@ import java.util.List;
 
 public class IsoTPProtocol extends PlcMessageToMessageCodec<IsoOnTcpMessage, Tpdu> {
 
+    // Header length indicator, TPDU code and the EOT flag / TPDU number.
+    public static final int DATA_TPDU_HEADER_LENGTH = 3;
+
     private static final Logger logger = LoggerFactory.getLogger(IsoTPProtocol.class);
 
     private short callingTsapId;
@@ -96,8 +100,45 @@ public class IsoTPProtocol extends PlcMessageToMessageCodec<IsoOnTcpMessage, Tpd
             return;
         }
 
-        ByteBuf buf = Unpooled.buffer();
+        // Tpdus without user-data (e.g. disconnect requests) may not have a buffer at all.
+        ByteBuf userData = (in.getUserData() != null) ? in.getUserData() : Unpooled.EMPTY_BUFFER;
+        int headerLength = getHeaderLength(in);
+        int packetLength = headerLength + userData.readableBytes();
+
+        // Check if the message doesn't exceed the negotiated maximum size.
+        if (packetLength > tpduSize.getValue()) {
+            ReferenceCountUtil.release(userData);
+            ctx.fireExceptionCaught(new PlcProtocolPayloadTooBigException(
+                "iso-tp", tpduSize.getValue(), packetLength, in));
+            return;
+        }
 
+        // If the higher layers reserved enough space in front of their data, the header is written
+        // into that space. Otherwise the header and the user-data are combined without copying.
+        ByteBuf buf;
+        boolean inPlace = (userData.readerIndex() >= headerLength) && !userData.isReadOnly();
+        if (inPlace) {
+            int packetEnd = userData.writerIndex();
+            int packetStart = userData.readerIndex() - headerLength;
+            userData.setIndex(packetStart, packetStart);
+            buf = userData;
+            if (!encodeHeader(in, buf)) {
+                ReferenceCountUtil.release(userData);
+                return;
+            }
+            buf.writerIndex(packetEnd);
+        } else {
+            buf = Unpooled.buffer(headerLength);
+            if (!encodeHeader(in, buf)) {
+                ReferenceCountUtil.release(userData);
+                return;
+            }
+            buf = Unpooled.wrappedBuffer(buf, userData);
+        }
+        out.add(new IsoOnTcpMessage(buf));
+    }
+
+    private boolean encodeHeader(Tpdu in, ByteBuf buf) {
         // Header length indicator field (The length byte doesn't count)
         buf.writeByte((byte) (getHeaderLength(in) - 1));
         // TPDU Code (First 4 bits), Initial Credit Allocation (Second 4 bits)
@@ -122,18 +163,9 @@ public class IsoTPProtocol extends PlcMessageToMessageCodec<IsoOnTcpMessage, Tpd
                 if (logger.isErrorEnabled()) {
                     logger.error("TDPU Value {} not implemented yet", in.getTpduCode().name());
                 }
-                return;
-        }
-        // Add the user-data itself.
-        buf.writeBytes(in.getUserData());
-
-        // Check if the message doesn't exceed the negotiated maximum size.
-        if(buf.writerIndex() > tpduSize.getValue()) {
-            ctx.fireExceptionCaught(new PlcProtocolPayloadTooBigException(
-                "iso-tp", tpduSize.getValue(), buf.writerIndex(), in));
-        } else {
-            out.add(new IsoOnTcpMessage(buf));
+                return false;
         }
+        return true;
     }
 
     private void encodeErrorTpdu(Tpdu in, ByteBuf buf) {
@@ -220,6 +252,7 @@ public class IsoTPProtocol extends PlcMessageToMessageCodec<IsoOnTcpMessage, Tpd
 
         ByteBuf userData = in.getUserData();
         if (userData.writerIndex() < 1) {
+            ReferenceCountUtil.release(userData);
             return;
         }
 
@@ -272,6 +305,9 @@ public class IsoTPProtocol extends PlcMessageToMessageCodec<IsoOnTcpMessage, Tpd
                     tpduSizeParameter -> tpduSize = tpduSizeParameter.getTpduSize());
             }
             out.add(new IsoTPMessage(tpdu, userData));
+        } else {
+            // Nobody else is going to process the payload, so we have to release it.
+            ReferenceCountUtil.release(userData);
         }
     }
 
@@ -393,7 +429,7 @@ public class IsoTPProtocol extends PlcMessageToMessageCodec<IsoOnTcpMessage, Tpd
                 headerLength = 7;
                 break;
             case DATA:
-                headerLength = 3;
+                headerLength = DATA_TPDU_HEADER_LENGTH;
                 break;
             case DISCONNECT_REQUEST:
                 headerLength = 7;
@@ -23,14 +23,17 @@ import org.apache.commons.configuration2.Configuration;
 import org.apache.commons.configuration2.SystemConfiguration;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.plc4x.java.api.connection.PlcReader;
+import org.apache.plc4x.java.api.connection.PlcSubscriber;
 import org.apache.plc4x.java.api.connection.PlcWriter;
 import org.apache.plc4x.java.api.exceptions.PlcConnectionException;
 import org.apache.plc4x.java.api.exceptions.PlcException;
+import org.apache.plc4x.java.api.exceptions.PlcIoException;
 import org.apache.plc4x.java.api.messages.*;
 import org.apache.plc4x.java.api.model.Address;
 import org.apache.plc4x.java.base.connection.AbstractPlcConnection;
 import org.apache.plc4x.java.base.connection.ChannelFactory;
 import org.apache.plc4x.java.base.connection.TcpSocketChannelFactory;
+import org.apache.plc4x.java.base.connection.TcpTransport;
 import org.apache.plc4x.java.base.events.ConnectEvent;
 import org.apache.plc4x.java.base.events.ConnectedEvent;
 import org.apache.plc4x.java.isoontcp.netty.IsoOnTcpProtocol;
@@ -43,14 +46,20 @@ import org.apache.plc4x.java.s7.model.S7Address;
 import org.apache.plc4x.java.s7.model.S7BitAddress;
 import org.apache.plc4x.java.s7.model.S7DataBlockAddress;
 import org.apache.plc4x.java.s7.netty.Plc4XS7Protocol;
+import org.apache.plc4x.java.s7.netty.S7PreparedReadRequest;
 import org.apache.plc4x.java.s7.netty.S7Protocol;
 import org.apache.plc4x.java.s7.netty.model.types.MemoryArea;
+import org.apache.plc4x.java.s7.netty.strategies.DefaultS7MessageProcessor;
+import org.apache.plc4x.java.s7.netty.strategies.ReadOptimizingS7MessageProcessor;
+import org.apache.plc4x.java.s7.netty.strategies.S7MessageProcessor;
 import org.apache.plc4x.java.s7.utils.S7TsapIdEncoder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.net.InetAddress;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
@@ -75,14 +84,26 @@ import java.util.regex.Pattern;
  * </pre>
  * where the {bit-offset} is optional.
  * All Available Memory Areas for this mode are defined in the {@link MemoryArea} enum.
+ * <p>
+ * Adding the parameter "optimize-reads=true" to the connection string makes the connection use the
+ * {@link ReadOptimizingS7MessageProcessor}, which merges nearby items of read requests into block reads.
+ * <p>
+ * Adding the parameter "connections={n}" makes the connection open n sessions to the PLC. Read requests with many
+ * items are then split up and read in parallel over all sessions by a {@link S7StripedReader}. All other requests
+ * only use the first session.
+ * <p>
+ * As S7 doesn't support subscriptions, they are implemented by a {@link S7SubscriptionPoller}, which reads all
+ * items with the same period with one request per cycle on the event loop of the connection.
  */
-public class S7PlcConnection extends AbstractPlcConnection implements PlcReader, PlcWriter {
+public class S7PlcConnection extends AbstractPlcConnection implements PlcReader, PlcWriter, PlcSubscriber {
 
     private static final int ISO_ON_TCP_PORT = 102;
 
     // Fetch values from configuration
     private static final Configuration CONF = new SystemConfiguration();
     private static final long CLOSE_DEVICE_TIMEOUT_MS = CONF.getLong("plc4x.s7connection.close.device,timeout", 1_000);
+    private static final long CHANGE_OF_STATE_POLL_PERIOD_MS = CONF.getLong("plc4x.s7connection.change_of_state.poll_period", 100);
+    private static final int MIN_ITEMS_PER_STRIPE = CONF.getInt("plc4x.s7connection.striping.min_items_per_stripe", 16);
 
     private static final Pattern S7_DATABLOCK_ADDRESS_PATTERN =
         Pattern.compile("^DATA_BLOCKS/(?<blockNumber>\\d{1,4})/(?<byteOffset>\\d{1,4})");
@@ -97,9 +118,17 @@ public class S7PlcConnection extends AbstractPlcConnection implements PlcReader,
     private final TpduSize paramPduSize;
     private final short paramMaxAmqCaller;
     private final short paramMaxAmqCallee;
+    private final boolean paramOptimizeReads;
+    private final int paramConnections;
+
+    // Additional channels used for reading, if more than one connection is configured.
+    private final List<Channel> stripeChannels = new ArrayList<>();
+    private volatile S7StripedReader stripedReader;
+
+    private S7SubscriptionPoller subscriptionPoller;
 
     public S7PlcConnection(InetAddress address, int rack, int slot, String params) {
-        this(new TcpSocketChannelFactory(address, ISO_ON_TCP_PORT), rack, slot, params);
+        this(new TcpSocketChannelFactory(address, ISO_ON_TCP_PORT, TcpTransport.fromParams(params)), rack, slot, params);
 
         logger.info("Setting up S7cConnection with: host-name {}, rack {}, slot {}, pdu-size {}, max-amq-caller {}, " +
                 "max-amq-callee {}", address.getHostAddress(), rack, slot,
@@ -115,6 +144,8 @@ public class S7PlcConnection extends AbstractPlcConnection implements PlcReader,
         int paramPduSize = 1024;
         short paramMaxAmqCaller = 8;
         short paramMaxAmqCallee = 8;
+        boolean paramOptimizeReads = false;
+        int paramConnections = 1;
 
         if (!StringUtils.isEmpty(params)) {
             for (String param : params.split("&")) {
@@ -132,6 +163,15 @@ public class S7PlcConnection extends AbstractPlcConnection implements PlcReader,
                         case "max-amq-callee":
                             paramMaxAmqCallee = Short.parseShort(paramValue);
                             break;
+                        case "optimize-reads":
+                            paramOptimizeReads = Boolean.parseBoolean(paramValue);
+                            break;
+                        case "connections":
+                            paramConnections = Integer.parseInt(paramValue);
+                            break;
+                        case "transport":
+                            // Handled by the channel factory.
+                            break;
                         default:
                             logger.debug("Unknown parameter {} with value {}", paramName, paramValue);
                     }
@@ -146,6 +186,46 @@ public class S7PlcConnection extends AbstractPlcConnection implements PlcReader,
         this.paramPduSize = TpduSize.valueForGivenSize(paramPduSize);
         this.paramMaxAmqCaller = paramMaxAmqCaller;
         this.paramMaxAmqCallee = paramMaxAmqCallee;
+        this.paramOptimizeReads = paramOptimizeReads;
+        this.paramConnections = Math.max(1, paramConnections);
+    }
+
+    @Override
+    public void connect() throws PlcConnectionException {
+        super.connect();
+        if (paramConnections <= 1) {
+            return;
+        }
+        try {
+            // Open the additional sessions the same way the first one was opened.
+            for (int i = 1; i < paramConnections; i++) {
+                CompletableFuture<Void> sessionSetupCompleteFuture = new CompletableFuture<>();
+                Channel stripeChannel = channelFactory.createChannel(getChannelHandler(sessionSetupCompleteFuture));
+                stripeChannels.add(stripeChannel);
+                stripeChannel.closeFuture().addListener(future -> {
+                    if (!sessionSetupCompleteFuture.isDone()) {
+                        sessionSetupCompleteFuture.completeExceptionally(
+                            new PlcIoException("Connection terminated by remote"));
+                    }
+                });
+                stripeChannel.pipeline().fireUserEventTriggered(new ConnectEvent());
+                sessionSetupCompleteFuture.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            close();
+            throw new PlcConnectionException(e);
+        } catch (ExecutionException e) {
+            close();
+            throw new PlcConnectionException(e);
+        } catch (PlcConnectionException e) {
+            close();
+            throw e;
+        }
+        List<Channel> channels = new ArrayList<>(paramConnections);
+        channels.add(channel);
+        channels.addAll(stripeChannels);
+        stripedReader = new S7StripedReader(channels, MIN_ITEMS_PER_STRIPE);
     }
 
     @Override
@@ -170,7 +250,10 @@ public class S7PlcConnection extends AbstractPlcConnection implements PlcReader,
                 });
                 pipeline.addLast(new IsoOnTcpProtocol());
                 pipeline.addLast(new IsoTPProtocol(callingTsapId, calledTsapId, paramPduSize));
-                pipeline.addLast(new S7Protocol(paramMaxAmqCaller, paramMaxAmqCallee, (short) paramPduSize.getValue()));
+                S7MessageProcessor messageProcessor = paramOptimizeReads ?
+                    new ReadOptimizingS7MessageProcessor() : new DefaultS7MessageProcessor();
+                pipeline.addLast(new S7Protocol(paramMaxAmqCaller, paramMaxAmqCallee,
+                    (short) paramPduSize.getValue(), messageProcessor));
                 pipeline.addLast(new Plc4XS7Protocol());
             }
         };
@@ -202,9 +285,33 @@ public class S7PlcConnection extends AbstractPlcConnection implements PlcReader,
         return paramMaxAmqCallee;
     }
 
+    public boolean isParamOptimizeReads() {
+        return paramOptimizeReads;
+    }
+
+    public int getParamConnections() {
+        return paramConnections;
+    }
+
     @Override
     public void close() throws PlcConnectionException {
-        if ((channel != null) && channel.isOpen()) {
+        synchronized (this) {
+            if (subscriptionPoller != null) {
+                subscriptionPoller.close();
+                subscriptionPoller = null;
+            }
+        }
+        stripedReader = null;
+        for (Channel stripeChannel : stripeChannels) {
+            disconnect(stripeChannel);
+        }
+        stripeChannels.clear();
+        disconnect(channel);
+        super.close();
+    }
+
+    private void disconnect(Channel sessionChannel) throws PlcConnectionException {
+        if ((sessionChannel != null) && sessionChannel.isOpen()) {
             // Send the PLC a message that the connection is being closed.
             DisconnectRequestTpdu disconnectRequest = new DisconnectRequestTpdu(
                 (short) 0x0000, (short) 0x000F, DisconnectReason.NORMAL, Collections.emptyList(),
@@ -213,11 +320,11 @@ public class S7PlcConnection extends AbstractPlcConnection implements PlcReader,
             // In case of an ISO TP Class 0 connection, the remote is usually expected to actively
             // close the connection. So we add a listener waiting for this to happen.
             CompletableFuture<Void> disconnectFuture = new CompletableFuture<>();
-            channel.closeFuture().addListener(
+            sessionChannel.closeFuture().addListener(
                 (ChannelFutureListener) future -> disconnectFuture.complete(null));
 
             // Send the disconnect request.
-            channel.writeAndFlush(disconnectRequest);
+            sessionChannel.writeAndFlush(disconnectRequest);
             // Wait for the configured time for the remote to close the session.
             try {
                 disconnectFuture.get(CLOSE_DEVICE_TIMEOUT_MS, TimeUnit.MILLISECONDS);
@@ -226,21 +333,15 @@ public class S7PlcConnection extends AbstractPlcConnection implements PlcReader,
             // care of closing the connection.
             catch (TimeoutException e) {
                 logger.info("Remote didn't close connection within the configured timeout of {}ms, shutting down actively.", CLOSE_DEVICE_TIMEOUT_MS, e);
-                channel.close();
+                sessionChannel.close();
             } catch (InterruptedException e) {
                 Thread.currentThread().interrupt();
             } catch (ExecutionException e) {
                 throw new PlcConnectionException(e);
             }
-
-            // Do some additional cleanup operations ...
-            // In normal operation, the channels event loop has a parent, however when running with
-            // the embedded channel for unit tests, parent is null.
-            if (channel.eventLoop().parent() != null) {
-                channel.eventLoop().parent().shutdownGracefully();
-            }
+            // The event loop group is shared with other connections and is released by the
+            // channel factory as soon as the channel is closed, so there's no need to shut it down here.
         }
-        super.close();
     }
 
 
@@ -268,6 +369,10 @@ public class S7PlcConnection extends AbstractPlcConnection implements PlcReader,
 
     @Override
     public CompletableFuture<PlcReadResponse> read(PlcReadRequest readRequest) {
+        S7StripedReader reader = stripedReader;
+        if (reader != null) {
+            return reader.read(readRequest);
+        }
         CompletableFuture<PlcReadResponse> readFuture = new CompletableFuture<>();
         PlcRequestContainer<PlcReadRequest, PlcReadResponse> container =
             new PlcRequestContainer<>(readRequest, readFuture);
@@ -275,6 +380,15 @@ public class S7PlcConnection extends AbstractPlcConnection implements PlcReader,
         return readFuture;
     }
 
+    @Override
+    public PreparedPlcReadRequest prepare(PlcReadRequest readRequest) {
+        S7StripedReader reader = stripedReader;
+        if (reader != null) {
+            return reader.prepare(readRequest);
+        }
+        return new S7PreparedReadRequest(readRequest, this::read);
+    }
+
     @Override
     public CompletableFuture<PlcWriteResponse> write(PlcWriteRequest writeRequest) {
         CompletableFuture<PlcWriteResponse> writeFuture = new CompletableFuture<>();
@@ -284,4 +398,25 @@ public class S7PlcConnection extends AbstractPlcConnection implements PlcReader,
         return writeFuture;
     }
 
+    @Override
+    public CompletableFuture<PlcSubscriptionResponse> subscribe(PlcSubscriptionRequest subscriptionRequest) {
+        return getSubscriptionPoller().subscribe(subscriptionRequest);
+    }
+
+    @Override
+    public CompletableFuture<PlcUnsubscriptionResponse> unsubscribe(PlcUnsubscriptionRequest unsubscriptionRequest) {
+        return getSubscriptionPoller().unsubscribe(unsubscriptionRequest);
+    }
+
+    private synchronized S7SubscriptionPoller getSubscriptionPoller() {
+        if (subscriptionPoller == null) {
+            S7SubscriptionPoller poller = new S7SubscriptionPoller(this::read, channel.eventLoop(),
+                CHANGE_OF_STATE_POLL_PERIOD_MS, TimeUnit.MILLISECONDS);
+            // Stop polling as soon as the connection is lost.
+            channel.closeFuture().addListener(future -> poller.close());
+            subscriptionPoller = poller;
+        }
+        return subscriptionPoller;
+    }
+
 }
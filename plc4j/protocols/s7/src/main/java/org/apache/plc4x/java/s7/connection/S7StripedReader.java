@@ -0,0 +1,192 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+package org.apache.plc4x.java.s7.connection;
+
+import io.netty.channel.Channel;
+import org.apache.plc4x.java.api.messages.*;
+import org.apache.plc4x.java.api.messages.items.ReadRequestItem;
+import org.apache.plc4x.java.api.messages.items.ReadResponseItem;
+import org.apache.plc4x.java.api.messages.specific.TypeSafePlcReadRequest;
+import org.apache.plc4x.java.api.messages.specific.TypeSafePlcReadResponse;
+import org.apache.plc4x.java.s7.netty.S7PreparedReadRequest;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Reads over multiple connections (stripes) to the same PLC. Requests with many items are split up into one
+ * request per stripe, which are read in parallel, and the responses are joined back into one response.
+ *
+ * Each part is sent over the connection with the least pending requests. The parts are made of neighbouring items
+ * of the request, so the message processor of each connection can still merge nearby items.
+ */
+public class S7StripedReader {
+
+    private final List<Stripe> stripes;
+
+    private final int minItemsPerStripe;
+
+    private final AtomicInteger nextStripe = new AtomicInteger();
+
+    /**
+     * @param channels          connected channels to the same PLC.
+     * @param minItemsPerStripe requests are only split up, if every part gets at least this number of items.
+     */
+    public S7StripedReader(List<Channel> channels, int minItemsPerStripe) {
+        Objects.requireNonNull(channels);
+        if (channels.isEmpty()) {
+            throw new IllegalArgumentException("At least one channel is required");
+        }
+        this.stripes = new ArrayList<>(channels.size());
+        for (Channel channel : channels) {
+            stripes.add(new Stripe(channel));
+        }
+        this.minItemsPerStripe = Math.max(1, minItemsPerStripe);
+    }
+
+    public CompletableFuture<PlcReadResponse> read(PlcReadRequest readRequest) {
+        List<PlcReadRequest> parts = split(readRequest);
+        if (parts.size() == 1) {
+            return send(readRequest);
+        }
+        return join(readRequest, parts, this::send);
+    }
+
+    /**
+     * Splits up the request once, every execution reads the same parts with prepared requests.
+     */
+    public PreparedPlcReadRequest prepare(PlcReadRequest readRequest) {
+        List<PlcReadRequest> splitRequests = split(readRequest);
+        if (splitRequests.size() == 1) {
+            return new S7PreparedReadRequest(readRequest, this::send);
+        }
+        List<S7PreparedReadRequest> parts = new ArrayList<>(splitRequests.size());
+        for (PlcReadRequest part : splitRequests) {
+            parts.add(new S7PreparedReadRequest(part, this::send));
+        }
+        return new PreparedPlcReadRequest() {
+            @Override
+            public PlcReadRequest getReadRequest() {
+                return readRequest;
+            }
+
+            @Override
+            public CompletableFuture<PlcReadResponse> execute() {
+                return join(readRequest, parts, S7PreparedReadRequest::execute);
+            }
+        };
+    }
+
+    /**
+     * @return the number of requests sent over the given channel, which haven't been answered yet.
+     */
+    public int getNumPendingRequests(Channel channel) {
+        for (Stripe stripe : stripes) {
+            if (stripe.channel == channel) {
+                return stripe.numPendingRequests.get();
+            }
+        }
+        return 0;
+    }
+
+    List<PlcReadRequest> split(PlcReadRequest readRequest) {
+        List<ReadRequestItem<?>> items = readRequest.getRequestItems();
+        int numParts = Math.min(stripes.size(), items.size() / minItemsPerStripe);
+        if (numParts <= 1) {
+            return Collections.singletonList(readRequest);
+        }
+        List<PlcReadRequest> parts = new ArrayList<>(numParts);
+        for (int i = 0; i < numParts; i++) {
+            // Distribute the items as evenly as possible.
+            int fromIndex = i * items.size() / numParts;
+            int toIndex = (i + 1) * items.size() / numParts;
+            parts.add(new PlcReadRequest(new ArrayList<>(items.subList(fromIndex, toIndex))));
+        }
+        return parts;
+    }
+
+    private <T> CompletableFuture<PlcReadResponse> join(PlcReadRequest readRequest, List<T> parts,
+                                                        Function<T, CompletableFuture<PlcReadResponse>> reader) {
+        List<CompletableFuture<PlcReadResponse>> partFutures = new ArrayList<>(parts.size());
+        for (T part : parts) {
+            partFutures.add(reader.apply(part));
+        }
+        return CompletableFuture.allOf(partFutures.toArray(new CompletableFuture[0])).thenApply(ignore -> {
+            List<ReadResponseItem<?>> responseItems = new ArrayList<>(readRequest.getNumberOfItems());
+            for (CompletableFuture<PlcReadResponse> partFuture : partFutures) {
+                responseItems.addAll(partFuture.join().getResponseItems());
+            }
+            return createResponse(readRequest, responseItems);
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private PlcReadResponse createResponse(PlcReadRequest readRequest, List<ReadResponseItem<?>> responseItems) {
+        if (readRequest instanceof TypeSafePlcReadRequest) {
+            return new TypeSafePlcReadResponse((TypeSafePlcReadRequest) readRequest, (List) responseItems);
+        }
+        return new PlcReadResponse(readRequest, responseItems);
+    }
+
+    private CompletableFuture<PlcReadResponse> send(PlcReadRequest readRequest) {
+        Stripe stripe = getLeastLoadedStripe();
+        stripe.numPendingRequests.incrementAndGet();
+        CompletableFuture<PlcReadResponse> readFuture = new CompletableFuture<>();
+        readFuture.whenComplete((response, throwable) -> stripe.numPendingRequests.decrementAndGet());
+        PlcRequestContainer<PlcReadRequest, PlcReadResponse> container =
+            new PlcRequestContainer<>(readRequest, readFuture);
+        stripe.channel.writeAndFlush(container);
+        return readFuture;
+    }
+
+    private Stripe getLeastLoadedStripe() {
+        // Start searching at a different stripe every time, so stripes with the same load are used in turns.
+        int offset = Math.floorMod(nextStripe.getAndIncrement(), stripes.size());
+        Stripe leastLoadedStripe = null;
+        for (int i = 0; i < stripes.size(); i++) {
+            Stripe stripe = stripes.get((offset + i) % stripes.size());
+            if (!stripe.channel.isActive()) {
+                continue;
+            }
+            if ((leastLoadedStripe == null) ||
+                (stripe.numPendingRequests.get() < leastLoadedStripe.numPendingRequests.get())) {
+                leastLoadedStripe = stripe;
+            }
+        }
+        // If all channels are closed, let the first one fail the request.
+        return (leastLoadedStripe != null) ? leastLoadedStripe : stripes.get(0);
+    }
+
+    private static class Stripe {
+
+        private final Channel channel;
+        private final AtomicInteger numPendingRequests = new AtomicInteger();
+
+        private Stripe(Channel channel) {
+            this.channel = channel;
+        }
+
+    }
+
+}
@@ -0,0 +1,283 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+package org.apache.plc4x.java.s7.connection;
+
+import org.apache.plc4x.java.api.exceptions.PlcNotImplementedException;
+import org.apache.plc4x.java.api.messages.*;
+import org.apache.plc4x.java.api.messages.items.*;
+import org.apache.plc4x.java.api.model.SubscriptionType;
+import org.apache.plc4x.java.api.types.ResponseCode;
+import org.apache.plc4x.java.s7.model.S7SubscriptionHandle;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Implements subscriptions for S7 connections by polling. All items with the same poll period are read together by
+ * one multi-item read request per cycle, which the S7 protocol layer splits up into as few PDUs as possible.
+ *
+ * Cyclic items are polled with their period and passed to their consumer every cycle. Change of state items are
+ * polled with a configurable period and only passed to their consumer if the read values differ from the last
+ * cycle. A cycle is skipped if the read of the previous one hasn't completed yet.
+ *
+ * All state is only accessed by the given executor, usually the event loop of the connection's channel.
+ */
+public class S7SubscriptionPoller {
+
+    private static final Logger logger = LoggerFactory.getLogger(S7SubscriptionPoller.class);
+
+    private static final long MIN_POLL_PERIOD_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final Function<PlcReadRequest, CompletableFuture<PlcReadResponse>> reader;
+
+    private final ScheduledExecutorService executor;
+
+    private final long changeOfStatePollPeriodNanos;
+
+    private final Map<Long, PollGroup> pollGroups = new HashMap<>();
+
+    /**
+     * @param reader                 used to read the polled items.
+     * @param executor               runs the poll cycles and dispatches the events.
+     * @param changeOfStatePollPeriod period in which change of state items are polled.
+     * @param timeUnit               unit of the change of state poll period.
+     */
+    public S7SubscriptionPoller(Function<PlcReadRequest, CompletableFuture<PlcReadResponse>> reader,
+                                ScheduledExecutorService executor, long changeOfStatePollPeriod, TimeUnit timeUnit) {
+        this.reader = Objects.requireNonNull(reader);
+        this.executor = Objects.requireNonNull(executor);
+        this.changeOfStatePollPeriodNanos = Math.max(MIN_POLL_PERIOD_NANOS, timeUnit.toNanos(changeOfStatePollPeriod));
+    }
+
+    public CompletableFuture<PlcSubscriptionResponse> subscribe(PlcSubscriptionRequest subscriptionRequest) {
+        List<S7SubscriptionHandle> subscriptionHandles = new ArrayList<>(subscriptionRequest.getNumberOfItems());
+        for (SubscriptionRequestItem<?> subscriptionRequestItem : subscriptionRequest.getRequestItems()) {
+            Objects.requireNonNull(subscriptionRequestItem.getConsumer());
+            Objects.requireNonNull(subscriptionRequestItem.getAddress());
+            Objects.requireNonNull(subscriptionRequestItem.getDatatype());
+            subscriptionHandles.add(new S7SubscriptionHandle(subscriptionRequestItem, getPollPeriodNanos(subscriptionRequestItem)));
+        }
+        return CompletableFuture.supplyAsync(() -> {
+            List<SubscriptionResponseItem<?>> subscriptionResponseItems = new ArrayList<>(subscriptionHandles.size());
+            for (S7SubscriptionHandle subscriptionHandle : subscriptionHandles) {
+                pollGroups.computeIfAbsent(subscriptionHandle.getPollPeriodNanos(), this::startPollGroup)
+                    .add(subscriptionHandle);
+                subscriptionResponseItems.add(createSubscriptionResponseItem(subscriptionHandle));
+            }
+            return new PlcSubscriptionResponse(subscriptionRequest, subscriptionResponseItems);
+        }, executor);
+    }
+
+    public CompletableFuture<PlcUnsubscriptionResponse> unsubscribe(PlcUnsubscriptionRequest unsubscriptionRequest) {
+        List<S7SubscriptionHandle> subscriptionHandles = new ArrayList<>(unsubscriptionRequest.getNumberOfItems());
+        for (UnsubscriptionRequestItem unsubscriptionRequestItem : unsubscriptionRequest.getRequestItems()) {
+            Objects.requireNonNull(unsubscriptionRequestItem);
+            if (unsubscriptionRequestItem.getSubscriptionHandle() instanceof S7SubscriptionHandle) {
+                subscriptionHandles.add((S7SubscriptionHandle) unsubscriptionRequestItem.getSubscriptionHandle());
+            }
+        }
+        return CompletableFuture.supplyAsync(() -> {
+            for (S7SubscriptionHandle subscriptionHandle : subscriptionHandles) {
+                PollGroup pollGroup = pollGroups.get(subscriptionHandle.getPollPeriodNanos());
+                if ((pollGroup != null) && pollGroup.remove(subscriptionHandle) && pollGroup.isEmpty()) {
+                    pollGroup.stop();
+                    pollGroups.remove(subscriptionHandle.getPollPeriodNanos());
+                }
+            }
+            return new PlcUnsubscriptionResponse();
+        }, executor);
+    }
+
+    /**
+     * Stops polling all items. Must be called, if the connection is closed. Calling it more than once is harmless.
+     */
+    public void close() {
+        if (executor.isShutdown()) {
+            // All scheduled polls are gone together with the executor.
+            return;
+        }
+        executor.execute(() -> {
+            pollGroups.values().forEach(PollGroup::stop);
+            pollGroups.clear();
+        });
+    }
+
+    /**
+     * @return number of distinct poll periods currently polled. Must only be called by the executor.
+     */
+    int getNumPollGroups() {
+        return pollGroups.size();
+    }
+
+    private long getPollPeriodNanos(SubscriptionRequestItem<?> subscriptionRequestItem) {
+        if (subscriptionRequestItem.getSubscriptionType() == SubscriptionType.EVENT) {
+            throw new PlcNotImplementedException("Event subscriptions not supported by s7");
+        }
+        if (subscriptionRequestItem instanceof SubscriptionRequestCyclicItem) {
+            SubscriptionRequestCyclicItem cyclicItem = (SubscriptionRequestCyclicItem) subscriptionRequestItem;
+            return Math.max(MIN_POLL_PERIOD_NANOS, cyclicItem.getTimeUnit().toNanos(cyclicItem.getPeriod()));
+        }
+        return changeOfStatePollPeriodNanos;
+    }
+
+    @SuppressWarnings("unchecked")
+    private SubscriptionResponseItem<?> createSubscriptionResponseItem(S7SubscriptionHandle subscriptionHandle) {
+        return new SubscriptionResponseItem(subscriptionHandle.getSubscriptionRequestItem(), subscriptionHandle, ResponseCode.OK);
+    }
+
+    private PollGroup startPollGroup(long pollPeriodNanos) {
+        PollGroup pollGroup = new PollGroup();
+        pollGroup.scheduledFuture = executor.scheduleAtFixedRate(
+            () -> poll(pollGroup), 0, pollPeriodNanos, TimeUnit.NANOSECONDS);
+        return pollGroup;
+    }
+
+    private void poll(PollGroup pollGroup) {
+        if (pollGroup.readInProgress) {
+            logger.debug("Skipping poll cycle, as the previous one didn't complete yet");
+            return;
+        }
+        if (pollGroup.isEmpty()) {
+            return;
+        }
+        List<S7SubscriptionHandle> polledHandles = pollGroup.getHandles();
+        PlcReadRequest readRequest = pollGroup.getReadRequest();
+        pollGroup.readInProgress = true;
+        CompletableFuture<PlcReadResponse> readFuture;
+        try {
+            readFuture = reader.apply(readRequest);
+        } catch (RuntimeException e) {
+            pollGroup.readInProgress = false;
+            logger.warn("Error polling {} items", polledHandles.size(), e);
+            return;
+        }
+        readFuture.whenComplete((readResponse, throwable) -> executor.execute(() -> {
+            pollGroup.readInProgress = false;
+            if (throwable != null) {
+                logger.warn("Error polling {} items", polledHandles.size(), throwable);
+                return;
+            }
+            dispatch(pollGroup, polledHandles, readRequest, readResponse);
+        }));
+    }
+
+    @SuppressWarnings("unchecked")
+    private void dispatch(PollGroup pollGroup, List<S7SubscriptionHandle> polledHandles, PlcReadRequest readRequest,
+                          PlcReadResponse readResponse) {
+        List<? extends ReadResponseItem<?>> responseItems = readResponse.getResponseItems();
+        boolean sameOrder = responseItems.size() == polledHandles.size();
+        for (int i = 0; i < polledHandles.size(); i++) {
+            S7SubscriptionHandle subscriptionHandle = polledHandles.get(i);
+            if (!pollGroup.contains(subscriptionHandle)) {
+                // Unsubscribed while the read was in progress.
+                continue;
+            }
+            ReadRequestItem readRequestItem = subscriptionHandle.getReadRequestItem();
+            ReadResponseItem<?> responseItem = sameOrder && (responseItems.get(i).getRequestItem() == readRequestItem) ?
+                responseItems.get(i) : (ReadResponseItem<?>) readResponse.getValue(readRequestItem).orElse(null);
+            if ((responseItem == null) || (responseItem.getResponseCode() != ResponseCode.OK)) {
+                logger.debug("Error polling {}: {}", readRequestItem, responseItem);
+                continue;
+            }
+            List<?> values = responseItem.getValues();
+            if (subscriptionHandle.updateValues(values) || !subscriptionHandle.isChangeOfState()) {
+                SubscriptionRequestItem subscriptionRequestItem = subscriptionHandle.getSubscriptionRequestItem();
+                SubscriptionEventItem subscriptionEventItem =
+                    new SubscriptionEventItem(subscriptionRequestItem, Calendar.getInstance(), values);
+                try {
+                    ((Consumer<SubscriptionEventItem>) subscriptionRequestItem.getConsumer()).accept(subscriptionEventItem);
+                } catch (RuntimeException e) {
+                    logger.warn("Consumer of {} failed", subscriptionRequestItem, e);
+                }
+            }
+        }
+    }
+
+    /**
+     * All items polled with the same period.
+     */
+    private static class PollGroup {
+
+        private final Set<S7SubscriptionHandle> handles = new LinkedHashSet<>();
+
+        private ScheduledFuture<?> scheduledFuture;
+
+        private boolean readInProgress;
+
+        // Cached as long as the polled items don't change.
+        private List<S7SubscriptionHandle> handleList;
+
+        private PlcReadRequest readRequest;
+
+        private void add(S7SubscriptionHandle subscriptionHandle) {
+            handles.add(subscriptionHandle);
+            invalidate();
+        }
+
+        private boolean remove(S7SubscriptionHandle subscriptionHandle) {
+            boolean removed = handles.remove(subscriptionHandle);
+            invalidate();
+            return removed;
+        }
+
+        private boolean contains(S7SubscriptionHandle subscriptionHandle) {
+            return handles.contains(subscriptionHandle);
+        }
+
+        private boolean isEmpty() {
+            return handles.isEmpty();
+        }
+
+        private void invalidate() {
+            handleList = null;
+            readRequest = null;
+        }
+
+        private List<S7SubscriptionHandle> getHandles() {
+            if (handleList == null) {
+                handleList = Collections.unmodifiableList(new ArrayList<>(handles));
+            }
+            return handleList;
+        }
+
+        private PlcReadRequest getReadRequest() {
+            if (readRequest == null) {
+                List<ReadRequestItem<?>> readRequestItems = new ArrayList<>(handles.size());
+                for (S7SubscriptionHandle subscriptionHandle : getHandles()) {
+                    readRequestItems.add(subscriptionHandle.getReadRequestItem());
+                }
+                readRequest = new PlcReadRequest(readRequestItems);
+            }
+            return readRequest;
+        }
+
+        private void stop() {
+            if (scheduledFuture != null) {
+                scheduledFuture.cancel(false);
+            }
+        }
+    }
+}
@@ -0,0 +1,84 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+package org.apache.plc4x.java.s7.model;
+
+import org.apache.plc4x.java.api.messages.items.ReadRequestItem;
+import org.apache.plc4x.java.api.messages.items.SubscriptionRequestItem;
+import org.apache.plc4x.java.api.model.SubscriptionHandle;
+import org.apache.plc4x.java.api.model.SubscriptionType;
+
+import java.util.List;
+
+/**
+ * Handle of an item polled by the S7 subscription poller. The S7 protocol doesn't support subscriptions itself,
+ * so cyclic and change of state items are implemented by periodically reading them.
+ */
+public class S7SubscriptionHandle implements SubscriptionHandle {
+
+    private final SubscriptionRequestItem<?> subscriptionRequestItem;
+
+    private final ReadRequestItem<?> readRequestItem;
+
+    private final long pollPeriodNanos;
+
+    // Only accessed by the event loop polling this item.
+    private List<?> lastValues;
+
+    public S7SubscriptionHandle(SubscriptionRequestItem<?> subscriptionRequestItem, long pollPeriodNanos) {
+        this.subscriptionRequestItem = subscriptionRequestItem;
+        this.readRequestItem = new ReadRequestItem<>(subscriptionRequestItem.getDatatype(), subscriptionRequestItem.getAddress());
+        this.pollPeriodNanos = pollPeriodNanos;
+    }
+
+    public SubscriptionRequestItem<?> getSubscriptionRequestItem() {
+        return subscriptionRequestItem;
+    }
+
+    public ReadRequestItem<?> getReadRequestItem() {
+        return readRequestItem;
+    }
+
+    public long getPollPeriodNanos() {
+        return pollPeriodNanos;
+    }
+
+    public boolean isChangeOfState() {
+        return subscriptionRequestItem.getSubscriptionType() == SubscriptionType.CHANGE_OF_STATE;
+    }
+
+    /**
+     * Remembers the given values and tells if they differ from the ones polled last time.
+     *
+     * @param values values read in the current cycle.
+     * @return true if the values changed (or were read for the first time).
+     */
+    public boolean updateValues(List<?> values) {
+        boolean changed = !values.equals(lastValues);
+        lastValues = values;
+        return changed;
+    }
+
+    @Override
+    public String toString() {
+        return "S7SubscriptionHandle{" +
+            "subscriptionRequestItem=" + subscriptionRequestItem +
+            ", pollPeriodNanos=" + pollPeriodNanos +
+            '}';
+    }
+}
@@ -19,6 +19,8 @@ under the License.
 package org.apache.plc4x.java.s7.netty;
 
 import io.netty.channel.ChannelHandlerContext;
+import org.apache.commons.configuration2.Configuration;
+import org.apache.commons.configuration2.SystemConfiguration;
 import org.apache.plc4x.java.api.exceptions.*;
 import org.apache.plc4x.java.api.messages.*;
 import org.apache.plc4x.java.api.messages.items.ReadRequestItem;
@@ -33,6 +35,7 @@ import org.apache.plc4x.java.api.model.Address;
 import org.apache.plc4x.java.api.types.ResponseCode;
 import org.apache.plc4x.java.base.PlcMessageToMessageCodec;
 import org.apache.plc4x.java.base.events.ConnectedEvent;
+import org.apache.plc4x.java.base.timeout.RequestTimeouts;
 import org.apache.plc4x.java.s7.model.S7Address;
 import org.apache.plc4x.java.s7.model.S7BitAddress;
 import org.apache.plc4x.java.s7.model.S7DataBlockAddress;
@@ -46,12 +49,16 @@ import org.apache.plc4x.java.s7.netty.model.params.items.VarParameterItem;
 import org.apache.plc4x.java.s7.netty.model.payloads.VarPayload;
 import org.apache.plc4x.java.s7.netty.model.payloads.items.VarPayloadItem;
 import org.apache.plc4x.java.s7.netty.model.types.*;
+import org.apache.plc4x.java.s7.netty.util.S7ValueList;
 
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.apache.plc4x.java.s7.netty.util.S7TypeDecoder.decodeData;
+import static org.apache.plc4x.java.s7.netty.util.S7TypeDecoder.decodeDataAsView;
 import static org.apache.plc4x.java.s7.netty.util.S7TypeEncoder.encodeData;
 
 /**
@@ -62,15 +69,60 @@ import static org.apache.plc4x.java.s7.netty.util.S7TypeEncoder.encodeData;
  *
  * When a {@link S7ResponseMessage} is received it takes the existing request container from its Map and finishes
  * the {@link PlcRequestContainer}s future with the {@link PlcResponse}.
+ *
+ * Requests not being answered within "plc4x.s7protocol.request_timeout" milliseconds (default 10000) are
+ * removed and their future is completed with a {@link java.util.concurrent.TimeoutException}. They are also
+ * cancelled in the {@link S7Protocol} layer, so lost responses don't block its max AMQ window.
+ *
+ * Read values of fixed size types are returned as view on the received data (see {@link S7ValueList}), which
+ * can be fetched as primitive arrays without boxing every single value. Setting "plc4x.s7protocol.decode_as_view"
+ * to false returns lists of boxed values instead.
  */
 public class Plc4XS7Protocol extends PlcMessageToMessageCodec<S7Message, PlcRequestContainer> {
 
+    // Fetch values from configuration
+    private static final Configuration CONF = new SystemConfiguration();
+    private static final long REQUEST_TIMEOUT = CONF.getLong("plc4x.s7protocol.request_timeout", 10_000);
+    private static final boolean DECODE_AS_VIEW = CONF.getBoolean("plc4x.s7protocol.decode_as_view", true);
+
     private static final AtomicInteger tpduGenerator = new AtomicInteger(1);
 
-    private Map<Short, PlcRequestContainer> requests;
+    private ConcurrentMap<Short, PlcRequestContainer> requests;
+    private RequestTimeouts<Short> requestTimeouts;
+    private volatile ChannelHandlerContext context;
 
     public Plc4XS7Protocol() {
-        this.requests = new HashMap<>();
+        this(REQUEST_TIMEOUT);
+    }
+
+    /**
+     * @param requestTimeout time in milliseconds after which unanswered requests fail (0 = never).
+     */
+    public Plc4XS7Protocol(long requestTimeout) {
+        this.requests = new ConcurrentHashMap<>();
+        this.requestTimeouts = new RequestTimeouts<>("S7", requestTimeout, requests);
+        // A timed out request still occupies a slot in the window of the S7 layer, so cancel it there on the event loop.
+        this.requestTimeouts.setTimeoutListener((key, container) -> {
+            ChannelHandlerContext ctx = context;
+            if (ctx != null) {
+                ctx.executor().execute(() -> {
+                    S7Protocol s7Protocol = ctx.pipeline().get(S7Protocol.class);
+                    if (s7Protocol != null) {
+                        s7Protocol.cancelRequest(container);
+                    }
+                });
+            }
+        });
+    }
+
+    public RequestTimeouts<Short> getRequestTimeouts() {
+        return requestTimeouts;
+    }
+
+    @Override
+    public void handlerAdded(ChannelHandlerContext ctx) throws Exception {
+        context = ctx;
+        super.handlerAdded(ctx);
     }
 
     /**
@@ -110,6 +162,7 @@ public class Plc4XS7Protocol extends PlcMessageToMessageCodec<S7Message, PlcRequ
 
                     // Remove the current request from the unconfirmed requests list.
                     requests.remove(request.getTpduReference());
+                    requestTimeouts.cancel(request.getTpduReference());
 
                     requestContainer.getResponseFuture().completeExceptionally(cause);
                 }
@@ -125,6 +178,7 @@ public class Plc4XS7Protocol extends PlcMessageToMessageCodec<S7Message, PlcRequ
                 }
                 // Clear the list
                 requests.clear();
+                requestTimeouts.cancelAll();
             }
         } else {
             super.exceptionCaught(ctx, cause);
@@ -146,11 +200,19 @@ public class Plc4XS7Protocol extends PlcMessageToMessageCodec<S7Message, PlcRequ
     }
 
     private void encodeReadRequest(PlcRequestContainer msg, List<Object> out) throws PlcException {
-        List<VarParameterItem> parameterItems = new LinkedList<>();
-
         PlcReadRequest readRequest = (PlcReadRequest) msg.getRequest();
-        encodeParameterItems(parameterItems, readRequest);
-        VarParameter readVarParameter = new VarParameter(ParameterType.READ_VAR, parameterItems);
+        VarParameter readVarParameter;
+        if (readRequest instanceof S7PreparedReadRequest) {
+            // The addresses of prepared requests only need to be translated on the first execution.
+            S7PreparedReadRequest preparedReadRequest = (S7PreparedReadRequest) readRequest;
+            readVarParameter = preparedReadRequest.getReadVarParameter();
+            if (readVarParameter == null) {
+                readVarParameter = encodeReadVarParameter(readRequest);
+                preparedReadRequest.setReadVarParameter(readVarParameter);
+            }
+        } else {
+            readVarParameter = encodeReadVarParameter(readRequest);
+        }
 
         // Assemble the request.
         S7RequestMessage s7ReadRequest = new S7RequestMessage(MessageType.JOB,
@@ -158,10 +220,17 @@ public class Plc4XS7Protocol extends PlcMessageToMessageCodec<S7Message, PlcRequ
             Collections.emptyList(), msg);
 
         requests.put(s7ReadRequest.getTpduReference(), msg);
+        requestTimeouts.schedule(s7ReadRequest.getTpduReference(), msg);
 
         out.add(s7ReadRequest);
     }
 
+    private VarParameter encodeReadVarParameter(PlcReadRequest readRequest) throws PlcException {
+        List<VarParameterItem> parameterItems = new LinkedList<>();
+        encodeParameterItems(parameterItems, readRequest);
+        return new VarParameter(ParameterType.READ_VAR, parameterItems);
+    }
+
     private void encodeWriteRequest(PlcRequestContainer msg, List<Object> out) throws PlcException {
         List<VarParameterItem> parameterItems = new LinkedList<>();
         List<VarPayloadItem> payloadItems = new LinkedList<>();
@@ -199,6 +268,7 @@ public class Plc4XS7Protocol extends PlcMessageToMessageCodec<S7Message, PlcRequ
             Collections.singletonList(writeVarPayload), msg);
 
         requests.put(s7WriteRequest.getTpduReference(), msg);
+        requestTimeouts.schedule(s7WriteRequest.getTpduReference(), msg);
 
         out.add(s7WriteRequest);
     }
@@ -299,16 +369,23 @@ public class Plc4XS7Protocol extends PlcMessageToMessageCodec<S7Message, PlcRequ
         }
         S7ResponseMessage responseMessage = (S7ResponseMessage) msg;
         short tpduReference = responseMessage.getTpduReference();
-        if (requests.containsKey(tpduReference)) {
-            PlcRequestContainer requestContainer = requests.remove(tpduReference);
+        PlcRequestContainer requestContainer = requests.remove(tpduReference);
+        if (requestContainer != null) {
+            requestTimeouts.cancel(tpduReference);
             PlcRequest request = requestContainer.getRequest();
             PlcResponse response = null;
 
-            // Handle the response to a read request.
-            if (request instanceof PlcReadRequest) {
-                response = decodeReadResponse(responseMessage, requestContainer);
-            } else if (request instanceof PlcWriteRequest) {
-                response = decodeWriteResponse(responseMessage, requestContainer);
+            // The request has already been removed, so it has to be failed here in case of errors.
+            try {
+                // Handle the response to a read request.
+                if (request instanceof PlcReadRequest) {
+                    response = decodeReadResponse(responseMessage, requestContainer);
+                } else if (request instanceof PlcWriteRequest) {
+                    response = decodeWriteResponse(responseMessage, requestContainer);
+                }
+            } catch (PlcProtocolException e) {
+                requestContainer.getResponseFuture().completeExceptionally(e);
+                return;
             }
 
             // Confirm the response being handled.
@@ -322,10 +399,13 @@ public class Plc4XS7Protocol extends PlcMessageToMessageCodec<S7Message, PlcRequ
     private PlcResponse decodeReadResponse(S7ResponseMessage responseMessage, PlcRequestContainer requestContainer) throws PlcProtocolException {
         PlcResponse response;
         PlcReadRequest plcReadRequest = (PlcReadRequest) requestContainer.getRequest();
+        // Answer prepared requests with a response to the original request.
+        if (plcReadRequest instanceof S7PreparedReadRequest) {
+            plcReadRequest = ((S7PreparedReadRequest) plcReadRequest).getReadRequest();
+        }
 
         List<ReadResponseItem<?>> responseItems = new LinkedList<>();
-        VarPayload payload = responseMessage.getPayload(VarPayload.class)
-            .orElseThrow(() -> new PlcProtocolException("No VarPayload supplied"));
+        VarPayload payload = getVarPayload(responseMessage);
 
         // If the numbers of items don't match, we're in big trouble as the only
         // way to know how to interpret the responses is by aligning them with the
@@ -354,7 +434,7 @@ public class Plc4XS7Protocol extends PlcMessageToMessageCodec<S7Message, PlcRequ
             else {
                 byte[] data = payloadItem.getData();
                 Class<?> datatype = requestItem.getDatatype();
-                List<?> value = decodeData(datatype, data);
+                List<?> value = DECODE_AS_VIEW ? decodeDataAsView(datatype, data) : decodeData(datatype, data);
                 responseItem = new ReadResponseItem(requestItem, responseCode, value);
             }
             responseItems.add(responseItem);
@@ -367,13 +447,19 @@ public class Plc4XS7Protocol extends PlcMessageToMessageCodec<S7Message, PlcRequ
         return response;
     }
 
+    private VarPayload getVarPayload(S7ResponseMessage responseMessage) throws PlcProtocolException {
+        return responseMessage.getPayload(VarPayload.class)
+            .orElseThrow(() -> new PlcProtocolException(String.format(
+                "No VarPayload supplied (error class 0x%02X, error code 0x%02X)",
+                responseMessage.getErrorClass(), responseMessage.getErrorCode())));
+    }
+
     @SuppressWarnings("unchecked")
     private PlcResponse decodeWriteResponse(S7ResponseMessage responseMessage, PlcRequestContainer requestContainer) throws PlcProtocolException {
         PlcResponse response;
         PlcWriteRequest plcWriteRequest = (PlcWriteRequest) requestContainer.getRequest();
         List<WriteResponseItem<?>> responseItems = new LinkedList<>();
-        VarPayload payload = responseMessage.getPayload(VarPayload.class)
-            .orElseThrow(() -> new PlcProtocolException("No VarPayload supplied"));
+        VarPayload payload = getVarPayload(responseMessage);
         // If the numbers of items don't match, we're in big trouble as the only
         // way to know how to interpret the responses is by aligning them with the
         // items from the request as this information is not returned by the PLC.
@@ -0,0 +1,85 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+package org.apache.plc4x.java.s7.netty;
+
+import org.apache.plc4x.java.api.messages.PlcReadRequest;
+import org.apache.plc4x.java.api.messages.PlcReadResponse;
+import org.apache.plc4x.java.api.messages.PreparedPlcReadRequest;
+import org.apache.plc4x.java.s7.netty.model.params.VarParameter;
+import org.apache.plc4x.java.s7.netty.strategies.S7MessageProcessor;
+import org.apache.plc4x.java.s7.netty.strategies.S7RequestPlan;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+import java.util.WeakHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * {@link PreparedPlcReadRequest} of the S7 driver. It is sent through the pipeline instead of the original
+ * read request and keeps the results of encoding the request, so following executions can reuse them:
+ * {@link Plc4XS7Protocol} keeps the translated addresses and {@link S7Protocol} the plan created by the
+ * {@link S7MessageProcessor} including the encoded messages.
+ */
+public class S7PreparedReadRequest extends PlcReadRequest implements PreparedPlcReadRequest {
+
+    private final PlcReadRequest readRequest;
+    private final Function<PlcReadRequest, CompletableFuture<PlcReadResponse>> reader;
+
+    private volatile VarParameter readVarParameter;
+    // Every connection has its own message processor, so keep one plan per processor.
+    private final Map<S7MessageProcessor, S7RequestPlan> requestPlans =
+        Collections.synchronizedMap(new WeakHashMap<>());
+
+    public S7PreparedReadRequest(PlcReadRequest readRequest,
+                                 Function<PlcReadRequest, CompletableFuture<PlcReadResponse>> reader) {
+        super(new ArrayList<>(Objects.requireNonNull(readRequest, "Read request must not be null").getRequestItems()));
+        this.readRequest = readRequest;
+        this.reader = Objects.requireNonNull(reader, "Reader must not be null");
+    }
+
+    @Override
+    public PlcReadRequest getReadRequest() {
+        return readRequest;
+    }
+
+    @Override
+    public CompletableFuture<PlcReadResponse> execute() {
+        return reader.apply(this);
+    }
+
+    VarParameter getReadVarParameter() {
+        return readVarParameter;
+    }
+
+    void setReadVarParameter(VarParameter readVarParameter) {
+        this.readVarParameter = readVarParameter;
+    }
+
+    S7RequestPlan getRequestPlan(S7MessageProcessor messageProcessor) {
+        return requestPlans.get(messageProcessor);
+    }
+
+    void setRequestPlan(S7MessageProcessor messageProcessor, S7RequestPlan requestPlan) {
+        requestPlans.put(messageProcessor, requestPlan);
+    }
+
+}
@@ -20,13 +20,18 @@ package org.apache.plc4x.java.s7.netty;
 
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufUtil;
-import io.netty.buffer.Unpooled;
 import io.netty.channel.*;
 import io.netty.handler.codec.MessageToMessageDecoder;
+import io.netty.util.ReferenceCountUtil;
 import io.netty.util.concurrent.Future;
 import io.netty.util.concurrent.PromiseCombiner;
 import org.apache.commons.lang3.reflect.FieldUtils;
+import org.apache.plc4x.java.api.exceptions.PlcException;
 import org.apache.plc4x.java.api.exceptions.PlcProtocolPayloadTooBigException;
+import org.apache.plc4x.java.api.messages.PlcRequest;
+import org.apache.plc4x.java.api.messages.PlcRequestContainer;
+import org.apache.plc4x.java.api.messages.ProtocolMessage;
+import org.apache.plc4x.java.isoontcp.netty.IsoOnTcpProtocol;
 import org.apache.plc4x.java.isotp.netty.IsoTPProtocol;
 import org.apache.plc4x.java.isotp.netty.events.IsoTPConnectedEvent;
 import org.apache.plc4x.java.isotp.netty.model.IsoTPMessage;
@@ -44,12 +49,14 @@ import org.apache.plc4x.java.s7.netty.model.payloads.items.VarPayloadItem;
 import org.apache.plc4x.java.s7.netty.model.types.*;
 import org.apache.plc4x.java.s7.netty.strategies.DefaultS7MessageProcessor;
 import org.apache.plc4x.java.s7.netty.strategies.S7MessageProcessor;
+import org.apache.plc4x.java.s7.netty.strategies.S7RequestPlan;
 import org.apache.plc4x.java.s7.netty.util.S7SizeHelper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.lang.reflect.Field;
 import java.util.*;
+import java.util.concurrent.CancellationException;
 
 /**
  * Communication Layer between the Application level ({@link Plc4XS7Protocol}) and the lower level (tcp) that sends and receives {@link S7Message}s.
@@ -64,6 +71,12 @@ public class S7Protocol extends ChannelDuplexHandler {
 
     private static final byte S7_PROTOCOL_MAGIC_NUMBER = 0x32;
 
+    // Space reserved in front of every encoded message for the ISO on TCP and ISO TP headers.
+    private static final int LOWER_LAYERS_HEADER_LENGTH =
+        IsoOnTcpProtocol.ISO_ON_TCP_HEADER_LENGTH + IsoTPProtocol.DATA_TPDU_HEADER_LENGTH;
+    // Magic number, message type and reserved bytes precede the tpdu reference.
+    private static final int TPDU_REFERENCE_OFFSET = 4;
+
     private static final Logger logger = LoggerFactory.getLogger(S7Protocol.class);
 
     private final MessageToMessageDecoder<Object> decoder = new MessageToMessageDecoder<Object>() {
@@ -89,19 +102,26 @@ public class S7Protocol extends ChannelDuplexHandler {
     private S7MessageProcessor messageProcessor;
 
     // For being able to respect the max AMQ restrictions.
+    private ChannelHandlerContext context;
     private PendingWriteQueue queue;
     private Map<Short, DataTpdu> sentButUnacknowledgedTpdus;
 
     public S7Protocol(short requestedMaxAmqCaller, short requestedMaxAmqCallee, short requestedPduSize) {
+        this(requestedMaxAmqCaller, requestedMaxAmqCallee, requestedPduSize, new DefaultS7MessageProcessor());
+    }
+
+    public S7Protocol(short requestedMaxAmqCaller, short requestedMaxAmqCallee, short requestedPduSize,
+                      S7MessageProcessor messageProcessor) {
         this.maxAmqCaller = requestedMaxAmqCaller;
         this.maxAmqCallee = requestedMaxAmqCallee;
         this.pduSize = requestedPduSize;
         sentButUnacknowledgedTpdus = new HashMap<>();
-        messageProcessor = new DefaultS7MessageProcessor();
+        this.messageProcessor = messageProcessor;
     }
 
     @Override
     public void channelRegistered(ChannelHandlerContext ctx) {
+        this.context = ctx;
         this.queue = new PendingWriteQueue(ctx);
         try {
             Field prevField = FieldUtils.getField(ctx.getClass(), "prev", true);
@@ -162,9 +182,15 @@ public class S7Protocol extends ChannelDuplexHandler {
 
             // Give message processors to process the incoming message.
             Collection<? extends S7Message> messages;
+            S7RequestPlan requestPlan = null;
             if((messageProcessor != null) && (in instanceof S7RequestMessage)) {
                 try {
-                    messages = messageProcessor.processRequest((S7RequestMessage) in, pduSize);
+                    requestPlan = getRequestPlan((S7RequestMessage) in);
+                    if(requestPlan != null) {
+                        messages = requestPlan.createRequestMessages((S7RequestMessage) in);
+                    } else {
+                        messages = messageProcessor.processRequest((S7RequestMessage) in, pduSize);
+                    }
                 } catch(Exception e) {
                     logger.error("Error processing message", e);
                     ctx.fireExceptionCaught(e);
@@ -177,21 +203,14 @@ public class S7Protocol extends ChannelDuplexHandler {
             // Create a promise that has to be called multiple times.
             PromiseCombiner promiseCombiner = new PromiseCombiner();
             if(messages != null) {
+                int messageIndex = 0;
                 for (S7Message message : messages) {
-                    ByteBuf buf = Unpooled.buffer();
-
-                    encodeHeader(message, buf);
-                    encodeParameters(message, buf);
-                    encodePayloads(message, buf);
-
-                    // Check if the message doesn't exceed the negotiated maximum size.
-                    if (buf.writerIndex() > pduSize) {
-                        ctx.fireExceptionCaught(new PlcProtocolPayloadTooBigException("s7", pduSize, buf.writerIndex(), message));
-                    } else {
+                    ByteBuf buf = encodeMessage(ctx, message, requestPlan, messageIndex++);
+                    if (buf != null) {
                         ChannelPromise subPromise = new DefaultChannelPromise(promise.channel());
                         queue.add(new DataTpdu(true, (byte) 0x01, Collections.emptyList(), buf, message), subPromise);
                         promiseCombiner.add((Future) subPromise);
-                        logger.debug("S7 Message with id {} queued", message.getTpduReference());
+                        logger.debug("S7 Message with id {} queued", message.getTpduReference());
                     }
                 }
             }
@@ -204,6 +223,77 @@ public class S7Protocol extends ChannelDuplexHandler {
         }
     }
 
+    /**
+     * Requests created for a {@link S7PreparedReadRequest} are processed according to a plan, which is created
+     * on their first execution on this connection.
+     *
+     * @return the plan for the request or null, if the request has to be processed the normal way.
+     */
+    private S7RequestPlan getRequestPlan(S7RequestMessage request) throws PlcException {
+        if(!(request.getParent() instanceof PlcRequestContainer)) {
+            return null;
+        }
+        PlcRequest plcRequest = ((PlcRequestContainer) request.getParent()).getRequest();
+        if(!(plcRequest instanceof S7PreparedReadRequest)) {
+            return null;
+        }
+        S7PreparedReadRequest preparedReadRequest = (S7PreparedReadRequest) plcRequest;
+        S7RequestPlan requestPlan = preparedReadRequest.getRequestPlan(messageProcessor);
+        if((requestPlan == null) || (requestPlan.getPduSize() != pduSize)) {
+            requestPlan = messageProcessor.prepareRequest(request, pduSize);
+            if(requestPlan != null) {
+                preparedReadRequest.setRequestPlan(messageProcessor, requestPlan);
+            }
+        }
+        return requestPlan;
+    }
+
+    /**
+     * Encodes the message into a buffer big enough for the entire packet.
+     *
+     * @return the buffer or null, if the message exceeds the negotiated pdu size.
+     */
+    private ByteBuf encodeMessage(ChannelHandlerContext ctx, S7Message message, S7RequestPlan requestPlan,
+                                  int messageIndex) {
+        // Messages sent according to a plan only differ in their tpdu reference, so once encoded
+        // they only need to be copied and the tpdu reference be patched.
+        byte[] encodedMessage = (requestPlan != null) ? requestPlan.getEncodedMessage(messageIndex) : null;
+        if (encodedMessage != null) {
+            ByteBuf buf = ctx.alloc().buffer(LOWER_LAYERS_HEADER_LENGTH + encodedMessage.length);
+            buf.setIndex(LOWER_LAYERS_HEADER_LENGTH, LOWER_LAYERS_HEADER_LENGTH);
+            buf.writeBytes(encodedMessage);
+            buf.setShort(LOWER_LAYERS_HEADER_LENGTH + TPDU_REFERENCE_OFFSET, message.getTpduReference());
+            return buf;
+        }
+
+        short parametersLength = S7SizeHelper.getParametersLength(message.getParameters());
+        short payloadsLength = S7SizeHelper.getPayloadsLength(message.getPayloads());
+        int messageLength = getHeaderLength(message) + parametersLength + payloadsLength;
+
+        // Check if the message doesn't exceed the negotiated maximum size.
+        if (messageLength > pduSize) {
+            ctx.fireExceptionCaught(new PlcProtocolPayloadTooBigException("s7", pduSize, messageLength, message));
+            return null;
+        }
+
+        // Allocate one buffer big enough for the entire packet and leave room in
+        // front of the S7 message, so the lower layers can write their headers in
+        // there instead of copying the message into buffers of their own.
+        ByteBuf buf = ctx.alloc().buffer(LOWER_LAYERS_HEADER_LENGTH + messageLength);
+        buf.setIndex(LOWER_LAYERS_HEADER_LENGTH, LOWER_LAYERS_HEADER_LENGTH);
+
+        encodeHeader(message, parametersLength, payloadsLength, buf);
+        encodeParameters(message, buf);
+        encodePayloads(message, buf);
+
+        if (requestPlan != null) {
+            encodedMessage = new byte[messageLength];
+            buf.getBytes(LOWER_LAYERS_HEADER_LENGTH, encodedMessage);
+            requestPlan.setEncodedMessage(messageIndex, encodedMessage);
+        }
+        return buf;
+    }
+
     private void encodePayloads(S7Message in, ByteBuf buf) {
         for (S7Payload payload : in.getPayloads()) {
             ParameterType parameterType = payload.getType();
@@ -240,7 +330,11 @@ public class S7Protocol extends ChannelDuplexHandler {
         }
     }
 
-    private void encodeHeader(S7Message in, ByteBuf buf) {
+    private int getHeaderLength(S7Message in) {
+        return (in instanceof S7ResponseMessage) ? 12 : 10;
+    }
+
+    private void encodeHeader(S7Message in, short parametersLength, short payloadsLength, ByteBuf buf) {
         buf.writeByte(S7_PROTOCOL_MAGIC_NUMBER);
         buf.writeByte(in.getMessageType().getCode());
         // Reserved (is always constant 0x0000)
@@ -248,9 +342,9 @@ public class S7Protocol extends ChannelDuplexHandler {
         // PDU Reference (Request Id, generated by the initiating node)
         buf.writeShort(in.getTpduReference());
         // S7 message parameters length
-        buf.writeShort(S7SizeHelper.getParametersLength(in.getParameters()));
+        buf.writeShort(parametersLength);
         // Data field length
-        buf.writeShort(S7SizeHelper.getPayloadsLength(in.getPayloads()));
+        buf.writeShort(payloadsLength);
         if (in instanceof S7ResponseMessage) {
             S7ResponseMessage s7ResponseMessage = (S7ResponseMessage) in;
             buf.writeByte(s7ResponseMessage.getErrorClass());
@@ -306,8 +400,17 @@ public class S7Protocol extends ChannelDuplexHandler {
 
     @Override
     public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
-        decoder.channelRead(ctx, msg);
-        super.channelRead(ctx, msg);
+        if (msg instanceof IsoTPMessage) {
+            try {
+                decoder.channelRead(ctx, msg);
+            } finally {
+                // This is the last layer processing the user data (which is usually a slice
+                // of the ISO on TCP layers accumulated input), so we have to release it.
+                ReferenceCountUtil.release(((IsoTPMessage) msg).getUserData());
+            }
+        } else {
+            super.channelRead(ctx, msg);
+        }
     }
 
     protected void decode(ChannelHandlerContext ctx, IsoTPMessage in, List<Object> out) {
@@ -530,39 +633,144 @@ public class S7Protocol extends ChannelDuplexHandler {
         super.flush(ctx);
     }
 
+    /**
+     * Sends as many queued {@link DataTpdu}s as the negotiated max AMQ caller value allows.
+     * Every sent TPDU is tracked in {@link #sentButUnacknowledgedTpdus} until its response
+     * is received, which in turn frees up a slot in the window and triggers sending the next
+     * queued TPDUs. As responses are matched by their tpdu reference, a TPDU is held back while another
+     * one with the same reference is still waiting for its response.
+     *
+     * @param ctx the current protocol layers context
+     */
     private synchronized void trySendingMessages(ChannelHandlerContext ctx) {
         while(sentButUnacknowledgedTpdus.size() < maxAmqCaller) {
             // Get the TPDU that is up next in the queue.
             DataTpdu curTpdu = (DataTpdu) queue.current();
+            if (curTpdu == null) {
+                break;
+            }
 
-            if (curTpdu != null) {
-                // Send the TPDU.
-                try {
-                    ChannelFuture channelFuture = queue.removeAndWrite();
-                    ctx.flush();
-                    if (channelFuture == null) {
-                        break;
-                    }
-                } catch (Exception e) {
-                    logger.error("Error sending more queues messages", e);
-                    ctx.fireExceptionCaught(e);
-                }
-
-                if(curTpdu.getParent() != null) {
-                    // Add it to the list of sentButUnacknowledgedTpdus.
-                    // (It seems that the S7 drops the value of the COTP reference id, so we have to use the S7 one)
-                    S7RequestMessage s7RequestMessage = (S7RequestMessage) curTpdu.getParent();
-                    sentButUnacknowledgedTpdus.put(s7RequestMessage.getTpduReference(), curTpdu);
+            // Responses are matched by their tpdu reference only, so a TPDU has to wait until no other
+            // TPDU with the same reference is in flight (The references of split up messages and of
+            // unsplit requests are generated independently).
+            S7RequestMessage s7RequestMessage = (S7RequestMessage) curTpdu.getParent();
+            if ((s7RequestMessage != null) &&
+                sentButUnacknowledgedTpdus.containsKey(s7RequestMessage.getTpduReference())) {
+                logger.debug("S7 Message with id {} waits for the response to the previous one with the same id",
+                    s7RequestMessage.getTpduReference());
+                break;
+            }
 
-                    logger.debug("S7 Message with id {} sent", s7RequestMessage.getTpduReference());
+            // Send the TPDU.
+            try {
+                ChannelFuture channelFuture = queue.removeAndWrite();
+                if (channelFuture == null) {
+                    break;
                 }
-                // TODO: Eventually remove this.
-                break;
-            } else {
+            } catch (Exception e) {
+                // The TPDU wasn't sent, so it mustn't occupy a slot in the window.
+                logger.error("Error sending more queues messages", e);
+                ctx.fireExceptionCaught(e);
                 break;
             }
+
+            if(s7RequestMessage != null) {
+                // Add it to the list of sentButUnacknowledgedTpdus.
+                // (It seems that the S7 drops the value of the COTP reference id, so we have to use the S7 one)
+                sentButUnacknowledgedTpdus.put(s7RequestMessage.getTpduReference(), curTpdu);
+
+                logger.debug("S7 Message with id {} sent", s7RequestMessage.getTpduReference());
+            }
         }
         ctx.flush();
     }
 
+    /**
+     * Cancels a request nobody is waiting for anymore, usually because it timed out. Its messages still
+     * waiting in the queue are dropped and its sent messages no longer occupy a slot of the max AMQ window
+     * (their responses are ignored, if they arrive after all), so the next queued messages are sent.
+     * Has to be called on the channels event loop.
+     *
+     * @param container the request to cancel.
+     */
+    public synchronized void cancelRequest(PlcRequestContainer container) {
+        if (queue == null) {
+            return;
+        }
+        sentButUnacknowledgedTpdus.values().removeIf(tpdu -> belongsTo(tpdu, container));
+
+        // The queue can't remove single entries, so all other entries are queued again in the same order.
+        List<DataTpdu> keptTpdus = new ArrayList<>();
+        List<ChannelPromise> keptPromises = new ArrayList<>();
+        DataTpdu curTpdu;
+        while ((curTpdu = (DataTpdu) queue.current()) != null) {
+            ChannelPromise promise = queue.remove();
+            if (belongsTo(curTpdu, container)) {
+                ReferenceCountUtil.release(curTpdu.getUserData());
+                promise.tryFailure(new CancellationException("Request cancelled"));
+            } else {
+                keptTpdus.add(curTpdu);
+                keptPromises.add(promise);
+            }
+        }
+        for (int i = 0; i < keptTpdus.size(); i++) {
+            queue.add(keptTpdus.get(i), keptPromises.get(i));
+        }
+
+        trySendingMessages(context);
+    }
+
+    private boolean belongsTo(DataTpdu tpdu, PlcRequestContainer container) {
+        for (ProtocolMessage message = tpdu.getParent(); message != null; message = message.getParent()) {
+            if (message == container) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the maximum number of requests that may be sent to the PLC without having received a response.
+     */
+    public short getMaxAmqCaller() {
+        return maxAmqCaller;
+    }
+
+    /**
+     * @return the maximum number of requests the PLC may send without having received a response.
+     */
+    public short getMaxAmqCallee() {
+        return maxAmqCallee;
+    }
+
+    /**
+     * @return the (negotiated) maximum size of a single S7 PDU.
+     */
+    public short getPduSize() {
+        return pduSize;
+    }
+
+    /**
+     * @return the processor used for splitting up (and eventually optimizing) requests.
+     */
+    public S7MessageProcessor getMessageProcessor() {
+        return messageProcessor;
+    }
+
+    /**
+     * @return the number of messages that were sent, but haven't been acknowledged yet (occupied window slots).
+     */
+    public synchronized int getNumUnacknowledgedMessages() {
+        return sentButUnacknowledgedTpdus.size();
+    }
+
+    /**
+     * As the pending write queue is not thread-safe, this has to be called from the channels event loop.
+     *
+     * @return the number of messages waiting for a free slot in the window before being sent.
+     */
+    public int getNumQueuedMessages() {
+        return (queue != null) ? queue.size() : 0;
+    }
+
 }
@@ -50,17 +50,20 @@ import java.util.concurrent.atomic.AtomicInteger;
  *   could exceed the PDU size: The requests has to be split up into multiple requests
  *   where each requests response doesn't exceed the PDU size.
  *
- * The following optimizations should be implemented:
- * - If blocks are read which are in near proximity to each other it could be better
- *   to replace multiple requests by one that includes multiple blocks.
- * - Rearranging the order of request items could reduce the number of needed PDUs.
+ * Read requests are only split up, the items themselves are sent unchanged and in their
+ * original order. The {@link ReadOptimizingS7MessageProcessor} additionally merges nearby
+ * items into block reads and rearranges them in order to reduce the number of needed PDUs.
  */
 public class DefaultS7MessageProcessor implements S7MessageProcessor {
 
     private AtomicInteger tpduRefGen;
 
     public DefaultS7MessageProcessor() {
-        this.tpduRefGen = new AtomicInteger(1);
+        this(new AtomicInteger(1));
+    }
+
+    DefaultS7MessageProcessor(AtomicInteger tpduRefGen) {
+        this.tpduRefGen = tpduRefGen;
     }
 
     @Override
@@ -86,74 +89,19 @@ public class DefaultS7MessageProcessor implements S7MessageProcessor {
         if (varParameterOptional.isPresent()) {
             VarParameter varParameter = varParameterOptional.get();
 
-            // Create a new composite request message.
-            S7CompositeRequestMessage compositeRequestMessage =
-                new S7CompositeRequestMessage(request);
-
             // If this is a read operation, try to get as many items in as possible.
             if(varParameter.getType() == ParameterType.READ_VAR) {
-                // Create a var parameter without any items (yet).
-                S7Parameter subVarParameter = new VarParameter(varParameter.getType(), new LinkedList<>());
-
-                // Create a sub message with only this empty parameter.
-                S7RequestMessage subMessage = new S7RequestMessage(
-                    request.getMessageType(), (short) tpduRefGen.getAndIncrement(),
-                    Collections.singletonList(subVarParameter), Collections.emptyList(), compositeRequestMessage);
-
-                // Add this sub-message to the composite.
-                compositeRequestMessage.addRequestMessage(subMessage);
-
-                // This calculates the size of the header for the request and response.
-                int curRequestSize = S7RequestSizeCalculator.getRequestMessageSize(subMessage);
-                int curResponseSize = S7ResponseSizeEstimator.getEstimatedResponseMessageSize(subMessage);
-
-                // For each var item of the original request, try adding them to the current sub-message
-                // as long as it or the resulting response does not exceed the max PDU size.
-                for (VarParameterItem varParameterItem : varParameter.getItems()) {
-                    VarPayloadItem varPayloadItem = null;
-                    Optional<VarPayloadItem> payloadItem = request.getPayload(VarPayloadItem.class);
-                    if (payloadItem.isPresent()) {
-                        varPayloadItem = payloadItem.get();
-                    }
-
-                    // Use the S7RequestSizeCalculator to calculate the actual and estimated item sizes.
-                    int itemRequestSize = S7RequestSizeCalculator.getRequestItemTotalSize(
-                        varParameterItem, varPayloadItem);
-                    int itemResponseSize = S7ResponseSizeEstimator.getEstimatedResponseReadItemTotalSize(
-                        varParameterItem, varPayloadItem);
-
-                    // When adding this item to the request we would exceed the pdu size in
-                    // the request or response, so we have to create a new sub-message.
-                    if ((curRequestSize + itemRequestSize > pduSize) || (curResponseSize + itemResponseSize > pduSize)) {
-                        // Create a new var parameter without any items (yet).
-                        subVarParameter = new VarParameter(varParameter.getType(), new LinkedList<>());
-
-                        // Create a new sub message with only this empty parameter.
-                        subMessage = new S7RequestMessage(
-                            request.getMessageType(), (short) tpduRefGen.getAndIncrement(),
-                            Collections.singletonList(subVarParameter),
-                            Collections.emptyList(), compositeRequestMessage);
-
-                        // Reset the message size
-                        curRequestSize = S7RequestSizeCalculator.getRequestMessageSize(subMessage);
-                        curResponseSize = S7ResponseSizeEstimator.getEstimatedResponseMessageSize(subMessage);
-
-                        // Add this new sub-message to the composite.
-                        compositeRequestMessage.addRequestMessage(subMessage);
-                    } else {
-                        // Increment the current sizes.
-                        curRequestSize += itemRequestSize;
-                        curResponseSize += itemResponseSize;
-                    }
-
-                    // Add the item to the current subVarParameter.
-                    ((VarParameter) subVarParameter).getItems().add(varParameterItem);
-                }
+                return createReadRequestMessages(
+                    tpduRefGen, request, splitReadItems(request, varParameter, pduSize));
             }
 
+            // Create a new composite request message.
+            S7CompositeRequestMessage compositeRequestMessage =
+                new S7CompositeRequestMessage(request);
+
             // If this is a write operation, split up every array item into single value items
             // and every item into a separate message.
-            else if(varParameter.getType() == ParameterType.WRITE_VAR) {
+            if(varParameter.getType() == ParameterType.WRITE_VAR) {
                 VarPayload varPayload = request.getPayload(VarPayload.class)
                     .orElseThrow(() -> new PlcProtocolException("Expecting payloads for a write request"));
                 if(varParameter.getItems().size() != varPayload.getItems().size()) {
@@ -262,14 +210,108 @@ public class DefaultS7MessageProcessor implements S7MessageProcessor {
         return Collections.singletonList(request);
     }
 
+    /**
+     * Read requests can be prepared, the plan simply remembers which items go into which message.
+     */
+    @Override
+    public S7RequestPlan prepareRequest(S7RequestMessage request, int pduSize) {
+        Optional<VarParameter> varParameterOptional = request.getParameter(VarParameter.class);
+        if (!varParameterOptional.isPresent() || (varParameterOptional.get().getType() != ParameterType.READ_VAR)) {
+            return null;
+        }
+        List<List<VarParameterItem>> itemGroups = splitReadItems(request, varParameterOptional.get(), pduSize);
+        return new ReadRequestPlan(pduSize, tpduRefGen, itemGroups);
+    }
+
+    /**
+     * Distributes the items of a read request over as many messages as needed, so neither the
+     * requests nor the responses exceed the pdu size.
+     */
+    private List<List<VarParameterItem>> splitReadItems(S7RequestMessage request, VarParameter varParameter,
+                                                        int pduSize) {
+        List<List<VarParameterItem>> itemGroups = new LinkedList<>();
+
+        // Create a message without any items (yet), to calculate the size of the header for the request and response.
+        S7RequestMessage emptyMessage = new S7RequestMessage(request.getMessageType(), (short) 0,
+            Collections.singletonList(new VarParameter(varParameter.getType(), Collections.emptyList())),
+            Collections.emptyList(), null);
+        int emptyRequestSize = S7RequestSizeCalculator.getRequestMessageSize(emptyMessage);
+        int emptyResponseSize = S7ResponseSizeEstimator.getEstimatedResponseMessageSize(emptyMessage);
+
+        List<VarParameterItem> itemGroup = new LinkedList<>();
+        itemGroups.add(itemGroup);
+        int curRequestSize = emptyRequestSize;
+        int curResponseSize = emptyResponseSize;
+
+        // For each var item of the original request, try adding them to the current sub-message
+        // as long as it or the resulting response does not exceed the max PDU size.
+        for (VarParameterItem varParameterItem : varParameter.getItems()) {
+            VarPayloadItem varPayloadItem = null;
+            Optional<VarPayloadItem> payloadItem = request.getPayload(VarPayloadItem.class);
+            if (payloadItem.isPresent()) {
+                varPayloadItem = payloadItem.get();
+            }
+
+            // Use the S7RequestSizeCalculator to calculate the actual and estimated item sizes.
+            int itemRequestSize = S7RequestSizeCalculator.getRequestItemTotalSize(
+                varParameterItem, varPayloadItem);
+            int itemResponseSize = S7ResponseSizeEstimator.getEstimatedResponseReadItemTotalSize(
+                varParameterItem, varPayloadItem);
+
+            // When adding this item to the request we would exceed the pdu size in
+            // the request or response, so we have to start a new sub-message.
+            if (!itemGroup.isEmpty() &&
+                ((curRequestSize + itemRequestSize > pduSize) || (curResponseSize + itemResponseSize > pduSize))) {
+                itemGroup = new LinkedList<>();
+                itemGroups.add(itemGroup);
+
+                // Reset the message size
+                curRequestSize = emptyRequestSize;
+                curResponseSize = emptyResponseSize;
+            }
+
+            // Add the item to the current sub-message.
+            itemGroup.add(varParameterItem);
+            curRequestSize += itemRequestSize;
+            curResponseSize += itemResponseSize;
+        }
+        return itemGroups;
+    }
+
+    private static Collection<S7RequestMessage> createReadRequestMessages(AtomicInteger tpduRefGen,
+                                                                          S7RequestMessage request,
+                                                                          List<List<VarParameterItem>> itemGroups) {
+        // Create a new composite request message with one sub-message per group of items.
+        S7CompositeRequestMessage compositeRequestMessage = new S7CompositeRequestMessage(request);
+        for (List<VarParameterItem> itemGroup : itemGroups) {
+            S7RequestMessage subMessage = new S7RequestMessage(
+                request.getMessageType(), (short) tpduRefGen.getAndIncrement(),
+                Collections.singletonList(new VarParameter(ParameterType.READ_VAR, itemGroup)),
+                Collections.emptyList(), compositeRequestMessage);
+            compositeRequestMessage.addRequestMessage(subMessage);
+        }
+        return compositeRequestMessage.getRequestMessages();
+    }
+
     @Override
     public S7ResponseMessage processResponse(S7RequestMessage request, S7ResponseMessage response) {
         // If it's a split-up message, check if all parts are now acknowledged.
         if (request.getParent() instanceof S7CompositeRequestMessage) {
             S7CompositeRequestMessage parent = (S7CompositeRequestMessage) request.getParent();
+            if (parent.isFailed()) {
+                return null;
+            }
+
+            // Read and write responses without payloads are rejected as a whole (error class and code are
+            // set in the header), so answer the original request with the error right away.
+            if (response.getPayloads().isEmpty()) {
+                parent.setFailed();
+                return new S7ResponseMessage(response.getMessageType(), parent.originalRequest.getTpduReference(),
+                    Collections.emptyList(), Collections.emptyList(), response.getErrorClass(), response.getErrorCode());
+            }
 
             // Add the response to the container so we can add it's information to the composite response.
-            parent.addResponseMessage(response);
+            parent.addResponseMessage(request, response);
 
             // If all parts of this split-up message are now acknowledged, create a unified
             // response object and pass that up to the higher layers.
@@ -355,16 +397,40 @@ public class DefaultS7MessageProcessor implements S7MessageProcessor {
         return null;
     }
 
+    /**
+     * Plans are kept by prepared requests, weakly keyed by the processor that created them, so they must not
+     * reference the processor (which an anonymous or inner class would do).
+     */
+    private static class ReadRequestPlan extends S7RequestPlan {
+
+        private final AtomicInteger tpduRefGen;
+        private final List<List<VarParameterItem>> itemGroups;
+
+        private ReadRequestPlan(int pduSize, AtomicInteger tpduRefGen, List<List<VarParameterItem>> itemGroups) {
+            super(pduSize, itemGroups.size());
+            this.tpduRefGen = tpduRefGen;
+            this.itemGroups = itemGroups;
+        }
+
+        @Override
+        public Collection<? extends S7RequestMessage> createRequestMessages(S7RequestMessage request) {
+            return createReadRequestMessages(tpduRefGen, request, itemGroups);
+        }
+
+    }
+
     static class S7CompositeRequestMessage implements ProtocolMessage {
 
         private S7RequestMessage originalRequest;
         private Collection<S7RequestMessage> requestMessages;
-        private Collection<S7ResponseMessage> responseMessages;
+        // Responses may arrive in any order, so they are kept per request and merged in the order of the requests.
+        private Map<S7RequestMessage, S7ResponseMessage> responseMessages;
+        private boolean failed;
 
         S7CompositeRequestMessage(S7RequestMessage originalRequest) {
             this.originalRequest = originalRequest;
             this.requestMessages = new LinkedList<>();
-            this.responseMessages = new LinkedList<>();
+            this.responseMessages = new IdentityHashMap<>();
         }
 
         @Override
@@ -386,6 +452,17 @@ public class DefaultS7MessageProcessor implements S7MessageProcessor {
             return true;
         }
 
+        /**
+         * @return true, if the original request has already been answered with an error.
+         */
+        private boolean isFailed() {
+            return failed;
+        }
+
+        private void setFailed() {
+            failed = true;
+        }
+
         void addRequestMessage(S7RequestMessage requestMessage) {
             requestMessages.add(requestMessage);
         }
@@ -394,12 +471,19 @@ public class DefaultS7MessageProcessor implements S7MessageProcessor {
             return requestMessages;
         }
 
-        private void addResponseMessage(S7ResponseMessage responseMessage) {
-            responseMessages.add(responseMessage);
+        private void addResponseMessage(S7RequestMessage requestMessage, S7ResponseMessage responseMessage) {
+            responseMessages.put(requestMessage, responseMessage);
         }
 
         private Collection<S7ResponseMessage> getResponseMessages() {
-            return responseMessages;
+            List<S7ResponseMessage> orderedResponseMessages = new ArrayList<>(requestMessages.size());
+            for (S7RequestMessage requestMessage : requestMessages) {
+                S7ResponseMessage responseMessage = responseMessages.get(requestMessage);
+                if (responseMessage != null) {
+                    orderedResponseMessages.add(responseMessage);
+                }
+            }
+            return orderedResponseMessages;
         }
     }
 
@@ -0,0 +1,445 @@
+package org.apache.plc4x.java.s7.netty.strategies;
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+
+import org.apache.commons.configuration2.Configuration;
+import org.apache.commons.configuration2.SystemConfiguration;
+import org.apache.plc4x.java.api.exceptions.PlcException;
+import org.apache.plc4x.java.api.exceptions.PlcProtocolException;
+import org.apache.plc4x.java.api.messages.ProtocolMessage;
+import org.apache.plc4x.java.s7.netty.model.messages.S7RequestMessage;
+import org.apache.plc4x.java.s7.netty.model.messages.S7ResponseMessage;
+import org.apache.plc4x.java.s7.netty.model.params.VarParameter;
+import org.apache.plc4x.java.s7.netty.model.params.items.S7AnyVarParameterItem;
+import org.apache.plc4x.java.s7.netty.model.params.items.VarParameterItem;
+import org.apache.plc4x.java.s7.netty.model.payloads.VarPayload;
+import org.apache.plc4x.java.s7.netty.model.payloads.items.VarPayloadItem;
+import org.apache.plc4x.java.s7.netty.model.types.DataTransportErrorCode;
+import org.apache.plc4x.java.s7.netty.model.types.DataTransportSize;
+import org.apache.plc4x.java.s7.netty.model.types.ParameterType;
+import org.apache.plc4x.java.s7.netty.model.types.SpecificationType;
+import org.apache.plc4x.java.s7.netty.model.types.TransportSize;
+import org.apache.plc4x.java.s7.netty.util.S7RequestSizeCalculator;
+import org.apache.plc4x.java.s7.netty.util.S7ResponseSizeEstimator;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Alternative to the {@link DefaultS7MessageProcessor} which optimizes read requests:
+ * - Items reading from the same memory area (and data block) are sorted by their byte offset.
+ *   Items which are in near proximity to each other are replaced by one single BYTE-array
+ *   read of the block containing all of them. Items are considered to be near to each other,
+ *   if the number of unused bytes between them doesn't exceed the configured maximum gap.
+ *   Reading a few unused bytes is usually cheaper than the 12 bytes of request and at least
+ *   4 bytes of response every additional item costs.
+ * - The resulting blocks are distributed over as few PDUs as possible by adding the biggest
+ *   blocks first and putting every block into the first message it still fits in.
+ * When all responses are received, the data is sliced back into one payload item per item of
+ * the original request, in the original order.
+ *
+ * Write requests and all other messages are handled exactly like the {@link DefaultS7MessageProcessor} does.
+ * The maximum gap defaults to 16 bytes and can be changed via the
+ * "plc4x.readoptimizings7messageprocessor.max_gap" system property.
+ */
+public class ReadOptimizingS7MessageProcessor implements S7MessageProcessor {
+
+    // Fetch values from configuration
+    private static final Configuration CONF = new SystemConfiguration();
+    public static final int DEFAULT_MAX_GAP = CONF.getInt("plc4x.readoptimizings7messageprocessor.max_gap", 16);
+
+    // A read var payload item starts with the return code, transport size and length (two bytes).
+    private static final int READ_PAYLOAD_ITEM_HEADER_SIZE = 4;
+
+    private final AtomicInteger tpduRefGen;
+    private final DefaultS7MessageProcessor defaultProcessor;
+    private final int maxGap;
+
+    public ReadOptimizingS7MessageProcessor() {
+        this(DEFAULT_MAX_GAP);
+    }
+
+    /**
+     * @param maxGap maximum number of unused bytes between two items that are still merged into one block read.
+     */
+    public ReadOptimizingS7MessageProcessor(int maxGap) {
+        this.tpduRefGen = new AtomicInteger(1);
+        // Share the tpdu reference generator so the references of both processors don't collide.
+        this.defaultProcessor = new DefaultS7MessageProcessor(tpduRefGen);
+        this.maxGap = maxGap;
+    }
+
+    public int getMaxGap() {
+        return maxGap;
+    }
+
+    @Override
+    public Collection<? extends S7RequestMessage> processRequest(S7RequestMessage request, int pduSize)
+        throws PlcException {
+        Optional<VarParameter> varParameterOptional = request.getParameter(VarParameter.class);
+        if (!varParameterOptional.isPresent() || (varParameterOptional.get().getType() != ParameterType.READ_VAR)) {
+            return defaultProcessor.processRequest(request, pduSize);
+        }
+        List<VarParameterItem> items = varParameterOptional.get().getItems();
+        return createReadRequestMessages(tpduRefGen, request, items.size(), distributeBlocks(request, items, pduSize));
+    }
+
+    /**
+     * Read requests can be prepared, the plan remembers the blocks and which message they go into.
+     * All other requests are prepared like the {@link DefaultS7MessageProcessor} does.
+     */
+    @Override
+    public S7RequestPlan prepareRequest(S7RequestMessage request, int pduSize) throws PlcException {
+        Optional<VarParameter> varParameterOptional = request.getParameter(VarParameter.class);
+        if (!varParameterOptional.isPresent() || (varParameterOptional.get().getType() != ParameterType.READ_VAR)) {
+            return defaultProcessor.prepareRequest(request, pduSize);
+        }
+        List<VarParameterItem> items = varParameterOptional.get().getItems();
+        int numItems = items.size();
+        List<List<ReadBlock>> messageBlocks = distributeBlocks(request, items, pduSize);
+        return new ReadRequestPlan(pduSize, tpduRefGen, numItems, messageBlocks);
+    }
+
+    private List<List<ReadBlock>> distributeBlocks(S7RequestMessage request, List<VarParameterItem> items,
+                                                   int pduSize) {
+        // Calculate the sizes of a read message without any items.
+        S7RequestMessage emptyMessage = new S7RequestMessage(request.getMessageType(), (short) 0,
+            Collections.singletonList(new VarParameter(ParameterType.READ_VAR, Collections.emptyList())),
+            Collections.emptyList(), null);
+        int emptyRequestSize = S7RequestSizeCalculator.getRequestMessageSize(emptyMessage);
+        int emptyResponseSize = S7ResponseSizeEstimator.getEstimatedResponseMessageSize(emptyMessage);
+
+        // A merged block must not produce a response exceeding the PDU size on its own.
+        int maxBlockSize = pduSize - emptyResponseSize - READ_PAYLOAD_ITEM_HEADER_SIZE - 1;
+        List<ReadBlock> blocks = createBlocks(items, maxBlockSize);
+
+        // Add the biggest blocks first, each one to the first message it fits in (first fit decreasing).
+        blocks.sort(Comparator.comparingInt(ReadBlock::getResponseSize).reversed());
+        List<List<ReadBlock>> messageBlocks = new ArrayList<>();
+        List<int[]> messageSizes = new ArrayList<>();
+        for (ReadBlock block : blocks) {
+            int i = 0;
+            while (i < messageBlocks.size()) {
+                int[] sizes = messageSizes.get(i);
+                if ((sizes[0] + block.getRequestSize() <= pduSize) && (sizes[1] + block.getResponseSize() <= pduSize)) {
+                    break;
+                }
+                i++;
+            }
+            if (i == messageBlocks.size()) {
+                messageBlocks.add(new LinkedList<>());
+                messageSizes.add(new int[]{emptyRequestSize, emptyResponseSize});
+            }
+            messageBlocks.get(i).add(block);
+            messageSizes.get(i)[0] += block.getRequestSize();
+            messageSizes.get(i)[1] += block.getResponseSize();
+        }
+        return messageBlocks;
+    }
+
+    private static Collection<S7RequestMessage> createReadRequestMessages(AtomicInteger tpduRefGen,
+                                                                          S7RequestMessage request, int numItems,
+                                                                   List<List<ReadBlock>> messageBlocks) {
+        // Create one sub message for every group of blocks.
+        ReadCompositeRequestMessage compositeRequestMessage = new ReadCompositeRequestMessage(request, numItems);
+        for (List<ReadBlock> subMessageBlocks : messageBlocks) {
+            List<VarParameterItem> subMessageItems = new LinkedList<>();
+            for (ReadBlock block : subMessageBlocks) {
+                subMessageItems.add(block.getParameterItem());
+            }
+            S7RequestMessage subMessage = new S7RequestMessage(
+                request.getMessageType(), (short) tpduRefGen.getAndIncrement(),
+                Collections.singletonList(new VarParameter(ParameterType.READ_VAR, subMessageItems)),
+                Collections.emptyList(), compositeRequestMessage);
+            compositeRequestMessage.addRequestMessage(subMessage, subMessageBlocks);
+        }
+        return compositeRequestMessage.getRequestMessages();
+    }
+
+    @Override
+    public S7ResponseMessage processResponse(S7RequestMessage request, S7ResponseMessage response)
+        throws PlcException {
+        if (!(request.getParent() instanceof ReadCompositeRequestMessage)) {
+            return defaultProcessor.processResponse(request, response);
+        }
+        ReadCompositeRequestMessage parent = (ReadCompositeRequestMessage) request.getParent();
+        if (parent.isFailed()) {
+            return null;
+        }
+        Optional<VarPayload> optionalVarPayload = response.getPayload(VarPayload.class);
+        if (!optionalVarPayload.isPresent()) {
+            // The PLC rejected the whole request (error class and code are set in the header), so the
+            // other parts can't complete the original request anymore, answer it with the error right away.
+            parent.setFailed();
+            return new S7ResponseMessage(response.getMessageType(), parent.getOriginalRequest().getTpduReference(),
+                Collections.emptyList(), Collections.emptyList(), response.getErrorClass(), response.getErrorCode());
+        }
+        VarPayload varPayload = optionalVarPayload.get();
+        List<ReadBlock> blocks = parent.getBlocks(request);
+        if (blocks.size() != varPayload.getItems().size()) {
+            throw new PlcProtocolException("Number of items in request and response don't match");
+        }
+
+        // Slice the data of every block back into the items it was created from.
+        Iterator<VarPayloadItem> payloadItems = varPayload.getItems().iterator();
+        for (ReadBlock block : blocks) {
+            block.sliceResponse(payloadItems.next(), parent.getPayloadItems());
+        }
+
+        if (!parent.isAcknowledged()) {
+            return null;
+        }
+        S7RequestMessage originalRequest = parent.getOriginalRequest();
+        List<VarParameterItem> originalItems = originalRequest.getParameter(VarParameter.class)
+            .map(VarParameter::getItems).orElse(Collections.emptyList());
+        return new S7ResponseMessage(response.getMessageType(), originalRequest.getTpduReference(),
+            Collections.singletonList(new VarParameter(ParameterType.READ_VAR, new LinkedList<>(originalItems))),
+            Collections.singletonList(new VarPayload(ParameterType.READ_VAR,
+                new LinkedList<>(Arrays.asList(parent.getPayloadItems())))),
+            (byte) 0, (byte) 0);
+    }
+
+    private List<ReadBlock> createBlocks(List<VarParameterItem> items, int maxBlockSize) {
+        List<ReadBlock> blocks = new LinkedList<>();
+
+        // Items which can't be merged are sent unchanged.
+        List<Integer> mergeableIndexes = new ArrayList<>();
+        for (int i = 0; i < items.size(); i++) {
+            if (isMergeable(items.get(i))) {
+                mergeableIndexes.add(i);
+            } else {
+                blocks.add(new ReadBlock(items.get(i), i));
+            }
+        }
+
+        // Sort the remaining items by memory area, data block and byte offset.
+        mergeableIndexes.sort(Comparator
+            .comparing((Integer index) -> ((S7AnyVarParameterItem) items.get(index)).getMemoryArea())
+            .thenComparingInt(index -> ((S7AnyVarParameterItem) items.get(index)).getDataBlockNumber())
+            .thenComparingInt(index -> ((S7AnyVarParameterItem) items.get(index)).getByteOffset()));
+
+        ReadBlock currentBlock = null;
+        for (Integer index : mergeableIndexes) {
+            S7AnyVarParameterItem item = (S7AnyVarParameterItem) items.get(index);
+            if ((currentBlock == null) || !currentBlock.canAdd(item, maxGap, maxBlockSize)) {
+                currentBlock = new ReadBlock(item, index);
+                blocks.add(currentBlock);
+            } else {
+                currentBlock.add(item, index);
+            }
+        }
+        return blocks;
+    }
+
+    private static boolean isMergeable(VarParameterItem item) {
+        if (!(item instanceof S7AnyVarParameterItem)) {
+            return false;
+        }
+        S7AnyVarParameterItem s7AnyItem = (S7AnyVarParameterItem) item;
+        // Bit values are returned in a different format and some types don't have a fixed size.
+        return (s7AnyItem.getSpecificationType() == SpecificationType.VARIABLE_SPECIFICATION) &&
+            (s7AnyItem.getTransportSize() != TransportSize.BIT) &&
+            (s7AnyItem.getTransportSize().getSizeInBytes() > 0);
+    }
+
+    private static int getSize(S7AnyVarParameterItem item) {
+        return item.getNumElements() * item.getTransportSize().getSizeInBytes();
+    }
+
+    /**
+     * One item sent to the PLC, which is either an unchanged item of the original request or
+     * a BYTE-array read covering multiple items of the original request.
+     */
+    private static class ReadBlock {
+
+        private final List<S7AnyVarParameterItem> items;
+        private final List<Integer> indexes;
+        private final VarParameterItem originalItem;
+        private int startOffset;
+        private int endOffset;
+
+        private ReadBlock(VarParameterItem item, int index) {
+            this.items = new LinkedList<>();
+            this.indexes = new LinkedList<>();
+            this.originalItem = item;
+            indexes.add(index);
+            if (isMergeable(item)) {
+                S7AnyVarParameterItem s7AnyItem = (S7AnyVarParameterItem) item;
+                items.add(s7AnyItem);
+                startOffset = s7AnyItem.getByteOffset();
+                endOffset = startOffset + getSize(s7AnyItem);
+            }
+        }
+
+        private boolean canAdd(S7AnyVarParameterItem item, int maxGap, int maxBlockSize) {
+            S7AnyVarParameterItem first = items.get(0);
+            if ((first.getMemoryArea() != item.getMemoryArea()) ||
+                (first.getDataBlockNumber() != item.getDataBlockNumber())) {
+                return false;
+            }
+            int itemEndOffset = item.getByteOffset() + getSize(item);
+            return (item.getByteOffset() - endOffset <= maxGap) &&
+                (Math.max(endOffset, itemEndOffset) - startOffset <= maxBlockSize);
+        }
+
+        private void add(S7AnyVarParameterItem item, int index) {
+            items.add(item);
+            indexes.add(index);
+            endOffset = Math.max(endOffset, item.getByteOffset() + getSize(item));
+        }
+
+        private boolean isMerged() {
+            return items.size() > 1;
+        }
+
+        private VarParameterItem getParameterItem() {
+            if (!isMerged()) {
+                return originalItem;
+            }
+            S7AnyVarParameterItem first = items.get(0);
+            return new S7AnyVarParameterItem(first.getSpecificationType(), first.getMemoryArea(),
+                TransportSize.BYTE, (short) (endOffset - startOffset), first.getDataBlockNumber(),
+                (short) startOffset, (byte) 0);
+        }
+
+        private int getRequestSize() {
+            return S7RequestSizeCalculator.getRequestItemTotalSize(getParameterItem(), null);
+        }
+
+        private int getResponseSize() {
+            return S7ResponseSizeEstimator.getEstimatedResponseReadItemTotalSize(getParameterItem(), null);
+        }
+
+        private void sliceResponse(VarPayloadItem payloadItem, VarPayloadItem[] results) {
+            if (!isMerged()) {
+                results[indexes.get(0)] = payloadItem;
+                return;
+            }
+            byte[] data = payloadItem.getData();
+            Iterator<Integer> indexIterator = indexes.iterator();
+            for (S7AnyVarParameterItem item : items) {
+                int index = indexIterator.next();
+                DataTransportSize dataTransportSize = DataTransportSize.getForTransportSize(item.getTransportSize());
+                int offset = item.getByteOffset() - startOffset;
+                int size = getSize(item);
+                if (payloadItem.getReturnCode() != DataTransportErrorCode.OK) {
+                    results[index] = new VarPayloadItem(payloadItem.getReturnCode(), dataTransportSize, null);
+                } else if ((data == null) || (offset + size > data.length)) {
+                    // The PLC returned less data than requested.
+                    results[index] = new VarPayloadItem(DataTransportErrorCode.NOT_FOUND, dataTransportSize, null);
+                } else {
+                    results[index] = new VarPayloadItem(DataTransportErrorCode.OK, dataTransportSize,
+                        Arrays.copyOfRange(data, offset, offset + size));
+                }
+            }
+        }
+
+    }
+
+    /**
+     * Plans are kept by prepared requests, weakly keyed by the processor that created them, so they must not
+     * reference the processor (which an anonymous or inner class would do).
+     */
+    private static class ReadRequestPlan extends S7RequestPlan {
+
+        private final AtomicInteger tpduRefGen;
+        private final int numItems;
+        private final List<List<ReadBlock>> messageBlocks;
+
+        private ReadRequestPlan(int pduSize, AtomicInteger tpduRefGen, int numItems,
+                                List<List<ReadBlock>> messageBlocks) {
+            super(pduSize, messageBlocks.size());
+            this.tpduRefGen = tpduRefGen;
+            this.numItems = numItems;
+            this.messageBlocks = messageBlocks;
+        }
+
+        @Override
+        public Collection<? extends S7RequestMessage> createRequestMessages(S7RequestMessage request) {
+            return createReadRequestMessages(tpduRefGen, request, numItems, messageBlocks);
+        }
+
+    }
+
+    static class ReadCompositeRequestMessage implements ProtocolMessage {
+
+        private final S7RequestMessage originalRequest;
+        private final Map<S7RequestMessage, List<ReadBlock>> requestMessages;
+        private final VarPayloadItem[] payloadItems;
+        private boolean failed;
+
+        private ReadCompositeRequestMessage(S7RequestMessage originalRequest, int numItems) {
+            this.originalRequest = originalRequest;
+            this.requestMessages = new LinkedHashMap<>();
+            this.payloadItems = new VarPayloadItem[numItems];
+        }
+
+        @Override
+        public ProtocolMessage getParent() {
+            return originalRequest;
+        }
+
+        private S7RequestMessage getOriginalRequest() {
+            return originalRequest;
+        }
+
+        /**
+         * A {@link ReadCompositeRequestMessage} is only acknowledged, if all children are acknowledged.
+         *
+         * @return true if all children are acknowledged.
+         */
+        private boolean isAcknowledged() {
+            for (S7RequestMessage requestMessage : requestMessages.keySet()) {
+                if (!requestMessage.isAcknowledged()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void addRequestMessage(S7RequestMessage requestMessage, List<ReadBlock> blocks) {
+            requestMessages.put(requestMessage, blocks);
+        }
+
+        private Collection<S7RequestMessage> getRequestMessages() {
+            return requestMessages.keySet();
+        }
+
+        private List<ReadBlock> getBlocks(S7RequestMessage requestMessage) {
+            return requestMessages.get(requestMessage);
+        }
+
+        private VarPayloadItem[] getPayloadItems() {
+            return payloadItems;
+        }
+
+        /**
+         * @return true, if the original request has already been answered with an error.
+         */
+        private boolean isFailed() {
+            return failed;
+        }
+
+        private void setFailed() {
+            failed = true;
+        }
+
+    }
+
+}
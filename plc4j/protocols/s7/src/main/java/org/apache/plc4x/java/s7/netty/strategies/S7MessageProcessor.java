@@ -35,4 +35,16 @@ public interface S7MessageProcessor {
 
     S7ResponseMessage processResponse(S7RequestMessage request, S7ResponseMessage response) throws PlcException;
 
+    /**
+     * Plans how a request that is sent repeatedly is processed, so this only has to be done once.
+     *
+     * @param request request to plan.
+     * @param pduSize negotiated pdu size.
+     * @return the plan or null, if this processor doesn't support preparing this type of request.
+     * @throws PlcException if the request can't be processed.
+     */
+    default S7RequestPlan prepareRequest(S7RequestMessage request, int pduSize) throws PlcException {
+        return null;
+    }
+
 }
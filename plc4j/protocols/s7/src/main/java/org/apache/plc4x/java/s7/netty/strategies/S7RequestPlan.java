@@ -0,0 +1,71 @@
+package org.apache.plc4x.java.s7.netty.strategies;
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+
+import org.apache.plc4x.java.s7.netty.model.messages.S7RequestMessage;
+
+import java.util.Collection;
+
+/**
+ * Result of planning how a request is sent, created by {@link S7MessageProcessor#prepareRequest(S7RequestMessage, int)}.
+ * A plan can be used for sending requests with the same items again and again without having to do the planning
+ * again. It also keeps the encoded form of the messages, so the protocol layer only needs to patch the tpdu
+ * reference when sending them again.
+ */
+public abstract class S7RequestPlan {
+
+    private final int pduSize;
+    private final byte[][] encodedMessages;
+
+    protected S7RequestPlan(int pduSize, int numMessages) {
+        this.pduSize = pduSize;
+        this.encodedMessages = new byte[numMessages][];
+    }
+
+    /**
+     * @return the pdu size the plan was created for.
+     */
+    public int getPduSize() {
+        return pduSize;
+    }
+
+    /**
+     * Creates the messages for sending the given request. Every call creates new messages with new tpdu
+     * references, which are processed by {@link S7MessageProcessor#processResponse} just like the messages
+     * created by {@link S7MessageProcessor#processRequest}. Apart from the tpdu references the messages
+     * are always the same.
+     *
+     * @param request request with the same items as the one this plan was created for.
+     * @return the messages to send, always in the same order.
+     */
+    public abstract Collection<? extends S7RequestMessage> createRequestMessages(S7RequestMessage request);
+
+    /**
+     * @param messageIndex index of the message in the collection returned by {@link #createRequestMessages}.
+     * @return the encoded message or null, if it hasn't been encoded yet.
+     */
+    public byte[] getEncodedMessage(int messageIndex) {
+        return encodedMessages[messageIndex];
+    }
+
+    public void setEncodedMessage(int messageIndex, byte[] encodedMessage) {
+        encodedMessages[messageIndex] = encodedMessage;
+    }
+
+}
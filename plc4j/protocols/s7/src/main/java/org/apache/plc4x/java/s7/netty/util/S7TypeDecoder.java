@@ -30,6 +30,24 @@ public class S7TypeDecoder {
         // Utility class
     }
 
+    /**
+     * Decodes the values the same way as {@link #decodeData(Class, byte[])}, but values of a fixed size
+     * (booleans and numbers) are returned as {@link S7ValueList} view on the data, which doesn't box
+     * the single values until they are accessed and provides them as primitive arrays.
+     *
+     * @param datatype type of the values.
+     * @param s7Data   data as received from the PLC.
+     * @param <T>      type of the values.
+     * @return the decoded values.
+     * @throws PlcProtocolException if the data type isn't supported.
+     */
+    public static <T> List<T> decodeDataAsView(Class<T> datatype, byte[] s7Data) throws PlcProtocolException {
+        if (S7ValueList.isSupported(datatype)) {
+            return new S7ValueList<>(datatype, s7Data);
+        }
+        return decodeData(datatype, s7Data);
+    }
+
     @SuppressWarnings("unchecked")
     public static <T> List<T> decodeData(Class<T> datatype, byte[] s7Data) throws PlcProtocolException {
 
@@ -65,14 +83,14 @@ public class S7TypeDecoder {
                 // https://www.sps-lehrgang.de/zahlenformate-step7/#c144
                 // https://de.wikipedia.org/wiki/IEEE_754
                 long longValue = (((long) (s7Data[i] & 0xff)) << 56)
-                    | (((long) (s7Data[i] & 0xff)) << 48)
-                    | (((long) (s7Data[i + 1] & 0xff)) << 40)
-                    | (((long) (s7Data[i + 2] & 0xff)) << 32)
+                    | (((long) (s7Data[i + 1] & 0xff)) << 48)
+                    | (((long) (s7Data[i + 2] & 0xff)) << 40)
+                    | (((long) (s7Data[i + 3] & 0xff)) << 32)
 
-                    | (((long) (s7Data[i + 3] & 0xff)) << 24)
-                    | (((long) (s7Data[i + 4] & 0xff)) << 16)
-                    | (((long) (s7Data[i + 5] & 0xff)) << 8)
-                    | (((long) s7Data[i + 6] & 0xff));
+                    | (((long) (s7Data[i + 4] & 0xff)) << 24)
+                    | (((long) (s7Data[i + 5] & 0xff)) << 16)
+                    | (((long) (s7Data[i + 6] & 0xff)) << 8)
+                    | (((long) s7Data[i + 7] & 0xff));
                 result.add(Double.longBitsToDouble(longValue));
                 i += 8;
             } else if (datatype == String.class) {
@@ -0,0 +1,186 @@
+/*
+ Licensed to the Apache Software Foundation (ASF) under one
+ or more contributor license agreements.  See the NOTICE file
+ distributed with this work for additional information
+ regarding copyright ownership.  The ASF licenses this file
+ to you under the Apache License, Version 2.0 (the
+ "License"); you may not use this file except in compliance
+ with the License.  You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing,
+ software distributed under the License is distributed on an
+ "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ KIND, either express or implied.  See the License for the
+ specific language governing permissions and limitations
+ under the License.
+ */
+package org.apache.plc4x.java.s7.netty.util;
+
+import org.apache.plc4x.java.api.types.PrimitiveValueList;
+
+import java.util.AbstractList;
+import java.util.Objects;
+
+/**
+ * Read-only view on the data of a S7 read response, that decodes the (big endian) values on access
+ * instead of creating a boxed object for every element up front. Arrays of primitive values are
+ * decoded directly from the received bytes.
+ *
+ * @param <T> type of the values, one of the types supported by {@link #isSupported(Class)}.
+ */
+public class S7ValueList<T> extends AbstractList<T> implements PrimitiveValueList<T> {
+
+    private final Class<T> datatype;
+    private final byte[] s7Data;
+    private final int elementSize;
+    private final int size;
+
+    public S7ValueList(Class<T> datatype, byte[] s7Data) {
+        Objects.requireNonNull(datatype, "Datatype must not be null");
+        Objects.requireNonNull(s7Data, "Data must not be null");
+        if (!isSupported(datatype)) {
+            throw new IllegalArgumentException("Unsupported data type " + datatype.getSimpleName());
+        }
+        this.datatype = datatype;
+        this.s7Data = s7Data;
+        this.elementSize = getElementSize(datatype);
+        this.size = s7Data.length / elementSize;
+    }
+
+    /**
+     * @param datatype type of the values.
+     * @return true if values of this type have a fixed size and can be decoded by this list.
+     */
+    public static boolean isSupported(Class<?> datatype) {
+        return getElementSize(datatype) > 0;
+    }
+
+    private static int getElementSize(Class<?> datatype) {
+        if ((datatype == Boolean.class) || (datatype == Byte.class)) {
+            return 1;
+        } else if (datatype == Short.class) {
+            return 2;
+        } else if ((datatype == Integer.class) || (datatype == Float.class)) {
+            return 4;
+        } else if (datatype == Double.class) {
+            return 8;
+        }
+        return 0;
+    }
+
+    @Override
+    public Class<T> getDatatype() {
+        return datatype;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public T get(int index) {
+        if ((index < 0) || (index >= size)) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        int offset = index * elementSize;
+        Object value;
+        if (datatype == Boolean.class) {
+            value = getBoolean(offset);
+        } else if (datatype == Byte.class) {
+            value = s7Data[offset];
+        } else if (datatype == Short.class) {
+            value = getShort(offset);
+        } else if (datatype == Integer.class) {
+            value = getInt(offset);
+        } else if (datatype == Float.class) {
+            value = Float.intBitsToFloat(getInt(offset));
+        } else {
+            value = Double.longBitsToDouble(getLong(offset));
+        }
+        return datatype.cast(value);
+    }
+
+    @Override
+    public boolean[] toBooleanArray() {
+        checkDatatype(Boolean.class);
+        boolean[] result = new boolean[size];
+        for (int i = 0; i < size; i++) {
+            result[i] = getBoolean(i);
+        }
+        return result;
+    }
+
+    @Override
+    public byte[] toByteArray() {
+        checkDatatype(Byte.class);
+        return s7Data.clone();
+    }
+
+    @Override
+    public short[] toShortArray() {
+        checkDatatype(Short.class);
+        short[] result = new short[size];
+        for (int i = 0; i < size; i++) {
+            result[i] = getShort(i << 1);
+        }
+        return result;
+    }
+
+    @Override
+    public int[] toIntArray() {
+        checkDatatype(Integer.class);
+        int[] result = new int[size];
+        for (int i = 0; i < size; i++) {
+            result[i] = getInt(i << 2);
+        }
+        return result;
+    }
+
+    @Override
+    public float[] toFloatArray() {
+        checkDatatype(Float.class);
+        float[] result = new float[size];
+        for (int i = 0; i < size; i++) {
+            result[i] = Float.intBitsToFloat(getInt(i << 2));
+        }
+        return result;
+    }
+
+    @Override
+    public double[] toDoubleArray() {
+        checkDatatype(Double.class);
+        double[] result = new double[size];
+        for (int i = 0; i < size; i++) {
+            result[i] = Double.longBitsToDouble(getLong(i << 3));
+        }
+        return result;
+    }
+
+    private void checkDatatype(Class<?> expectedDatatype) {
+        if (datatype != expectedDatatype) {
+            throw new IllegalStateException(
+                "Values are of type " + datatype.getSimpleName() + " not " + expectedDatatype.getSimpleName());
+        }
+    }
+
+    private boolean getBoolean(int offset) {
+        return (s7Data[offset] & 0x01) == 0x01;
+    }
+
+    private short getShort(int offset) {
+        return (short) (((s7Data[offset] & 0xff) << 8) | (s7Data[offset + 1] & 0xff));
+    }
+
+    private int getInt(int offset) {
+        return ((s7Data[offset] & 0xff) << 24) | ((s7Data[offset + 1] & 0xff) << 16) |
+            ((s7Data[offset + 2] & 0xff) << 8) | (s7Data[offset + 3] & 0xff);
+    }
+
+    private long getLong(int offset) {
+        return (((long) getInt(offset)) << 32) | (getInt(offset + 4) & 0xffffffffL);
+    }
+
+}
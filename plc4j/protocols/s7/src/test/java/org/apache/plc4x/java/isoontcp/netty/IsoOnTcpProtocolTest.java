@@ -34,6 +34,7 @@ import org.junit.experimental.categories.Category;
 import org.slf4j.LoggerFactory;
 
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.sameInstance;
 import static org.hamcrest.core.IsInstanceOf.instanceOf;
 import static org.hamcrest.core.IsNull.notNullValue;
 import static org.hamcrest.core.IsNull.nullValue;
@@ -60,6 +61,28 @@ public class IsoOnTcpProtocolTest extends NettyTestBase {
         assertThat("The length value in the packet should reflect the size of the entire data being sent", byteBuf.getShort(2), equalTo((short) (4 + 3)) );
     }
 
+    /**
+     * If the higher layers reserved space for the header, it's written in there
+     * and the buffer is passed on without copying the payload.
+     */
+    @Test
+    @Category(FastTests.class)
+    public void encodeInReservedSpace() {
+        ByteBuf userData = Unpooled.buffer(4 + 3);
+        userData.writerIndex(4);
+        userData.readerIndex(4);
+        userData.writeBytes(new byte[]{(byte) 0x01, (byte) 0x02, (byte) 0x03});
+        EmbeddedChannel channel = new EmbeddedChannel(new IsoOnTcpProtocol());
+        channel.writeOutbound(new IsoOnTcpMessage(userData));
+        channel.checkException();
+        Object obj = channel.readOutbound();
+        assertThat(obj, sameInstance(userData));
+        assertThat(userData.readableBytes(), equalTo(4 + 3));
+        assertThat(userData.getByte(0), equalTo(IsoOnTcpProtocol.ISO_ON_TCP_MAGIC_NUMBER));
+        assertThat(userData.getShort(2), equalTo((short) (4 + 3)));
+        assertThat(userData.getByte(4), equalTo((byte) 0x01));
+    }
+
     /**
      * Happy path test.
      */
@@ -130,6 +153,78 @@ public class IsoOnTcpProtocolTest extends NettyTestBase {
         assertThat(obj, nullValue() );
     }
 
+    /**
+     * If a packet is split up into multiple TCP segments, the data has to be accumulated
+     * until the packet is complete.
+     */
+    @Test
+    @Category(FastTests.class)
+    public void decodeFragmented() {
+        // A 960 byte S7 response arriving in two segments.
+        byte[] packet = createPacket(960);
+        EmbeddedChannel channel = new EmbeddedChannel(new IsoOnTcpProtocol());
+        channel.writeInbound(Unpooled.wrappedBuffer(packet, 0, 500));
+        channel.checkException();
+        assertThat(channel.readInbound(), nullValue());
+
+        channel.writeInbound(Unpooled.wrappedBuffer(packet, 500, packet.length - 500));
+        channel.checkException();
+        Object obj = channel.readInbound();
+        assertThat(obj, instanceOf(IsoOnTcpMessage.class));
+        ByteBuf userData = ((IsoOnTcpMessage) obj).getUserData();
+        assertThat(userData.readableBytes(), equalTo(960));
+        assertThat(userData.getByte(0), equalTo((byte) 0));
+        assertThat(userData.getByte(959), equalTo((byte) (959 & 0xFF)));
+        assertThat(channel.readInbound(), nullValue());
+        userData.release();
+    }
+
+    /**
+     * If multiple packets (and the start of another one) arrive in one TCP segment,
+     * all complete ones have to be decoded and the rest has to be kept.
+     */
+    @Test
+    @Category(FastTests.class)
+    public void decodeMultiplePacketsInOneSegment() {
+        byte[] first = createPacket(3);
+        byte[] second = createPacket(5);
+        byte[] third = createPacket(7);
+        ByteBuf segment = Unpooled.buffer();
+        segment.writeBytes(first).writeBytes(second).writeBytes(third, 0, 6);
+        EmbeddedChannel channel = new EmbeddedChannel(new IsoOnTcpProtocol());
+        channel.writeInbound(segment);
+        channel.checkException();
+        assertThat(((IsoOnTcpMessage) channel.readInbound()).getUserData().readableBytes(), equalTo(3));
+        assertThat(((IsoOnTcpMessage) channel.readInbound()).getUserData().readableBytes(), equalTo(5));
+        assertThat(channel.readInbound(), nullValue());
+
+        channel.writeInbound(Unpooled.wrappedBuffer(third, 6, third.length - 6));
+        channel.checkException();
+        assertThat(((IsoOnTcpMessage) channel.readInbound()).getUserData().readableBytes(), equalTo(7));
+    }
+
+    /**
+     * The payload is passed on as a slice of the received data and not as a copy. As soon as the
+     * next layer has released the payload, the received data has to be released too.
+     */
+    @Test
+    @Category(FastTests.class)
+    public void decodeDoesNotCopyPayload() {
+        ByteBuf segment = Unpooled.buffer();
+        segment.writeBytes(createPacket(9));
+        EmbeddedChannel channel = new EmbeddedChannel(new IsoOnTcpProtocol());
+        channel.writeInbound(segment);
+        channel.checkException();
+        ByteBuf userData = ((IsoOnTcpMessage) channel.readInbound()).getUserData();
+
+        // Modifying the received data has to be visible in the payload.
+        segment.setByte(4, 0x42);
+        assertThat(userData.getByte(0), equalTo((byte) 0x42));
+
+        userData.release();
+        assertThat(segment.refCnt(), equalTo(0));
+    }
+
     /**
      * If logging is set to `DEBUG` then a hexdump of the entire captured packet
      * should be logged
@@ -166,5 +261,16 @@ public class IsoOnTcpProtocolTest extends NettyTestBase {
         }
     }
 
+    private byte[] createPacket(int payloadLength) {
+        byte[] packet = new byte[payloadLength + 4];
+        packet[0] = IsoOnTcpProtocol.ISO_ON_TCP_MAGIC_NUMBER;
+        packet[2] = (byte) (packet.length >> 8);
+        packet[3] = (byte) packet.length;
+        for (int i = 0; i < payloadLength; i++) {
+            packet[i + 4] = (byte) i;
+        }
+        return packet;
+    }
+
 
 }
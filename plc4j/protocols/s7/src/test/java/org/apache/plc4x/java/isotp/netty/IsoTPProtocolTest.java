@@ -128,6 +128,20 @@ public class IsoTPProtocolTest {
         assertThat(userData.readByte(), equalTo(DisconnectReason.NORMAL.getCode()));
     }
 
+    @Test
+    @Category(FastTests.class)
+    public void encodeDisconnectionRequestWithoutUserData() {
+        DisconnectRequestTpdu tpdu = new DisconnectRequestTpdu((short) 0x1, (short) (0x2), DisconnectReason.NORMAL, Collections.emptyList(), null);
+
+        isoTPProtocol.encode(ctx, tpdu, out);
+
+        assertThat("Message not decoded", out, hasSize(1));
+        ByteBuf userData = ((IsoOnTcpMessage) out.get(0)).getUserData();
+
+        assertThat(userData.readableBytes(), equalTo(7));
+        assertThat(userData.getByte(1), equalTo(TpduCode.DISCONNECT_REQUEST.getCode()));
+    }
+
     @Test
     @Category(FastTests.class)
     public void decodeDisconnectionRequest() {
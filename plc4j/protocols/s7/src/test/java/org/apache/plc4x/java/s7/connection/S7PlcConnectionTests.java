@@ -59,6 +59,8 @@ public class S7PlcConnectionTests {
         assertThat("Pdu size is incorrect", s7PlcConnection.getParamPduSize(), equalTo(TpduSize.SIZE_128));
         assertThat("Max AMQ Caller size is incorrect", s7PlcConnection.getParamMaxAmqCaller(), equalTo(2) );
         assertThat("Max AMQ Callee size is incorrect", s7PlcConnection.getParamMaxAmqCallee(), equalTo(3) );
+        assertThat("Optimize reads is incorrect", s7PlcConnection.isParamOptimizeReads(), equalTo(false) );
+        assertThat("Connections is incorrect", s7PlcConnection.getParamConnections(), equalTo(1) );
     }
 
     @Test
@@ -20,11 +20,15 @@ package org.apache.plc4x.java.s7.connection;
 
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.ChannelPromise;
 import io.netty.channel.embedded.EmbeddedChannel;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 import org.apache.plc4x.java.base.connection.TestChannelFactory;
 import org.apache.plc4x.java.base.events.ConnectEvent;
+import org.apache.plc4x.java.isotp.netty.model.types.TpduCode;
 
 import java.io.File;
 import java.io.IOException;
@@ -88,6 +92,29 @@ public class S7PlcTestConnection extends S7PlcConnection {
         byte[] setupCommunicationResponse = readPcapFile(
             "org/apache/plc4x/java/s7/connection/s7-setup-communication-response.pcap");
         channel.writeInbound(Unpooled.wrappedBuffer(setupCommunicationResponse));
+
+        // Just like a real PLC, close the connection as soon as a disconnect request is received.
+        channel.pipeline().addFirst(new ChannelOutboundHandlerAdapter() {
+            @Override
+            public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+                boolean isDisconnectRequest = isDisconnectRequest(msg);
+                super.write(ctx, msg, promise);
+                if (isDisconnectRequest) {
+                    ctx.close();
+                }
+            }
+        });
+    }
+
+    private static boolean isDisconnectRequest(Object msg) {
+        if (!(msg instanceof ByteBuf)) {
+            return false;
+        }
+        ByteBuf buf = (ByteBuf) msg;
+        // The TPDU code follows the ISO on TCP header and the length of the ISO TP header.
+        int tpduCodeIndex = buf.readerIndex() + 5;
+        return (buf.writerIndex() > tpduCodeIndex) &&
+            (buf.getByte(tpduCodeIndex) == TpduCode.DISCONNECT_REQUEST.getCode());
     }
 
     public static byte[] toByteArray(int[] in) {
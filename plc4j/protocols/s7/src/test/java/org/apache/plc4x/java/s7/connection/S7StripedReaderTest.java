@@ -0,0 +1,154 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+package org.apache.plc4x.java.s7.connection;
+
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.apache.plc4x.java.api.messages.*;
+import org.apache.plc4x.java.api.messages.items.ReadRequestItem;
+import org.apache.plc4x.java.api.messages.items.ReadResponseItem;
+import org.apache.plc4x.java.api.types.ResponseCode;
+import org.apache.plc4x.java.s7.model.S7Address;
+import org.apache.plc4x.java.s7.netty.S7PreparedReadRequest;
+import org.apache.plc4x.java.s7.netty.model.types.MemoryArea;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+public class S7StripedReaderTest {
+
+    private List<EmbeddedChannel> channels;
+
+    @Before
+    public void setUp() {
+        channels = Arrays.asList(new EmbeddedChannel(), new EmbeddedChannel(), new EmbeddedChannel());
+    }
+
+    @Test
+    public void readIsSplitOverAllStripesAndJoined() throws Exception {
+        S7StripedReader SUT = new S7StripedReader(new ArrayList<>(channels), 2);
+        PlcReadRequest readRequest = createReadRequest(7);
+
+        CompletableFuture<PlcReadResponse> responseFuture = SUT.read(readRequest);
+
+        // Every stripe reads a part of neighbouring items, answer them in reverse order.
+        List<PlcRequestContainer<PlcReadRequest, PlcReadResponse>> containers = new ArrayList<>();
+        for (EmbeddedChannel channel : channels) {
+            containers.add(channel.readOutbound());
+            assertThat(channel.readOutbound(), nullValue());
+        }
+        assertThat(containers.get(0).getRequest().getRequestItems(), hasSize(2));
+        assertThat(containers.get(1).getRequest().getRequestItems(), hasSize(2));
+        assertThat(containers.get(2).getRequest().getRequestItems(), hasSize(3));
+        Collections.reverse(containers);
+        for (PlcRequestContainer<PlcReadRequest, PlcReadResponse> container : containers) {
+            assertThat(responseFuture.isDone(), is(false));
+            answer(container);
+        }
+
+        PlcReadResponse response = responseFuture.getNow(null);
+        assertThat(response, notNullValue());
+        assertThat(response.getRequest(), sameInstance(readRequest));
+        assertThat(response.getResponseItems(), hasSize(7));
+        for (int i = 0; i < 7; i++) {
+            ReadResponseItem<?> responseItem = response.getResponseItems().get(i);
+            assertThat(responseItem.getRequestItem(), sameInstance(readRequest.getRequestItems().get(i)));
+            assertThat(responseItem.getValues(), equalTo(Collections.singletonList(i)));
+        }
+    }
+
+    @Test
+    public void smallReadIsSentToLeastLoadedStripe() throws Exception {
+        S7StripedReader SUT = new S7StripedReader(new ArrayList<>(channels.subList(0, 2)), 16);
+
+        // Too few items to be split up.
+        CompletableFuture<PlcReadResponse> firstFuture = SUT.read(createReadRequest(20));
+        EmbeddedChannel firstChannel = getChannelWithRequest();
+        PlcRequestContainer<PlcReadRequest, PlcReadResponse> firstContainer = firstChannel.readOutbound();
+        assertThat(SUT.getNumPendingRequests(firstChannel), equalTo(1));
+
+        CompletableFuture<PlcReadResponse> secondFuture = SUT.read(createReadRequest(1));
+        EmbeddedChannel secondChannel = getChannelWithRequest();
+        assertThat(secondChannel, not(sameInstance(firstChannel)));
+
+        answer(firstContainer);
+        answer(secondChannel.readOutbound());
+        assertThat(firstFuture.isDone(), is(true));
+        assertThat(secondFuture.isDone(), is(true));
+        assertThat(SUT.getNumPendingRequests(firstChannel), equalTo(0));
+        assertThat(SUT.getNumPendingRequests(secondChannel), equalTo(0));
+    }
+
+    @Test
+    public void preparedReadReusesTheSameParts() throws Exception {
+        S7StripedReader SUT = new S7StripedReader(new ArrayList<>(channels.subList(0, 2)), 2);
+        PlcReadRequest readRequest = createReadRequest(4);
+        PreparedPlcReadRequest preparedReadRequest = SUT.prepare(readRequest);
+        assertThat(preparedReadRequest.getReadRequest(), sameInstance(readRequest));
+
+        Set<PlcReadRequest> sentRequests = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (int execution = 0; execution < 2; execution++) {
+            CompletableFuture<? extends PlcReadResponse> responseFuture = preparedReadRequest.execute();
+            for (EmbeddedChannel channel : channels.subList(0, 2)) {
+                PlcRequestContainer<PlcReadRequest, PlcReadResponse> container = channel.readOutbound();
+                assertThat(container.getRequest(), instanceOf(S7PreparedReadRequest.class));
+                sentRequests.add(container.getRequest());
+                answer(container);
+            }
+            assertThat(responseFuture.getNow(null).getResponseItems(), hasSize(4));
+        }
+        // Both executions sent the same two prepared parts.
+        assertThat(sentRequests, hasSize(2));
+    }
+
+    private EmbeddedChannel getChannelWithRequest() {
+        for (EmbeddedChannel channel : channels) {
+            if (!channel.outboundMessages().isEmpty()) {
+                return channel;
+            }
+        }
+        throw new AssertionError("No request sent");
+    }
+
+    private PlcReadRequest createReadRequest(int numItems) {
+        PlcReadRequest.Builder builder = PlcReadRequest.builder();
+        for (int i = 0; i < numItems; i++) {
+            builder.addItem(Integer.class, new S7Address(MemoryArea.FLAGS, (short) i));
+        }
+        return builder.build();
+    }
+
+    /**
+     * Answers every item with the byte offset of its address.
+     */
+    @SuppressWarnings("unchecked")
+    private void answer(PlcRequestContainer<PlcReadRequest, PlcReadResponse> container) {
+        List<ReadResponseItem<?>> responseItems = new ArrayList<>();
+        for (ReadRequestItem<?> requestItem : container.getRequest().getRequestItems()) {
+            int value = ((S7Address) requestItem.getAddress()).getByteOffset();
+            responseItems.add(new ReadResponseItem<>((ReadRequestItem<Integer>) requestItem, ResponseCode.OK, value));
+        }
+        container.getResponseFuture().complete(new PlcReadResponse(container.getRequest(), responseItems));
+    }
+
+}
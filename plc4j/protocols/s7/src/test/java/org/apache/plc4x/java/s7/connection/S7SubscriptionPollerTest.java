@@ -0,0 +1,173 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+package org.apache.plc4x.java.s7.connection;
+
+import io.netty.channel.DefaultEventLoop;
+import io.netty.channel.EventLoop;
+import org.apache.plc4x.java.api.exceptions.PlcNotImplementedException;
+import org.apache.plc4x.java.api.messages.*;
+import org.apache.plc4x.java.api.messages.items.*;
+import org.apache.plc4x.java.api.types.ResponseCode;
+import org.apache.plc4x.java.s7.model.S7Address;
+import org.apache.plc4x.java.s7.netty.model.types.MemoryArea;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+public class S7SubscriptionPollerTest {
+
+    private static final int NUM_ITEMS = 500;
+
+    private EventLoop eventLoop;
+
+    private final List<PlcReadRequest> readRequests = new CopyOnWriteArrayList<>();
+
+    // Value returned for all items by the simulated reader.
+    private volatile int currentValue = 1;
+
+    private S7SubscriptionPoller SUT;
+
+    @Before
+    public void setUp() {
+        eventLoop = new DefaultEventLoop();
+        SUT = new S7SubscriptionPoller(this::read, eventLoop, 10, TimeUnit.MILLISECONDS);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        SUT.close();
+        eventLoop.shutdownGracefully(0, 1, TimeUnit.SECONDS).sync();
+    }
+
+    @Test
+    public void cyclicItemsWithSamePeriodAreReadTogether() throws Exception {
+        List<BlockingQueue<SubscriptionEventItem>> events = new ArrayList<>();
+        PlcSubscriptionRequest subscriptionRequest = new PlcSubscriptionRequest();
+        for (int i = 0; i < NUM_ITEMS; i++) {
+            BlockingQueue<SubscriptionEventItem> itemEvents = new LinkedBlockingQueue<>();
+            events.add(itemEvents);
+            subscriptionRequest.addItem(new SubscriptionRequestCyclicItem(
+                Integer.class, new S7Address(MemoryArea.FLAGS, (short) i), toConsumer(itemEvents), TimeUnit.MILLISECONDS, 20));
+        }
+
+        PlcSubscriptionResponse subscriptionResponse = SUT.subscribe(subscriptionRequest).get(1, TimeUnit.SECONDS);
+        assertThat(subscriptionResponse.getResponseItems(), hasSize(NUM_ITEMS));
+        for (SubscriptionResponseItem<?> responseItem : subscriptionResponse.getResponseItems()) {
+            assertThat(responseItem.getResponseCode(), equalTo(ResponseCode.OK));
+        }
+
+        // Every item gets an event every cycle, even if the value doesn't change.
+        for (BlockingQueue<SubscriptionEventItem> itemEvents : events) {
+            assertThat(itemEvents.poll(1, TimeUnit.SECONDS).getValues(), equalTo(Collections.singletonList(1)));
+            assertThat(itemEvents.poll(1, TimeUnit.SECONDS).getValues(), equalTo(Collections.singletonList(1)));
+        }
+        assertThat(eventLoop.submit(SUT::getNumPollGroups).get(), equalTo(1));
+        for (PlcReadRequest readRequest : readRequests) {
+            assertThat(readRequest.getNumberOfItems(), equalTo(NUM_ITEMS));
+        }
+    }
+
+    @Test
+    public void changeOfStateItemsOnlyReportChanges() throws Exception {
+        BlockingQueue<SubscriptionEventItem> events = new LinkedBlockingQueue<>();
+        PlcSubscriptionRequest subscriptionRequest = new PlcSubscriptionRequest();
+        subscriptionRequest.addItem(new SubscriptionRequestChangeOfStateItem(
+            Integer.class, new S7Address(MemoryArea.FLAGS, (short) 0), toConsumer(events)));
+        SUT.subscribe(subscriptionRequest).get(1, TimeUnit.SECONDS);
+
+        assertThat(events.poll(1, TimeUnit.SECONDS).getValues(), equalTo(Collections.singletonList(1)));
+        // Wait for some more cycles without changes.
+        waitForReads(readRequests.size() + 3);
+        assertThat(events.poll(), nullValue());
+
+        currentValue = 2;
+        assertThat(events.poll(1, TimeUnit.SECONDS).getValues(), equalTo(Collections.singletonList(2)));
+        waitForReads(readRequests.size() + 3);
+        assertThat(events.poll(), nullValue());
+    }
+
+    @Test
+    public void unsubscribeStopsPolling() throws Exception {
+        BlockingQueue<SubscriptionEventItem> events = new LinkedBlockingQueue<>();
+        PlcSubscriptionRequest subscriptionRequest = new PlcSubscriptionRequest();
+        subscriptionRequest.addItem(new SubscriptionRequestCyclicItem(
+            Integer.class, new S7Address(MemoryArea.FLAGS, (short) 0), toConsumer(events), TimeUnit.MILLISECONDS, 10));
+        subscriptionRequest.addItem(new SubscriptionRequestChangeOfStateItem(
+            Integer.class, new S7Address(MemoryArea.FLAGS, (short) 1), toConsumer(events)));
+        PlcSubscriptionResponse subscriptionResponse = SUT.subscribe(subscriptionRequest).get(1, TimeUnit.SECONDS);
+        assertThat(events.poll(1, TimeUnit.SECONDS), notNullValue());
+
+        PlcUnsubscriptionRequest unsubscriptionRequest = new PlcUnsubscriptionRequest();
+        for (SubscriptionResponseItem<?> responseItem : subscriptionResponse.getResponseItems()) {
+            unsubscriptionRequest.addItem(new UnsubscriptionRequestItem(responseItem.getSubscriptionHandle()));
+        }
+        SUT.unsubscribe(unsubscriptionRequest).get(1, TimeUnit.SECONDS);
+        assertThat(eventLoop.submit(SUT::getNumPollGroups).get(), equalTo(0));
+
+        // Let a read, which might have been in progress, complete.
+        eventLoop.submit(() -> null).get();
+        int numReads = readRequests.size();
+        events.clear();
+        Thread.sleep(50);
+        assertThat(readRequests.size(), equalTo(numReads));
+        assertThat(events.poll(), nullValue());
+    }
+
+    @Test(expected = PlcNotImplementedException.class)
+    public void eventItemsAreNotSupported() {
+        PlcSubscriptionRequest subscriptionRequest = new PlcSubscriptionRequest();
+        subscriptionRequest.addItem(new SubscriptionRequestEventItem(
+            Integer.class, new S7Address(MemoryArea.FLAGS, (short) 0), event -> {
+        }));
+        SUT.subscribe(subscriptionRequest);
+    }
+
+    @SuppressWarnings("unchecked")
+    private CompletableFuture<PlcReadResponse> read(PlcReadRequest readRequest) {
+        readRequests.add(readRequest);
+        List<ReadResponseItem<?>> responseItems = new ArrayList<>(readRequest.getNumberOfItems());
+        for (ReadRequestItem<?> readRequestItem : readRequest.getRequestItems()) {
+            responseItems.add(new ReadResponseItem((ReadRequestItem) readRequestItem, ResponseCode.OK, Collections.singletonList(currentValue)));
+        }
+        // Complete asynchronously, just like a real read.
+        CompletableFuture<PlcReadResponse> readFuture = new CompletableFuture<>();
+        ForkJoinPool.commonPool().execute(() -> readFuture.complete(new PlcReadResponse(readRequest, responseItems)));
+        return readFuture;
+    }
+
+    private static Consumer<SubscriptionEventItem> toConsumer(BlockingQueue<SubscriptionEventItem> events) {
+        return events::add;
+    }
+
+    private void waitForReads(int numReads) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 1000;
+        while (readRequests.size() < numReads && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        // Let the dispatch of the last read complete.
+        Thread.sleep(20);
+    }
+}
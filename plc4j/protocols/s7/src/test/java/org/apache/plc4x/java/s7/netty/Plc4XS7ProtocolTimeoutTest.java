@@ -0,0 +1,115 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+package org.apache.plc4x.java.s7.netty;
+
+import org.apache.plc4x.java.api.messages.PlcReadResponse;
+import org.apache.plc4x.java.api.messages.PlcRequestContainer;
+import org.apache.plc4x.java.api.messages.specific.TypeSafePlcReadRequest;
+import org.apache.plc4x.java.s7.model.S7DataBlockAddress;
+import org.apache.plc4x.java.s7.netty.model.messages.S7RequestMessage;
+import org.apache.plc4x.java.s7.netty.model.messages.S7ResponseMessage;
+import org.apache.plc4x.java.s7.netty.model.payloads.VarPayload;
+import org.apache.plc4x.java.s7.netty.model.payloads.items.VarPayloadItem;
+import org.apache.plc4x.java.s7.netty.model.types.DataTransportErrorCode;
+import org.apache.plc4x.java.s7.netty.model.types.DataTransportSize;
+import org.apache.plc4x.java.s7.netty.model.types.MessageType;
+import org.apache.plc4x.java.s7.netty.model.types.ParameterType;
+import org.apache.plc4x.test.FastTests;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsInstanceOf.instanceOf;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class Plc4XS7ProtocolTimeoutTest {
+
+    @Test
+    @Category(FastTests.class)
+    public void unansweredRequestTimesOut() throws Exception {
+        Plc4XS7Protocol SUT = new Plc4XS7Protocol(50);
+        CompletableFuture<PlcReadResponse> responseFuture = new CompletableFuture<>();
+        SUT.encode(null, createReadRequest(responseFuture), new ArrayList<>());
+
+        try {
+            responseFuture.get(5, TimeUnit.SECONDS);
+            fail("Request should have timed out");
+        } catch (ExecutionException e) {
+            assertThat(e.getCause(), instanceOf(TimeoutException.class));
+        }
+        assertThat(SUT.getRequestTimeouts().getNumTimeouts(), is(1L));
+        assertThat(SUT.getRequestTimeouts().getNumPending(), is(0));
+    }
+
+    @Test
+    @Category(FastTests.class)
+    public void answeredRequestDoesNotTimeOut() throws Exception {
+        Plc4XS7Protocol SUT = new Plc4XS7Protocol(50);
+        CompletableFuture<PlcReadResponse> responseFuture = new CompletableFuture<>();
+        List<Object> out = new ArrayList<>();
+        SUT.encode(null, createReadRequest(responseFuture), out);
+        assertThat(SUT.getRequestTimeouts().getNumPending(), is(1));
+
+        short tpduReference = ((S7RequestMessage) out.get(0)).getTpduReference();
+        VarPayloadItem payloadItem = new VarPayloadItem(
+            DataTransportErrorCode.OK, DataTransportSize.BYTE_WORD_DWORD, new byte[]{0x42});
+        SUT.decode(null, new S7ResponseMessage(MessageType.ACK, tpduReference, Collections.emptyList(),
+            Collections.singletonList(new VarPayload(ParameterType.READ_VAR, Collections.singletonList(payloadItem))),
+            (byte) 0x00, (byte) 0x00), new ArrayList<>());
+
+        assertThat(responseFuture.isDone(), is(true));
+        assertThat(responseFuture.isCompletedExceptionally(), is(false));
+        assertThat(SUT.getRequestTimeouts().getNumPending(), is(0));
+        assertThat(SUT.getRequestTimeouts().getNumTimeouts(), is(0L));
+    }
+
+    @Test
+    @Category(FastTests.class)
+    public void responseWithoutPayloadFailsRequest() throws Exception {
+        Plc4XS7Protocol SUT = new Plc4XS7Protocol(50);
+        CompletableFuture<PlcReadResponse> responseFuture = new CompletableFuture<>();
+        List<Object> out = new ArrayList<>();
+        SUT.encode(null, createReadRequest(responseFuture), out);
+
+        // The PLC rejected the request with an error in the header.
+        short tpduReference = ((S7RequestMessage) out.get(0)).getTpduReference();
+        SUT.decode(null, new S7ResponseMessage(MessageType.ACK_DATA, tpduReference, Collections.emptyList(),
+            Collections.emptyList(), (byte) 0x85, (byte) 0x00), new ArrayList<>());
+
+        assertThat(responseFuture.isCompletedExceptionally(), is(true));
+        assertThat(SUT.getRequestTimeouts().getNumPending(), is(0));
+    }
+
+    @SuppressWarnings("unchecked")
+    private PlcRequestContainer createReadRequest(CompletableFuture<PlcReadResponse> responseFuture) {
+        TypeSafePlcReadRequest<Byte> request =
+            new TypeSafePlcReadRequest<>(Byte.class, new S7DataBlockAddress((short) 1, (short) 0));
+        return new PlcRequestContainer(request, responseFuture);
+    }
+
+}
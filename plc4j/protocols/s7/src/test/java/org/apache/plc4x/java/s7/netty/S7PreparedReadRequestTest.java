@@ -0,0 +1,82 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+package org.apache.plc4x.java.s7.netty;
+
+import org.apache.plc4x.java.api.messages.PlcReadRequest;
+import org.apache.plc4x.java.s7.model.S7Address;
+import org.apache.plc4x.java.s7.netty.model.messages.S7RequestMessage;
+import org.apache.plc4x.java.s7.netty.model.params.VarParameter;
+import org.apache.plc4x.java.s7.netty.model.params.items.S7AnyVarParameterItem;
+import org.apache.plc4x.java.s7.netty.model.types.*;
+import org.apache.plc4x.java.s7.netty.strategies.DefaultS7MessageProcessor;
+import org.apache.plc4x.java.s7.netty.strategies.ReadOptimizingS7MessageProcessor;
+import org.apache.plc4x.java.s7.netty.strategies.S7MessageProcessor;
+import org.apache.plc4x.java.s7.netty.strategies.S7RequestPlan;
+import org.apache.plc4x.test.FastTests;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.lang.ref.WeakReference;
+import java.util.Collections;
+
+import static java.util.Collections.singletonList;
+import static org.hamcrest.core.IsNull.notNullValue;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class S7PreparedReadRequestTest {
+
+    @Test(timeout = 10000)
+    @Category(FastTests.class)
+    public void requestPlansDontKeepTheirProcessorsAlive() throws Exception {
+        S7PreparedReadRequest preparedReadRequest = new S7PreparedReadRequest(
+            new PlcReadRequest(Byte.class, new S7Address(MemoryArea.FLAGS, (short) 0)), request -> null);
+
+        WeakReference<S7MessageProcessor> defaultProcessor =
+            addRequestPlan(preparedReadRequest, new DefaultS7MessageProcessor());
+        WeakReference<S7MessageProcessor> readOptimizingProcessor =
+            addRequestPlan(preparedReadRequest, new ReadOptimizingS7MessageProcessor());
+
+        // The plans are only weakly keyed by the processors, so these can be collected once their
+        // connections are gone, even though the prepared request is still in use.
+        while ((defaultProcessor.get() != null) || (readOptimizingProcessor.get() != null)) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertThat(defaultProcessor.get(), nullValue());
+        assertThat(readOptimizingProcessor.get(), nullValue());
+    }
+
+    private WeakReference<S7MessageProcessor> addRequestPlan(S7PreparedReadRequest preparedReadRequest,
+                                                             S7MessageProcessor messageProcessor) throws Exception {
+        S7RequestMessage request = new S7RequestMessage(
+            MessageType.JOB,
+            (short) 1,
+            singletonList(new VarParameter(ParameterType.READ_VAR, singletonList(new S7AnyVarParameterItem(
+                SpecificationType.VARIABLE_SPECIFICATION, MemoryArea.FLAGS, TransportSize.BYTE,
+                (short) 1, (short) 0, (short) 0, (byte) 0)))),
+            Collections.emptyList(), null);
+        S7RequestPlan requestPlan = messageProcessor.prepareRequest(request, 256);
+        assertThat(requestPlan, notNullValue());
+        preparedReadRequest.setRequestPlan(messageProcessor, requestPlan);
+        assertThat(preparedReadRequest.getRequestPlan(messageProcessor), notNullValue());
+        return new WeakReference<>(messageProcessor);
+    }
+
+}
@@ -20,26 +20,52 @@ package org.apache.plc4x.java.s7.netty;
 
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.apache.plc4x.java.api.messages.PlcReadRequest;
+import org.apache.plc4x.java.api.messages.PlcReadResponse;
+import org.apache.plc4x.java.api.messages.PlcRequestContainer;
+import org.apache.plc4x.java.api.messages.ProtocolMessage;
+import org.apache.plc4x.java.isoontcp.netty.IsoOnTcpProtocol;
+import org.apache.plc4x.java.isotp.netty.IsoTPProtocol;
 import org.apache.plc4x.java.isotp.netty.model.IsoTPMessage;
+import org.apache.plc4x.java.isotp.netty.model.tpdus.DataTpdu;
 import org.apache.plc4x.java.isotp.netty.model.tpdus.Tpdu;
+import org.apache.plc4x.java.isotp.netty.model.types.TpduCode;
+import org.apache.plc4x.java.isotp.netty.model.types.TpduSize;
 import org.apache.plc4x.java.netty.NettyTestBase;
+import org.apache.plc4x.java.s7.model.S7Address;
+import org.apache.plc4x.java.s7.netty.model.messages.S7Message;
 import org.apache.plc4x.java.s7.netty.model.messages.S7RequestMessage;
 import org.apache.plc4x.java.s7.netty.model.params.VarParameter;
 import org.apache.plc4x.java.s7.netty.model.params.items.S7AnyVarParameterItem;
 import org.apache.plc4x.java.s7.netty.model.payloads.VarPayload;
 import org.apache.plc4x.java.s7.netty.model.payloads.items.VarPayloadItem;
 import org.apache.plc4x.java.s7.netty.model.types.*;
+import org.apache.plc4x.java.s7.netty.strategies.DefaultS7MessageProcessor;
 import org.apache.plc4x.test.FastTests;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.experimental.categories.Category;
 
+import java.util.Collections;
 import java.util.LinkedList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import static java.util.Collections.singletonList;
 import static org.hamcrest.collection.IsCollectionWithSize.hasSize;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.hamcrest.core.IsInstanceOf.instanceOf;
+import static org.hamcrest.core.IsNot.not;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.hamcrest.core.IsSame.sameInstance;
 import static org.junit.Assert.assertThat;
-import static org.mockito.Mockito.mock;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
 
 public class S7ProtocolTest extends NettyTestBase {
 
@@ -93,4 +119,245 @@ public class S7ProtocolTest extends NettyTestBase {
         assertThat(out, hasSize(1));
     }
 
+    @Test
+    @Category(FastTests.class)
+    public void sendWithinMaxAmqCallerWindow() throws Exception {
+        EmbeddedChannel channel = new EmbeddedChannel(new S7Protocol((short) 2, (short) 2, (short) 256));
+        S7Protocol protocol = channel.pipeline().get(S7Protocol.class);
+
+        // A write of three elements is split up into three separate messages by the message processor.
+        channel.writeOutbound(new S7RequestMessage(
+            MessageType.JOB,
+            (short) 1,
+            singletonList(new VarParameter(ParameterType.WRITE_VAR, singletonList(new S7AnyVarParameterItem(
+                SpecificationType.VARIABLE_SPECIFICATION, MemoryArea.DATA_BLOCKS, TransportSize.BYTE,
+                (short) 3, (short) 1, (short) 0, (byte) 0)))),
+            singletonList(new VarPayload(
+                ParameterType.WRITE_VAR,
+                singletonList(new VarPayloadItem(
+                    DataTransportErrorCode.RESERVED,
+                    DataTransportSize.BYTE_WORD_DWORD, new byte[]{1, 2, 3})
+                ))
+            ), null));
+
+        // Only as many messages as the max AMQ caller value allows are sent right away.
+        assertThat(channel.outboundMessages(), hasSize(2));
+        assertThat(protocol.getNumUnacknowledgedMessages(), equalTo(2));
+        assertThat(protocol.getNumQueuedMessages(), equalTo(1));
+        DataTpdu firstTpdu = channel.readOutbound();
+        assertThat(firstTpdu.getParent(), instanceOf(S7RequestMessage.class));
+        channel.readOutbound();
+
+        // Acknowledging one message frees up a slot in the window which sends the remaining message.
+        short tpduReference = ((S7Message) firstTpdu.getParent()).getTpduReference();
+        channel.writeInbound(new IsoTPMessage(mock(Tpdu.class), createWriteResponse(tpduReference)));
+        assertThat(channel.outboundMessages(), hasSize(1));
+        assertThat(protocol.getNumUnacknowledgedMessages(), equalTo(2));
+        assertThat(protocol.getNumQueuedMessages(), equalTo(0));
+        DataTpdu lastTpdu = channel.readOutbound();
+        assertThat(channel.readOutbound(), nullValue());
+        assertThat(((S7Message) lastTpdu.getParent()).getTpduReference(), equalTo((short) (tpduReference + 2)));
+    }
+
+    @Test
+    @Category(FastTests.class)
+    public void holdBackMessagesWithATpduReferenceInFlight() throws Exception {
+        // Without a message processor the messages are sent with the tpdu references they were created with.
+        EmbeddedChannel channel = new EmbeddedChannel(new S7Protocol((short) 2, (short) 2, (short) 256, null));
+        S7Protocol protocol = channel.pipeline().get(S7Protocol.class);
+
+        // Two requests with the same tpdu reference would be indistinguishable when their responses arrive ...
+        channel.writeOutbound(createWriteRequest((short) 5, (byte) 1));
+        channel.writeOutbound(createWriteRequest((short) 5, (byte) 2));
+        channel.checkException();
+
+        // ... so the second one isn't sent, even if the window has a free slot.
+        DataTpdu firstTpdu = channel.readOutbound();
+        assertThat(channel.readOutbound(), nullValue());
+        assertThat(protocol.getNumUnacknowledgedMessages(), equalTo(1));
+        assertThat(protocol.getNumQueuedMessages(), equalTo(1));
+
+        // Once the first one is answered, the second one is sent.
+        channel.writeInbound(new IsoTPMessage(mock(Tpdu.class), createWriteResponse((short) 5)));
+        DataTpdu secondTpdu = channel.readOutbound();
+        assertThat(secondTpdu, not(nullValue()));
+        assertThat(secondTpdu.getParent(), not(sameInstance(firstTpdu.getParent())));
+        assertThat(protocol.getNumUnacknowledgedMessages(), equalTo(1));
+        assertThat(protocol.getNumQueuedMessages(), equalTo(0));
+        firstTpdu.getUserData().release();
+        secondTpdu.getUserData().release();
+    }
+
+    @Test
+    @Category(FastTests.class)
+    public void encodeWholeStackIntoOneBuffer() {
+        EmbeddedChannel channel = new EmbeddedChannel(
+            new IsoOnTcpProtocol(),
+            new IsoTPProtocol((short) 0x0100, (short) 0x0102, TpduSize.SIZE_1024),
+            new S7Protocol((short) 1, (short) 1, (short) 256));
+
+        channel.writeOutbound(new S7RequestMessage(
+            MessageType.JOB,
+            (short) 1,
+            singletonList(new VarParameter(ParameterType.WRITE_VAR, singletonList(new S7AnyVarParameterItem(
+                SpecificationType.VARIABLE_SPECIFICATION, MemoryArea.DATA_BLOCKS, TransportSize.BYTE,
+                (short) 1, (short) 1, (short) 0, (byte) 0)))),
+            singletonList(new VarPayload(
+                ParameterType.WRITE_VAR,
+                singletonList(new VarPayloadItem(
+                    DataTransportErrorCode.RESERVED,
+                    DataTransportSize.BYTE_WORD_DWORD, new byte[]{42})
+                ))
+            ), null));
+        channel.checkException();
+
+        // S7 header (10), write var parameter (2 + 12) and payload (4 + 1)
+        int s7Length = 10 + 14 + 5;
+        ByteBuf packet = channel.readOutbound();
+        assertThat(channel.readOutbound(), nullValue());
+        // All layers wrote into the buffer allocated by the S7 layer, which is exactly as big as the packet.
+        assertThat(packet.readableBytes(), equalTo(4 + 3 + s7Length));
+        assertThat(packet.capacity(), equalTo(packet.readableBytes()));
+        // ISO on TCP header
+        assertThat(packet.readByte(), equalTo((byte) 0x03));
+        assertThat(packet.readByte(), equalTo((byte) 0x00));
+        assertThat(packet.readShort(), equalTo((short) (4 + 3 + s7Length)));
+        // ISO TP data header
+        assertThat(packet.readByte(), equalTo((byte) 0x02));
+        assertThat(packet.readByte(), equalTo(TpduCode.DATA.getCode()));
+        assertThat(packet.readByte(), equalTo((byte) 0x81));
+        // S7 header
+        assertThat(packet.readByte(), equalTo((byte) 0x32));
+        assertThat(packet.readByte(), equalTo(MessageType.JOB.getCode()));
+        packet.skipBytes(4);
+        assertThat(packet.readShort(), equalTo((short) 14));
+        assertThat(packet.readShort(), equalTo((short) 5));
+        // Last byte of the payload
+        assertThat(packet.getByte(packet.writerIndex() - 1), equalTo((byte) 42));
+        packet.release();
+    }
+
+    @Test
+    @Category(FastTests.class)
+    public void sendPreparedReadRequestFromPlan() throws Exception {
+        DefaultS7MessageProcessor messageProcessor = spy(new DefaultS7MessageProcessor());
+        EmbeddedChannel channel = new EmbeddedChannel(
+            new S7Protocol((short) 2, (short) 2, (short) 256, messageProcessor));
+        S7PreparedReadRequest preparedReadRequest = new S7PreparedReadRequest(
+            new PlcReadRequest(Byte.class, new S7Address(MemoryArea.FLAGS, (short) 0)), request -> null);
+
+        ByteBuf firstMessage = writePreparedReadRequest(channel, preparedReadRequest);
+        ByteBuf secondMessage = writePreparedReadRequest(channel, preparedReadRequest);
+
+        // The request was only planned once and the second message was copied from the first one ...
+        verify(messageProcessor, times(1)).prepareRequest(any(), anyInt());
+        verify(messageProcessor, never()).processRequest(any(), anyInt());
+        assertThat(secondMessage.readableBytes(), equalTo(firstMessage.readableBytes()));
+        // ... with only the tpdu reference being patched.
+        short firstTpduReference = firstMessage.getShort(firstMessage.readerIndex() + 4);
+        short secondTpduReference = secondMessage.getShort(secondMessage.readerIndex() + 4);
+        assertThat(secondTpduReference, equalTo((short) (firstTpduReference + 1)));
+        secondMessage.setShort(secondMessage.readerIndex() + 4, firstTpduReference);
+        assertThat(secondMessage, equalTo(firstMessage));
+        firstMessage.release();
+        secondMessage.release();
+    }
+
+    @Test(timeout = 10000)
+    @Category(FastTests.class)
+    public void lostResponseFreesAmqSlot() throws Exception {
+        S7Protocol s7Protocol = new S7Protocol((short) 1, (short) 1, (short) 256);
+        EmbeddedChannel channel = new EmbeddedChannel(s7Protocol, new Plc4XS7Protocol(50));
+        CompletableFuture<PlcReadResponse> lostResponseFuture = new CompletableFuture<>();
+        channel.writeOutbound(new PlcRequestContainer<>(
+            new PlcReadRequest(Byte.class, new S7Address(MemoryArea.FLAGS, (short) 0)), lostResponseFuture));
+        PlcRequestContainer<PlcReadRequest, PlcReadResponse> queuedRequest = new PlcRequestContainer<>(
+            new PlcReadRequest(Byte.class, new S7Address(MemoryArea.FLAGS, (short) 1)), new CompletableFuture<>());
+        channel.writeOutbound(queuedRequest);
+        channel.checkException();
+
+        // Only one request fits into the max AMQ window, the other one is queued.
+        DataTpdu lostTpdu = channel.readOutbound();
+        assertThat(channel.readOutbound(), nullValue());
+
+        // The response to the first request never arrives, so it times out ...
+        try {
+            lostResponseFuture.get(5, TimeUnit.SECONDS);
+            fail("Request should have timed out");
+        } catch (ExecutionException e) {
+            assertThat(e.getCause(), instanceOf(TimeoutException.class));
+        }
+
+        // ... which frees its slot and sends the queued request.
+        DataTpdu nextTpdu;
+        while ((nextTpdu = channel.readOutbound()) == null) {
+            Thread.sleep(10);
+            channel.runPendingTasks();
+        }
+        ProtocolMessage request = nextTpdu.getParent();
+        while (request.getParent() != null) {
+            request = request.getParent();
+        }
+        assertThat(request, sameInstance(queuedRequest));
+        assertThat(s7Protocol.getNumUnacknowledgedMessages(), equalTo(1));
+        assertThat(s7Protocol.getNumQueuedMessages(), equalTo(0));
+        lostTpdu.getUserData().release();
+        nextTpdu.getUserData().release();
+    }
+
+    private ByteBuf writePreparedReadRequest(EmbeddedChannel channel, S7PreparedReadRequest preparedReadRequest) {
+        channel.writeOutbound(new S7RequestMessage(
+            MessageType.JOB,
+            (short) 1,
+            singletonList(new VarParameter(ParameterType.READ_VAR, singletonList(new S7AnyVarParameterItem(
+                SpecificationType.VARIABLE_SPECIFICATION, MemoryArea.FLAGS, TransportSize.BYTE,
+                (short) 1, (short) 0, (short) 0, (byte) 0)))),
+            Collections.emptyList(),
+            new PlcRequestContainer<>(preparedReadRequest, new CompletableFuture<>())));
+        channel.checkException();
+        DataTpdu dataTpdu = channel.readOutbound();
+        assertThat(channel.readOutbound(), nullValue());
+        return dataTpdu.getUserData();
+    }
+
+    private S7RequestMessage createWriteRequest(short tpduReference, byte value) {
+        return new S7RequestMessage(
+            MessageType.JOB,
+            tpduReference,
+            singletonList(new VarParameter(ParameterType.WRITE_VAR, singletonList(new S7AnyVarParameterItem(
+                SpecificationType.VARIABLE_SPECIFICATION, MemoryArea.DATA_BLOCKS, TransportSize.BYTE,
+                (short) 1, (short) 1, (short) 0, (byte) 0)))),
+            singletonList(new VarPayload(
+                ParameterType.WRITE_VAR,
+                singletonList(new VarPayloadItem(
+                    DataTransportErrorCode.RESERVED,
+                    DataTransportSize.BYTE_WORD_DWORD, new byte[]{value})
+                ))
+            ), null);
+    }
+
+    private ByteBuf createWriteResponse(short tpduReference) {
+        ByteBuf buffer = Unpooled.buffer();
+        // Magic Number
+        buffer.writeByte(0x32);
+        buffer.writeByte(MessageType.ACK_DATA.getCode());
+        // Reserved magic value
+        buffer.writeShort(0x0000);
+        // tpduReference
+        buffer.writeShort(tpduReference);
+        // headerParametersLength
+        buffer.writeShort(0x0002);
+        // userDataLength
+        buffer.writeShort(0x0001);
+        // errorClass and errorCode
+        buffer.writeByte(0x00);
+        buffer.writeByte(0x00);
+        // Write var parameter with one item
+        buffer.writeByte(ParameterType.WRITE_VAR.getCode());
+        buffer.writeByte(0x01);
+        // Return code of the item
+        buffer.writeByte(DataTransportErrorCode.OK.getCode());
+        return buffer;
+    }
+
 }
@@ -576,6 +576,93 @@ public class DefaultS7MessageProcessorTest {
         }
     }
 
+    /**
+     * With multiple requests in flight the responses of a split-up request may arrive in any order,
+     * they still have to be merged in the order of the requests.
+     *
+     * @throws PlcException
+     */
+    @Test
+    public void processCompositeMessageReadResponseInReverseOrder() throws PlcException {
+        S7RequestMessage originalRequestMessage = new S7RequestMessage(MessageType.JOB, (short) 1,
+            Collections.emptyList(), Collections.emptyList(), null);
+        DefaultS7MessageProcessor.S7CompositeRequestMessage compositeRequestMessage =
+            new DefaultS7MessageProcessor.S7CompositeRequestMessage(originalRequestMessage);
+
+        List<S7RequestMessage> fragmentRequestMessages = new ArrayList<>();
+        for (short tpduReference = 2; tpduReference < 5; tpduReference++) {
+            S7RequestMessage fragmentRequestMessage = new S7RequestMessage(MessageType.JOB, tpduReference,
+                Collections.emptyList(), Collections.emptyList(), compositeRequestMessage);
+            compositeRequestMessage.addRequestMessage(fragmentRequestMessage);
+            fragmentRequestMessages.add(fragmentRequestMessage);
+        }
+
+        // Answer the last fragment first, every fragment returns its tpdu reference as data.
+        S7ResponseMessage processedResponse = null;
+        for (int i = fragmentRequestMessages.size() - 1; i >= 0; i--) {
+            S7RequestMessage fragmentRequestMessage = fragmentRequestMessages.get(i);
+            fragmentRequestMessage.setAcknowledged(true);
+            short tpduReference = fragmentRequestMessage.getTpduReference();
+            S7ResponseMessage fragmentResponseMessage = new S7ResponseMessage(MessageType.JOB, tpduReference,
+                Collections.singletonList(
+                    new VarParameter(ParameterType.READ_VAR, new LinkedList<>(Collections.singletonList(
+                        new S7AnyVarParameterItem(SpecificationType.VARIABLE_SPECIFICATION, MemoryArea.DATA_BLOCKS,
+                            TransportSize.BYTE, (short) 1, (short) 1, tpduReference, (byte) 0))))),
+                Collections.singletonList(
+                    new VarPayload(ParameterType.READ_VAR, new LinkedList<>(Collections.singletonList(
+                        new VarPayloadItem(DataTransportErrorCode.OK, DataTransportSize.BYTE_WORD_DWORD,
+                            new byte[]{(byte) tpduReference}))))),
+                (byte) 0x00, (byte) 0x00);
+            processedResponse = SUT.processResponse(fragmentRequestMessage, fragmentResponseMessage);
+        }
+
+        assertThat(processedResponse, notNullValue());
+        List<VarParameterItem> parameterItems = processedResponse.getParameter(VarParameter.class).get().getItems();
+        List<VarPayloadItem> payloadItems = processedResponse.getPayload(VarPayload.class).get().getItems();
+        assertThat(parameterItems, hasSize(3));
+        assertThat(payloadItems, hasSize(3));
+        for (int i = 0; i < 3; i++) {
+            assertThat(((S7AnyVarParameterItem) parameterItems.get(i)).getByteOffset(), is((short) (i + 2)));
+            assertThat(payloadItems.get(i).getData(), is(new byte[]{(byte) (i + 2)}));
+        }
+    }
+
+    /**
+     * A fragment answered without payloads (the PLC rejected it with an error in the header) answers
+     * the original request with that error right away, responses to the other fragments are ignored.
+     *
+     * @throws PlcException
+     */
+    @Test
+    public void processCompositeMessageResponseWithoutPayload() throws PlcException {
+        S7RequestMessage originalRequestMessage = new S7RequestMessage(MessageType.JOB, (short) 1,
+            Collections.emptyList(), Collections.emptyList(), null);
+        DefaultS7MessageProcessor.S7CompositeRequestMessage compositeRequestMessage =
+            new DefaultS7MessageProcessor.S7CompositeRequestMessage(originalRequestMessage);
+        S7RequestMessage firstFragment = new S7RequestMessage(MessageType.JOB, (short) 2,
+            Collections.emptyList(), Collections.emptyList(), compositeRequestMessage);
+        S7RequestMessage secondFragment = new S7RequestMessage(MessageType.JOB, (short) 3,
+            Collections.emptyList(), Collections.emptyList(), compositeRequestMessage);
+        compositeRequestMessage.addRequestMessage(firstFragment);
+        compositeRequestMessage.addRequestMessage(secondFragment);
+
+        firstFragment.setAcknowledged(true);
+        S7ResponseMessage processedResponse = SUT.processResponse(firstFragment, new S7ResponseMessage(
+            MessageType.ACK_DATA, (short) 2, Collections.emptyList(), Collections.emptyList(), (byte) 0x85, (byte) 0x00));
+
+        assertThat(processedResponse, notNullValue());
+        assertThat(processedResponse.getTpduReference(), is((short) 1));
+        assertThat(processedResponse.getErrorClass(), is((byte) 0x85));
+        assertThat(processedResponse.getPayloads(), hasSize(0));
+
+        secondFragment.setAcknowledged(true);
+        S7ResponseMessage lateResponse = SUT.processResponse(secondFragment, new S7ResponseMessage(
+            MessageType.ACK_DATA, (short) 3, Collections.emptyList(),
+            Collections.singletonList(new VarPayload(ParameterType.READ_VAR, new LinkedList<>())),
+            (byte) 0x00, (byte) 0x00));
+        assertThat(lateResponse, nullValue());
+    }
+
     /**
      * This test handles the special case in which a response is part of a single request message.
      * This means that it is immediatly finished and is hereby immediatly processed.
@@ -0,0 +1,300 @@
+package org.apache.plc4x.java.s7.netty.strategies;
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+
+import org.apache.plc4x.java.api.exceptions.PlcException;
+import org.apache.plc4x.java.s7.netty.model.messages.S7RequestMessage;
+import org.apache.plc4x.java.s7.netty.model.messages.S7ResponseMessage;
+import org.apache.plc4x.java.s7.netty.model.params.VarParameter;
+import org.apache.plc4x.java.s7.netty.model.params.items.S7AnyVarParameterItem;
+import org.apache.plc4x.java.s7.netty.model.params.items.VarParameterItem;
+import org.apache.plc4x.java.s7.netty.model.payloads.VarPayload;
+import org.apache.plc4x.java.s7.netty.model.payloads.items.VarPayloadItem;
+import org.apache.plc4x.java.s7.netty.model.types.*;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+public class ReadOptimizingS7MessageProcessorTest {
+
+    private ReadOptimizingS7MessageProcessor SUT;
+
+    @Before
+    public void setUp() {
+        SUT = new ReadOptimizingS7MessageProcessor(4);
+    }
+
+    /**
+     * Items of the same data block which are close to each other should be read with one single
+     * BYTE-array read, items of other data blocks or which are too far away should be read separately.
+     *
+     * @throws PlcException something went wrong.
+     */
+    @Test
+    public void readMessageNearbyItemsAreMerged() throws PlcException {
+        S7RequestMessage request = createReadMessage(Arrays.asList(
+            createItem(TransportSize.INT, 1, 1, 10),
+            createItem(TransportSize.BYTE, 1, 2, 0),
+            createItem(TransportSize.DWORD, 1, 1, 2),
+            createItem(TransportSize.BYTE, 1, 1, 40),
+            createItem(TransportSize.BYTE, 1, 1, 7)));
+
+        Collection<? extends S7RequestMessage> processedRequests = SUT.processRequest(request, 250);
+
+        assertThat(processedRequests, hasSize(1));
+        List<VarParameterItem> items = getItems(processedRequests.iterator().next());
+        assertThat(items, hasSize(3));
+        S7AnyVarParameterItem mergedItem = (S7AnyVarParameterItem) items.stream()
+            .filter(item -> ((S7AnyVarParameterItem) item).getByteOffset() == 2).findFirst().get();
+        assertThat(mergedItem.getTransportSize(), equalTo(TransportSize.BYTE));
+        assertThat(mergedItem.getNumElements(), equalTo((short) 10));
+        assertThat(mergedItem.getDataBlockNumber(), equalTo((short) 1));
+        // Items which are not merged are sent unchanged.
+        assertThat(items, hasItem(sameInstance(getItems(request).get(1))));
+        assertThat(items, hasItem(sameInstance(getItems(request).get(3))));
+    }
+
+    /**
+     * When the response arrives, the data of the merged blocks has to be sliced back into
+     * one payload item per item of the original request in the original order.
+     *
+     * @throws PlcException something went wrong.
+     */
+    @Test
+    public void readResponseIsSlicedBackIntoOriginalItems() throws PlcException {
+        S7RequestMessage request = createReadMessage(Arrays.asList(
+            createItem(TransportSize.INT, 1, 1, 4),
+            createItem(TransportSize.BYTE, 2, 1, 0),
+            createItem(TransportSize.BYTE, 1, 2, 0)));
+
+        Collection<? extends S7RequestMessage> processedRequests = SUT.processRequest(request, 250);
+        assertThat(processedRequests, hasSize(1));
+        S7RequestMessage subRequest = processedRequests.iterator().next();
+        List<VarParameterItem> subItems = getItems(subRequest);
+        assertThat(subItems, hasSize(2));
+
+        // Answer every item of the sub request.
+        List<VarPayloadItem> payloadItems = new LinkedList<>();
+        for (VarParameterItem subItem : subItems) {
+            S7AnyVarParameterItem s7AnyItem = (S7AnyVarParameterItem) subItem;
+            if (s7AnyItem.getDataBlockNumber() == 1) {
+                payloadItems.add(new VarPayloadItem(DataTransportErrorCode.OK, DataTransportSize.BYTE_WORD_DWORD,
+                    new byte[]{0x01, 0x02, 0x03, 0x04, 0x05, 0x06}));
+            } else {
+                payloadItems.add(new VarPayloadItem(DataTransportErrorCode.ACCESS_DENIED, null, null));
+            }
+        }
+        subRequest.setAcknowledged(true);
+        S7ResponseMessage processedResponse = SUT.processResponse(subRequest, createReadResponse(payloadItems));
+
+        assertThat(processedResponse, notNullValue());
+        assertThat(processedResponse.getTpduReference(), equalTo(request.getTpduReference()));
+        List<VarPayloadItem> responseItems = processedResponse.getPayload(VarPayload.class).get().getItems();
+        assertThat(responseItems, hasSize(3));
+        assertThat(responseItems.get(0).getReturnCode(), equalTo(DataTransportErrorCode.OK));
+        assertThat(responseItems.get(0).getData(), equalTo(new byte[]{0x05, 0x06}));
+        assertThat(responseItems.get(1).getReturnCode(), equalTo(DataTransportErrorCode.OK));
+        assertThat(responseItems.get(1).getData(), equalTo(new byte[]{0x01, 0x02}));
+        assertThat(responseItems.get(2).getReturnCode(), equalTo(DataTransportErrorCode.ACCESS_DENIED));
+    }
+
+    /**
+     * By reordering the items, four items fit into two messages, while keeping the original
+     * order would require three.
+     *
+     * @throws PlcException something went wrong.
+     */
+    @Test
+    public void readMessageItemsAreReorderedToMinimizeMessages() throws PlcException {
+        S7RequestMessage request = createReadMessage(Arrays.asList(
+            createItem(TransportSize.BYTE, 10, 1, 0),
+            createItem(TransportSize.BYTE, 30, 2, 0),
+            createItem(TransportSize.BYTE, 5, 3, 0),
+            createItem(TransportSize.BYTE, 20, 4, 0)));
+
+        Collection<? extends S7RequestMessage> processedRequests = SUT.processRequest(request, 60);
+
+        assertThat(processedRequests, hasSize(2));
+        for (S7RequestMessage processedRequest : processedRequests) {
+            assertThat(processedRequest.getParent(), instanceOf(ReadOptimizingS7MessageProcessor.ReadCompositeRequestMessage.class));
+        }
+    }
+
+    /**
+     * Merged blocks must never produce a response exceeding the PDU size.
+     *
+     * @throws PlcException something went wrong.
+     */
+    @Test
+    public void readMessageBlocksRespectPduSize() throws PlcException {
+        List<VarParameterItem> items = new LinkedList<>();
+        for (int i = 0; i < 20; i++) {
+            items.add(createItem(TransportSize.DWORD, 1, 1, i * 4));
+        }
+
+        Collection<? extends S7RequestMessage> processedRequests = SUT.processRequest(createReadMessage(items), 60);
+
+        int numBlocks = 0;
+        for (S7RequestMessage processedRequest : processedRequests) {
+            for (VarParameterItem item : getItems(processedRequest)) {
+                assertThat(((S7AnyVarParameterItem) item).getNumElements(), lessThanOrEqualTo((short) 41));
+                numBlocks++;
+            }
+        }
+        assertThat(numBlocks, equalTo(2));
+    }
+
+    /**
+     * If the PLC rejects one of the messages without returning payloads, the original request is answered
+     * with its error right away instead of waiting for the other messages forever.
+     *
+     * @throws PlcException something went wrong.
+     */
+    @Test
+    public void readResponseWithoutPayloadAnswersOriginalRequest() throws PlcException {
+        List<VarParameterItem> items = new LinkedList<>();
+        for (int i = 0; i < 20; i++) {
+            items.add(createItem(TransportSize.DWORD, 1, 1, i * 4));
+        }
+        S7RequestMessage request = createReadMessage(items);
+        List<S7RequestMessage> processedRequests = new ArrayList<>(SUT.processRequest(request, 60));
+        assertThat(processedRequests, hasSize(2));
+
+        S7RequestMessage firstRequest = processedRequests.get(0);
+        firstRequest.setAcknowledged(true);
+        S7ResponseMessage processedResponse = SUT.processResponse(firstRequest, new S7ResponseMessage(
+            MessageType.ACK_DATA, (short) 1, Collections.emptyList(), Collections.emptyList(),
+            (byte) 0x85, (byte) 0x00));
+
+        assertThat(processedResponse, notNullValue());
+        assertThat(processedResponse.getTpduReference(), equalTo(request.getTpduReference()));
+        assertThat(processedResponse.getErrorClass(), equalTo((byte) 0x85));
+        assertThat(processedResponse.getPayloads(), empty());
+
+        // The response to the other message arrives too late and is ignored.
+        S7RequestMessage secondRequest = processedRequests.get(1);
+        secondRequest.setAcknowledged(true);
+        List<VarPayloadItem> payloadItems = new LinkedList<>();
+        for (int i = 0; i < getItems(secondRequest).size(); i++) {
+            payloadItems.add(new VarPayloadItem(DataTransportErrorCode.ACCESS_DENIED, null, null));
+        }
+        assertThat(SUT.processResponse(secondRequest, createReadResponse(payloadItems)), nullValue());
+    }
+
+    /**
+     * A plan for a read request creates the same messages as processing the request, just with new
+     * tpdu references every time, and their responses are sliced back independently of each other.
+     *
+     * @throws PlcException something went wrong.
+     */
+    @Test
+    public void preparedReadRequestIsExecutedRepeatedly() throws PlcException {
+        S7RequestMessage request = createReadMessage(Arrays.asList(
+            createItem(TransportSize.INT, 1, 1, 4),
+            createItem(TransportSize.BYTE, 1, 1, 0)));
+
+        S7RequestPlan plan = SUT.prepareRequest(request, 250);
+        assertThat(plan, notNullValue());
+        assertThat(plan.getPduSize(), equalTo(250));
+        Collection<? extends S7RequestMessage> firstRequests = plan.createRequestMessages(request);
+        Collection<? extends S7RequestMessage> secondRequests = plan.createRequestMessages(request);
+        assertThat(firstRequests, hasSize(1));
+        assertThat(secondRequests, hasSize(1));
+        S7RequestMessage firstRequest = firstRequests.iterator().next();
+        S7RequestMessage secondRequest = secondRequests.iterator().next();
+        assertThat(secondRequest.getTpduReference(), not(equalTo(firstRequest.getTpduReference())));
+        for (S7RequestMessage subRequest : Arrays.asList(firstRequest, secondRequest)) {
+            List<VarParameterItem> items = getItems(subRequest);
+            assertThat(items, hasSize(1));
+            assertThat(((S7AnyVarParameterItem) items.get(0)).getByteOffset(), equalTo((short) 0));
+            assertThat(((S7AnyVarParameterItem) items.get(0)).getNumElements(), equalTo((short) 6));
+        }
+
+        // Answer the second execution first.
+        secondRequest.setAcknowledged(true);
+        S7ResponseMessage secondResponse = SUT.processResponse(secondRequest, createReadResponse(
+            Collections.singletonList(new VarPayloadItem(DataTransportErrorCode.OK,
+                DataTransportSize.BYTE_WORD_DWORD, new byte[]{0x11, 0x12, 0x13, 0x14, 0x15, 0x16}))));
+        firstRequest.setAcknowledged(true);
+        S7ResponseMessage firstResponse = SUT.processResponse(firstRequest, createReadResponse(
+            Collections.singletonList(new VarPayloadItem(DataTransportErrorCode.OK,
+                DataTransportSize.BYTE_WORD_DWORD, new byte[]{0x01, 0x02, 0x03, 0x04, 0x05, 0x06}))));
+
+        List<VarPayloadItem> firstItems = firstResponse.getPayload(VarPayload.class).get().getItems();
+        assertThat(firstItems.get(0).getData(), equalTo(new byte[]{0x05, 0x06}));
+        assertThat(firstItems.get(1).getData(), equalTo(new byte[]{0x01}));
+        List<VarPayloadItem> secondItems = secondResponse.getPayload(VarPayload.class).get().getItems();
+        assertThat(secondItems.get(0).getData(), equalTo(new byte[]{0x15, 0x16}));
+        assertThat(secondItems.get(1).getData(), equalTo(new byte[]{0x11}));
+    }
+
+    /**
+     * Write requests are not optimized and split up just like the {@link DefaultS7MessageProcessor} does.
+     *
+     * @throws PlcException something went wrong.
+     */
+    @Test
+    public void writeMessageIsNotOptimized() throws PlcException {
+        S7RequestMessage request = new S7RequestMessage(MessageType.JOB, (short) 42,
+            Collections.singletonList(new VarParameter(ParameterType.WRITE_VAR, Arrays.asList(
+                createItem(TransportSize.BYTE, 1, 1, 0),
+                createItem(TransportSize.BYTE, 1, 1, 1)))),
+            Collections.singletonList(new VarPayload(ParameterType.WRITE_VAR, Arrays.asList(
+                new VarPayloadItem(DataTransportErrorCode.OK, DataTransportSize.BYTE_WORD_DWORD, new byte[]{0x01}),
+                new VarPayloadItem(DataTransportErrorCode.OK, DataTransportSize.BYTE_WORD_DWORD, new byte[]{0x02})))),
+            null);
+
+        Collection<? extends S7RequestMessage> processedRequests = SUT.processRequest(request, 250);
+
+        assertThat(processedRequests, hasSize(2));
+    }
+
+    ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+    // Helpers
+    ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+    private S7AnyVarParameterItem createItem(TransportSize transportSize, int numElements, int dataBlockNumber,
+                                             int byteOffset) {
+        return new S7AnyVarParameterItem(SpecificationType.VARIABLE_SPECIFICATION, MemoryArea.DATA_BLOCKS,
+            transportSize, (short) numElements, (short) dataBlockNumber, (short) byteOffset, (byte) 0);
+    }
+
+    private S7RequestMessage createReadMessage(List<VarParameterItem> parameterItems) {
+        return new S7RequestMessage(MessageType.JOB, (short) 42,
+            Collections.singletonList(
+                new VarParameter(ParameterType.READ_VAR, parameterItems)),
+            Collections.emptyList(), null);
+    }
+
+    private S7ResponseMessage createReadResponse(List<VarPayloadItem> payloadItems) {
+        return new S7ResponseMessage(MessageType.ACK_DATA, (short) 1,
+            Collections.singletonList(new VarParameter(ParameterType.READ_VAR, Collections.emptyList())),
+            Collections.singletonList(new VarPayload(ParameterType.READ_VAR, payloadItems)),
+            (byte) 0x00, (byte) 0x00);
+    }
+
+    private List<VarParameterItem> getItems(S7RequestMessage requestMessage) {
+        return requestMessage.getParameter(VarParameter.class).get().getItems();
+    }
+
+}
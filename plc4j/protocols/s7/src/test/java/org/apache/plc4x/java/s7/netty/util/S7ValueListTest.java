@@ -0,0 +1,87 @@
+/*
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+*/
+package org.apache.plc4x.java.s7.netty.util;
+
+import org.apache.plc4x.test.FastTests;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.List;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class S7ValueListTest {
+
+    private static final byte[] DATA = {
+        (byte) 0x3F, (byte) 0xC0, (byte) 0x00, (byte) 0x00, (byte) 0xC1, (byte) 0x20, (byte) 0x00, (byte) 0x01,
+        (byte) 0x00, (byte) 0x01, (byte) 0x80, (byte) 0x00, (byte) 0x7F, (byte) 0xFF, (byte) 0xFF, (byte) 0xFE
+    };
+
+    @Test
+    @Category(FastTests.class)
+    public void sameValuesAsDecodeData() throws Exception {
+        for (Class<?> datatype : new Class<?>[]{Boolean.class, Byte.class, Short.class, Integer.class, Float.class, Double.class}) {
+            List<?> expected = S7TypeDecoder.decodeData(datatype, DATA);
+            List<?> view = S7TypeDecoder.decodeDataAsView(datatype, DATA);
+            assertThat(datatype.getSimpleName(), view, equalTo(expected));
+            assertThat(datatype.getSimpleName(), view.hashCode(), equalTo(expected.hashCode()));
+        }
+    }
+
+    @Test
+    @Category(FastTests.class)
+    public void primitiveArrays() {
+        assertThat(new S7ValueList<>(Float.class, DATA).toFloatArray(),
+            equalTo(new float[]{1.5f, Float.intBitsToFloat(0xC1200001), Float.intBitsToFloat(0x00018000), Float.intBitsToFloat(0x7FFFFFFE)}));
+        assertThat(new S7ValueList<>(Integer.class, DATA).toIntArray(),
+            equalTo(new int[]{0x3FC00000, 0xC1200001, 0x00018000, 0x7FFFFFFE}));
+        assertThat(new S7ValueList<>(Short.class, DATA).toShortArray(),
+            equalTo(new short[]{0x3FC0, 0x0000, (short) 0xC120, 0x0001, 0x0001, (short) 0x8000, 0x7FFF, (short) 0xFFFE}));
+        assertThat(new S7ValueList<>(Double.class, DATA).toDoubleArray(),
+            equalTo(new double[]{Double.longBitsToDouble(0x3FC00000C1200001L), Double.longBitsToDouble(0x000180007FFFFFFEL)}));
+        assertThat(new S7ValueList<>(Byte.class, DATA).toByteArray(), equalTo(DATA));
+        boolean[] booleans = new S7ValueList<>(Boolean.class, DATA).toBooleanArray();
+        assertThat(booleans.length, equalTo(DATA.length));
+        assertThat(booleans[0], equalTo(true));
+        assertThat(booleans[1], equalTo(false));
+    }
+
+    @Test
+    @Category(FastTests.class)
+    public void doubleUsesAllEightBytes() throws Exception {
+        byte[] data = {(byte) 0x40, (byte) 0x09, (byte) 0x21, (byte) 0xFB, (byte) 0x54, (byte) 0x44, (byte) 0x2D, (byte) 0x18};
+        assertThat(S7TypeDecoder.decodeData(Double.class, data), contains(Math.PI));
+        assertThat(S7TypeDecoder.decodeDataAsView(Double.class, data), contains(Math.PI));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    @Category(FastTests.class)
+    public void primitiveArrayOfWrongType() {
+        new S7ValueList<>(Float.class, DATA).toIntArray();
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    @Category(FastTests.class)
+    public void readOnly() {
+        new S7ValueList<>(Short.class, DATA).add((short) 1);
+    }
+
+}